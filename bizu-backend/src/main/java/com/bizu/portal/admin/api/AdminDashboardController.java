@@ -3,6 +3,9 @@ package com.bizu.portal.admin.api;
 import com.bizu.portal.commerce.infrastructure.PaymentRepository;
 import com.bizu.portal.commerce.infrastructure.SubscriptionRepository;
 import com.bizu.portal.identity.infrastructure.UserRepository;
+import com.bizu.portal.shared.http.HttpIntegration;
+import com.bizu.portal.shared.http.OutboundHttp;
+import com.bizu.portal.shared.websocket.StompMetrics;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,6 +27,24 @@ public class AdminDashboardController {
     private final UserRepository userRepository;
     private final PaymentRepository paymentRepository;
     private final SubscriptionRepository subscriptionRepository;
+    private final OutboundHttp outboundHttp;
+    private final StompMetrics stompMetrics;
+
+    /**
+     * Latency, errors and circuit state of each outbound integration since startup (this node).
+     */
+    @GetMapping("/integrations")
+    public ResponseEntity<List<HttpIntegration.Snapshot>> getIntegrations() {
+        return ResponseEntity.ok(outboundHttp.snapshots());
+    }
+
+    /**
+     * STOMP sessions, subscriptions per destination and channel pool usage (this node).
+     */
+    @GetMapping("/websocket")
+    public ResponseEntity<StompMetrics.Snapshot> getWebSocket() {
+        return ResponseEntity.ok(stompMetrics.snapshot());
+    }
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
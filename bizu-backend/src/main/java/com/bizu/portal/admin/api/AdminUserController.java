@@ -10,7 +10,7 @@ import com.bizu.portal.student.domain.GamificationStats;
 import com.bizu.portal.student.infrastructure.GamificationRepository;
 import com.bizu.portal.commerce.application.EntitlementService;
 import com.bizu.portal.identity.application.UserService;
-import com.bizu.portal.student.api.StudentProgressSSEController;
+import com.bizu.portal.shared.sse.SseHub;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -41,6 +41,7 @@ public class AdminUserController {
     private final SubscriptionRepository subscriptionRepository;
     private final PlanRepository planRepository;
     private final EntitlementService entitlementService;
+    private final SseHub sseHub;
 
     @GetMapping
     public ResponseEntity<Page<AdminUserDto>> listUsers(
@@ -139,7 +140,7 @@ public class AdminUserController {
             }
 
             // Notifica o frontend via SSE para recarregar permissões instantaneamente
-            StudentProgressSSEController.pushUpdate(id, "entitlement_change", "upgraded");
+            sseHub.pushUpdate(id, "entitlement_change", "upgraded");
         }
         
         return ResponseEntity.ok(user);
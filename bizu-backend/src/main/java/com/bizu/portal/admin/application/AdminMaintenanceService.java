@@ -28,6 +28,7 @@ public class AdminMaintenanceService {
     // Content Repositories
     private final FlashcardRepository flashcardRepository;
     private final QuestionRepository questionRepository;
+    private final com.bizu.portal.content.application.QuestionPoolService questionPoolService;
     private final MaterialRepository materialRepository;
     private final SimuladoRepository simuladoRepository;
     private final ModuleRepository moduleRepository;
@@ -56,6 +57,7 @@ public class AdminMaintenanceService {
         log.info("Limpando conteúdo (Questões, Flashcards, Materiais, Simulados)...");
         flashcardRepository.deleteAll();
         questionRepository.deleteAll();
+        questionPoolService.invalidate();
         materialRepository.deleteAll();
         simuladoRepository.deleteAll();
         flashcardDeckRepository.deleteAll();
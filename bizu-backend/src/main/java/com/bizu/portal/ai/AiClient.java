@@ -0,0 +1,53 @@
+package com.bizu.portal.ai;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Calls to {@link AiService} for background jobs: every attempt goes through the shared
+ * {@link AiRateLimiter}, and retryable failures (429, 5xx, timeouts) are retried up to
+ * {@code axon.ai.retry.max-attempts} times with exponential backoff and jitter.
+ * Blocks the calling thread, so it is meant for executor threads, not request threads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiClient {
+
+    private final AiService aiService;
+    private final AiRateLimiter aiRateLimiter;
+
+    @Value("${axon.ai.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${axon.ai.retry.backoff-ms:2000}")
+    private long backoffMs;
+
+    public String complete(String prompt, String content) throws InterruptedException {
+        return withRetry(() -> aiService.complete(prompt, content));
+    }
+
+    public String completeWithImage(String prompt, String imageUrl) throws InterruptedException {
+        return withRetry(() -> aiService.completeWithImage(prompt, imageUrl));
+    }
+
+    private String withRetry(Supplier<String> call) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            aiRateLimiter.acquire();
+            try {
+                return call.get();
+            } catch (AiException e) {
+                if (!e.isRetryable() || attempt >= maxAttempts) throw e;
+                long delay = backoffMs * (1L << (attempt - 1));
+                delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                log.info("AI call failed ({}), retrying in {} ms (attempt {}/{})", e.getMessage(), delay, attempt + 1, maxAttempts);
+                Thread.sleep(delay);
+            }
+        }
+    }
+}
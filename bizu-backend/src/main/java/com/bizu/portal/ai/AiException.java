@@ -0,0 +1,24 @@
+package com.bizu.portal.ai;
+
+/**
+ * Failed call to the AI API. {@code retryable} marks failures worth retrying
+ * (rate limited, server errors, timeouts), as opposed to bad requests or a missing key.
+ */
+public class AiException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public AiException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public AiException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bizu.portal.ai;
+
+import com.bizu.portal.shared.concurrent.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket in front of the AI API: {@code requests-per-minute} sustained, with bursts of up to
+ * {@code burst} requests. Callers block in {@link #acquire()} until a token is available.
+ * The limit is per instance.
+ */
+@Component
+public class AiRateLimiter {
+
+    private final TokenBucket bucket;
+
+    public AiRateLimiter(@Value("${axon.ai.rate-limit.requests-per-minute:60}") int requestsPerMinute,
+                         @Value("${axon.ai.rate-limit.burst:5}") int burst) {
+        this.bucket = new TokenBucket(requestsPerMinute, burst);
+    }
+
+    public void acquire() throws InterruptedException {
+        bucket.acquire();
+    }
+}
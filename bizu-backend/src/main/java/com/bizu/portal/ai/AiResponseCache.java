@@ -0,0 +1,60 @@
+package com.bizu.portal.ai;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Cache of AI answers keyed by SHA-256 of (prompt, content), so running the same prompt over
+ * the same text again (e.g. re-generating questions for a material) is not billed twice.
+ *
+ * Key format: ai-response:{sha256} → answer text, kept for 30 days.
+ * Best effort: when Redis is unavailable every call goes to the API.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiResponseCache {
+
+    private static final String KEY_PREFIX = "ai-response:";
+    private static final Duration TTL = Duration.ofDays(30);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public Optional<String> get(String prompt, String content) {
+        try {
+            return Optional.ofNullable(redisTemplate.opsForValue().get(key(prompt, content)));
+        } catch (Exception e) {
+            log.warn("Cache de respostas da IA indisponível: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String prompt, String content, String response) {
+        try {
+            redisTemplate.opsForValue().set(key(prompt, content), response, TTL);
+        } catch (Exception e) {
+            log.warn("Falha ao gravar resposta da IA no cache: {}", e.getMessage());
+        }
+    }
+
+    private static String key(String prompt, String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
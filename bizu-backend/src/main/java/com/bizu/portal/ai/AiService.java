@@ -1,7 +1,10 @@
 package com.bizu.portal.ai;
 
+import com.bizu.portal.shared.http.OutboundHttp;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 import java.util.*;
@@ -12,18 +15,34 @@ public class AiService {
     @Value("${AI_API_KEY:}")
     private String apiKey;
 
-    private final String apiUrl = "https://api.openai.com/v1/chat/completions";
+    @Value("${axon.ai.api-url:https://api.openai.com/v1/chat/completions}")
+    private String apiUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    public AiService(OutboundHttp outboundHttp) {
+        this.restTemplate = outboundHttp.integration("ai").restTemplate();
+    }
 
     public String analyze(String prompt, String content) {
         if (apiKey == null || apiKey.isEmpty()) {
             return "AI API Key not configured. Please configure app.ai.api-key.";
         }
+        try {
+            return complete(prompt, content);
+        } catch (AiException e) {
+            return "Exception calling AI API: " + e.getMessage();
+        }
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
+    /**
+     * Same call as {@link #analyze}, but failures are thrown instead of returned as text,
+     * so callers can tell them apart from a model answer and retry the retryable ones.
+     */
+    public String complete(String prompt, String content) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new AiException("AI API Key not configured", false);
+        }
 
         Map<String, Object> request = new HashMap<>();
         request.put("model", "gpt-4o"); // Using a robust model by default
@@ -35,23 +54,57 @@ public class AiService {
         request.put("messages", messages);
         request.put("temperature", 0.3);
 
+        return send(request);
+    }
+
+    /**
+     * Vision counterpart of {@link #complete}: the image (URL or data URI) is the user message.
+     */
+    public String completeWithImage(String prompt, String imageUrl) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new AiException("AI API Key not configured", false);
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", "gpt-4o");
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", prompt));
+        messages.add(Map.of("role", "user", "content",
+                List.of(Map.of("type", "image_url", "image_url", Map.of("url", imageUrl)))));
+
+        request.put("messages", messages);
+        request.put("temperature", 0.0);
+
+        return send(request);
+    }
+
+    private String send(Map<String, Object> request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+
+        ResponseEntity<Map> response;
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(apiUrl, new HttpEntity<>(request, headers), Map.class);
-            if (response.getStatusCode() == HttpStatus.OK) {
-                Map body = response.getBody();
-                if (body != null && body.containsKey("choices")) {
-                    List choices = (List) body.get("choices");
-                    if (!choices.isEmpty()) {
-                        Map firstChoice = (Map) choices.get(0);
-                        Map message = (Map) firstChoice.get("message");
-                        return (String) message.get("content");
-                    }
-                }
+            response = restTemplate.postForEntity(apiUrl, new HttpEntity<>(request, headers), Map.class);
+        } catch (HttpStatusCodeException e) {
+            boolean retryable = e.getStatusCode().value() == 429 || e.getStatusCode().is5xxServerError();
+            throw new AiException("AI API returned " + e.getStatusCode(), retryable, e);
+        } catch (ResourceAccessException e) {
+            // Timeout ou falha de conexão
+            throw new AiException(e.getMessage(), true, e);
+        }
+
+        Map body = response.getBody();
+        if (body != null && body.containsKey("choices")) {
+            List choices = (List) body.get("choices");
+            if (!choices.isEmpty()) {
+                Map firstChoice = (Map) choices.get(0);
+                Map message = (Map) firstChoice.get("message");
+                return (String) message.get("content");
             }
-            return "Error calling AI API: " + response.getStatusCode();
-        } catch (Exception e) {
-            return "Exception calling AI API: " + e.getMessage();
         }
+        throw new AiException("Empty AI API response: " + response.getStatusCode(), true);
     }
 
     public String analyzeWithImage(String prompt, String imageUrl) {
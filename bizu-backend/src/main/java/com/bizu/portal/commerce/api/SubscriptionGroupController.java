@@ -11,6 +11,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -36,6 +38,22 @@ public class SubscriptionGroupController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Assigns seats to several e-mails at once, creating the accounts that do not exist yet.
+     * Body: {"emails": ["..."]}. Returns one result per e-mail.
+     */
+    @PostMapping("/invite/bulk")
+    public ResponseEntity<List<SubscriptionGroupService.SeatResult>> inviteMembers(@AuthenticationPrincipal Jwt jwt,
+                                                                                  @RequestBody Map<String, List<String>> request) {
+        List<String> emails = request.get("emails");
+        if (emails == null || emails.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        UUID ownerId = resolveUserId(jwt);
+        SubscriptionGroup group = groupService.findGroupByOwner(ownerId);
+        return ResponseEntity.ok(groupService.addMembers(group.getId(), emails));
+    }
+
     @DeleteMapping("/members/{memberId}")
     public ResponseEntity<Void> removeMember(@AuthenticationPrincipal Jwt jwt, @PathVariable UUID memberId) {
         UUID ownerId = resolveUserId(jwt);
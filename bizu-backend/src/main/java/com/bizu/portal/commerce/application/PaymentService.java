@@ -6,9 +6,9 @@ import com.bizu.portal.commerce.domain.SubscriptionGroup;
 import com.bizu.portal.commerce.infrastructure.PlanRepository;
 import com.bizu.portal.identity.domain.User;
 import com.bizu.portal.identity.infrastructure.UserRepository;
-import com.bizu.portal.student.application.NotificationService;
 import com.bizu.portal.student.application.AxonStoreService;
 import com.bizu.portal.notification.application.EmailService;
+import com.bizu.portal.notification.application.NotificationService;
 import com.bizu.portal.notification.application.WhatsAppService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +34,7 @@ public class PaymentService {
     private final com.bizu.portal.admin.application.SystemSettingsService settingsService;
     private final com.bizu.portal.commerce.infrastructure.SubscriptionRepository subscriptionRepository;
     private final EntitlementService entitlementService;
+    private final com.bizu.portal.identity.application.ResolvedPrincipalCache principalCache;
     private final com.bizu.portal.commerce.infrastructure.PaymentRepository paymentRepository;
     private final AxonStoreService axonStoreService;
     private final java.util.List<PaymentProvider> providers;
@@ -217,6 +218,7 @@ public class PaymentService {
         // Logic to update user metadata or role to ACTIVE_SUBSCRIBER
         user.setStatus("ACTIVE_SUBSCRIBER");
         userRepository.save(user);
+        principalCache.evictUser(user.getId());
 
         notificationService.send(userId, "🚀 Assinatura Ativada!", 
             "Seja bem-vindo ao Bizu! Seu plano " + plan.getName() + " já está ativo e pronto para uso.");
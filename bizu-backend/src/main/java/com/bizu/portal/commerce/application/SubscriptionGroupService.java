@@ -3,15 +3,24 @@ package com.bizu.portal.commerce.application;
 import com.bizu.portal.commerce.domain.Plan;
 import com.bizu.portal.commerce.domain.SubscriptionGroup;
 import com.bizu.portal.commerce.infrastructure.SubscriptionGroupRepository;
+import com.bizu.portal.identity.application.UserService;
 import com.bizu.portal.identity.domain.User;
+import com.bizu.portal.identity.infrastructure.KeycloakService;
 import com.bizu.portal.identity.infrastructure.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +28,11 @@ public class SubscriptionGroupService {
 
     private final SubscriptionGroupRepository groupRepository;
     private final UserRepository userRepository;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Outcome of one invited e-mail: ADDED, ALREADY_MEMBER or FAILED (with the reason in {@code error}). */
+    public record SeatResult(String email, String status, String error) {}
 
     @Transactional
     public SubscriptionGroup createGroup(User owner, Plan plan) {
@@ -54,6 +68,49 @@ public class SubscriptionGroupService {
         groupRepository.save(group);
     }
 
+    /**
+     * Assigns seats to many e-mails at once. Accounts missing from the portal are provisioned
+     * (in bulk, in Keycloak) before the group is touched, so the transaction that adds the
+     * members stays short. Seats are filled in request order until the plan limit.
+     */
+    public List<SeatResult> addMembers(UUID groupId, Collection<String> memberEmails) {
+        // Não cria contas além do que o plano comporta
+        int maxMembers = transactionTemplate.execute(status -> groupRepository.findById(groupId)
+            .orElseThrow(() -> new RuntimeException("Grupo não encontrado"))
+            .getPlan().getMaxMembers());
+        if (memberEmails.stream().map(e -> e.trim().toLowerCase(Locale.ROOT)).distinct().count() > maxMembers) {
+            throw new RuntimeException("Mais e-mails do que vagas no plano (" + maxMembers + ")");
+        }
+
+        List<KeycloakService.ProvisionResult> accounts = userService.ensureUsers(memberEmails);
+
+        return transactionTemplate.execute(status -> {
+            SubscriptionGroup group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new RuntimeException("Grupo não encontrado"));
+            // ensureUsers devolve os e-mails em minúsculas
+            Map<String, User> users = userRepository.findByLowerEmailIn(accounts.stream().map(KeycloakService.ProvisionResult::email).toList())
+                .stream().collect(Collectors.toMap(user -> user.getEmail().toLowerCase(Locale.ROOT), Function.identity(), (a, b) -> a));
+
+            List<SeatResult> results = new ArrayList<>(accounts.size());
+            for (KeycloakService.ProvisionResult account : accounts) {
+                User member = users.get(account.email());
+                if ("FAILED".equals(account.status()) || member == null) {
+                    results.add(new SeatResult(account.email(), "FAILED",
+                        account.error() != null ? account.error() : "Usuário não cadastrado no portal"));
+                } else if (group.getMembers().contains(member)) {
+                    results.add(new SeatResult(account.email(), "ALREADY_MEMBER", null));
+                } else if (group.getMembers().size() >= group.getPlan().getMaxMembers()) {
+                    results.add(new SeatResult(account.email(), "FAILED", "Limite de membros do grupo atingido"));
+                } else {
+                    group.getMembers().add(member);
+                    results.add(new SeatResult(account.email(), "ADDED", null));
+                }
+            }
+            groupRepository.save(group);
+            return results;
+        });
+    }
+
     @Transactional(readOnly = true)
     public SubscriptionGroup findGroupByOwner(UUID ownerId) {
         return groupRepository.findByOwnerId(ownerId)
@@ -4,8 +4,10 @@ import com.bizu.portal.admin.domain.SystemSettings;
 import com.bizu.portal.commerce.application.PaymentProvider;
 import com.bizu.portal.commerce.domain.Plan;
 import com.bizu.portal.identity.domain.User;
+import com.bizu.portal.shared.http.OutboundHttp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -19,9 +21,15 @@ import java.util.*;
 @Slf4j
 public class InfinitePayPaymentProvider implements PaymentProvider {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private static final String BASE_URL = "https://api.infinitepay.io/invoices/public/checkout/links";
+
+    @Value("${axon.infinitepay.api-url:https://api.infinitepay.io/invoices/public/checkout/links}")
+    private String apiUrl;
+
+    public InfinitePayPaymentProvider(OutboundHttp outboundHttp) {
+        this.restTemplate = outboundHttp.integration("infinitepay").restTemplate();
+    }
 
     @Override
     public Map<String, Object> createPayment(User user, BigDecimal amount, String method, Plan plan, SystemSettings settings) {
@@ -85,7 +93,7 @@ public class InfinitePayPaymentProvider implements PaymentProvider {
             HttpEntity<String> entity = new HttpEntity<>(jsonPayload, headers);
             
             // Usando Map.class para receber a resposta
-            Map<String, Object> response = restTemplate.postForObject(BASE_URL, entity, Map.class);
+            Map<String, Object> response = restTemplate.postForObject(apiUrl, entity, Map.class);
 
             if (response != null && response.containsKey("url")) {
                 Map<String, Object> result = new HashMap<>();
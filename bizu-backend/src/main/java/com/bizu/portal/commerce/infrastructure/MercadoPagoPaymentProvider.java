@@ -14,7 +14,9 @@ import com.mercadopago.client.preference.PreferenceItemRequest;
 import com.mercadopago.client.preference.PreferenceRequest;
 import com.mercadopago.resources.payment.Payment;
 import com.mercadopago.resources.preference.Preference;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -26,6 +28,22 @@ import java.util.Map;
 @Slf4j
 public class MercadoPagoPaymentProvider implements PaymentProvider {
 
+    @Value("${axon.http.mercadopago.connect-timeout-ms:${axon.http.defaults.connect-timeout-ms:3000}}")
+    private int connectTimeoutMs;
+
+    @Value("${axon.http.mercadopago.read-timeout-ms:15000}")
+    private int readTimeoutMs;
+
+    /**
+     * The SDK keeps its own pooled client; only its timeouts are aligned with the other integrations.
+     */
+    @PostConstruct
+    void configureHttp() {
+        MercadoPagoConfig.setConnectionTimeout(connectTimeoutMs);
+        MercadoPagoConfig.setConnectionRequestTimeout(connectTimeoutMs);
+        MercadoPagoConfig.setSocketTimeout(readTimeoutMs);
+    }
+
     @Override
     public Map<String, Object> createPayment(User user, BigDecimal amount, String method, Plan plan, SystemSettings settings) {
         String accessToken = settings.getMpAccessToken();
@@ -7,7 +7,9 @@ import com.bizu.portal.identity.domain.User;
 import com.stripe.Stripe;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -18,6 +20,21 @@ import java.util.Map;
 @Slf4j
 public class StripePaymentProvider implements PaymentProvider {
 
+    @Value("${axon.http.stripe.connect-timeout-ms:${axon.http.defaults.connect-timeout-ms:3000}}")
+    private int connectTimeoutMs;
+
+    @Value("${axon.http.stripe.read-timeout-ms:15000}")
+    private int readTimeoutMs;
+
+    /**
+     * The SDK keeps its own client; only its timeouts are aligned with the other integrations.
+     */
+    @PostConstruct
+    void configureHttp() {
+        Stripe.setConnectTimeout(connectTimeoutMs);
+        Stripe.setReadTimeout(readTimeoutMs);
+    }
+
     @Override
     public Map<String, Object> createPayment(User user, BigDecimal amount, String method, Plan plan, SystemSettings settings) {
         String secretKey = settings.getStripeSecretKey();
@@ -13,7 +13,6 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/admin/materials")
@@ -75,8 +74,7 @@ public class AdminMaterialController {
 
         SseEmitter emitter = new SseEmitter(600_000L); // 10-minute timeout for large articles
 
-        CompletableFuture.runAsync(() ->
-                questionGenerationService.generate(content, title, moduleId, moduleName, perChunk, category, emitter));
+        questionGenerationService.generate(content, title, moduleId, moduleName, perChunk, category, emitter);
 
         return emitter;
     }
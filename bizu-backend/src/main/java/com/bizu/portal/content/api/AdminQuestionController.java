@@ -5,6 +5,7 @@ import com.bizu.portal.content.application.QuestionService;
 import com.bizu.portal.content.domain.Question;
 import com.bizu.portal.content.domain.QuestionImportLog;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -77,14 +78,18 @@ public class AdminQuestionController {
         return ResponseEntity.ok().headers(headers).body(bytes);
     }
 
+    /**
+     * Starts the import in the background and answers right away; poll {@code /import/logs/{id}}
+     * for progress and per-question errors.
+     */
     @PostMapping("/import/json")
-    public ResponseEntity<Map<String, Object>> importJson(
+    public ResponseEntity<QuestionImportLog> importJson(
             @RequestParam("file") MultipartFile file,
             Authentication authentication) {
 
         String importedBy = authentication != null ? authentication.getName() : "admin";
-        Map<String, Object> result = questionImportService.importFromJson(file, importedBy);
-        return ResponseEntity.ok(result);
+        QuestionImportLog importLog = questionImportService.startImport(file, importedBy);
+        return ResponseEntity.accepted().body(importLog);
     }
 
     @GetMapping("/import/logs")
@@ -92,16 +97,20 @@ public class AdminQuestionController {
         return ResponseEntity.ok(questionImportService.getLogs());
     }
 
+    @GetMapping("/import/logs/{id}")
+    public ResponseEntity<QuestionImportLog> getImportLog(@PathVariable UUID id) {
+        return ResponseEntity.ok(questionImportService.getLog(id));
+    }
+
     @GetMapping("/import/logs/{id}/file")
-    public ResponseEntity<byte[]> downloadImportFile(@PathVariable UUID id) {
-        String json = questionImportService.getLogFile(id);
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    public ResponseEntity<Resource> downloadImportFile(@PathVariable UUID id) {
+        Resource file = questionImportService.getLogFile(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setContentDisposition(ContentDisposition.attachment().filename("import_" + id + ".json").build());
 
-        return ResponseEntity.ok().headers(headers).body(bytes);
+        return ResponseEntity.ok().headers(headers).body(file);
     }
 
     // ── CRUD ─────────────────────────────────────────────────────────────────
@@ -120,7 +129,9 @@ public class AdminQuestionController {
     public ResponseEntity<Question> updateQuestion(@PathVariable UUID id, @RequestBody Question question) {
         Question existing = questionService.findById(id);
         existing.setStatement(question.getStatement());
+        // Nova imagem chega em base64 (vai para o armazenamento no save); sem ela, mantém a URL enviada
         existing.setImageBase64(question.getImageBase64());
+        existing.setImageUrl(question.getImageBase64() != null ? null : question.getImageUrl());
         existing.setOptions(question.getOptions());
         existing.setCorrectOption(question.getCorrectOption());
         existing.setResolution(question.getResolution());
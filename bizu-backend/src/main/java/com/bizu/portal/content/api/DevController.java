@@ -24,6 +24,7 @@ public class DevController {
     private final CourseRepository courseRepository;
     private final ModuleRepository moduleRepository;
     private final QuestionRepository questionRepository;
+    private final com.bizu.portal.content.application.QuestionPoolService questionPoolService;
 
     @PostMapping("/seed-questions")
     @Transactional
@@ -82,6 +83,7 @@ public class DevController {
             
             questionRepository.save(q);
         }
+        questionPoolService.invalidate();
         
         Map<String, Object> res = new HashMap<>();
         res.put("status", "success");
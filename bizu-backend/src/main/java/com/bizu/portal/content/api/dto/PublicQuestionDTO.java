@@ -20,7 +20,7 @@ public class PublicQuestionDTO {
     private String difficulty;
     private String questionType;
     private String category;
-    private String imageBase64;
+    private String imageUrl;
     private UUID moduleId;
 
     public static PublicQuestionDTO fromEntity(Question question) {
@@ -36,7 +36,7 @@ public class PublicQuestionDTO {
                 .difficulty(question.getDifficulty())
                 .questionType(question.getQuestionType())
                 .category(question.getCategory())
-                .imageBase64(question.getImageBase64())
+                .imageUrl(question.resolveImageUrl())
                 .moduleId(question.getModuleId())
                 .build();
     }
@@ -27,6 +27,8 @@ public class AdminSimuladoService {
     private final SimuladoRepository simuladoRepository;
     private final CourseRepository courseRepository;
     private final QuestionRepository questionRepository;
+    private final QuestionPoolService questionPoolService;
+    private final QuestionImageService questionImageService;
     private final SimuladoSessionRepository sessionRepository;
 
     public Page<Simulado> findAll(Pageable pageable) {
@@ -79,7 +81,9 @@ public class AdminSimuladoService {
     public Simulado addQuestion(UUID simuladoId, Question question) {
         Simulado simulado = findById(simuladoId);
         question.setCategory("SIMULADO");
+        questionImageService.externalize(question);
         Question savedQuestion = questionRepository.save(question);
+        questionPoolService.invalidate();
         
         simulado.getQuestions().add(savedQuestion);
         return simuladoRepository.save(simulado);
@@ -136,8 +140,9 @@ public class AdminSimuladoService {
             Integer count = entry.getValue();
 
             if (count != null && count > 0) {
-                java.util.List<Question> randomQuestions = questionRepository.findRandomByModuleAndCategory(moduleId, "SIMULADO", count);
-                randomQuestions.stream()
+                // Sorteio pelo índice em memória, evitando as questões que o simulado já tem
+                java.util.List<UUID> ids = questionPoolService.sampleUnseenFromModules(List.of(moduleId), "SIMULADO", count, existingIds);
+                questionRepository.findAllById(ids).stream()
                         .filter(q -> !existingIds.contains(q.getId()))
                         .forEach(q -> {
                             simulado.getQuestions().add(q);
@@ -1,24 +1,64 @@
 package com.bizu.portal.content.application;
 
-import com.bizu.portal.ai.AiService;
+import com.bizu.portal.ai.AiClient;
+import com.bizu.portal.ai.AiRateLimiter;
+import com.bizu.portal.ai.AiResponseCache;
 import com.bizu.portal.content.domain.Question;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates questions from a material: the text is split into chunks and each chunk is sent to
+ * the AI API on the bounded {@code aiExecutor}, at most {@code axon.ai.generation.parallelism}
+ * chunks of a material at a time, under the shared {@link AiRateLimiter}.
+ *
+ * Retryable failures (429, 5xx, timeouts) are retried by {@link AiClient}.
+ * Answers are cached by (prompt, chunk), so re-running a material does not bill unchanged chunks
+ * again, and {@link QuestionSaveService} skips questions the module already has. Progress events
+ * are sent in chunk order from the coordinating thread only, which runs on its own
+ * {@code aiCoordinatorExecutor} so waiting on chunks never holds a general-purpose worker.
+ *
+ * When the client goes away (emitter timeout, error or disconnect) the chunks in flight are
+ * interrupted and no further chunk is submitted.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class QuestionGenerationService {
 
-    private final AiService aiService;
+    private final AiClient aiClient;
+    private final AiResponseCache aiResponseCache;
     private final QuestionSaveService questionSaveService;
+    private final AsyncTaskExecutor aiExecutor;
+
+    @Value("${axon.ai.generation.parallelism:4}")
+    private int parallelism;
+
+    private record ChunkResult(int saved, String error) {}
+
+    public QuestionGenerationService(AiClient aiClient, AiResponseCache aiResponseCache,
+                                     QuestionSaveService questionSaveService,
+                                     @Qualifier("aiExecutor") AsyncTaskExecutor aiExecutor) {
+        this.aiClient = aiClient;
+        this.aiResponseCache = aiResponseCache;
+        this.questionSaveService = questionSaveService;
+        this.aiExecutor = aiExecutor;
+    }
 
+    @Async("aiCoordinatorExecutor")
     public void generate(
             String content,
             String materialTitle,
@@ -28,6 +68,15 @@ public class QuestionGenerationService {
             String category,
             SseEmitter emitter
     ) {
+        List<Future<ChunkResult>> futures = new CopyOnWriteArrayList<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Runnable cancel = () -> {
+            if (cancelled.compareAndSet(false, true)) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        };
+        emitter.onTimeout(cancel);
+        emitter.onError(error -> cancel.run());
         try {
             List<String> chunks = splitContent(content);
 
@@ -44,19 +93,27 @@ public class QuestionGenerationService {
                             totalChunks, perChunk, escapeJson(materialTitle)));
 
             int totalGenerated = 0;
+            int window = Math.max(1, parallelism);
 
-            for (int i = 0; i < chunks.size(); i++) {
-                String chunk = chunks.get(i);
-
-                String prompt = buildPrompt(moduleName, i + 1, totalChunks, category, perChunk);
-                String aiResponse = aiService.analyze(prompt, chunk);
-
-                List<Question> saved = questionSaveService.parseAndSave(aiResponse, moduleId, category, moduleName);
-                totalGenerated += saved.size();
-
+            // Janela deslizante: mantém até "parallelism" trechos em andamento e publica na ordem dos trechos
+            for (int i = 0; i < Math.min(window, totalChunks); i++) {
+                futures.add(submit(chunks.get(i), i + 1, totalChunks, moduleId, moduleName, perChunk, category));
+            }
+            for (int i = 0; i < totalChunks; i++) {
+                ChunkResult result = futures.get(i).get();
+                int next = i + window;
+                if (next < totalChunks) {
+                    if (cancelled.get()) throw new CancellationException("cliente desconectado");
+                    futures.add(submit(chunks.get(next), next + 1, totalChunks, moduleId, moduleName, perChunk, category));
+                    // Cancelamento concorrente com o submit: garante que o novo trecho também pare
+                    if (cancelled.get()) futures.get(next).cancel(true);
+                }
+
+                totalGenerated += result.saved();
                 sendEvent(emitter, "progress",
-                        String.format("{\"chunk\":%d,\"totalChunks\":%d,\"questionsGenerated\":%d}",
-                                i + 1, totalChunks, totalGenerated));
+                        String.format("{\"chunk\":%d,\"totalChunks\":%d,\"questionsGenerated\":%d%s}",
+                                i + 1, totalChunks, totalGenerated,
+                                result.error() != null ? ",\"chunkError\":\"" + escapeJson(result.error()) + "\"" : ""));
             }
 
             sendEvent(emitter, "complete",
@@ -64,6 +121,13 @@ public class QuestionGenerationService {
             emitter.complete();
 
         } catch (Exception e) {
+            // Cliente desconectou ou erro inesperado: interrompe os trechos em andamento
+            cancel.run();
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            if (e instanceof CancellationException) {
+                log.info("Question generation for module {} cancelled by the client", moduleId);
+                return;
+            }
             log.error("Error during question generation for module {}", moduleId, e);
             try {
                 sendEvent(emitter, "error",
@@ -75,6 +139,32 @@ public class QuestionGenerationService {
         }
     }
 
+    private Future<ChunkResult> submit(String chunk, int chunkNum, int totalChunks, UUID moduleId,
+                                       String moduleName, int perChunk, String category) {
+        // submit (e não CompletableFuture) para que cancel(true) interrompa a chamada HTTP em andamento
+        return aiExecutor.submit(() -> {
+            String prompt = buildPrompt(moduleName, chunkNum, totalChunks, category, perChunk);
+            try {
+                Optional<String> cached = aiResponseCache.get(prompt, chunk);
+                String aiResponse = cached.isPresent() ? cached.get() : aiClient.complete(prompt, chunk);
+
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException("geração cancelada");
+                List<Question> saved = questionSaveService.parseAndSave(aiResponse, moduleId, category, moduleName);
+                if (!saved.isEmpty() && cached.isEmpty()) {
+                    // Só guarda respostas que renderam questões
+                    aiResponseCache.put(prompt, chunk, aiResponse);
+                }
+                return new ChunkResult(saved.size(), null);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                // Um trecho com falha não interrompe os demais
+                log.warn("Question generation failed for chunk {}/{} of module {}: {}", chunkNum, totalChunks, moduleId, e.getMessage());
+                return new ChunkResult(0, e.getMessage());
+            }
+        });
+    }
+
     private void sendEvent(SseEmitter emitter, String eventName, String data) throws Exception {
         emitter.send(SseEmitter.event().name(eventName).data(data));
     }
@@ -0,0 +1,146 @@
+package com.bizu.portal.content.application;
+
+import com.bizu.portal.content.domain.Question;
+import com.bizu.portal.shared.application.FileStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Question images in content-addressed storage: the file name is the SHA-256 of the image bytes,
+ * so identical images (e.g. the same figure in several imported questions) are stored once and
+ * the URL never changes for a given content, which lets clients cache it forever.
+ *
+ * Questions created before this keep the image inline in content.questions.image_base64; those
+ * rows are moved to the store in the background (and when an admin opens the question).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionImageService {
+
+    public static final String SUBDIRECTORY = "question-images";
+    public static final String URL_PREFIX = "/api/v1/public/files/" + SUBDIRECTORY + "/";
+
+    private final FileStorageService fileStorageService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${axon.question-images.migration-batch-size:100}")
+    private int migrationBatchSize;
+
+    /**
+     * Stores a base64 image (raw or as a data URI) and returns its public URL.
+     *
+     * @throws IllegalArgumentException if the value is not valid base64
+     */
+    public String store(String base64) {
+        String payload = base64.trim();
+        String mimeType = null;
+        if (payload.startsWith("data:")) {
+            int comma = payload.indexOf(',');
+            if (comma < 0) throw new IllegalArgumentException("Imagem em data URI inválida");
+            String header = payload.substring(5, comma);
+            mimeType = header.contains(";") ? header.substring(0, header.indexOf(';')) : header;
+            payload = payload.substring(comma + 1);
+        }
+
+        byte[] bytes = Base64.getMimeDecoder().decode(payload);
+        if (bytes.length == 0) throw new IllegalArgumentException("Imagem vazia");
+
+        String filename = sha256(bytes) + "." + extensionFor(mimeType, bytes);
+        fileStorageService.storeContentAddressed(bytes, SUBDIRECTORY, filename);
+        return URL_PREFIX + filename;
+    }
+
+    /**
+     * Moves an inline image of the entity to the store, before the entity is saved.
+     */
+    public void externalize(Question question) {
+        String inline = question.getImageBase64();
+        if (inline == null) return;
+        if (!inline.isBlank()) {
+            question.setImageUrl(store(inline));
+        }
+        question.setImageBase64(null);
+    }
+
+    /**
+     * Moves legacy inline images to the store in batches (keyset over the partial index on
+     * rows that still have one). Idempotent, so several nodes may run it at the same time.
+     */
+    @Scheduled(initialDelayString = "${axon.question-images.migration-initial-delay-ms:30000}",
+               fixedDelayString = "${axon.question-images.migration-interval-ms:600000}")
+    public void migrateLegacyImages() {
+        UUID after = new UUID(0L, 0L);
+        int migrated = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT id, image_base64 FROM content.questions
+                WHERE image_base64 IS NOT NULL AND id > ?
+                ORDER BY id LIMIT ?
+                """, after, migrationBatchSize);
+            if (rows.isEmpty()) break;
+
+            for (Map<String, Object> row : rows) {
+                UUID id = (UUID) row.get("id");
+                String inline = (String) row.get("image_base64");
+                after = id;
+                try {
+                    String url = inline.isBlank() ? null : store(inline);
+                    migrated += jdbcTemplate.update("""
+                        UPDATE content.questions SET image_url = ?, image_base64 = NULL
+                        WHERE id = ? AND image_base64 = ?
+                        """, url, id, inline);
+                } catch (Exception e) {
+                    // Fica inline e é tentada de novo na próxima execução
+                    log.warn("Falha ao migrar imagem da questão {}: {}", id, e.getMessage());
+                }
+            }
+        }
+        if (migrated > 0) {
+            log.info("Imagens de questões migradas para o armazenamento: {}", migrated);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String extensionFor(String mimeType, byte[] bytes) {
+        String fromMime = mimeType == null ? null : switch (mimeType) {
+            case "image/png" -> "png";
+            case "image/jpeg", "image/jpg" -> "jpg";
+            case "image/gif" -> "gif";
+            case "image/webp" -> "webp";
+            case "image/svg+xml" -> "svg";
+            default -> null;
+        };
+        if (fromMime != null) return fromMime;
+
+        // Sem data URI (formato da importação): identifica pelos bytes iniciais
+        if (bytes.length >= 4 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') return "png";
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF) return "jpg";
+        if (bytes.length >= 4 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') return "gif";
+        if (bytes.length >= 12 && bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == 'F'
+                && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') return "webp";
+        String head = new String(bytes, 0, Math.min(bytes.length, 256), StandardCharsets.UTF_8).trim();
+        if (head.startsWith("<svg") || (head.startsWith("<?xml") && head.contains("<svg"))) return "svg";
+        return "png";
+    }
+}
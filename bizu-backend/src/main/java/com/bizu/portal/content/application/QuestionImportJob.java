@@ -0,0 +1,233 @@
+package com.bizu.portal.content.application;
+
+import com.bizu.portal.content.domain.QuestionImportLog;
+import com.bizu.portal.content.infrastructure.QuestionImportLogRepository;
+import com.bizu.portal.shared.application.FileStorageService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Background part of the bulk question import.
+ *
+ * The stored file is read with a streaming parser, one question subtree at a time, so memory
+ * stays constant whatever the file size. Each question is validated on its own (a rejected
+ * question is reported with its position and does not stop the import) and valid ones are
+ * inserted in JDBC batches of {@value #CHUNK_SIZE}, one transaction per chunk. The import log
+ * row is updated after every chunk, which is what the admin screen polls.
+ *
+ * The same update renews the worker's lease and checks that processed_count is still the value
+ * this worker left, so a job reclaimed by another instance (see
+ * {@link QuestionImportService#reclaimStalled()}) resumes after the last committed chunk and a
+ * worker that lost its lease stops without inserting anything twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionImportJob {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final Set<String> DIFFICULTIES = Set.of("EASY", "MEDIUM", "HARD");
+    static final Duration LEASE = Duration.ofMinutes(10);
+
+    private static final String INSERT_SQL = """
+        INSERT INTO content.questions (id, statement, options, correct_option, resolution, banca, year,
+                                       subject, topic, difficulty, question_type, category, image_url, module_id,
+                                       created_at, updated_at)
+        VALUES (?, ?, CAST(? AS jsonb), ?, ?, ?, ?, ?, ?, ?, 'MULTIPLE_CHOICE', ?, ?, ?, NOW(), NOW())
+        """;
+
+    private final FileStorageService fileStorageService;
+    private final QuestionImportLogRepository importLogRepository;
+    private final QuestionImageService questionImageService;
+    private final QuestionPoolService questionPoolService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Async("taskExecutor")
+    public void run(UUID logId, QuestionImportService.ImportHeader header) {
+        QuestionImportLog importLog = importLogRepository.findById(logId).orElseThrow();
+        UUID moduleId = existingModule(header.moduleId());
+
+        // Retomada: continua do último chunk gravado (em uma importação nova tudo começa em zero)
+        List<String> errors = new ArrayList<>(importLog.getErrors() != null ? importLog.getErrors() : List.of());
+        List<Object[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        // importadas, processadas, rejeitadas, processadas já gravadas no log
+        int[] counts = {importLog.getQuestionCount(), importLog.getProcessedCount(), importLog.getErrorCount(), importLog.getProcessedCount()};
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(
+                QuestionImportService.importFile(fileStorageService, importLog.getFilePath()).toFile())) {
+            moveToQuestions(parser);
+
+            int position = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                position++;
+                if (position <= counts[3]) {
+                    parser.skipChildren();
+                    continue;
+                }
+                JsonNode qNode = objectMapper.readTree(parser);
+                try {
+                    chunk.add(toRow(qNode, header.category(), moduleId));
+                } catch (IllegalArgumentException e) {
+                    counts[2]++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("Questão " + position + ": " + e.getMessage());
+                    }
+                }
+                counts[1]++;
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(logId, chunk, counts, errors);
+                }
+            }
+            flush(logId, chunk, counts, errors);
+
+            finish(logId, "COMPLETED", errors, counts);
+            log.info("Question import {} finished: {} imported, {} rejected", logId, counts[0], counts[2]);
+        } catch (LeaseLostException e) {
+            log.warn("Question import {} continued by another worker: {}", logId, e.getMessage());
+        } catch (Exception e) {
+            log.error("Question import {} failed after {} questions: {}", logId, counts[1], e.getMessage(), e);
+            errors.add("Importação interrompida: " + e.getMessage());
+            finish(logId, "FAILED", errors, counts);
+        } finally {
+            if (counts[0] > 0) {
+                questionPoolService.invalidate();
+            }
+        }
+    }
+
+    private void moveToQuestions(JsonParser parser) throws IOException {
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("questions".equals(field)) return;
+            parser.skipChildren();
+        }
+        throw new IllegalStateException("Array 'questions' não encontrado");
+    }
+
+    /**
+     * Validated insert parameters for one question.
+     *
+     * @throws IllegalArgumentException with the message shown to the admin
+     */
+    private Object[] toRow(JsonNode qNode, String category, UUID moduleId) {
+        if (!qNode.isObject()) throw new IllegalArgumentException("não é um objeto JSON");
+
+        String statement = qNode.path("statement").asText("").trim();
+        if (statement.isEmpty()) throw new IllegalArgumentException("enunciado vazio");
+
+        Map<String, Object> options = new LinkedHashMap<>();
+        qNode.path("options").fields().forEachRemaining(entry -> options.put(entry.getKey(), entry.getValue().asText()));
+        if (options.size() < 2) throw new IllegalArgumentException("são necessárias ao menos duas alternativas");
+
+        String correctOption = qNode.path("correctOption").asText("A").toUpperCase();
+        if (!options.containsKey(correctOption)) {
+            throw new IllegalArgumentException("alternativa correta '" + correctOption + "' não está entre as alternativas");
+        }
+
+        String difficulty = qNode.path("difficulty").asText("EASY").toUpperCase();
+        if (!DIFFICULTIES.contains(difficulty)) throw new IllegalArgumentException("dificuldade inválida: " + difficulty);
+
+        String subject = text(qNode, "subject", 100);
+        String topic = text(qNode, "topic", 100);
+        String banca = text(qNode, "banca", 100);
+        Integer year = qNode.path("year").asInt(0) == 0 ? null : qNode.path("year").asInt();
+
+        // Imagens iguais em várias questões viram um único arquivo (endereçado pelo hash)
+        String imageBase64 = qNode.path("imageBase64").isNull() ? null : qNode.path("imageBase64").asText(null);
+        String imageUrl = imageBase64 == null || imageBase64.isBlank() ? null : questionImageService.store(imageBase64);
+
+        String optionsJson;
+        try {
+            optionsJson = objectMapper.writeValueAsString(options);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("alternativas inválidas");
+        }
+
+        return new Object[]{UUID.randomUUID(), statement, optionsJson, correctOption,
+                qNode.path("resolution").asText(null), banca, year, subject, topic, difficulty,
+                category, imageUrl, moduleId};
+    }
+
+    private static String text(JsonNode qNode, String field, int maxLength) {
+        String value = qNode.path(field).asText(null);
+        if (value != null && value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " excede " + maxLength + " caracteres");
+        }
+        return value;
+    }
+
+    private void flush(UUID logId, List<Object[]> chunk, int[] counts, List<String> errors) throws IOException {
+        int inserted = chunk.size();
+        String errorsJson = objectMapper.writeValueAsString(errors);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!chunk.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk);
+            }
+            int updated = jdbcTemplate.update("""
+                UPDATE content.question_import_logs
+                SET question_count = ?, processed_count = ?, error_count = ?, errors = CAST(? AS jsonb), locked_until = ?
+                WHERE id = ? AND status = 'PROCESSING' AND processed_count = ?
+                """, counts[0] + inserted, counts[1], counts[2], errorsJson, OffsetDateTime.now().plus(LEASE),
+                logId, counts[3]);
+            if (updated == 0) {
+                // Outro worker assumiu a importação: desfaz o chunk
+                throw new LeaseLostException("log alterado após a questão " + counts[3]);
+            }
+        });
+        counts[0] += inserted;
+        counts[3] = counts[1];
+        chunk.clear();
+    }
+
+    private void finish(UUID logId, String status, List<String> errors, int[] counts) {
+        try {
+            jdbcTemplate.update("""
+                UPDATE content.question_import_logs
+                SET status = ?, question_count = ?, processed_count = ?, error_count = ?,
+                    errors = CAST(? AS jsonb), finished_at = ?, locked_until = NULL
+                WHERE id = ? AND status = 'PROCESSING' AND processed_count = ?
+                """, status, counts[0], counts[1], counts[2],
+                objectMapper.writeValueAsString(errors), OffsetDateTime.now(), logId, counts[3]);
+        } catch (Exception e) {
+            log.error("Could not record the result of question import {}: {}", logId, e.getMessage());
+        }
+    }
+
+    private UUID existingModule(String moduleId) {
+        if (moduleId == null || moduleId.isBlank()) return null;
+        try {
+            UUID id = UUID.fromString(moduleId);
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM content.modules WHERE id = ?)", Boolean.class, id);
+            return Boolean.TRUE.equals(exists) ? id : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Module not found for id: {}", moduleId);
+            return null;
+        }
+    }
+
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException(String message) {
+            super(message);
+        }
+    }
+}
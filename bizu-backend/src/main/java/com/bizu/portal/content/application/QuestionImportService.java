@@ -1,19 +1,28 @@
 package com.bizu.portal.content.application;
 
-import com.bizu.portal.content.domain.Module;
-import com.bizu.portal.content.domain.Question;
 import com.bizu.portal.content.domain.QuestionImportLog;
-import com.bizu.portal.content.infrastructure.ModuleRepository;
 import com.bizu.portal.content.infrastructure.QuestionImportLogRepository;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.bizu.portal.shared.application.FileStorageService;
+import com.bizu.portal.shared.exception.BusinessException;
+import com.bizu.portal.shared.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -25,10 +34,13 @@ import java.util.UUID;
 @Slf4j
 public class QuestionImportService {
 
-    private final QuestionService questionService;
+    static final String IMPORT_SUBDIRECTORY = "question-imports";
+
     private final QuestionImportLogRepository importLogRepository;
-    private final ModuleRepository moduleRepository;
+    private final QuestionImportJob questionImportJob;
+    private final FileStorageService fileStorageService;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * Generate a JSON template for bulk question import.
@@ -72,107 +84,142 @@ public class QuestionImportService {
     }
 
     /**
-     * Import questions from a JSON file. Records the import in the audit log.
+     * Top-level fields of an import file. They may come before or after the questions array.
      */
-    @Transactional
-    public Map<String, Object> importFromJson(MultipartFile file, String importedBy) {
-        String jsonContent;
-        try {
-            jsonContent = new String(file.getBytes(), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao ler o arquivo: " + e.getMessage());
-        }
+    public record ImportHeader(String courseId, String courseTitle, String moduleId, String moduleTitle, String category) {}
 
-        JsonNode root;
+    /**
+     * Starts a bulk import: the upload is kept in file storage, its header is read with a
+     * streaming parser (questions are skipped, so memory does not depend on file size) and
+     * the questions are imported by {@link QuestionImportJob} in the background.
+     * Progress is polled with {@link #getLog(UUID)}. The file goes to private storage: it holds
+     * the answer keys and must not be reachable through the public file endpoint.
+     */
+    public QuestionImportLog startImport(MultipartFile file, String importedBy) {
+        String storedPath = fileStorageService.storePrivate(file, IMPORT_SUBDIRECTORY);
+
+        ImportHeader header;
         try {
-            root = objectMapper.readTree(jsonContent);
-        } catch (Exception e) {
-            throw new RuntimeException("Arquivo JSON inválido: " + e.getMessage());
+            header = readHeader(fileStorageService.loadPrivate(storedPath));
+        } catch (RuntimeException e) {
+            fileStorageService.deletePrivate(storedPath);
+            throw e;
         }
 
-        String courseId = root.path("courseId").asText(null);
-        String courseTitle = root.path("course").asText(null);
-        String moduleId = root.path("moduleId").asText(null);
-        String moduleTitle = root.path("module").asText(null);
-        String category = root.path("category").asText("QUIZ");
-
-        Module module = null;
-        if (moduleId != null && !moduleId.isBlank()) {
-            try {
-                module = moduleRepository.findById(UUID.fromString(moduleId)).orElse(null);
-            } catch (Exception e) {
-                log.warn("Module not found for id: {}", moduleId);
-            }
-        }
+        QuestionImportLog importLog = importLogRepository.save(QuestionImportLog.builder()
+                .courseId(header.courseId() != null ? tryParseUUID(header.courseId()) : null)
+                .courseTitle(header.courseTitle())
+                .moduleId(header.moduleId() != null ? tryParseUUID(header.moduleId()) : null)
+                .moduleTitle(header.moduleTitle())
+                .category(header.category())
+                .fileName(file.getOriginalFilename())
+                .filePath(storedPath)
+                .importedBy(importedBy)
+                .lockedUntil(OffsetDateTime.now().plus(QuestionImportJob.LEASE))
+                .build());
 
-        JsonNode questionsNode = root.path("questions");
-        if (!questionsNode.isArray()) {
-            throw new RuntimeException("O JSON deve conter um array 'questions'.");
+        questionImportJob.run(importLog.getId(), header);
+        return importLog;
+    }
+
+    /**
+     * Resumes imports whose worker stopped renewing its lease (e.g. the instance was restarted
+     * mid-import). The job continues after the last committed chunk.
+     */
+    @Scheduled(fixedDelayString = "${axon.question-import.reclaim-interval-ms:60000}")
+    public void reclaimStalled() {
+        List<UUID> stalled = jdbcTemplate.queryForList("""
+            UPDATE content.question_import_logs SET locked_until = ?
+            WHERE id IN (
+                SELECT id FROM content.question_import_logs
+                WHERE status = 'PROCESSING' AND (locked_until IS NULL OR locked_until < NOW())
+                ORDER BY imported_at
+                LIMIT 5
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id
+            """, UUID.class, OffsetDateTime.now().plus(QuestionImportJob.LEASE));
+
+        for (UUID logId : stalled) {
+            QuestionImportLog importLog = importLogRepository.findById(logId).orElse(null);
+            if (importLog == null) continue;
+            log.warn("Retomando importação de questões {} a partir da questão {}", logId, importLog.getProcessedCount() + 1);
+            questionImportJob.run(logId, new ImportHeader(
+                    importLog.getCourseId() != null ? importLog.getCourseId().toString() : null,
+                    importLog.getCourseTitle(),
+                    importLog.getModuleId() != null ? importLog.getModuleId().toString() : null,
+                    importLog.getModuleTitle(),
+                    importLog.getCategory()));
         }
+    }
+
+    /**
+     * The stored upload: private storage, or the public root for imports made before it existed.
+     */
+    static Path importFile(FileStorageService fileStorageService, String storedPath) {
+        Path file = fileStorageService.loadPrivate(storedPath);
+        return Files.exists(file) ? file : fileStorageService.load(storedPath);
+    }
+
+    private ImportHeader readHeader(Path file) {
+        String courseId = null, courseTitle = null, moduleId = null, moduleTitle = null, category = "QUIZ";
+        boolean hasQuestions = false;
 
-        List<String> errors = new ArrayList<>();
-        int count = 0;
-
-        for (int i = 0; i < questionsNode.size(); i++) {
-            JsonNode qNode = questionsNode.get(i);
-            try {
-                Map<String, Object> options = new HashMap<>();
-                JsonNode optsNode = qNode.path("options");
-                optsNode.fields().forEachRemaining(entry -> options.put(entry.getKey(), entry.getValue().asText()));
-
-                Question question = Question.builder()
-                        .statement(qNode.path("statement").asText())
-                        .imageBase64(qNode.path("imageBase64").isNull() ? null : qNode.path("imageBase64").asText(null))
-                        .options(options)
-                        .correctOption(qNode.path("correctOption").asText("A").toUpperCase())
-                        .resolution(qNode.path("resolution").asText(null))
-                        .banca(qNode.path("banca").asText(null))
-                        .year(qNode.path("year").asInt(0) == 0 ? null : qNode.path("year").asInt())
-                        .subject(qNode.path("subject").asText(null))
-                        .topic(qNode.path("topic").asText(null))
-                        .difficulty(qNode.path("difficulty").asText("EASY").toUpperCase())
-                        .questionType("MULTIPLE_CHOICE")
-                        .category(category)
-                        .module(module)
-                        .build();
-
-                questionService.save(question);
-                count++;
-            } catch (Exception e) {
-                errors.add("Questão " + (i + 1) + ": " + e.getMessage());
-                log.error("Error importing question {}: {}", i + 1, e.getMessage());
+        try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BusinessException("O arquivo deve conter um objeto JSON.");
             }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("questions".equals(field)) {
+                    hasQuestions = value == JsonToken.START_ARRAY;
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String text = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                switch (field) {
+                    case "courseId" -> courseId = text;
+                    case "course" -> courseTitle = text;
+                    case "moduleId" -> moduleId = text;
+                    case "module" -> moduleTitle = text;
+                    case "category" -> category = text != null ? text : "QUIZ";
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException("Arquivo JSON inválido: " + e.getMessage());
         }
 
-        // Record import log
-        QuestionImportLog importLog = QuestionImportLog.builder()
-                .courseId(courseId != null ? tryParseUUID(courseId) : null)
-                .courseTitle(courseTitle)
-                .moduleId(moduleId != null ? tryParseUUID(moduleId) : null)
-                .moduleTitle(moduleTitle)
-                .category(category)
-                .questionCount(count)
-                .fileName(file.getOriginalFilename())
-                .originalJson(jsonContent)
-                .importedBy(importedBy)
-                .build();
-        importLogRepository.save(importLog);
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("count", count);
-        result.put("errors", errors);
-        result.put("logId", importLog.getId());
-        return result;
+        if (!hasQuestions) {
+            throw new BusinessException("O JSON deve conter um array 'questions'.");
+        }
+        return new ImportHeader(courseId, courseTitle, moduleId, moduleTitle, category);
     }
 
     public List<QuestionImportLog> getLogs() {
         return importLogRepository.findAllByOrderByImportedAtDesc();
     }
 
-    public String getLogFile(UUID logId) {
-        QuestionImportLog log = importLogRepository.findById(logId)
-                .orElseThrow(() -> new RuntimeException("Log não encontrado"));
-        return log.getOriginalJson();
+    public QuestionImportLog getLog(UUID logId) {
+        return importLogRepository.findById(logId)
+                .orElseThrow(() -> new ResourceNotFoundException("Log não encontrado"));
+    }
+
+    /**
+     * The uploaded file: from file storage, or the JSON kept in the log by older imports.
+     */
+    public Resource getLogFile(UUID logId) {
+        QuestionImportLog importLog = getLog(logId);
+        if (importLog.getFilePath() != null) {
+            return new FileSystemResource(importFile(fileStorageService, importLog.getFilePath()));
+        }
+        String json = importLog.getOriginalJson() != null ? importLog.getOriginalJson() : "";
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
     }
 
     private UUID tryParseUUID(String value) {
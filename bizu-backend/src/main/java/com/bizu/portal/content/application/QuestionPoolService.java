@@ -0,0 +1,266 @@
+package com.bizu.portal.content.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory index of question ids by (subject, difficulty, category) and by (module, category),
+ * used to sample questions without loading entities (statements, options and images stay in the
+ * database until chosen) and without ORDER BY RANDOM() over the filtered table.
+ *
+ * Each question is indexed under every wildcard combination of its attributes, so a lookup with
+ * any of them null ("any") is a single map get, and drawing n ids costs O(n) regardless of pool
+ * size. The index is rebuilt from a narrow projection after question writes on this node
+ * (invalidate) and periodically, which bounds staleness for writes made by other nodes.
+ *
+ * Rebuilds run on a background thread and swap the index in atomically; readers keep using the
+ * previous index meanwhile. Only the very first lookup, before any index exists, waits for a build.
+ * Every time the index goes stale a {@link QuestionsChangedEvent} is published.
+ */
+@Service
+@Slf4j
+public class QuestionPoolService {
+
+    private static final String ANY = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskExecutor rebuildExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Upper bound of a single draw, whatever the caller asks for. */
+    @Value("${axon.question-pool.max-sample:200}")
+    private int maxSample;
+
+    public QuestionPoolService(JdbcTemplate jdbcTemplate,
+                               @Qualifier("questionPoolExecutor") TaskExecutor rebuildExecutor,
+                               ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildExecutor = rebuildExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    private record Index(Map<String, UUID[]> byAttributes, Map<String, UUID[]> byModule) {}
+
+    private volatile Index index;
+    private volatile boolean stale = true;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    /**
+     * Up to {@code count} distinct ids matching the filters (null = any), never including {@code exclude}.
+     */
+    public List<UUID> sample(String subject, String difficulty, String category, int count, Set<UUID> exclude) {
+        return draw(new UUID[][]{pool(subject, difficulty, category)}, Math.min(count, maxSample), exclude);
+    }
+
+    /**
+     * Like {@link #sample}, but ids in {@code avoid} (e.g. questions the user answered recently)
+     * are only used to complete the sample when there are not enough other questions.
+     */
+    public List<UUID> sampleUnseen(String subject, String difficulty, String category, int count, Set<UUID> avoid) {
+        return drawAvoiding(new UUID[][]{pool(subject, difficulty, category)}, count, avoid);
+    }
+
+    /**
+     * Up to {@code count} distinct ids of {@code category} (null = any) from any of the given modules,
+     * uniformly over their questions; {@code avoid} is handled as in {@link #sampleUnseen}.
+     */
+    public List<UUID> sampleUnseenFromModules(Collection<UUID> moduleIds, String category, int count, Set<UUID> avoid) {
+        Map<String, UUID[]> byModule = current().byModule();
+        UUID[][] segments = moduleIds.stream()
+                .distinct()
+                .map(moduleId -> byModule.getOrDefault(moduleKey(moduleId, category), new UUID[0]))
+                .toArray(UUID[][]::new);
+        return drawAvoiding(segments, count, avoid);
+    }
+
+    /**
+     * Every id matching the filters (null = any), as a copy the caller may reorder.
+     */
+    public List<UUID> ids(String subject, String difficulty, String category) {
+        return new ArrayList<>(Arrays.asList(pool(subject, difficulty, category)));
+    }
+
+    public int size(String subject, String difficulty, String category) {
+        return pool(subject, difficulty, category).length;
+    }
+
+    /**
+     * Marks the index for rebuild once the current transaction commits.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markStale();
+                }
+            });
+        } else {
+            markStale();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${axon.question-pool.refresh-interval-ms:300000}")
+    public void refresh() {
+        markStale();
+    }
+
+    private void markStale() {
+        stale = true;
+        if (index != null) scheduleRebuild();
+        eventPublisher.publishEvent(new QuestionsChangedEvent());
+    }
+
+    private List<UUID> drawAvoiding(UUID[][] segments, int count, Set<UUID> avoid) {
+        count = Math.min(count, maxSample);
+        List<UUID> chosen = new ArrayList<>(draw(segments, count, avoid));
+        if (chosen.size() < count && !avoid.isEmpty()) {
+            // Banco pequeno demais para evitar todas as recentes: completa com elas
+            chosen.addAll(draw(segments, count - chosen.size(), new HashSet<>(chosen)));
+        }
+        return chosen;
+    }
+
+    /**
+     * Draws from the concatenation of {@code segments} without copying them, except when the
+     * pool is small relative to {@code count}.
+     */
+    private static List<UUID> draw(UUID[][] segments, int count, Set<UUID> exclude) {
+        int total = 0;
+        for (UUID[] segment : segments) total += segment.length;
+        if (total == 0 || count <= 0) return List.of();
+
+        List<UUID> chosen = new ArrayList<>(count);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (total <= count * 4) {
+            // Pool pequeno: embaralha uma cópia (Fisher-Yates parcial)
+            UUID[] copy = new UUID[total];
+            int offset = 0;
+            for (UUID[] segment : segments) {
+                System.arraycopy(segment, 0, copy, offset, segment.length);
+                offset += segment.length;
+            }
+            for (int i = 0; i < copy.length && chosen.size() < count; i++) {
+                int j = i + random.nextInt(copy.length - i);
+                UUID picked = copy[j];
+                copy[j] = copy[i];
+                if (!exclude.contains(picked)) chosen.add(picked);
+            }
+        } else {
+            // Pool grande: sorteio com rejeição, sem copiar os arrays
+            Set<UUID> seen = new HashSet<>();
+            int attempts = 0;
+            int maxAttempts = count * 20 + exclude.size();
+            while (chosen.size() < count && attempts++ < maxAttempts) {
+                UUID picked = at(segments, random.nextInt(total));
+                if (!exclude.contains(picked) && seen.add(picked)) chosen.add(picked);
+            }
+        }
+        return chosen;
+    }
+
+    private static UUID at(UUID[][] segments, int position) {
+        for (UUID[] segment : segments) {
+            if (position < segment.length) return segment[position];
+            position -= segment.length;
+        }
+        throw new IndexOutOfBoundsException(position);
+    }
+
+    private UUID[] pool(String subject, String difficulty, String category) {
+        return current().byAttributes().getOrDefault(key(subject, difficulty, category), new UUID[0]);
+    }
+
+    private Index current() {
+        Index current = index;
+        if (current == null) return initialBuild();
+        if (stale) scheduleRebuild();
+        return current;
+    }
+
+    private synchronized Index initialBuild() {
+        return index != null ? index : rebuild();
+    }
+
+    /**
+     * Queues at most one background rebuild; the index being served stays in place until it finishes.
+     */
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) return;
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    stale = true;
+                    log.warn("Falha ao reconstruir índice de questões, mantendo o anterior: {}", e.getMessage());
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            });
+        } catch (Exception e) {
+            rebuildScheduled.set(false);
+            log.warn("Reconstrução do índice de questões não agendada: {}", e.getMessage());
+        }
+    }
+
+    private synchronized Index rebuild() {
+        // Escritas durante a leitura marcam de novo como stale e geram outra reconstrução
+        stale = false;
+
+        Map<String, List<UUID>> grouped = new HashMap<>();
+        Map<String, List<UUID>> groupedByModule = new HashMap<>();
+        jdbcTemplate.query("SELECT id, subject, difficulty, category, module_id FROM content.questions", rs -> {
+            UUID id = rs.getObject("id", UUID.class);
+            String subject = rs.getString("subject");
+            String difficulty = rs.getString("difficulty");
+            String category = rs.getString("category");
+            UUID moduleId = rs.getObject("module_id", UUID.class);
+            // Cada combinação de curingas, sem repetir a chave quando o atributo já é nulo
+            Set<String> keys = new HashSet<>();
+            for (int mask = 0; mask < 8; mask++) {
+                keys.add(key((mask & 1) == 0 ? subject : null, (mask & 2) == 0 ? difficulty : null, (mask & 4) == 0 ? category : null));
+            }
+            for (String key : keys) {
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }
+            if (moduleId != null) {
+                groupedByModule.computeIfAbsent(moduleKey(moduleId, null), k -> new ArrayList<>()).add(id);
+                if (category != null) {
+                    groupedByModule.computeIfAbsent(moduleKey(moduleId, category), k -> new ArrayList<>()).add(id);
+                }
+            }
+        });
+
+        Index built = new Index(toArrays(grouped), toArrays(groupedByModule));
+        index = built;
+        log.info("Question pool index rebuilt: {} questions", built.byAttributes().getOrDefault(key(null, null, null), new UUID[0]).length);
+        return built;
+    }
+
+    private static Map<String, UUID[]> toArrays(Map<String, List<UUID>> grouped) {
+        Map<String, UUID[]> arrays = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((key, ids) -> arrays.put(key, ids.toArray(new UUID[0])));
+        return arrays;
+    }
+
+    private static String key(String subject, String difficulty, String category) {
+        return (subject != null ? subject : ANY) + "|" + (difficulty != null ? difficulty : ANY) + "|" + (category != null ? category : ANY);
+    }
+
+    private static String moduleKey(UUID moduleId, String category) {
+        return moduleId + "|" + (category != null ? category : ANY);
+    }
+}
@@ -13,9 +13,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -25,10 +27,16 @@ public class QuestionSaveService {
 
     private final QuestionRepository questionRepository;
     private final ObjectMapper objectMapper;
+    private final QuestionPoolService questionPoolService;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Saves the questions of an AI answer. Questions whose statement already exists in the module
+     * are skipped, so the same answer (e.g. served from the response cache when a material is
+     * generated again) never duplicates questions.
+     */
     @Transactional
     public List<Question> parseAndSave(String aiResponse, UUID moduleId, String category, String subject) {
         try {
@@ -44,9 +52,19 @@ public class QuestionSaveService {
 
             Module moduleRef = (moduleId != null) ? entityManager.getReference(Module.class, moduleId) : null;
 
+            Set<String> existing = new HashSet<>();
+            if (moduleId != null) {
+                List<String> statements = new ArrayList<>();
+                questionsNode.forEach(qNode -> statements.add(qNode.path("statement").asText()));
+                existing.addAll(questionRepository.findExistingStatements(moduleId, statements));
+            }
+
             List<Question> saved = new ArrayList<>();
             for (JsonNode qNode : questionsNode) {
                 try {
+                    // Mesma questão já gravada no módulo (ou repetida na própria resposta)
+                    if (!existing.add(qNode.path("statement").asText())) continue;
+
                     Map<String, Object> options = new LinkedHashMap<>();
                     JsonNode optionsNode = qNode.get("options");
                     if (optionsNode != null) {
@@ -76,6 +94,7 @@ public class QuestionSaveService {
             }
 
             log.info("Saved {}/{} questions for module {}", saved.size(), questionsNode.size(), moduleId);
+            if (!saved.isEmpty()) questionPoolService.invalidate();
             return saved;
 
         } catch (Exception e) {
@@ -17,6 +17,8 @@ import java.util.UUID;
 public class QuestionService {
 
     private final QuestionRepository questionRepository;
+    private final QuestionPoolService questionPoolService;
+    private final QuestionImageService questionImageService;
 
     public PageResponse<Question> search(
             String banca, Integer year, String subject, String topic, String difficulty, String category, Pageable pageable) {
@@ -69,19 +71,29 @@ public class QuestionService {
         return questionRepository.findDistinctTopicsByCategory(category);
     }
 
+    /**
+     * Loads a question for editing; a legacy inline image is moved to storage on the way.
+     */
+    @Transactional
     public Question findById(UUID id) {
-        return questionRepository.findById(id)
+        Question question = questionRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Questão não encontrada"));
+        if (question.getImageBase64() != null) {
+            questionImageService.externalize(question);
+        }
+        return question;
     }
 
     @Transactional
     public void delete(UUID id) {
         questionRepository.deleteById(id);
+        questionPoolService.invalidate();
     }
 
     @Transactional
     public void deleteAllByModule(UUID moduleId) {
         questionRepository.deleteByModule_Id(moduleId);
+        questionPoolService.invalidate();
     }
 
     @Transactional
@@ -90,6 +102,7 @@ public class QuestionService {
         questionRepository.deleteAttemptsByTopic(topic);
         questionRepository.deleteSimuladoQuestionsByTopic(topic);
         questionRepository.deleteByTopic(topic);
+        questionPoolService.invalidate();
     }
 
     @Transactional
@@ -98,10 +111,13 @@ public class QuestionService {
         questionRepository.deleteAttemptsBySubject(subject);
         questionRepository.deleteSimuladoQuestionsBySubject(subject);
         questionRepository.deleteBySubject(subject);
+        questionPoolService.invalidate();
     }
 
     @Transactional
     public Question save(Question question) {
+        questionImageService.externalize(question);
+        questionPoolService.invalidate();
         return questionRepository.save(question);
     }
 }
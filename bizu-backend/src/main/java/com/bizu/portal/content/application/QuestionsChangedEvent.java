@@ -0,0 +1,9 @@
+package com.bizu.portal.content.application;
+
+/**
+ * Published by {@link QuestionPoolService} whenever its index goes stale: after a question write
+ * on this node commits, and on every periodic refresh (which bounds staleness for writes made by
+ * other nodes). Caches of question content listen to it to drop what they hold.
+ */
+public class QuestionsChangedEvent {
+}
@@ -49,8 +49,13 @@ public class Question {
     @Builder.Default
     private String category = "SIMULADO"; // SIMULADO, QUIZ
 
+    // Accepted on input only; stored images live in content-addressed storage (imageUrl)
     @Column(name = "image_base64", columnDefinition = "TEXT")
-    private String imageBase64; // Optional base64-encoded image
+    @com.fasterxml.jackson.annotation.JsonProperty(access = com.fasterxml.jackson.annotation.JsonProperty.Access.WRITE_ONLY)
+    private String imageBase64; // Legacy inline image, moved to storage in the background
+
+    @Column(name = "image_url")
+    private String imageUrl; // Public URL of the image in content-addressed storage
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "module_id")
@@ -63,6 +68,15 @@ public class Question {
         return module != null ? module.getId() : null;
     }
 
+    /**
+     * Image to show for this question: the stored image URL or, while a legacy row is not
+     * migrated yet, its inline image as a data URI.
+     */
+    public String resolveImageUrl() {
+        if (imageUrl != null || imageBase64 == null || imageBase64.isBlank()) return imageUrl;
+        return imageBase64.startsWith("data:") ? imageBase64 : "data:image/png;base64," + imageBase64;
+    }
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private OffsetDateTime createdAt;
 
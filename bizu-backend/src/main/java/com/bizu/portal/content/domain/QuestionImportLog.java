@@ -2,8 +2,11 @@ package com.bizu.portal.content.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -40,9 +43,36 @@ public class QuestionImportLog {
     @Column(name = "file_name")
     private String fileName;
 
+    // Imports anteriores ao armazenamento em arquivo guardavam o JSON inteiro aqui
     @Column(name = "original_json", columnDefinition = "TEXT")
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private String originalJson;
 
+    @Column(name = "file_path")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private String filePath; // Uploaded file, relative to file storage
+
+    @Column(nullable = false)
+    @Builder.Default
+    private String status = "PROCESSING"; // PROCESSING, COMPLETED, FAILED
+
+    @Column(name = "processed_count", nullable = false)
+    private int processedCount; // Questions read so far (imported + rejected)
+
+    @Column(name = "error_count", nullable = false)
+    private int errorCount;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private List<String> errors; // First errors, one per rejected question
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+
+    @Column(name = "locked_until")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private OffsetDateTime lockedUntil; // Lease of the worker running the import; renewed after every chunk
+
     @Column(name = "imported_by")
     private String importedBy;
 
@@ -45,15 +45,6 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
 
     Page<Question> findByCategory(String category, Pageable pageable);
 
-    @Query(value = "SELECT * FROM content.questions WHERE category = :category ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    java.util.List<Question> findRandomByCategory(@Param("category") String category, @Param("limit") int limit);
-
-    @Query(value = "SELECT * FROM content.questions WHERE module_id = :moduleId AND category = :category ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    java.util.List<Question> findRandomByModuleAndCategory(@Param("moduleId") UUID moduleId, @Param("category") String category, @Param("limit") int limit);
-
-    @Query(value = "SELECT * FROM content.questions WHERE module_id IN (:moduleIds) AND category = :category ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    java.util.List<Question> findRandomByModulesAndCategory(@Param("moduleIds") java.util.List<UUID> moduleIds, @Param("category") String category, @Param("limit") int limit);
-
     long countByCategory(String category);
 
     long countByCategoryAndDifficulty(String category, String difficulty);
@@ -67,6 +58,10 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
     @Query("SELECT DISTINCT q.topic FROM Question q WHERE q.category = :category")
     java.util.List<String> findDistinctTopicsByCategory(@Param("category") String category);
 
+    @Query("SELECT q.statement FROM Question q WHERE q.module.id = :moduleId AND q.statement IN :statements")
+    java.util.List<String> findExistingStatements(@Param("moduleId") UUID moduleId,
+                                                  @Param("statements") java.util.Collection<String> statements);
+
     @Transactional
     void deleteByModule_Id(UUID moduleId);
 
@@ -26,6 +26,7 @@ public class MeController {
     private final FileStorageService storageService;
     private final com.bizu.portal.notification.application.VerificationService verificationService;
     private final com.bizu.portal.identity.infrastructure.KeycloakService keycloakService;
+    private final com.bizu.portal.student.application.ProfileCardCache profileCardCache;
 
     @GetMapping("/me")
     public ResponseEntity<User> getMe(@AuthenticationPrincipal Jwt jwt) {
@@ -50,7 +51,9 @@ public class MeController {
                     user.setNickname(request.nickname());
                 }
                 if (request.name() != null) user.setName(request.name());
-                return ResponseEntity.ok(userRepository.save(user));
+                User saved = userRepository.save(user);
+                profileCardCache.evict(saved.getId());
+                return ResponseEntity.ok(saved);
             })
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -63,7 +66,9 @@ public class MeController {
                 String filename = storageService.store(file);
                 String url = "/public/files/" + filename;
                 user.setAvatarUrl(url);
-                return ResponseEntity.ok(userRepository.save(user));
+                User saved = userRepository.save(user);
+                profileCardCache.evict(saved.getId());
+                return ResponseEntity.ok(saved);
             })
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
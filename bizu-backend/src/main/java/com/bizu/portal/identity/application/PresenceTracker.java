@@ -0,0 +1,183 @@
+package com.bizu.portal.identity.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind presence tracking.
+ *
+ * Heartbeats are recorded in memory only (no locks, no I/O on the request path).
+ * A scheduled flush writes the latest heartbeat of every dirty user to identity.users
+ * with a single UPDATE ... FROM (VALUES ...) per chunk and, when enabled, mirrors them
+ * to the Redis sorted set "presence:users" (score = epoch millis) so other nodes see them.
+ *
+ * Online queries are answered from memory, then Redis, then the persisted last_seen_at
+ * the caller already has loaded — never with a new database round trip.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceTracker {
+
+    public static final Duration DEFAULT_ONLINE_WINDOW = Duration.ofMinutes(5);
+
+    private static final String REDIS_KEY = "presence:users";
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+    private static final Duration RETENTION = Duration.ofMinutes(15);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${axon.presence.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    private final ConcurrentHashMap<UUID, Instant> lastSeen = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    public void heartbeat(UUID userId) {
+        if (userId == null) return;
+        lastSeen.put(userId, Instant.now());
+        dirty.add(userId);
+    }
+
+    public Optional<Instant> lastSeen(UUID userId) {
+        Instant local = lastSeen.get(userId);
+        if (local != null || !redisEnabled) return Optional.ofNullable(local);
+
+        try {
+            Double score = redisTemplate.opsForZSet().score(REDIS_KEY, userId.toString());
+            return Optional.ofNullable(score).map(s -> Instant.ofEpochMilli(s.longValue()));
+        } catch (Exception e) {
+            log.debug("Presença indisponível no Redis: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Latest known heartbeat, falling back to the persisted value the caller already holds
+     * (e.g. User.lastSeenAt of an entity loaded for another purpose).
+     */
+    public Optional<Instant> lastSeen(UUID userId, OffsetDateTime persisted) {
+        Optional<Instant> tracked = lastSeen(userId);
+        if (persisted == null) return tracked;
+        Instant stored = persisted.toInstant();
+        return Optional.of(tracked.filter(t -> t.isAfter(stored)).orElse(stored));
+    }
+
+    public boolean isOnline(UUID userId) {
+        return isOnline(userId, DEFAULT_ONLINE_WINDOW);
+    }
+
+    public boolean isOnline(UUID userId, Duration window) {
+        Instant threshold = Instant.now().minus(window);
+        return lastSeen(userId).map(t -> t.isAfter(threshold)).orElse(false);
+    }
+
+    public boolean isOnline(UUID userId, OffsetDateTime persisted, Duration window) {
+        Instant threshold = Instant.now().minus(window);
+        return lastSeen(userId, persisted).map(t -> t.isAfter(threshold)).orElse(false);
+    }
+
+    /**
+     * Filters the given users down to the ones seen within the window.
+     * Local misses are resolved with a single ZMSCORE when Redis mirroring is enabled.
+     */
+    public Set<UUID> onlineAmong(Collection<UUID> userIds, Duration window) {
+        Instant threshold = Instant.now().minus(window);
+        Set<UUID> online = new LinkedHashSet<>();
+        List<UUID> misses = new ArrayList<>();
+
+        for (UUID userId : userIds) {
+            Instant seen = lastSeen.get(userId);
+            if (seen == null) {
+                misses.add(userId);
+            } else if (seen.isAfter(threshold)) {
+                online.add(userId);
+            }
+        }
+
+        if (redisEnabled && !misses.isEmpty()) {
+            try {
+                List<Double> scores = redisTemplate.opsForZSet().score(REDIS_KEY, misses.stream().map(UUID::toString).toArray());
+                for (int i = 0; scores != null && i < misses.size(); i++) {
+                    Double score = scores.get(i);
+                    if (score != null && score.longValue() > threshold.toEpochMilli()) {
+                        online.add(misses.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Presença indisponível no Redis: {}", e.getMessage());
+            }
+        }
+        return online;
+    }
+
+    @Scheduled(fixedDelayString = "${axon.presence.flush-interval-ms:15000}")
+    public void flush() {
+        if (!dirty.isEmpty()) {
+            Map<UUID, Instant> batch = new HashMap<>();
+            for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+                UUID userId = it.next();
+                it.remove();
+                Instant seen = lastSeen.get(userId);
+                if (seen != null) batch.put(userId, seen);
+            }
+
+            writeToDatabase(batch);
+            if (redisEnabled) writeToRedis(batch);
+        }
+
+        Instant cutoff = Instant.now().minus(RETENTION);
+        lastSeen.entrySet().removeIf(e -> e.getValue().isBefore(cutoff) && !dirty.contains(e.getKey()));
+    }
+
+    private void writeToDatabase(Map<UUID, Instant> batch) {
+        List<Map.Entry<UUID, Instant>> entries = new ArrayList<>(batch.entrySet());
+        for (int from = 0; from < entries.size(); from += FLUSH_CHUNK_SIZE) {
+            List<Map.Entry<UUID, Instant>> chunk = entries.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, entries.size()));
+
+            StringBuilder values = new StringBuilder();
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) values.append(", ");
+                values.append("(CAST(? AS uuid), CAST(? AS timestamptz))");
+                args[i * 2] = chunk.get(i).getKey();
+                args[i * 2 + 1] = Timestamp.from(chunk.get(i).getValue());
+            }
+
+            try {
+                // Não toca no version: presença não deve gerar conflito de lock otimista
+                jdbcTemplate.update("UPDATE identity.users u SET last_seen_at = v.seen " +
+                        "FROM (VALUES " + values + ") AS v(id, seen) " +
+                        "WHERE u.id = v.id AND (u.last_seen_at IS NULL OR u.last_seen_at < v.seen)", args);
+            } catch (Exception e) {
+                // Presença é best-effort: não reenfileira para não acumular carga em caso de falha do banco
+                log.warn("Falha ao gravar presença de {} usuários: {}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void writeToRedis(Map<UUID, Instant> batch) {
+        try {
+            Set<org.springframework.data.redis.core.ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            batch.forEach((userId, seen) -> tuples.add(
+                    org.springframework.data.redis.core.ZSetOperations.TypedTuple.of(userId.toString(), (double) seen.toEpochMilli())));
+            redisTemplate.opsForZSet().add(REDIS_KEY, tuples);
+            redisTemplate.opsForZSet().removeRangeByScore(REDIS_KEY, 0, Instant.now().minus(RETENTION).toEpochMilli());
+        } catch (Exception e) {
+            log.warn("Falha ao espelhar presença no Redis: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bizu.portal.identity.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of JWT principals already synchronized with identity.users.
+ *
+ * Key: {sub}:{iat} — a token is resolved at most once during its lifetime.
+ * Entries expire at min(token exp, configured TTL). A role change in Keycloak
+ * arrives in a new token (new iat, new key); changes made on the local user
+ * (roles, status, e-mail) must call {@link #evictUser} so the next request of
+ * every session of that user syncs again.
+ */
+@Component
+@Slf4j
+public class ResolvedPrincipalCache {
+
+    private final ConcurrentHashMap<String, CachedPrincipal> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Set<String>> keysByUser = new ConcurrentHashMap<>();
+    private final long ttlSeconds;
+    private final int maxEntries;
+
+    public ResolvedPrincipalCache(@Value("${axon.identity.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                                  @Value("${axon.identity.principal-cache.max-entries:50000}") int maxEntries) {
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+    }
+
+    public UUID get(Jwt jwt) {
+        String key = keyOf(jwt);
+        CachedPrincipal cached = entries.get(key);
+        if (cached == null) return null;
+
+        if (cached.expiresAt().isBefore(Instant.now())) {
+            remove(key, cached);
+            return null;
+        }
+        return cached.userId();
+    }
+
+    public void put(Jwt jwt, UUID userId) {
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                // Sem espaço mesmo após a limpeza: melhor ressincronizar do que crescer sem limite
+                return;
+            }
+        }
+
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+            expiresAt = jwt.getExpiresAt();
+        }
+        String key = keyOf(jwt);
+        entries.put(key, new CachedPrincipal(userId, expiresAt));
+        keysByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * Drops every cached token of the user.
+     */
+    public void evictUser(UUID userId) {
+        Set<String> keys = keysByUser.remove(userId);
+        if (keys != null) keys.forEach(entries::remove);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        entries.forEach((key, p) -> {
+            if (p.expiresAt().isBefore(now)) remove(key, p);
+        });
+    }
+
+    private void remove(String key, CachedPrincipal cached) {
+        if (!entries.remove(key, cached)) return;
+        keysByUser.computeIfPresent(cached.userId(), (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private String keyOf(Jwt jwt) {
+        Instant issuedAt = jwt.getIssuedAt();
+        // Sem iat, o próprio token identifica a sessão
+        String discriminator = issuedAt != null ? String.valueOf(issuedAt.getEpochSecond()) : Integer.toHexString(jwt.getTokenValue().hashCode());
+        return jwt.getSubject() + ":" + discriminator;
+    }
+
+    private record CachedPrincipal(UUID userId, Instant expiresAt) {}
+}
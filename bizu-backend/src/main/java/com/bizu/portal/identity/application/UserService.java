@@ -24,6 +24,9 @@ public class UserService {
     private final RoleRepository roleRepository;
     private final KeycloakService keycloakService;
     private final SystemSettingsRepository systemSettingsRepository;
+    private final ResolvedPrincipalCache principalCache;
+    private final PresenceTracker presenceTracker;
+    private final com.bizu.portal.student.application.ProfileCardCache profileCardCache;
 
     public java.util.Optional<User> findById(java.util.UUID id) {
         return userRepository.findById(id);
@@ -62,6 +65,57 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    /**
+     * Makes sure every e-mail has a portal account, e.g. before assigning group seats. Missing
+     * accounts are provisioned in Keycloak in one bulk call (the user sets a password from the
+     * Keycloak e-mail) and then created locally. Not transactional on purpose: Keycloak calls
+     * must not hold a database connection.
+     *
+     * @return one result per distinct e-mail, EXISTING for accounts that were already in the portal
+     */
+    public List<KeycloakService.ProvisionResult> ensureUsers(java.util.Collection<String> emails) {
+        // E-mail é comparado sem diferenciar maiúsculas (o Keycloak também os guarda em minúsculas)
+        List<String> distinct = emails.stream().map(e -> e.trim().toLowerCase(java.util.Locale.ROOT))
+                .filter(e -> !e.isEmpty()).distinct().toList();
+        Set<String> known = userRepository.findByLowerEmailIn(distinct).stream()
+                .map(user -> user.getEmail().toLowerCase(java.util.Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        List<KeycloakService.ProvisionRequest> missing = distinct.stream()
+                .filter(email -> !known.contains(email))
+                .map(email -> new KeycloakService.ProvisionRequest(email, null))
+                .toList();
+        Map<String, KeycloakService.ProvisionResult> provisioned = keycloakService.provisionUsers(missing).stream()
+                .collect(Collectors.toMap(KeycloakService.ProvisionResult::email, r -> r));
+
+        List<KeycloakService.ProvisionResult> results = new java.util.ArrayList<>(distinct.size());
+        for (String email : distinct) {
+            KeycloakService.ProvisionResult result = provisioned.get(email);
+            if (result == null) {
+                results.add(new KeycloakService.ProvisionResult(email, "EXISTING", null));
+                continue;
+            }
+            if (!"FAILED".equals(result.status())) {
+                try {
+                    userRepository.save(User.builder()
+                            .id(java.util.UUID.randomUUID())
+                            .name(email.substring(0, email.indexOf('@') > 0 ? email.indexOf('@') : email.length()))
+                            .email(email)
+                            .nickname(generateNickname(email))
+                            .status("ACTIVE")
+                            .build());
+                } catch (Exception e) {
+                    // Criado em paralelo (ex.: primeiro login sincronizou antes)
+                    if (userRepository.findByEmail(email).isEmpty()) {
+                        result = new KeycloakService.ProvisionResult(email, "FAILED", e.getMessage());
+                    }
+                }
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
     @Transactional
     public User updateUser(java.util.UUID id, String name, String email, String phone) {
         User user = userRepository.findById(id)
@@ -79,7 +133,11 @@ public class UserService {
             keycloakService.updateKeycloakUser(oldEmail, name, email);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Edição administrativa (dados, plano e status na mesma requisição): sessões ressincronizam
+        principalCache.evictUser(id);
+        profileCardCache.evict(id);
+        return saved;
     }
 
     @Transactional
@@ -97,6 +155,7 @@ public class UserService {
         
         // Remove do banco local primeiro
         userRepository.delete(user);
+        principalCache.evictUser(id);
 
         // Remove do Keycloak depois
         keycloakService.deleteKeycloakUser(user.getEmail());
@@ -141,21 +200,53 @@ public class UserService {
             }
             if (changed) {
                 userRepository.save(user);
+                principalCache.evictUser(user.getId());
             }
         }
 
-        // Atualiza a presença sem incrementar o version
-        try {
-            userRepository.updateLastSeen(user.getId());
-        } catch (Exception e) {
-            // Se falhar o update de presença, não derruba o request principal
-        }
-        
         return user;
     }
 
     @Transactional
     public User resolveUser(org.springframework.security.oauth2.jwt.Jwt jwt) {
+        Set<String> roles = extractRoles(jwt);
+
+        java.util.UUID cachedId = principalCache.get(jwt);
+        if (cachedId != null) {
+            java.util.Optional<User> cached = userRepository.findById(cachedId);
+            if (cached.isPresent()) {
+                presenceTracker.heartbeat(cachedId);
+                return cached.get();
+            }
+            principalCache.evictUser(cachedId);
+        }
+
+        User user = syncFromJwt(jwt, roles);
+        principalCache.put(jwt, user.getId());
+        presenceTracker.heartbeat(user.getId());
+        return user;
+    }
+
+    /**
+     * Resolves the local user id for the token. Called by the security filters and most
+     * controllers on every request, so a cached principal is answered without touching the database.
+     */
+    public java.util.UUID resolveUserId(org.springframework.security.oauth2.jwt.Jwt jwt) {
+        Set<String> roles = extractRoles(jwt);
+
+        java.util.UUID cachedId = principalCache.get(jwt);
+        if (cachedId != null) {
+            presenceTracker.heartbeat(cachedId);
+            return cachedId;
+        }
+
+        User user = syncFromJwt(jwt, roles);
+        principalCache.put(jwt, user.getId());
+        presenceTracker.heartbeat(user.getId());
+        return user.getId();
+    }
+
+    private User syncFromJwt(org.springframework.security.oauth2.jwt.Jwt jwt, Set<String> roles) {
         String email = jwt.getClaimAsString("email");
         if (email == null) email = jwt.getClaimAsString("preferred_username");
         if (email == null) email = jwt.getSubject();
@@ -172,14 +263,6 @@ public class UserService {
             subjectId = java.util.UUID.nameUUIDFromBytes(email.getBytes());
         }
 
-        // Extract roles from JWT
-        Set<String> roles = new java.util.HashSet<>();
-        Map<String, Object> realmAccess = jwt.getClaim("realm_access");
-        if (realmAccess != null && realmAccess.get("roles") instanceof java.util.List) {
-            java.util.List<String> keycloakRoles = (java.util.List<String>) realmAccess.get("roles");
-            roles.addAll(keycloakRoles);
-        }
-
         final java.util.UUID finalSubjectId = subjectId;
         final String finalEmail = email;
         try {
@@ -194,9 +277,15 @@ public class UserService {
         }
     }
 
-    @Transactional
-    public java.util.UUID resolveUserId(org.springframework.security.oauth2.jwt.Jwt jwt) {
-        return resolveUser(jwt).getId();
+    @SuppressWarnings("unchecked")
+    private Set<String> extractRoles(org.springframework.security.oauth2.jwt.Jwt jwt) {
+        Set<String> roles = new java.util.HashSet<>();
+        Map<String, Object> realmAccess = jwt.getClaim("realm_access");
+        if (realmAccess != null && realmAccess.get("roles") instanceof java.util.List) {
+            java.util.List<String> keycloakRoles = (java.util.List<String>) realmAccess.get("roles");
+            roles.addAll(keycloakRoles);
+        }
+        return roles;
     }
 
     public void forgotPassword(String email) {
@@ -0,0 +1,130 @@
+package com.bizu.portal.identity.infrastructure;
+
+import com.bizu.portal.shared.http.OutboundHttp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+/**
+ * Keycloak admin access token, shared by all admin API calls of this node.
+ *
+ * The token is fetched once and reused until {@code refresh-skew-seconds} before it expires;
+ * a scheduled task renews it ahead of time (with the refresh token when still valid, otherwise
+ * with a new password grant), so admin calls normally never wait for a token round trip.
+ * {@link #invalidate()} drops it, e.g. after a 401 (session revoked, realm restarted).
+ */
+@Component
+@Slf4j
+public class KeycloakAdminTokenManager {
+
+    private record Token(String accessToken, long expiresAt, String refreshToken, long refreshExpiresAt) {}
+
+    @Value("${KEYCLOAK_AUTH_SERVER_URL:http://localhost:8280/auth}")
+    private String authServerUrl;
+
+    @Value("${KEYCLOAK_ADMIN:admin}")
+    private String adminUser;
+
+    @Value("${KEYCLOAK_ADMIN_PASSWORD:admin}")
+    private String adminPassword;
+
+    @Value("${axon.keycloak.token.refresh-skew-seconds:30}")
+    private long refreshSkewSeconds;
+
+    private final RestTemplate restTemplate;
+
+    private volatile Token token;
+
+    public KeycloakAdminTokenManager(OutboundHttp outboundHttp) {
+        this.restTemplate = outboundHttp.integration("keycloak").restTemplate();
+    }
+
+    public String getToken() {
+        Token current = token;
+        if (current != null && !expiringSoon(current)) {
+            return current.accessToken();
+        }
+        return renew(current).accessToken();
+    }
+
+    public void invalidate() {
+        token = null;
+    }
+
+    /**
+     * Renews ahead of expiry, only while a token is in use (nothing is fetched before the first admin call).
+     */
+    @Scheduled(fixedDelayString = "${axon.keycloak.token.check-interval-ms:10000}")
+    public void refreshAhead() {
+        Token current = token;
+        if (current == null || !expiringSoon(current)) return;
+        try {
+            renew(current);
+        } catch (Exception e) {
+            // Tenta de novo na próxima verificação ou na próxima chamada
+            log.warn("Renovação antecipada do token de admin do Keycloak falhou: {}", e.getMessage());
+        }
+    }
+
+    private synchronized Token renew(Token seen) {
+        // Outra thread já renovou enquanto esta esperava o lock
+        Token current = token;
+        if (current != null && current != seen && !expiringSoon(current)) return current;
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("client_id", "admin-cli");
+        if (current != null && current.refreshToken() != null && System.currentTimeMillis() < current.refreshExpiresAt()) {
+            form.add("grant_type", "refresh_token");
+            form.add("refresh_token", current.refreshToken());
+        } else {
+            form.add("grant_type", "password");
+            form.add("username", adminUser);
+            form.add("password", adminPassword);
+        }
+
+        Token renewed;
+        try {
+            renewed = requestToken(form);
+        } catch (Exception e) {
+            if (!"refresh_token".equals(form.getFirst("grant_type"))) {
+                log.error("Erro ao obter token de admin do Keycloak", e);
+                throw new RuntimeException("Erro de autenticação administrativa no Keycloak");
+            }
+            // Sessão de refresh revogada: volta para o password grant
+            token = null;
+            return renew(null);
+        }
+        token = renewed;
+        return renewed;
+    }
+
+    private Token requestToken(MultiValueMap<String, String> form) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        String url = String.format("%s/realms/master/protocol/openid-connect/token", authServerUrl);
+        Map<String, Object> response = restTemplate.postForObject(url, new HttpEntity<>(form, headers), Map.class);
+        if (response == null || response.get("access_token") == null) {
+            throw new IllegalStateException("Resposta de token sem access_token");
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresIn = ((Number) response.getOrDefault("expires_in", 60)).longValue();
+        long refreshExpiresIn = ((Number) response.getOrDefault("refresh_expires_in", 0)).longValue();
+        return new Token((String) response.get("access_token"), now + expiresIn * 1000,
+                (String) response.get("refresh_token"), now + refreshExpiresIn * 1000);
+    }
+
+    private boolean expiringSoon(Token current) {
+        return System.currentTimeMillis() >= current.expiresAt() - refreshSkewSeconds * 1000;
+    }
+}
@@ -1,21 +1,24 @@
 package com.bizu.portal.identity.infrastructure;
 
-import lombok.RequiredArgsConstructor;
+import com.bizu.portal.shared.http.OutboundHttp;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KeycloakService {
 
@@ -25,13 +28,22 @@ public class KeycloakService {
     @Value("${KEYCLOAK_REALM:bizu-portal}")
     private String realm;
 
-    @Value("${KEYCLOAK_ADMIN:admin}")
-    private String adminUser;
+    private final RestTemplate restTemplate;
+    private final KeycloakAdminTokenManager tokenManager;
+    private final AsyncTaskExecutor provisionExecutor;
 
-    @Value("${KEYCLOAK_ADMIN_PASSWORD:admin}")
-    private String adminPassword;
+    /** One user of a bulk provisioning: created if missing, otherwise its name is updated. */
+    public record ProvisionRequest(String email, String name) {}
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /** Outcome for one user: CREATED, UPDATED, EXISTING or FAILED (with the reason in {@code error}). */
+    public record ProvisionResult(String email, String status, String error) {}
+
+    public KeycloakService(OutboundHttp outboundHttp, KeycloakAdminTokenManager tokenManager,
+                           @Qualifier("keycloakProvisionExecutor") AsyncTaskExecutor provisionExecutor) {
+        this.restTemplate = outboundHttp.integration("keycloak").restTemplate();
+        this.tokenManager = tokenManager;
+        this.provisionExecutor = provisionExecutor;
+    }
 
     public void createKeycloakUser(String name, String email, String password) {
         String adminToken = getAdminToken();
@@ -62,6 +74,7 @@ public class KeycloakService {
             }
             log.info("Usuário {} criado com sucesso no Keycloak", email);
         } catch (Exception e) {
+            onAdminError(e);
             log.error("Erro ao integrar com Keycloak", e);
             throw new RuntimeException("Erro na integração com serviço de identidade: " + e.getMessage());
         }
@@ -106,6 +119,7 @@ public class KeycloakService {
             
             log.info("Usuário {} (ID: {}) atualizado com sucesso no Keycloak", email, userId);
         } catch (Exception e) {
+            onAdminError(e);
             log.error("Erro ao atualizar usuário no Keycloak", e);
             throw new RuntimeException("Erro ao atualizar usuário no serviço de identidade: " + e.getMessage());
         }
@@ -145,6 +159,7 @@ public class KeycloakService {
             
             log.info("E-mail de reset de senha enviado para {} (ID: {})", email, userId);
         } catch (Exception e) {
+            onAdminError(e);
             log.error("Erro ao enviar e-mail de reset de senha no Keycloak", e);
             throw new RuntimeException("Erro ao processar solicitação de recuperação de senha");
         }
@@ -181,30 +196,121 @@ public class KeycloakService {
             
             log.info("Usuário {} (ID: {}) deletado com sucesso do Keycloak", email, userId);
         } catch (Exception e) {
+            onAdminError(e);
             log.error("Erro ao deletar usuário no Keycloak", e);
             throw new RuntimeException("Erro ao remover usuário do serviço de identidade");
         }
     }
 
-    private String getAdminToken() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+    /**
+     * Creates or updates many users on the shared {@code keycloakProvisionExecutor}, so at most
+     * {@code axon.keycloak.bulk.concurrency} requests run at a time across all bulk calls, all
+     * under the same cached admin token. New users get no password: Keycloak e-mails
+     * them an UPDATE_PASSWORD action. Results are in request order; one failure does not stop the others.
+     */
+    public List<ProvisionResult> provisionUsers(List<ProvisionRequest> requests) {
+        if (requests.isEmpty()) return List.of();
 
-        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-        map.add("grant_type", "password");
-        map.add("client_id", "admin-cli");
-        map.add("username", adminUser);
-        map.add("password", adminPassword);
+        List<Future<ProvisionResult>> futures = new ArrayList<>(requests.size());
+        for (ProvisionRequest request : requests) {
+            futures.add(provisionExecutor.submit(() -> provisionUser(request)));
+        }
+        List<ProvisionResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                // Desiste do restante do lote, sem deixar chamadas órfãs na fila
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(future -> future.cancel(true));
+                throw new RuntimeException("Provisionamento em lote interrompido", e);
+            } catch (Exception e) {
+                results.add(new ProvisionResult(requests.get(i).email(), "FAILED", e.getMessage()));
+            }
+        }
+        long failed = results.stream().filter(r -> "FAILED".equals(r.status())).count();
+        log.info("Provisionamento em lote no Keycloak: {} usuários, {} falhas", results.size(), failed);
+        return results;
+    }
 
-        String url = String.format("%s/realms/master/protocol/openid-connect/token", authServerUrl);
-        
+    private ProvisionResult provisionUser(ProvisionRequest request) {
+        String email = request.email();
+        try {
+            String userId = findUserId(email);
+            if (userId == null) {
+                try {
+                    return createInvitedUser(request);
+                } catch (HttpClientErrorException.Conflict e) {
+                    // Criado em paralelo (ou username igual com outro caso): segue como atualização
+                    userId = findUserId(email);
+                    if (userId == null) throw e;
+                }
+            }
+            if (request.name() == null) {
+                return new ProvisionResult(email, "EXISTING", null);
+            }
+            String updateUrl = String.format("%s/admin/realms/%s/users/%s", authServerUrl, realm, userId);
+            restTemplate.exchange(updateUrl, HttpMethod.PUT, new HttpEntity<>(Map.of("firstName", request.name()), adminHeaders()), String.class);
+            return new ProvisionResult(email, "UPDATED", null);
+        } catch (Exception e) {
+            onAdminError(e);
+            log.warn("Falha ao provisionar {} no Keycloak: {}", email, e.getMessage());
+            return new ProvisionResult(email, "FAILED", e.getMessage());
+        }
+    }
+
+    private ProvisionResult createInvitedUser(ProvisionRequest request) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("username", request.email());
+        user.put("email", request.email());
+        user.put("enabled", true);
+        if (request.name() != null) user.put("firstName", request.name());
+        user.put("requiredActions", List.of("UPDATE_PASSWORD"));
+
+        String url = String.format("%s/admin/realms/%s/users", authServerUrl, realm);
+        ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>(user, adminHeaders()), String.class);
+        URI location = response.getHeaders().getLocation();
+        if (location == null) {
+            return new ProvisionResult(request.email(), "CREATED", "convite não enviado: id do usuário ausente na resposta");
+        }
+
+        String userId = location.getPath().substring(location.getPath().lastIndexOf('/') + 1);
         try {
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(map, headers);
-            Map<String, Object> response = restTemplate.postForObject(url, request, Map.class);
-            return (String) response.get("access_token");
+            String actionUrl = String.format("%s/admin/realms/%s/users/%s/execute-actions-email", authServerUrl, realm, userId);
+            restTemplate.exchange(actionUrl, HttpMethod.PUT, new HttpEntity<>(List.of("UPDATE_PASSWORD"), adminHeaders()), String.class);
+            return new ProvisionResult(request.email(), "CREATED", null);
         } catch (Exception e) {
-            log.error("Erro ao obter token de admin do Keycloak", e);
-            throw new RuntimeException("Erro de autenticação administrativa no Keycloak");
+            // O usuário existe; só o e-mail de definição de senha falhou
+            return new ProvisionResult(request.email(), "CREATED", "convite não enviado: " + e.getMessage());
+        }
+    }
+
+    private String findUserId(String email) {
+        String searchUrl = String.format("%s/admin/realms/%s/users?username=%s&exact=true", authServerUrl, realm, email);
+        ResponseEntity<List> searchResponse = restTemplate.exchange(searchUrl, HttpMethod.GET, new HttpEntity<>(adminHeaders()), List.class);
+        List users = searchResponse.getBody();
+        if (users == null || users.isEmpty()) return null;
+        return (String) ((Map<String, Object>) users.get(0)).get("id");
+    }
+
+    private HttpHeaders adminHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(getAdminToken());
+        return headers;
+    }
+
+    /**
+     * A 401 means the cached token was revoked before its expiry (e.g. Keycloak restarted):
+     * drop it so the next call fetches a new one.
+     */
+    private void onAdminError(Exception e) {
+        if (e instanceof HttpClientErrorException.Unauthorized) {
+            tokenManager.invalidate();
         }
     }
+
+    private String getAdminToken() {
+        return tokenManager.getToken();
+    }
 }
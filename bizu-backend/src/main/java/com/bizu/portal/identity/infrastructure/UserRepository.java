@@ -10,6 +10,11 @@ import java.util.UUID;
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
+    java.util.List<User> findByEmailIn(java.util.Collection<String> emails);
+
+    /** Users whose e-mail matches one of {@code emails} ignoring case; pass them already lowercased. */
+    @org.springframework.data.jpa.repository.Query("SELECT u FROM User u WHERE LOWER(u.email) IN :emails")
+    java.util.List<User> findByLowerEmailIn(@org.springframework.data.repository.query.Param("emails") java.util.Collection<String> emails);
     Optional<User> findByPhone(String phone);
     Optional<User> findByNickname(String nickname);
     java.util.List<User> findByNicknameContainingIgnoreCase(String nickname);
@@ -26,10 +31,6 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @org.springframework.data.jpa.repository.Query(value = "SELECT DISTINCT u.* FROM identity.users u JOIN commerce.course_entitlements ce ON u.id = ce.user_id WHERE ce.course_id = :courseId AND ce.active = true AND u.id != :userId LIMIT :limit", nativeQuery = true)
     java.util.List<User> findSuggestedFriendsByCourseId(@org.springframework.data.repository.query.Param("courseId") UUID courseId, @org.springframework.data.repository.query.Param("userId") UUID userId, @org.springframework.data.repository.query.Param("limit") int limit);
     
-    @org.springframework.data.jpa.repository.Modifying
-    @org.springframework.data.jpa.repository.Query(value = "UPDATE identity.users SET last_seen_at = NOW() WHERE id = :userId", nativeQuery = true)
-    void updateLastSeen(@org.springframework.data.repository.query.Param("userId") UUID userId);
-
     org.springframework.data.domain.Page<User> findAll(org.springframework.data.domain.Pageable pageable);
 
     @org.springframework.data.jpa.repository.Query("SELECT u FROM User u WHERE LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%'))")
@@ -0,0 +1,50 @@
+package com.bizu.portal.notification.api;
+
+import com.bizu.portal.identity.application.UserService;
+import com.bizu.portal.notification.application.NotificationService;
+import com.bizu.portal.shared.pagination.CursorPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The student's notification inbox, newest first with cursor pagination.
+ */
+@RestController
+@RequestMapping("/api/v1/student/notifications")
+@RequiredArgsConstructor
+public class NotificationController {
+
+    private final NotificationService notificationService;
+    private final UserService userService;
+
+    @GetMapping
+    public ResponseEntity<CursorPage<NotificationService.InboxItem>> list(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(notificationService.inbox(userService.resolveUserId(jwt), cursor, limit));
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Long>> unreadCount(@AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(Map.of("count", notificationService.unreadCount(userService.resolveUserId(jwt))));
+    }
+
+    @PostMapping("/{notificationId}/read")
+    public ResponseEntity<Void> markRead(@AuthenticationPrincipal Jwt jwt, @PathVariable UUID notificationId) {
+        notificationService.markRead(userService.resolveUserId(jwt), notificationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/read-all")
+    public ResponseEntity<Void> markAllRead(@AuthenticationPrincipal Jwt jwt) {
+        notificationService.markAllRead(userService.resolveUserId(jwt));
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -30,28 +30,8 @@ public class EmailService {
 
     @Async("taskExecutor")
     public void sendTemplatedEmail(String to, String subject, String templateName, Map<String, Object> variables) {
-        long startTime = System.currentTimeMillis();
-        log.info("[EMAIL] Iniciando geração e envio para {} - Template: {}", to, templateName);
-        
         try {
-            Context context = new Context();
-            context.setVariables(variables);
-            
-            String htmlContent = templateEngine.process("email/" + templateName, context);
-            
-            MimeMessage message = javaMailSender.createMimeMessage();
-            // Use true somente se houver anexos. Para HTML simples, false é mais rápido.
-            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
-            
-            helper.setTo(to);
-            helper.setFrom(fromAddress, fromName);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
-            
-            javaMailSender.send(message);
-            
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("[EMAIL] Enviado com sucesso para {} em {}ms", to, duration);
+            send(to, subject, templateName, variables);
         } catch (MessagingException | java.io.UnsupportedEncodingException e) {
             log.error("[EMAIL] Erro ao enviar para {}: {}", to, e.getMessage());
         } catch (Exception e) {
@@ -59,6 +39,34 @@ public class EmailService {
         }
     }
 
+    /**
+     * Synchronous variant that lets failures propagate, for callers that retry (notification outbox).
+     */
+    public void send(String to, String subject, String templateName, Map<String, Object> variables)
+            throws MessagingException, java.io.UnsupportedEncodingException {
+        long startTime = System.currentTimeMillis();
+        log.info("[EMAIL] Iniciando geração e envio para {} - Template: {}", to, templateName);
+
+        Context context = new Context();
+        context.setVariables(variables);
+
+        String htmlContent = templateEngine.process("email/" + templateName, context);
+
+        MimeMessage message = javaMailSender.createMimeMessage();
+        // Use true somente se houver anexos. Para HTML simples, false é mais rápido.
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+
+        helper.setTo(to);
+        helper.setFrom(fromAddress, fromName);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true);
+
+        javaMailSender.send(message);
+
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("[EMAIL] Enviado com sucesso para {} em {}ms", to, duration);
+    }
+
     // Métodos utilitários baseados nos seus casos de uso
     
     public void sendVerificationCode(String to, String name, String code) {
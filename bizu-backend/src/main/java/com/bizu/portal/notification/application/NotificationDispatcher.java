@@ -0,0 +1,354 @@
+package com.bizu.portal.notification.application;
+
+import com.bizu.portal.notification.domain.NotificationChannel;
+import com.bizu.portal.shared.concurrent.TokenBucket;
+import com.bizu.portal.shared.sse.SseHub;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains {@code notification.outbox}. Each channel is claimed in batches of {@code batch-size}
+ * rows with {@code FOR UPDATE SKIP LOCKED} (so several nodes share the outbox) under a lease of
+ * {@code lease-seconds}, delivered on the channel's own pool of {@code concurrency} threads and
+ * paced by its {@code rate-per-minute}, so a slow SMTP server never delays in-app notifications.
+ * Results are written back in one batch per outcome.
+ *
+ * Delivery is at-least-once: a node that dies mid-batch leaves its rows to be claimed again
+ * once the lease expires. Failed rows are retried with exponential backoff up to
+ * {@code max-attempts}. Channel settings are read from {@code axon.notifications.channels.<channel>.*}.
+ *
+ * Delivered outbox rows are kept {@code retention.sent-hours}, failed ones and the inbox itself
+ * {@code retention.days}; {@link #purge()} deletes older rows in small batches.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDispatcher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SseHub sseHub;
+    private final EmailService emailService;
+    private final WhatsAppService whatsAppService;
+    private final Environment environment;
+
+    @Value("${axon.notifications.batch-size:100}")
+    private int batchSize;
+
+    @Value("${axon.notifications.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${axon.notifications.retry-backoff-seconds:30}")
+    private int retryBackoffSeconds;
+
+    @Value("${axon.notifications.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${axon.notifications.retention.sent-hours:48}")
+    private int sentRetentionHours;
+
+    @Value("${axon.notifications.retention.days:90}")
+    private int retentionDays;
+
+    private static final int PURGE_BATCH = 5_000;
+
+    private final Map<NotificationChannel, Lane> lanes = new EnumMap<>(NotificationChannel.class);
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private ThreadPoolTaskExecutor wakeUpExecutor;
+
+    private record Delivery(long outboxId, int attempt, UUID notificationId, UUID userId, String type, String title,
+                            String message, OffsetDateTime createdAt, String email, String phone, String name) {}
+
+    private record Failure(Delivery delivery, String error, boolean retryable) {}
+
+    /**
+     * A channel's pool, rate limit and in-flight flag (one batch at a time per channel and node).
+     */
+    private record Lane(ThreadPoolTaskExecutor executor, TokenBucket rateLimit, AtomicBoolean busy) {}
+
+    /**
+     * Permanent delivery failure (e.g. user without phone number): not retried.
+     */
+    private static class UndeliverableException extends RuntimeException {
+        UndeliverableException(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            String prefix = "axon.notifications.channels." + channel.name().toLowerCase() + ".";
+            int concurrency = environment.getProperty(prefix + "concurrency", Integer.class, 4);
+            double perMinute = environment.getProperty(prefix + "rate-per-minute", Double.class, 6000.0);
+
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(concurrency);
+            executor.setMaxPoolSize(concurrency);
+            executor.setThreadNamePrefix("Notify-" + channel.name().toLowerCase() + "-");
+            executor.initialize();
+            lanes.put(channel, new Lane(executor, new TokenBucket(perMinute, concurrency), new AtomicBoolean()));
+        }
+
+        wakeUpExecutor = new ThreadPoolTaskExecutor();
+        wakeUpExecutor.setCorePoolSize(1);
+        wakeUpExecutor.setMaxPoolSize(1);
+        wakeUpExecutor.setQueueCapacity(1);
+        wakeUpExecutor.setThreadNamePrefix("Notify-wakeup-");
+        wakeUpExecutor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wakeUpExecutor.shutdown();
+        lanes.values().forEach(lane -> lane.executor().shutdown());
+    }
+
+    /**
+     * Dispatches right after the current transaction commits, so a notification does not wait for the next poll.
+     * Registered once per transaction, however many notifications it writes. The claim queries run on
+     * a background thread, never on the committing (request) thread, and wake-ups that arrive while
+     * one is pending are merged into it.
+     */
+    public void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (TransactionSynchronizationManager.hasResource(this)) return;
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NotificationDispatcher.this);
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) return;
+        try {
+            wakeUpExecutor.execute(() -> {
+                wakeUpPending.set(false);
+                dispatch();
+            });
+        } catch (TaskRejectedException e) {
+            // Em desligamento: o próximo ciclo agendado (ou outro nó) entrega
+            wakeUpPending.set(false);
+        }
+    }
+
+    /**
+     * Deletes delivered outbox rows, failed ones and inbox notifications past their retention, in
+     * batches of {@value #PURGE_BATCH} rows (SKIP LOCKED, so nodes running it together do not block
+     * each other or the dispatcher). Deleting a notification removes its outbox rows too.
+     */
+    @Scheduled(cron = "${axon.notifications.retention.cron:0 30 3 * * *}")
+    public void purge() {
+        OffsetDateTime sentBefore = OffsetDateTime.now().minusHours(sentRetentionHours);
+        OffsetDateTime createdBefore = OffsetDateTime.now().minusDays(retentionDays);
+        try {
+            long outbox = purgeBatches("""
+                DELETE FROM notification.outbox WHERE id IN (
+                    SELECT id FROM notification.outbox
+                    WHERE status = 'SENT' AND sent_at < ?
+                    LIMIT ? FOR UPDATE SKIP LOCKED)
+                """, sentBefore);
+            outbox += purgeBatches("""
+                DELETE FROM notification.outbox WHERE id IN (
+                    SELECT id FROM notification.outbox
+                    WHERE status = 'FAILED' AND created_at < ?
+                    LIMIT ? FOR UPDATE SKIP LOCKED)
+                """, createdBefore);
+            long inbox = purgeBatches("""
+                DELETE FROM notification.notifications WHERE id IN (
+                    SELECT id FROM notification.notifications
+                    WHERE created_at < ?
+                    LIMIT ? FOR UPDATE SKIP LOCKED)
+                """, createdBefore);
+            log.info("Retenção de notificações: {} linhas do outbox e {} notificações removidas", outbox, inbox);
+        } catch (Exception e) {
+            log.error("Falha na limpeza de notificações antigas: {}", e.getMessage());
+        }
+    }
+
+    private long purgeBatches(String sql, OffsetDateTime before) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, before, PURGE_BATCH);
+            total += deleted;
+        } while (deleted == PURGE_BATCH);
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${axon.notifications.dispatch-interval-ms:2000}")
+    public void dispatch() {
+        lanes.forEach((channel, lane) -> {
+            if (!lane.busy().compareAndSet(false, true)) return;
+            List<Delivery> batch;
+            try {
+                batch = claim(channel);
+            } catch (Exception e) {
+                lane.busy().set(false);
+                log.warn("Outbox de notificações indisponível ({}): {}", channel, e.getMessage());
+                return;
+            }
+            if (batch.isEmpty()) {
+                lane.busy().set(false);
+                return;
+            }
+            deliverBatch(channel, lane, batch);
+        });
+    }
+
+    private List<Delivery> claim(NotificationChannel channel) {
+        return jdbcTemplate.query("""
+            WITH claimed AS (
+                UPDATE notification.outbox o
+                SET locked_until = NOW() + make_interval(secs => ?), attempts = o.attempts + 1
+                WHERE o.id IN (
+                    SELECT id FROM notification.outbox
+                    WHERE channel = ? AND status = 'PENDING' AND next_attempt_at <= NOW()
+                      AND (locked_until IS NULL OR locked_until < NOW())
+                    ORDER BY next_attempt_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING o.id, o.attempts, o.notification_id
+            )
+            SELECT c.id, c.attempts, n.id AS notification_id, n.user_id, n.type, n.title, n.message, n.created_at,
+                   u.email, u.phone, u.name
+            FROM claimed c
+            JOIN notification.notifications n ON n.id = c.notification_id
+            JOIN identity.users u ON u.id = n.user_id
+            """, (rs, i) -> new Delivery(
+                rs.getLong("id"),
+                rs.getInt("attempts"),
+                rs.getObject("notification_id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                rs.getString("type"),
+                rs.getString("title"),
+                rs.getString("message"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getString("email"),
+                rs.getString("phone"),
+                rs.getString("name")), leaseSeconds, channel.name(), batchSize);
+    }
+
+    private void deliverBatch(NotificationChannel channel, Lane lane, List<Delivery> batch) {
+        ConcurrentLinkedQueue<Delivery> sent = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Failure> failed = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(batch.size());
+
+        for (Delivery delivery : batch) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    lane.rateLimit().acquire();
+                    deliver(channel, delivery);
+                    sent.add(delivery);
+                } catch (UndeliverableException e) {
+                    failed.add(new Failure(delivery, e.getMessage(), false));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.add(new Failure(delivery, "Envio interrompido", true));
+                } catch (Exception e) {
+                    failed.add(new Failure(delivery, e.getMessage(), true));
+                }
+            }, lane.executor()));
+        }
+
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            try {
+                record(channel, new ArrayList<>(sent), new ArrayList<>(failed));
+            } finally {
+                lane.busy().set(false);
+            }
+        });
+    }
+
+    private void deliver(NotificationChannel channel, Delivery delivery) throws Exception {
+        switch (channel) {
+            case WEBSOCKET -> messagingTemplate.convertAndSend("/topic/notifications/" + delivery.userId(), payload(delivery));
+            case SSE -> sseHub.pushUpdate(delivery.userId(), "notification", payload(delivery));
+            case EMAIL -> {
+                if (delivery.email() == null) throw new UndeliverableException("Usuário sem e-mail");
+                emailService.send(delivery.email(), delivery.title(), "notification",
+                        Map.of("name", delivery.name(), "title", delivery.title(), "message", delivery.message()));
+            }
+            case WHATSAPP -> {
+                if (delivery.phone() == null || delivery.phone().isBlank()) throw new UndeliverableException("Usuário sem telefone");
+                // O cliente HTTP já aplica o timeout de leitura da integração
+                whatsAppService.deliver(delivery.phone(), "*" + delivery.title() + "*\n\n" + delivery.message())
+                        .get(leaseSeconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private Map<String, Object> payload(Delivery delivery) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", delivery.notificationId());
+        payload.put("type", delivery.type());
+        payload.put("title", delivery.title());
+        payload.put("message", delivery.message());
+        payload.put("createdAt", delivery.createdAt());
+        return payload;
+    }
+
+    private void record(NotificationChannel channel, List<Delivery> sent, List<Failure> failed) {
+        try {
+            if (!sent.isEmpty()) {
+                jdbcTemplate.batchUpdate("""
+                    UPDATE notification.outbox SET status = 'SENT', sent_at = NOW(), locked_until = NULL, last_error = NULL
+                    WHERE id = ?
+                    """, sent.stream().map(delivery -> new Object[]{delivery.outboxId()}).toList());
+            }
+            if (!failed.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(failed.size());
+                for (Failure failure : failed) {
+                    int attempt = failure.delivery().attempt();
+                    boolean giveUp = !failure.retryable() || attempt >= maxAttempts;
+                    long backoff = (long) retryBackoffSeconds << Math.min(attempt - 1, 10);
+                    rows.add(new Object[]{giveUp ? "FAILED" : "PENDING", failure.error(), backoff, failure.delivery().outboxId()});
+                }
+                jdbcTemplate.batchUpdate("""
+                    UPDATE notification.outbox
+                    SET status = ?, last_error = ?, locked_until = NULL, next_attempt_at = NOW() + make_interval(secs => ?)
+                    WHERE id = ?
+                    """, rows);
+                log.warn("Notificações não entregues por {}: {} (ex.: {})", channel, failed.size(), failed.get(0).error());
+            }
+        } catch (Exception e) {
+            // As linhas voltam a ser reivindicadas quando o lease expirar
+            log.error("Não foi possível registrar o resultado do envio por {}: {}", channel, e.getMessage());
+        }
+    }
+}
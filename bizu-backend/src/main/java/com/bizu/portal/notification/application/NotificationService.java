@@ -0,0 +1,170 @@
+package com.bizu.portal.notification.application;
+
+import com.bizu.portal.notification.domain.NotificationChannel;
+import com.bizu.portal.shared.exception.BusinessException;
+import com.bizu.portal.shared.pagination.CursorPage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Notifications to users: each one is stored in the user's inbox and, in the same statement batch,
+ * one outbox row per channel. Both are written with plain JDBC in the caller's transaction, so a
+ * notification exists if and only if the business change that caused it was committed;
+ * {@link NotificationDispatcher} delivers the outbox afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationDispatcher notificationDispatcher;
+
+    /**
+     * @param dedupKey when set, a second notification with the same key for the same user is ignored
+     *                 (e.g. "ranking-semanal:2026-W42" keeps a re-run job from notifying twice)
+     * @param channels null or empty for {@link NotificationChannel#IN_APP}
+     */
+    public record Notification(UUID userId, String type, String title, String message,
+                               String dedupKey, Set<NotificationChannel> channels) {
+
+        public static Notification of(UUID userId, String title, String message) {
+            return new Notification(userId, "GENERAL", title, message, null, null);
+        }
+    }
+
+    public record InboxItem(UUID id, String type, String title, String message, OffsetDateTime createdAt, boolean read) {}
+
+    public void send(UUID userId, String title, String message) {
+        sendAll(List.of(Notification.of(userId, title, message)));
+    }
+
+    public void send(Notification notification) {
+        sendAll(List.of(notification));
+    }
+
+    /**
+     * Writes many notifications with two JDBC batches, whatever their number.
+     */
+    public void sendAll(Collection<Notification> notifications) {
+        if (notifications.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>(notifications.size());
+        List<Object[]> outboxRows = new ArrayList<>();
+        for (Notification notification : notifications) {
+            UUID id = UUID.randomUUID();
+            rows.add(new Object[]{id, notification.userId(),
+                    notification.type() != null ? notification.type() : "GENERAL",
+                    notification.title(), notification.message(), notification.dedupKey()});
+            Set<NotificationChannel> channels = notification.channels() == null || notification.channels().isEmpty()
+                    ? NotificationChannel.IN_APP : notification.channels();
+            for (NotificationChannel channel : channels) {
+                outboxRows.add(new Object[]{channel.name(), id});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO notification.notifications (id, user_id, type, title, message, dedup_key)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, dedup_key) WHERE dedup_key IS NOT NULL DO NOTHING
+            """, rows);
+        // Só entra no outbox o que foi de fato inserido (duplicatas não existem na tabela)
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO notification.outbox (notification_id, channel)
+            SELECT id, ? FROM notification.notifications WHERE id = ?
+            """, outboxRows);
+
+        log.debug("Notificações registradas: {}", rows.size());
+        notificationDispatcher.wakeUpAfterCommit();
+    }
+
+    /**
+     * Newest first, {@code limit} at a time; {@code cursor} is the {@code nextCursor} of the previous page.
+     */
+    public CursorPage<InboxItem> inbox(UUID userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<InboxItem> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = jdbcTemplate.query("""
+                SELECT id, type, title, message, created_at, read_at FROM notification.notifications
+                WHERE user_id = ?
+                ORDER BY created_at DESC, id DESC
+                LIMIT ?
+                """, (rs, i) -> toItem(rs), userId, size + 1);
+        } else {
+            Object[] position = decodeCursor(cursor);
+            items = jdbcTemplate.query("""
+                SELECT id, type, title, message, created_at, read_at FROM notification.notifications
+                WHERE user_id = ? AND (created_at, id) < (?, ?)
+                ORDER BY created_at DESC, id DESC
+                LIMIT ?
+                """, (rs, i) -> toItem(rs), userId, position[0], position[1], size + 1);
+        }
+
+        if (items.size() <= size) return new CursorPage<>(items, null);
+        List<InboxItem> page = items.subList(0, size);
+        InboxItem last = page.get(size - 1);
+        return new CursorPage<>(new ArrayList<>(page), encodeCursor(last.createdAt(), last.id()));
+    }
+
+    public long unreadCount(UUID userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notification.notifications WHERE user_id = ? AND read_at IS NULL", Long.class, userId);
+        return count != null ? count : 0;
+    }
+
+    public void markRead(UUID userId, UUID notificationId) {
+        jdbcTemplate.update("""
+            UPDATE notification.notifications SET read_at = NOW()
+            WHERE id = ? AND user_id = ? AND read_at IS NULL
+            """, notificationId, userId);
+    }
+
+    public void markAllRead(UUID userId) {
+        jdbcTemplate.update(
+                "UPDATE notification.notifications SET read_at = NOW() WHERE user_id = ? AND read_at IS NULL", userId);
+    }
+
+    private static InboxItem toItem(ResultSet rs) throws SQLException {
+        return new InboxItem(
+                rs.getObject("id", UUID.class),
+                rs.getString("type"),
+                rs.getString("title"),
+                rs.getString("message"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getTimestamp("read_at") != null);
+    }
+
+    private static String encodeCursor(OffsetDateTime createdAt, UUID id) {
+        String raw = createdAt.toInstant() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            OffsetDateTime createdAt = Instant.parse(raw.substring(0, separator)).atOffset(ZoneOffset.UTC);
+            return new Object[]{createdAt, UUID.fromString(raw.substring(separator + 1))};
+        } catch (RuntimeException e) {
+            throw new BusinessException("Cursor de paginação inválido");
+        }
+    }
+}
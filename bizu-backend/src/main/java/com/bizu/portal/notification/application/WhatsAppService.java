@@ -1,16 +1,19 @@
 package com.bizu.portal.notification.application;
 
+import com.bizu.portal.shared.http.HttpIntegration;
+import com.bizu.portal.shared.http.OutboundHttp;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpRequest;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Serviço para integração com WhatsApp usando Evolution API.
@@ -19,7 +22,8 @@ import java.util.Map;
 @Service
 public class WhatsAppService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final HttpIntegration whatsapp;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Value("${axon.whatsapp.evolution.url:http://localhost:8099}")
     private String apiUrl;
@@ -30,18 +34,33 @@ public class WhatsAppService {
     @Value("${axon.whatsapp.evolution.instance:AxonBot}")
     private String instanceName;
 
-    @Async("taskExecutor")
+    public WhatsAppService(OutboundHttp outboundHttp) {
+        this.whatsapp = outboundHttp.integration("whatsapp");
+    }
+
+    /**
+     * Sends without blocking the caller: the request goes out on the integration's non-blocking
+     * client and the outcome is only logged.
+     */
     public void sendMessage(String phoneNumber, String message) {
         log.info("[WHATSAPP] Processando envio para {}", phoneNumber);
-        
+
+        deliver(phoneNumber, message).whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("[WHATSAPP] Falha ao enviar para {}: {}", phoneNumber, error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Same request as {@link #sendMessage}, but the returned future fails on transport errors and
+     * on 4xx/5xx answers, so callers that retry can tell a delivery from a failure.
+     */
+    public CompletableFuture<Void> deliver(String phoneNumber, String message) {
         try {
             String endpoint = apiUrl + "/message/sendText/" + instanceName;
             log.info("[WHATSAPP] Enviando requisição para: {}", endpoint);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("apikey", apiKey);
-            
             // Format phone number
             String rawPhone = phoneNumber.replaceAll("\\D", "");
             if (rawPhone.length() == 10 || rawPhone.length() == 11) {
@@ -59,19 +78,23 @@ public class WhatsAppService {
             // Fallback para versões simples
             body.put("text", message);
 
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
-
-            try {
-                org.springframework.http.ResponseEntity<String> response = restTemplate.postForEntity(endpoint, request, String.class);
-                log.info("[WHATSAPP] Resposta da Evolution API para {}: {} - {}", 
-                    rawPhone, response.getStatusCode(), response.getBody());
-            } catch (org.springframework.web.client.HttpClientErrorException e) {
-                log.error("[WHATSAPP] Erro de cliente ({}): {}", e.getStatusCode(), e.getResponseBodyAsString());
-            } catch (org.springframework.web.client.HttpServerErrorException e) {
-                log.error("[WHATSAPP] Erro de servidor ({}): {}", e.getStatusCode(), e.getResponseBodyAsString());
-            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint))
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header("apikey", apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+
+            String phone = rawPhone;
+            return whatsapp.sendAsync(request).thenAccept(response -> {
+                if (response.statusCode() >= 400) {
+                    log.error("[WHATSAPP] Erro da Evolution API ({}): {}", response.statusCode(), response.body());
+                    throw new IllegalStateException("Evolution API respondeu HTTP " + response.statusCode());
+                }
+                log.info("[WHATSAPP] Resposta da Evolution API para {}: {} - {}",
+                    phone, response.statusCode(), response.body());
+            });
         } catch (Exception e) {
-            log.error("[WHATSAPP] Falha ao enviar para {}: {}", phoneNumber, e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
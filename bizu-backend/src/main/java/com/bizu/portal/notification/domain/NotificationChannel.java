@@ -0,0 +1,17 @@
+package com.bizu.portal.notification.domain;
+
+import java.util.Set;
+
+/**
+ * Where a notification is delivered. Every notification is also kept in the user's inbox,
+ * whatever its channels.
+ */
+public enum NotificationChannel {
+    WEBSOCKET,
+    SSE,
+    EMAIL,
+    WHATSAPP;
+
+    /** Channels used when none are given: real-time, in the open app. */
+    public static final Set<NotificationChannel> IN_APP = Set.of(WEBSOCKET, SSE);
+}
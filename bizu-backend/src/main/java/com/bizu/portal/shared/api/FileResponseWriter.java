@@ -0,0 +1,239 @@
+package com.bizu.portal.shared.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes a stored file to the response with HTTP caching and range support:
+ * strong ETag (the content hash when the name carries it, otherwise modification time and size,
+ * so no file is read just to tag it), Last-Modified, conditional GET (304), single and multiple byte ranges (206, multipart/byteranges)
+ * and If-Range.
+ *
+ * Bodies are sent with the container's sendfile when available (Tomcat NIO: the kernel copies
+ * file → socket after the handler returns) and otherwise with FileChannel.transferTo, so file
+ * contents never pass through a heap buffer of ours.
+ */
+@Component
+public class FileResponseWriter {
+
+    /** Same threshold Tomcat uses for its own static files; small bodies are cheaper to write directly. */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    private static final int MAX_RANGES = 16;
+
+    private record Range(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * @param contentHash hash already known from the file name (content-addressed files), or null to compute it
+     * @param immutable   whether the name always refers to the same bytes, so clients may cache it for a year
+     */
+    public void write(Path file, String contentType, String contentHash, boolean immutable,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = attributes.size();
+        // Precisão de segundos, como no cabeçalho HTTP
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = "\"" + (contentHash != null ? contentHash : etagOf(attributes)) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=31536000, immutable"
+                : "public, max-age=3600, must-revalidate");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<Range> ranges = rangesFor(request, etag, lastModified, size);
+        if (ranges == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(size);
+            if (!head) send(file, new Range(0, size - 1), request, response);
+        } else if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + size);
+            response.setContentLengthLong(range.length());
+            if (!head) send(file, range, request, response);
+        } else {
+            writeMultipart(file, contentType, ranges, size, head, response);
+        }
+    }
+
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Comparação fraca (RFC 9110 13.1.2): W/"x" casa com "x"
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * Requested ranges: empty for the whole file, null when none of them is satisfiable.
+     * Malformed headers and stale If-Range are answered with the whole file, as RFC 9110 requires.
+     */
+    private List<Range> rangesFor(HttpServletRequest request, String etag, long lastModified, long size) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith("bytes=") || size == 0) return List.of();
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean matches = ifRange.startsWith("\"") ? ifRange.trim().equals(etag)
+                    : dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+            if (!matches) return List.of();
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        for (String spec : header.substring("bytes=".length()).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) return List.of();
+            try {
+                long start;
+                long end;
+                if (dash == 0) {
+                    // Sufixo: os últimos N bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) continue;
+                    start = Math.max(0, size - suffix);
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    end = dash == spec.length() - 1 ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+                    if (end < start) return List.of();
+                    if (start >= size) continue;
+                    end = Math.min(end, size - 1);
+                }
+                ranges.add(new Range(start, end));
+            } catch (NumberFormatException e) {
+                return List.of();
+            }
+        }
+        if (ranges.isEmpty()) return null;
+        // Muitas faixas (ou faixas que somam mais que o arquivo) não compensam: envia o arquivo inteiro
+        if (ranges.size() > MAX_RANGES || ranges.stream().mapToLong(Range::length).sum() > size) return List.of();
+        return ranges;
+    }
+
+    private void send(Path file, Range range, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (range.length() >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // O Tomcat envia com sendfile depois que o handler retorna
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", range.start());
+            request.setAttribute("org.apache.tomcat.sendfile.end", range.end() + 1);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        transfer(file, range, Channels.newChannel(out));
+        out.flush();
+    }
+
+    private void writeMultipart(Path file, String contentType, List<Range> ranges, long size, boolean head,
+                                HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long length = 0;
+        for (Range range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range.start() + "-" + range.end() + "/" + size + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            length += partHeader.length + range.length();
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        length += trailer.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        if (head) return;
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            transfer(file, ranges.get(i), channel);
+        }
+        out.write(trailer);
+        out.flush();
+    }
+
+    private static void transfer(Path file, Range range, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Validator from the file metadata, as nginx and Tomcat do: uploads are never rewritten in
+     * place, so a new version always changes the modification time or the size.
+     */
+    private static String etagOf(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
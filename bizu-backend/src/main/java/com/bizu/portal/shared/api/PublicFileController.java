@@ -1,46 +1,69 @@
 package com.bizu.portal.shared.api;
 
 import com.bizu.portal.shared.application.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/v1/public/files")
 @RequiredArgsConstructor
 public class PublicFileController {
 
+    /** Question images are content-addressed: the name is the SHA-256 of the bytes. */
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("question-images/([0-9a-f]{64})\\.[a-z0-9]+");
+    /** Uploads are stored as {uuid}_{original name} and never overwritten. */
+    private static final Pattern UNIQUE_UPLOAD = Pattern.compile("(.+/)?[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_[^/]+");
+    /**
+     * Locations that may be served without authentication: root uploads, question images and guild
+     * files. Anything else under the storage root (e.g. question imports from before private storage)
+     * is answered with 404.
+     */
+    private static final Pattern PUBLIC_PATH = Pattern.compile("(question-images/|guilds/[^/]+/)?[^/]+");
+
     private final FileStorageService storageService;
+    private final FileResponseWriter fileResponseWriter;
+
+    /**
+     * Serves stored files (also from subdirectories, e.g. guilds/{id}/...) with ETag, conditional
+     * GET, byte ranges for video seeking and zero-copy transfer; see {@link FileResponseWriter}.
+     */
+    @RequestMapping(value = "/{*path}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveFile(@PathVariable String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String filename = path.startsWith("/") ? path.substring(1) : path;
+        if (!PUBLIC_PATH.matcher(filename).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-    @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+        Path file;
         try {
-            Path file = storageService.load(filename);
-            Resource resource = new UrlResource(file.toUri());
-
-            if (resource.exists() || resource.isReadable()) {
-                String contentType = "application/octet-stream";
-                if (filename.endsWith(".pdf")) contentType = "application/pdf";
-                else if (filename.endsWith(".mp4")) contentType = "video/mp4";
-                else if (filename.endsWith(".png")) contentType = "image/png";
-                else if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) contentType = "image/jpeg";
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+            file = storageService.load(filename);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        Matcher contentAddressed = CONTENT_ADDRESSED.matcher(filename);
+        String contentHash = contentAddressed.matches() ? contentAddressed.group(1) : null;
+        boolean immutable = contentHash != null || UNIQUE_UPLOAD.matcher(filename).matches();
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFileName() + "\"");
+        if (contentType.isCompatibleWith(MediaType.valueOf("image/svg+xml")) || contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
+            // Conteúdo ativo enviado por upload nunca executa no contexto da origem da API
+            response.setHeader("Content-Security-Policy", "default-src 'none'; style-src 'unsafe-inline'; sandbox");
+        }
+
+        fileResponseWriter.write(file, contentType.toString(), contentHash, immutable, request, response);
     }
 }
@@ -17,11 +17,16 @@ import java.util.UUID;
 public class FileStorageService {
 
     private final Path rootLocation;
+    /** Files that are never served by the public file endpoint (e.g. question imports with answer keys). */
+    private final Path privateLocation;
 
-    public FileStorageService(@Value("${app.storage.location:uploads}") String storageLocation) {
+    public FileStorageService(@Value("${app.storage.location:uploads}") String storageLocation,
+                              @Value("${app.storage.private-location:uploads-private}") String privateStorageLocation) {
         this.rootLocation = Paths.get(storageLocation);
+        this.privateLocation = Paths.get(privateStorageLocation);
         try {
             Files.createDirectories(rootLocation);
+            Files.createDirectories(privateLocation);
         } catch (IOException e) {
             log.error("Could not initialize storage", e);
         }
@@ -32,18 +37,29 @@ public class FileStorageService {
     }
 
     public String storeInSubdirectory(MultipartFile file, String subdirectory) {
+        return store(file, this.rootLocation, subdirectory);
+    }
+
+    /**
+     * Stores the upload outside the public root; read it back with {@link #loadPrivate(String)}.
+     */
+    public String storePrivate(MultipartFile file, String subdirectory) {
+        return store(file, this.privateLocation, subdirectory);
+    }
+
+    private String store(MultipartFile file, Path rootLocation, String subdirectory) {
         try {
             if (file.isEmpty()) {
                 throw new RuntimeException("Failed to store empty file.");
             }
-            Path subPath = subdirectory != null ? this.rootLocation.resolve(subdirectory) : this.rootLocation;
+            Path subPath = subdirectory != null ? rootLocation.resolve(subdirectory) : rootLocation;
             Files.createDirectories(subPath);
 
             String filename = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
             Path destinationFile = subPath.resolve(Paths.get(filename))
                     .normalize().toAbsolutePath();
             
-            if (!destinationFile.startsWith(this.rootLocation.toAbsolutePath())) {
+            if (!destinationFile.startsWith(rootLocation.toAbsolutePath())) {
                 throw new RuntimeException("Cannot store file outside current directory.");
             }
             
@@ -57,6 +73,45 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Stores content under a name derived from the content itself (e.g. its hash). An existing
+     * file with that name is kept as is, so storing the same content twice is a no-op.
+     */
+    public String storeContentAddressed(byte[] content, String subdirectory, String filename) {
+        try {
+            Path subPath = this.rootLocation.resolve(subdirectory);
+            Files.createDirectories(subPath);
+
+            Path destinationFile = subPath.resolve(filename).normalize().toAbsolutePath();
+            if (!destinationFile.startsWith(this.rootLocation.toAbsolutePath())) {
+                throw new RuntimeException("Cannot store file outside current directory.");
+            }
+
+            if (!Files.exists(destinationFile)) {
+                // Grava em arquivo temporário e move, para nunca servir um arquivo pela metade
+                Path tempFile = Files.createTempFile(subPath, filename, ".tmp");
+                Files.write(tempFile, content);
+                try {
+                    Files.move(tempFile, destinationFile, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    Files.deleteIfExists(tempFile);
+                    if (!Files.exists(destinationFile)) throw e;
+                }
+            }
+            return subdirectory + "/" + filename;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file.", e);
+        }
+    }
+
+    public void delete(String filename) {
+        try {
+            Files.deleteIfExists(load(filename));
+        } catch (IOException e) {
+            log.error("Could not delete file: {}", filename, e);
+        }
+    }
+
     public void deleteSubdirectory(String subdirectory) {
         try {
             Path subPath = this.rootLocation.resolve(subdirectory).normalize().toAbsolutePath();
@@ -76,7 +131,27 @@ public class FileStorageService {
     }
 
     public Path load(String filename) {
+        return load(filename, this.rootLocation);
+    }
+
+    public Path loadPrivate(String filename) {
+        return load(filename, this.privateLocation);
+    }
+
+    public void deletePrivate(String filename) {
+        try {
+            Files.deleteIfExists(loadPrivate(filename));
+        } catch (IOException e) {
+            log.error("Could not delete file: {}", filename, e);
+        }
+    }
+
+    private static Path load(String filename, Path rootLocation) {
         // Support loading from subdirectories
-        return rootLocation.resolve(filename).normalize();
+        Path file = rootLocation.resolve(filename).normalize();
+        if (!file.toAbsolutePath().startsWith(rootLocation.toAbsolutePath().normalize())) {
+            throw new RuntimeException("Cannot read file outside current directory.");
+        }
+        return file;
     }
 }
@@ -0,0 +1,38 @@
+package com.bizu.portal.shared.concurrent;
+
+/**
+ * Blocking token bucket: {@code perMinute} permits sustained, with bursts of up to {@code burst}.
+ * Callers block in {@link #acquire()} until a permit is available. The limit is per instance.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(double perMinute, int burst) {
+        this.tokensPerNano = perMinute / 60_000_000_000.0;
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+    }
+
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            // Espera fora do lock, para não bloquear quem só quer calcular a própria espera
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+}
@@ -19,4 +19,115 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Calls to the AI API (question generation chunks). Bounded so a large material cannot
+     * flood the API or the common pool; the rate limit itself is enforced by AiRateLimiter.
+     */
+    @org.springframework.context.annotation.Bean(name = "aiExecutor")
+    public org.springframework.core.task.AsyncTaskExecutor aiExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.ai.executor-threads:8}") int threads) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("BizuAi-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Keycloak admin calls of bulk provisioning. Shared by every bulk call, so concurrent group
+     * imports together never exceed {@code axon.keycloak.bulk.concurrency} requests.
+     */
+    @org.springframework.context.annotation.Bean(name = "keycloakProvisionExecutor")
+    public org.springframework.core.task.AsyncTaskExecutor keycloakProvisionExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.keycloak.bulk.concurrency:4}") int concurrency) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(10_000);
+        executor.setThreadNamePrefix("BizuKeycloak-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Coordinators of question generation runs: each one waits on its chunks in {@code aiExecutor}
+     * and streams progress, so they get their own small pool instead of blocking taskExecutor.
+     */
+    @org.springframework.context.annotation.Bean(name = "aiCoordinatorExecutor")
+    public org.springframework.core.task.TaskExecutor aiCoordinatorExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.ai.generation.max-concurrent-runs:4}") int runs) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(runs);
+        executor.setMaxPoolSize(runs);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("BizuAiRun-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Essay correction workers. Jobs are claimed from the database only when a worker is free,
+     * so the queue here never grows beyond the pool size.
+     */
+    @org.springframework.context.annotation.Bean(name = "essayExecutor")
+    public org.springframework.core.task.TaskExecutor essayExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.essay-correction.workers:4}") int workers) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("BizuEssay-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * SSE writers. A task drains one stream's queue and ends, so a few threads serve every open stream;
+     * a client that stops reading only holds its own writer until the send fails.
+     */
+    @org.springframework.context.annotation.Bean(name = "sseExecutor")
+    public org.springframework.core.task.TaskExecutor sseExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.sse.writer-threads:8}") int threads) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("BizuSse-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * War Day guild actors. A task drains one guild's mailbox (a bounded batch) and ends, so
+     * commands of the same guild run one at a time and different guilds run in parallel.
+     */
+    @org.springframework.context.annotation.Bean(name = "warDayExecutor")
+    public org.springframework.core.task.TaskExecutor warDayExecutor(
+            @org.springframework.beans.factory.annotation.Value("${axon.war-day.engine.threads:8}") int threads) {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("BizuWarDay-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Question pool index rebuilds. One thread: a rebuild reads the whole question projection,
+     * and requests keep sampling from the previous index while it runs.
+     */
+    @org.springframework.context.annotation.Bean(name = "questionPoolExecutor")
+    public org.springframework.core.task.TaskExecutor questionPoolExecutor() {
+        org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor executor = new org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("BizuQuestionPool-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -22,6 +22,7 @@ import org.springframework.stereotype.Component;
 public class AttemptCompletedEventListener {
 
     private final RedisRankingService redisRankingService;
+    private final com.bizu.portal.student.application.LeaderboardService leaderboardService;
     private final com.bizu.portal.student.application.GamificationService gamificationService;
 
     @Async
@@ -39,10 +40,11 @@ public class AttemptCompletedEventListener {
 
             // 2. Award XP and update streak
             if (attempt.getXpEarned() > 0) {
-                gamificationService.addXp(attempt.getUser().getId(), attempt.getXpEarned());
+                gamificationService.addXp(attempt.getUser().getId(), attempt.getXpEarned(), "ACTIVITY");
+                leaderboardService.recordWeeklyXp(attempt.getUser().getId(), attempt.getXpEarned());
             } else {
                 // Se não ganhou XP, pelo menos atualiza a ofensiva pela atividade
-                gamificationService.addXp(attempt.getUser().getId(), 0);
+                gamificationService.addXp(attempt.getUser().getId(), 0, "ACTIVITY");
             }
 
             // 3. Log for analytics aggregation
@@ -0,0 +1,82 @@
+package com.bizu.portal.shared.event;
+
+import com.bizu.portal.student.application.BadgeCatalog;
+import com.bizu.portal.student.application.BadgeProgressService;
+import com.bizu.portal.student.application.GamificationService;
+import com.bizu.portal.student.application.PerformanceRollupService;
+import com.bizu.portal.student.application.QuestProgressService;
+import com.bizu.portal.student.application.RecentQuestionsService;
+import com.bizu.portal.student.application.StudentActivityEvent;
+import com.bizu.portal.student.domain.Badge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves the progress projections (quests, performance rollup, badges, recently answered questions) after the
+ * producing transaction commits and awards the badges whose threshold was crossed by the event.
+ * Each projection runs in its own transaction, so a failing one (logged only: the answer itself is
+ * already persisted) does not roll back the others.
+ */
+@Component
+@Slf4j
+public class StudentActivityEventListener {
+
+    private final BadgeProgressService badgeProgressService;
+    private final BadgeCatalog badgeCatalog;
+    private final GamificationService gamificationService;
+    private final QuestProgressService questProgressService;
+    private final PerformanceRollupService performanceRollupService;
+    private final RecentQuestionsService recentQuestionsService;
+    private final TransactionTemplate transactionTemplate;
+
+    public StudentActivityEventListener(BadgeProgressService badgeProgressService, BadgeCatalog badgeCatalog,
+                                        GamificationService gamificationService,
+                                        QuestProgressService questProgressService,
+                                        PerformanceRollupService performanceRollupService,
+                                        RecentQuestionsService recentQuestionsService,
+                                        PlatformTransactionManager transactionManager) {
+        this.badgeProgressService = badgeProgressService;
+        this.badgeCatalog = badgeCatalog;
+        this.gamificationService = gamificationService;
+        this.questProgressService = questProgressService;
+        this.performanceRollupService = performanceRollupService;
+        this.recentQuestionsService = recentQuestionsService;
+        // No Postgres um comando com erro aborta a transação inteira: uma transação por projeção
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleStudentActivity(StudentActivityEvent event) {
+        project("quest progress", event, () -> questProgressService.apply(event));
+        project("performance rollup", event, () -> performanceRollupService.apply(event));
+
+        if (event.getKind() == StudentActivityEvent.Kind.ANSWER && event.getQuestionId() != null) {
+            recentQuestionsService.record(event.getUserId(), event.getQuestionId());
+        }
+
+        if (event.getKind() == StudentActivityEvent.Kind.ACTIVITY_COMPLETED) return;
+
+        project("badge progress", event, () -> {
+            BadgeProgressService.Transition transition = badgeProgressService.apply(event);
+            for (Badge badge : badgeCatalog.all()) {
+                if (transition.crossed(badge.getCode(), badgeCatalog.targetOf(badge.getCode()))) {
+                    gamificationService.awardBadge(event.getUserId(), badge.getCode());
+                }
+            }
+        });
+    }
+
+    private void project(String projection, StudentActivityEvent event, Runnable step) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> step.run());
+        } catch (Exception e) {
+            log.error("Error updating {} for user {} ({}): {}",
+                projection, event.getUserId(), event.getKind(), e.getMessage(), e);
+        }
+    }
+}
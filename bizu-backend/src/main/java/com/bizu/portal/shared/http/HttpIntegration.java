@@ -0,0 +1,236 @@
+package com.bizu.portal.shared.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One outbound integration (AI API, Keycloak, Evolution API...): a pooled JDK HttpClient
+ * (keep-alive connections reused per destination), its own connect and read timeouts, a bulkhead
+ * limiting concurrent calls, a circuit breaker and call metrics.
+ *
+ * The guards apply both to the {@link #restTemplate()} (as an interceptor, so existing RestTemplate
+ * code keeps its shape) and to {@link #sendAsync}, the non-blocking variant, whose calls wait in a
+ * bounded queue for a free slot instead of failing. Transport errors and
+ * 5xx answers count as failures for the breaker; 4xx answers mean the service is up.
+ * Latency is measured up to the response headers.
+ */
+public class HttpIntegration {
+
+    private final String name;
+    private final HttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final Duration readTimeout;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final Queue<Pending> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final long queueWaitMillis;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    public record Snapshot(String name, String circuit, long calls, long errors, long rejected,
+                           long averageMillis, long maxMillis, int availableSlots, String lastError) {}
+
+    private record Pending(java.net.http.HttpRequest request, CompletableFuture<HttpResponse<String>> result) {}
+
+    HttpIntegration(String name, Duration connectTimeout, Duration readTimeout, int maxConcurrent,
+                    long bulkheadWaitMillis, int maxQueued, long queueWaitMillis,
+                    int failureThreshold, long openMillis) {
+        this.name = name;
+        this.readTimeout = readTimeout;
+        this.bulkhead = new Semaphore(Math.max(1, maxConcurrent));
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.maxQueued = maxQueued;
+        this.queueWaitMillis = queueWaitMillis;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                // HTTP/1.1: sem tentativa de upgrade h2c contra serviços internos em http://
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.restTemplate.getInterceptors().add(new GuardInterceptor());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public RestTemplate restTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * Non-blocking call under the same guards. The request timeout defaults to the integration's
+     * read timeout. When every slot is taken the call waits in a queue of up to {@code max-queued}
+     * calls and is sent as soon as a slot frees up; it fails with
+     * {@link OutboundCallRejectedException} only when the queue is full or after
+     * {@code queue-wait-ms} without a slot. No thread is held while waiting.
+     */
+    public CompletableFuture<HttpResponse<String>> sendAsync(java.net.http.HttpRequest request) {
+        java.net.http.HttpRequest timed = request.timeout().isPresent() ? request
+                : java.net.http.HttpRequest.newBuilder(request, (header, value) -> true).timeout(readTimeout).build();
+        Pending pending = new Pending(timed, new CompletableFuture<>());
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new OutboundCallRejectedException(name + ": fila de chamadas simultâneas cheia"));
+        }
+        waiting.add(pending);
+        CompletableFuture.delayedExecutor(queueWaitMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            // Ainda na fila após o prazo: desiste sem ter chamado o serviço
+            if (waiting.remove(pending)) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                pending.result().completeExceptionally(
+                        new OutboundCallRejectedException(name + ": nenhuma vaga livre em " + queueWaitMillis + " ms"));
+            }
+        });
+        drain();
+        return pending.result();
+    }
+
+    /**
+     * Starts queued calls while there are free slots. Called after every enqueue and every
+     * release, so a call never stays queued next to a free slot.
+     */
+    private void drain() {
+        while (!waiting.isEmpty() && bulkhead.tryAcquire()) {
+            Pending next = waiting.poll();
+            if (next == null) {
+                bulkhead.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            if (!circuitBreaker.tryAcquire()) {
+                bulkhead.release();
+                rejected.incrementAndGet();
+                next.result().completeExceptionally(
+                        new OutboundCallRejectedException(name + ": circuito aberto após falhas consecutivas"));
+                continue;
+            }
+            start(next);
+        }
+    }
+
+    private void start(Pending pending) {
+        long start = System.nanoTime();
+        httpClient.sendAsync(pending.request(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    bulkhead.release();
+                    if (error != null) {
+                        recordFailure(start, error.getMessage());
+                        pending.result().completeExceptionally(error);
+                    } else {
+                        if (response.statusCode() >= 500) {
+                            recordFailure(start, "HTTP " + response.statusCode());
+                        } else {
+                            recordSuccess(start, response.statusCode() >= 400 ? "HTTP " + response.statusCode() : null);
+                        }
+                        pending.result().complete(response);
+                    }
+                    drain();
+                });
+    }
+
+    public Snapshot snapshot() {
+        long count = calls.get();
+        return new Snapshot(name, circuitBreaker.state().name(), count, errors.get(), rejected.get(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMillis(maxNanos.get()), bulkhead.availablePermits(), lastError.get());
+    }
+
+    private void acquire(long waitMillis) throws OutboundCallRejectedException {
+        boolean slot;
+        try {
+            slot = waitMillis > 0 ? bulkhead.tryAcquire(waitMillis, TimeUnit.MILLISECONDS) : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            slot = false;
+        }
+        if (!slot) {
+            rejected.incrementAndGet();
+            throw new OutboundCallRejectedException(name + ": limite de chamadas simultâneas atingido");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            rejected.incrementAndGet();
+            throw new OutboundCallRejectedException(name + ": circuito aberto após falhas consecutivas");
+        }
+    }
+
+    private void recordSuccess(long start, String error) {
+        circuitBreaker.onSuccess();
+        record(start, error);
+    }
+
+    private void recordFailure(long start, String error) {
+        circuitBreaker.onFailure();
+        record(start, error);
+    }
+
+    private void record(long start, String error) {
+        long elapsed = System.nanoTime() - start;
+        calls.incrementAndGet();
+        totalNanos.addAndGet(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+        if (error != null) {
+            errors.incrementAndGet();
+            lastError.set(error);
+        }
+    }
+
+    private class GuardInterceptor implements ClientHttpRequestInterceptor {
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            acquire(bulkheadWaitMillis);
+            long start = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                int status = response.getStatusCode().value();
+                if (status >= 500) {
+                    recordFailure(start, "HTTP " + status);
+                } else {
+                    recordSuccess(start, status >= 400 ? "HTTP " + status : null);
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                recordFailure(start, e.getMessage());
+                throw e;
+            } finally {
+                bulkhead.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bizu.portal.shared.http;
+
+import java.io.IOException;
+
+/**
+ * Outbound call refused locally, without touching the network: the integration's circuit is open
+ * or all of its concurrent-call slots are taken. It is an IOException so RestTemplate reports it
+ * as a ResourceAccessException, like any other I/O failure callers already handle.
+ */
+public class OutboundCallRejectedException extends IOException {
+
+    public OutboundCallRejectedException(String message) {
+        super(message);
+    }
+}
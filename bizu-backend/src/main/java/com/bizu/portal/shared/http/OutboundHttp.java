@@ -0,0 +1,54 @@
+package com.bizu.portal.shared.http;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of outbound HTTP integrations, one {@link HttpIntegration} (and connection pool) per name.
+ *
+ * Settings are read from {@code axon.http.<name>.*}, falling back to {@code axon.http.defaults.*}:
+ * connect-timeout-ms, read-timeout-ms, max-concurrent, bulkhead-wait-ms, max-queued, queue-wait-ms,
+ * circuit-failure-threshold and circuit-open-ms.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboundHttp {
+
+    private final Environment environment;
+    private final Map<String, HttpIntegration> integrations = new ConcurrentHashMap<>();
+
+    public HttpIntegration integration(String name) {
+        return integrations.computeIfAbsent(name, this::create);
+    }
+
+    public List<HttpIntegration.Snapshot> snapshots() {
+        return integrations.values().stream()
+                .map(HttpIntegration::snapshot)
+                .sorted(Comparator.comparing(HttpIntegration.Snapshot::name))
+                .toList();
+    }
+
+    private HttpIntegration create(String name) {
+        return new HttpIntegration(name,
+                Duration.ofMillis(setting(name, "connect-timeout-ms", 3000)),
+                Duration.ofMillis(setting(name, "read-timeout-ms", 10000)),
+                (int) setting(name, "max-concurrent", 20),
+                setting(name, "bulkhead-wait-ms", 500),
+                (int) setting(name, "max-queued", 1000),
+                setting(name, "queue-wait-ms", 60000),
+                (int) setting(name, "circuit-failure-threshold", 5),
+                setting(name, "circuit-open-ms", 30000));
+    }
+
+    private long setting(String name, String key, long fallback) {
+        Long defaultValue = environment.getProperty("axon.http.defaults." + key, Long.class, fallback);
+        return environment.getProperty("axon.http." + name + "." + key, Long.class, defaultValue);
+    }
+}
@@ -0,0 +1,9 @@
+package com.bizu.portal.shared.pagination;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated slice: pass {@code nextCursor} back to get the following page;
+ * it is null on the last page.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor) {}
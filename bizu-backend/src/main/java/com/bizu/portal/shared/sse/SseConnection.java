@@ -0,0 +1,71 @@
+package com.bizu.portal.shared.sse;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open SSE stream: the emitter, its bounded send queue and the flag that keeps a single
+ * writer draining it at a time (so {@link SseEmitter#send} is never called concurrently).
+ */
+final class SseConnection {
+
+    private final UUID userId;
+    private final SseEmitter emitter;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    SseConnection(UUID userId, SseEmitter emitter, int capacity) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    UUID userId() {
+        return userId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean offer(SseEmitter.SseEventBuilder event) {
+        return !closed && queue.offer(event);
+    }
+
+    /**
+     * Discards the oldest queued event to make room; false when the queue emptied meanwhile.
+     */
+    boolean dropOldest() {
+        return queue.poll() != null;
+    }
+
+    SseEmitter.SseEventBuilder poll() {
+        return queue.poll();
+    }
+
+    boolean hasPending() {
+        return !queue.isEmpty();
+    }
+
+    boolean startDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void stopDraining() {
+        draining.set(false);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void markClosed() {
+        closed = true;
+        queue.clear();
+    }
+}
@@ -0,0 +1,284 @@
+package com.bizu.portal.shared.sse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent events to users, any number of open streams (tabs, devices) per user.
+ *
+ * {@link #pushUpdate} never touches a socket: events go to each stream's bounded queue and a
+ * writer from {@code sseExecutor} drains it, so a slow client only delays itself. When a queue is
+ * full the stream is closed ({@code overflow=close}; the browser reconnects and replays) or its
+ * oldest event dropped ({@code overflow=drop-oldest}).
+ *
+ * Each event carries an id; the last {@code replay-size} events of a user are kept for
+ * {@code replay-ttl-seconds} after their last stream closes, and a reconnect with
+ * {@code Last-Event-ID} receives what it missed. Heartbeat comments keep idle streams open
+ * through proxies. With {@code redis-enabled}, events are also published on a Redis channel so
+ * users connected to other instances receive them.
+ */
+@Component
+@Slf4j
+public class SseHub {
+
+    private static final String REDIS_CHANNEL = "sse:events";
+
+    private record Event(long id, String name, Object data) {}
+
+    private static final class ReplayBuffer {
+        private final ArrayDeque<Event> events = new ArrayDeque<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+    }
+
+    private final TaskExecutor sseExecutor;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final ObjectMapper objectMapper;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong lastEventId = new AtomicLong();
+    private final Map<UUID, Set<SseConnection>> connections = new ConcurrentHashMap<>();
+    private final Map<UUID, ReplayBuffer> replay = new ConcurrentHashMap<>();
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${axon.sse.timeout-ms:300000}")
+    private long timeoutMs;
+
+    @Value("${axon.sse.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${axon.sse.overflow:close}")
+    private String overflow;
+
+    @Value("${axon.sse.replay-size:50}")
+    private int replaySize;
+
+    @Value("${axon.sse.replay-ttl-seconds:120}")
+    private long replayTtlSeconds;
+
+    @Value("${axon.sse.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    public SseHub(@Qualifier("sseExecutor") TaskExecutor sseExecutor, StringRedisTemplate redisTemplate,
+                  RedisConnectionFactory redisConnectionFactory, ObjectMapper objectMapper) {
+        this.sseExecutor = sseExecutor;
+        this.redisTemplate = redisTemplate;
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void init() {
+        if (!redisEnabled) return;
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisConnectionFactory);
+        listenerContainer.addMessageListener((message, pattern) -> onRemoteEvent(message.getBody()), new ChannelTopic(REDIS_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws Exception {
+        if (listenerContainer != null) listenerContainer.destroy();
+        connections.values().forEach(streams -> streams.forEach(connection -> connection.emitter().complete()));
+    }
+
+    /**
+     * Opens a stream for the user. {@code initial} events (name → data) are sent first, without
+     * ids; then, when {@code lastEventId} is given, the buffered events after it.
+     */
+    public SseEmitter connect(UUID userId, String lastEventId, Map<String, Object> initial) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        SseConnection connection = new SseConnection(userId, emitter, queueCapacity);
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        initial.forEach((name, data) -> connection.offer(SseEmitter.event().name(name).data(data)));
+        replay.computeIfAbsent(userId, id -> new ReplayBuffer());
+        // Registra antes do replay para não perder eventos publicados no meio; duplicatas são
+        // possíveis e os ids permitem ao cliente ignorá-las
+        connections.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(connection);
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            missedSince(userId, lastEventId).forEach(event -> enqueue(connection, toSse(event)));
+        }
+        schedule(connection);
+        return emitter;
+    }
+
+    /**
+     * Sends an event to every open stream of the user, on this instance and (when enabled) on the others.
+     */
+    public void pushUpdate(UUID userId, String eventName, Object data) {
+        Event event = new Event(nextEventId(), eventName, data);
+        deliverLocal(userId, event);
+        if (redisEnabled) publish(userId, event);
+    }
+
+    public int connectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${axon.sse.heartbeat-ms:20000}")
+    public void heartbeat() {
+        connections.values().forEach(streams -> streams.forEach(connection ->
+                enqueue(connection, SseEmitter.event().comment("ping"))));
+
+        long cutoff = System.currentTimeMillis() - replayTtlSeconds * 1000;
+        replay.entrySet().removeIf(entry -> !connections.containsKey(entry.getKey()) && entry.getValue().lastUsed < cutoff);
+    }
+
+    private void deliverLocal(UUID userId, Event event) {
+        ReplayBuffer buffer = replay.get(userId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                buffer.events.addLast(event);
+                while (buffer.events.size() > replaySize) buffer.events.removeFirst();
+            }
+        }
+        Set<SseConnection> streams = connections.get(userId);
+        if (streams == null) return;
+        for (SseConnection connection : streams) {
+            enqueue(connection, toSse(event));
+        }
+    }
+
+    private List<Event> missedSince(UUID userId, String lastEventId) {
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+        ReplayBuffer buffer = replay.get(userId);
+        if (buffer == null) return List.of();
+        synchronized (buffer) {
+            return buffer.events.stream().filter(event -> event.id() > after).toList();
+        }
+    }
+
+    private void enqueue(SseConnection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.isClosed()) return;
+        while (!connection.offer(event)) {
+            if (connection.isClosed()) return;
+            if (!"drop-oldest".equals(overflow)) {
+                log.debug("Fila SSE cheia para o usuário {}, encerrando a conexão", connection.userId());
+                close(connection);
+                return;
+            }
+            connection.dropOldest();
+        }
+        schedule(connection);
+    }
+
+    private void schedule(SseConnection connection) {
+        if (!connection.hasPending() || !connection.startDraining()) return;
+        try {
+            sseExecutor.execute(() -> drain(connection));
+        } catch (Exception e) {
+            connection.stopDraining();
+            close(connection);
+        }
+    }
+
+    private void drain(SseConnection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.poll()) != null) {
+                connection.emitter().send(event);
+            }
+        } catch (Exception e) {
+            close(connection);
+        } finally {
+            connection.stopDraining();
+        }
+        // Evento enfileirado entre o último poll e a liberação da flag
+        if (!connection.isClosed()) schedule(connection);
+    }
+
+    private void close(SseConnection connection) {
+        remove(connection);
+        try {
+            connection.emitter().complete();
+        } catch (Exception ignored) {
+            // já encerrada
+        }
+    }
+
+    private void remove(SseConnection connection) {
+        connection.markClosed();
+        UUID userId = connection.userId();
+        connections.computeIfPresent(userId, (id, streams) -> {
+            streams.remove(connection);
+            return streams.isEmpty() ? null : streams;
+        });
+        ReplayBuffer buffer = replay.get(userId);
+        if (buffer != null) buffer.lastUsed = System.currentTimeMillis();
+    }
+
+    private SseEmitter.SseEventBuilder toSse(Event event) {
+        return SseEmitter.event().id(Long.toString(event.id())).name(event.name()).data(event.data());
+    }
+
+    /**
+     * Time-based ids (millis × 1000 + sequence) so ids from different instances still increase over time.
+     */
+    private long nextEventId() {
+        long candidate = System.currentTimeMillis() * 1000;
+        return lastEventId.accumulateAndGet(candidate, (last, now) -> Math.max(last + 1, now));
+    }
+
+    private void publish(UUID userId, Event event) {
+        try {
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("origin", nodeId);
+            message.put("userId", userId);
+            message.put("id", event.id());
+            message.put("name", event.name());
+            message.put("data", event.data());
+            redisTemplate.convertAndSend(REDIS_CHANNEL, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.warn("Evento SSE não publicado no Redis: {}", e.getMessage());
+        }
+    }
+
+    private void onRemoteEvent(byte[] body) {
+        try {
+            JsonNode message = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+            if (nodeId.equals(message.path("origin").asText())) return;
+            UUID userId = UUID.fromString(message.path("userId").asText());
+            // Só interessa se o usuário tem conexão ou buffer de replay nesta instância
+            if (!connections.containsKey(userId) && !replay.containsKey(userId)) return;
+            long id = message.path("id").asLong();
+            lastEventId.accumulateAndGet(id, Math::max);
+            deliverLocal(userId, new Event(id, message.path("name").asText(), message.get("data")));
+        } catch (Exception e) {
+            log.debug("Evento SSE remoto inválido: {}", e.getMessage());
+        }
+    }
+}
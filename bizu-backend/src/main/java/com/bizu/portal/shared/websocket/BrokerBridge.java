@@ -0,0 +1,23 @@
+package com.bizu.portal.shared.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries broker messages between backend instances, so a message sent to a {@code /topic}
+ * destination on one node reaches the STOMP subscribers connected to every node.
+ *
+ * Implementations: Redis pub/sub (shared by every instance) and in-memory (every application
+ * context in the same JVM, for local runs and integration tests), selected with
+ * axon.websocket.broker. With {@code simple} there is no bridge and each node only serves its own clients.
+ */
+public interface BrokerBridge {
+
+    /**
+     * @param origin id of the instance that published it, so it can skip its own messages
+     */
+    record BridgedMessage(String origin, String destination, String contentType, byte[] payload) {}
+
+    void publish(BridgedMessage message);
+
+    void subscribe(Consumer<BridgedMessage> listener);
+}
@@ -0,0 +1,39 @@
+package com.bizu.portal.shared.websocket;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for the Redis bridge: listeners are shared by every application context of the JVM,
+ * so tests can start two contexts and check that a message published on one reaches the other's
+ * subscribers. Use only for local runs and tests (axon.websocket.broker=memory).
+ */
+@Component
+@ConditionalOnProperty(name = "axon.websocket.broker", havingValue = "memory")
+public class InMemoryBrokerBridge implements BrokerBridge {
+
+    private static final List<Consumer<BridgedMessage>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<BridgedMessage>> own = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(BridgedMessage message) {
+        LISTENERS.forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<BridgedMessage> listener) {
+        own.add(listener);
+        LISTENERS.add(listener);
+    }
+
+    @PreDestroy
+    void close() {
+        LISTENERS.removeAll(own);
+    }
+}
@@ -0,0 +1,79 @@
+package com.bizu.portal.shared.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Broker bridge over the Redis channel "stomp:broadcast". Messages are JSON with the payload in
+ * base64, so any content type survives the trip.
+ */
+@Component
+@ConditionalOnProperty(name = "axon.websocket.broker", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisBrokerBridge implements BrokerBridge {
+
+    private static final String CHANNEL = "stomp:broadcast";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+
+    private RedisMessageListenerContainer container;
+
+    @Override
+    public void publish(BridgedMessage message) {
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("origin", message.origin());
+            body.put("destination", message.destination());
+            body.put("contentType", message.contentType());
+            body.put("payload", Base64.getEncoder().encodeToString(message.payload()));
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(body));
+        } catch (Exception e) {
+            log.warn("Mensagem STOMP não publicada no Redis ({}): {}", message.destination(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<BridgedMessage> listener) {
+        if (container == null) {
+            container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.afterPropertiesSet();
+            container.start();
+        }
+        container.addMessageListener((message, pattern) -> {
+            try {
+                JsonNode body = objectMapper.readTree(new String(message.getBody(), StandardCharsets.UTF_8));
+                listener.accept(new BridgedMessage(
+                        body.path("origin").asText(),
+                        body.path("destination").asText(),
+                        body.hasNonNull("contentType") ? body.get("contentType").asText() : null,
+                        Base64.getDecoder().decode(body.path("payload").asText())));
+            } catch (Exception e) {
+                log.debug("Mensagem STOMP remota inválida: {}", e.getMessage());
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    void close() throws Exception {
+        if (container != null) container.destroy();
+    }
+}
@@ -0,0 +1,99 @@
+package com.bizu.portal.shared.websocket;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor on the broker channel that mirrors application messages to {@code /topic}
+ * destinations (War Day map and ranking, duels, matchmaking) to the other instances through the
+ * {@link BrokerBridge}, and injects the messages they mirror into the local broker.
+ *
+ * Only messages sent by the application ({@code SimpMessagingTemplate}) pass through the broker
+ * channel; mirrored messages carry {@link #BRIDGED_HEADER} so they are not sent back out.
+ * Without a bridge (axon.websocket.broker=simple) this is a no-op.
+ */
+@Component
+@Slf4j
+public class StompClusterBridge implements ChannelInterceptor {
+
+    static final String BRIDGED_HEADER = "axon-bridged";
+
+    private final BrokerBridge bridge;
+    private final ObjectProvider<MessageChannel> brokerChannel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+
+    public StompClusterBridge(ObjectProvider<BrokerBridge> bridge,
+                              @Qualifier("brokerChannel") ObjectProvider<MessageChannel> brokerChannel) {
+        this.bridge = bridge.getIfAvailable();
+        this.brokerChannel = brokerChannel;
+    }
+
+    @PostConstruct
+    void init() {
+        if (bridge != null) bridge.subscribe(this::onRemote);
+    }
+
+    public boolean isEnabled() {
+        return bridge != null;
+    }
+
+    public long published() {
+        return published.get();
+    }
+
+    public long received() {
+        return received.get();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (bridge == null || message.getHeaders().containsKey(BRIDGED_HEADER)) return message;
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) return message;
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith("/topic/") || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        MimeType contentType = SimpMessageHeaderAccessor.wrap(message).getContentType();
+        bridge.publish(new BrokerBridge.BridgedMessage(nodeId, destination,
+                contentType != null ? contentType.toString() : null, payload));
+        published.incrementAndGet();
+        return message;
+    }
+
+    private void onRemote(BrokerBridge.BridgedMessage remote) {
+        if (nodeId.equals(remote.origin())) return;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(remote.destination());
+        if (remote.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(remote.contentType()));
+        }
+        accessor.setHeader(BRIDGED_HEADER, Boolean.TRUE);
+
+        try {
+            brokerChannel.getObject().send(MessageBuilder.createMessage(remote.payload(), accessor.getMessageHeaders()));
+            received.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Mensagem STOMP remota não entregue ({}): {}", remote.destination(), e.getMessage());
+        }
+    }
+}
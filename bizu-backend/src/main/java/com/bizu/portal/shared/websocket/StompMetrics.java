@@ -0,0 +1,81 @@
+package com.bizu.portal.shared.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP sessions and subscriptions of this node, with subscriptions grouped by destination
+ * pattern (UUID and numeric segments replaced by "*", so every War Day map topic counts under
+ * one entry), plus Spring's session and channel executor stats.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompMetrics {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/([0-9a-fA-F-]{36}|\\d+)(?=/|$)");
+
+    private final WebSocketMessageBrokerStats brokerStats;
+    private final StompClusterBridge clusterBridge;
+
+    /** sessionId → (subscriptionId → destination) */
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    public record Snapshot(int sessions, int subscriptions, Map<String, Integer> subscriptionsByDestination,
+                           boolean clusterBridge, long bridgedOut, long bridgedIn,
+                           String webSocketSessions, String inboundChannel, String outboundChannel, String sockJsScheduler) {}
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) sessions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null || accessor.getDestination() == null) return;
+        sessions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), accessor.getDestination());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions != null && accessor.getSubscriptionId() != null) subscriptions.remove(accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    public Snapshot snapshot() {
+        Map<String, Integer> byDestination = new TreeMap<>();
+        int total = 0;
+        for (Map<String, String> subscriptions : sessions.values()) {
+            for (String destination : subscriptions.values()) {
+                byDestination.merge(ID_SEGMENT.matcher(destination).replaceAll("/*"), 1, Integer::sum);
+                total++;
+            }
+        }
+        return new Snapshot(sessions.size(), total, byDestination,
+                clusterBridge.isEnabled(), clusterBridge.published(), clusterBridge.received(),
+                brokerStats.getWebSocketSessionStatsInfo(),
+                brokerStats.getClientInboundExecutorStatsInfo(),
+                brokerStats.getClientOutboundExecutorStatsInfo(),
+                brokerStats.getSockJsTaskSchedulerStatsInfo());
+    }
+}
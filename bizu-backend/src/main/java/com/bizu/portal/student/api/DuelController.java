@@ -4,6 +4,7 @@ import com.bizu.portal.identity.application.UserService;
 import com.bizu.portal.identity.domain.User;
 import com.bizu.portal.identity.infrastructure.UserRepository;
 import com.bizu.portal.student.application.DuelService;
+import com.bizu.portal.student.application.MatchmakingService;
 import com.bizu.portal.student.domain.Duel;
 import com.bizu.portal.student.infrastructure.DuelRepository;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class DuelController {
 
     private final DuelRepository duelRepository;
     private final DuelService duelService;
+    private final MatchmakingService matchmakingService;
     private final UserRepository userRepository;
     private final UserService userService;
     private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
@@ -212,14 +214,14 @@ public class DuelController {
     @PostMapping("/fila/entrar")
     public ResponseEntity<Void> joinQueue(@AuthenticationPrincipal Jwt jwt, @RequestParam UUID courseId) {
         UUID userId = resolveUserId(jwt);
-        duelService.joinQueue(userId, courseId);
+        matchmakingService.joinQueue(userId, courseId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/fila/sair")
     public ResponseEntity<Void> leaveQueue(@AuthenticationPrincipal Jwt jwt, @RequestParam UUID courseId) {
         UUID userId = resolveUserId(jwt);
-        duelService.leaveQueue(userId, courseId);
+        matchmakingService.leaveQueue(userId, courseId);
         return ResponseEntity.ok().build();
     }
 }
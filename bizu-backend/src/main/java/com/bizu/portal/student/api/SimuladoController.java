@@ -25,6 +25,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SimuladoController {
 
+    /** Upper bound for generated quizzes; larger requests are clamped. */
+    private static final int MAX_QUIZ_QUESTIONS = 100;
+
     private final StudentSimuladoService studentSimuladoService;
     private final SimuladoExamService simuladoExamService;
     private final EntitlementService entitlementService;
@@ -143,15 +146,19 @@ public class SimuladoController {
     @GetMapping("/quiz/rapido")
     public ResponseEntity<Simulado> getQuickQuiz(
             @RequestParam(defaultValue = "10") int count,
-            @RequestParam(required = false) List<UUID> moduleIds) {
-        return ResponseEntity.ok(studentSimuladoService.generateQuickQuiz(count, moduleIds));
+            @RequestParam(required = false) List<UUID> moduleIds,
+            @AuthenticationPrincipal Jwt jwt) {
+        UUID userId = userService.resolveUserId(jwt);
+        return ResponseEntity.ok(studentSimuladoService.generateQuickQuiz(userId, Math.max(1, Math.min(count, MAX_QUIZ_QUESTIONS)), moduleIds));
     }
 
     @PostMapping("/personalizado")
     public ResponseEntity<Simulado> createCustomSimulado(
             @RequestParam List<UUID> moduleIds,
             @RequestParam int count,
-            @RequestParam String difficulty) {
-        return ResponseEntity.ok(studentSimuladoService.generateQuickQuiz(count, moduleIds));
+            @RequestParam String difficulty,
+            @AuthenticationPrincipal Jwt jwt) {
+        UUID userId = userService.resolveUserId(jwt);
+        return ResponseEntity.ok(studentSimuladoService.generateQuickQuiz(userId, Math.max(1, Math.min(count, MAX_QUIZ_QUESTIONS)), moduleIds));
     }
 }
@@ -68,6 +68,14 @@ public class StudentGuildController {
         return ResponseEntity.ok(guildService.getGuildMembers(id, userId));
     }
 
+    @GetMapping("/{id}/members/online")
+    public ResponseEntity<java.util.Set<UUID>> getOnlineMembers(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal Jwt jwt) {
+        UUID userId = userService.resolveUserId(jwt);
+        return ResponseEntity.ok(guildService.onlineMembers(id, userId));
+    }
+
     @GetMapping("/{id}/materials")
     public ResponseEntity<List<GuildMaterialDTO>> getGuildMaterials(@PathVariable UUID id) {
         return ResponseEntity.ok(guildService.getGuildMaterials(id));
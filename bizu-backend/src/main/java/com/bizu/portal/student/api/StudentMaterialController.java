@@ -80,7 +80,7 @@ public class StudentMaterialController {
             // XP só é concedido uma vez por material (na primeira conclusão)
             if (nowCompleted && !record.isXpAwarded()) {
                 record.setXpAwarded(true);
-                reward = gamificationService.addXp(userId, 50);
+                reward = gamificationService.addXp(userId, 50, "MATERIAL");
                 completionRepository.save(record);
                 certificateService.checkAndIssueCertificate(userId, id);
             } else {
@@ -97,7 +97,7 @@ public class StudentMaterialController {
                 .build();
             completionRepository.save(completion);
             // Recompensa fixa por material: 50 XP
-            reward = gamificationService.addXp(userId, 50);
+            reward = gamificationService.addXp(userId, 50, "MATERIAL");
             certificateService.checkAndIssueCertificate(userId, id);
         }
 
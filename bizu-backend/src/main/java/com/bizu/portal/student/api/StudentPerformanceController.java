@@ -1,6 +1,8 @@
 package com.bizu.portal.student.api;
 
 import com.bizu.portal.identity.application.UserService;
+import com.bizu.portal.student.application.LeaderboardService;
+import com.bizu.portal.student.application.PerformanceRollupService;
 import com.bizu.portal.student.application.SubjectStatsDTO;
 import lombok.Builder;
 import lombok.Data;
@@ -13,7 +15,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,6 +25,8 @@ public class StudentPerformanceController {
 
     private final UserService userService;
     private final JdbcTemplate jdbcTemplate;
+    private final PerformanceRollupService performanceRollupService;
+    private final LeaderboardService leaderboardService;
 
     @Data
     @Builder
@@ -44,138 +47,56 @@ public class StudentPerformanceController {
     public ResponseEntity<PerformanceSummaryResponse> getPerformanceSummary(@AuthenticationPrincipal Jwt jwt) {
         UUID userId = userService.resolveUserId(jwt);
 
-        // Unified Query to get ALL attempts from ALL sources
-        String unifiedQuery = """
-            WITH all_attempts AS (
-                -- Single attempts (training/pomodoro)
-                SELECT a.id, q.id as question_id, a.created_at, a.is_correct, COALESCE(a.time_spent_seconds, 0) as time_spent, q.subject, q.difficulty
-                FROM student.attempts a
-                JOIN content.questions q ON a.question_id = q.id
-                WHERE a.user_id = ?
-                
-                UNION ALL
-                
-                -- Activity snapshots (quizzes/simulados)
-                SELECT s.id, s.original_question_id as question_id, COALESCE(s.answered_at, aa.created_at) as created_at, s.student_correct as is_correct, COALESCE(s.time_spent_seconds, 0) as time_spent, s.snapshot_subject as subject, s.snapshot_difficulty as difficulty
-                FROM student.activity_attempt_item_snapshots s
-                JOIN student.activity_attempts aa ON s.attempt_id = aa.id
-                WHERE aa.user_id = ? AND s.student_selected_option IS NOT NULL
-                
-                UNION ALL
-                
-                -- Duels (Arena) - Challenger
-                SELECT dq.id, dq.question_id, dq.created_at, dq.challenger_correct as is_correct, 30 as time_spent, q.subject, dq.difficulty
-                FROM student.duel_questions dq
-                JOIN student.duels d ON dq.duel_id = d.id
-                JOIN content.questions q ON dq.question_id = q.id
-                WHERE d.challenger_id = ? AND dq.challenger_answer_index IS NOT NULL
-                
-                UNION ALL
-                
-                -- Duels (Arena) - Opponent
-                SELECT dq.id, dq.question_id, dq.created_at, dq.opponent_correct as is_correct, 30 as time_spent, q.subject, dq.difficulty
-                FROM student.duel_questions dq
-                JOIN student.duels d ON dq.duel_id = d.id
-                JOIN content.questions q ON dq.question_id = q.id
-                WHERE d.opponent_id = ? AND dq.opponent_answer_index IS NOT NULL
-            )
-            SELECT * FROM all_attempts ORDER BY created_at DESC
-            """;
-
-        List<Map<String, Object>> rows = jdbcTemplate.queryForList(unifiedQuery, userId, userId, userId, userId);
-
-        long totalAttempted = rows.size();
-        long totalUniqueAttempted = rows.stream().map(r -> r.get("question_id")).distinct().count();
-        
-        // Use Brazil timezone for "Daily" metrics
-        java.time.ZoneId zoneId = java.time.ZoneId.of("America/Sao_Paulo");
+        // Totais lidos do rollup diário (usuário × dia × disciplina × origem), sem carregar cada resposta
+        java.time.ZoneId zoneId = PerformanceRollupService.ZONE;
         java.time.LocalDate today = java.time.LocalDate.now(zoneId);
-        
-        long dailyAttempted = rows.stream().filter(r -> {
-            Object createdAt = r.get("created_at");
-            if (createdAt == null) return false;
-            
-            java.time.LocalDate itemDate = null;
-            if (createdAt instanceof OffsetDateTime odt) {
-                itemDate = odt.atZoneSameInstant(zoneId).toLocalDate();
-            } else if (createdAt instanceof java.sql.Timestamp ts) {
-                itemDate = ts.toInstant().atZone(zoneId).toLocalDate();
-            } else if (createdAt instanceof java.time.LocalDateTime ldt) {
-                itemDate = ldt.toLocalDate(); // Falls back to system default/UTC if not specified
-            } else if (createdAt instanceof java.sql.Date d) {
-                itemDate = d.toLocalDate();
-            }
-            
-            return today.equals(itemDate);
-        }).count();
+        java.time.LocalDate weekStart = today.minusDays(7);
 
-        long correctCount = rows.stream().filter(r -> Boolean.TRUE.equals(r.get("is_correct"))).count();
-        double overallAccuracy = totalAttempted > 0 ? (double) correctCount / totalAttempted * 100 : 0;
-        long totalTimeSeconds = rows.stream().mapToLong(r -> ((Number) r.get("time_spent")).longValue()).sum();
-
-        // Weekly Activity (Last 7 days)
-        OffsetDateTime sevenDaysAgo = OffsetDateTime.now(zoneId).minusDays(7).toLocalDate().atStartOfDay().atZone(zoneId).toOffsetDateTime();
-        List<Map<String, Object>> weeklyRows = rows.stream()
-            .filter(r -> {
-                Object createdAt = r.get("created_at");
-                if (createdAt == null) return false;
-                
-                java.time.Instant itemInstant = null;
-                if (createdAt instanceof OffsetDateTime odt) itemInstant = odt.toInstant();
-                else if (createdAt instanceof java.sql.Timestamp ts) itemInstant = ts.toInstant();
-                else if (createdAt instanceof java.time.LocalDateTime ldt) itemInstant = ldt.atZone(java.time.ZoneOffset.UTC).toInstant();
-                
-                return itemInstant != null && itemInstant.isAfter(sevenDaysAgo.toInstant());
-            })
-            .toList();
+        List<PerformanceRollupService.SubjectTotals> subjects = performanceRollupService.totalsBySubject(userId, today, weekStart);
 
-        long weeklyTimeSeconds = weeklyRows.stream().mapToLong(r -> ((Number) r.get("time_spent")).longValue()).sum();
-
-        // Group by Subject
-        Map<String, List<Map<String, Object>>> bySubject = rows.stream()
-            .collect(Collectors.groupingBy(r -> String.valueOf(r.get("subject") != null ? r.get("subject") : "Geral")));
-
-        List<SubjectStatsDTO> stats = bySubject.entrySet().stream()
-            .map(entry -> {
-                long total = entry.getValue().size();
-                long correct = entry.getValue().stream().filter(r -> Boolean.TRUE.equals(r.get("is_correct"))).count();
-                return SubjectStatsDTO.builder()
-                    .subject(entry.getKey())
-                    .totalQuestions(total)
-                    .correctAnswers(correct)
-                    .accuracy(total > 0 ? (double) correct / total * 100 : 0)
-                    .build();
-            })
+        long totalAttempted = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::attempted).sum();
+        long totalUniqueAttempted = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::uniqueQuestions).sum();
+        long dailyAttempted = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::attemptedToday).sum();
+        long correctCount = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::correct).sum();
+        double overallAccuracy = totalAttempted > 0 ? (double) correctCount / totalAttempted * 100 : 0;
+        long totalTimeSeconds = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::seconds).sum();
+        long weeklyTimeSeconds = subjects.stream().mapToLong(PerformanceRollupService.SubjectTotals::secondsSince).sum();
+
+        List<SubjectStatsDTO> stats = subjects.stream()
+            .map(s -> SubjectStatsDTO.builder()
+                .subject(s.subject())
+                .totalQuestions(s.attempted())
+                .correctAnswers(s.correct())
+                .accuracy(s.attempted() > 0 ? (double) s.correct() / s.attempted() * 100 : 0)
+                .build())
             .sorted(Comparator.comparingDouble(SubjectStatsDTO::getAccuracy).reversed())
             .toList();
 
-        // Format weekly data for chart
+        // Format weekly data for chart (last 7 days grouped by weekday)
+        Map<String, long[]> byDay = new HashMap<>();
+        for (PerformanceRollupService.DayTotals day : performanceRollupService.totalsByDay(userId, weekStart)) {
+            long[] totals = byDay.computeIfAbsent(day.day().getDayOfWeek().toString(), k -> new long[2]);
+            totals[0] += day.attempted();
+            totals[1] += day.correct();
+        }
+
         List<Map<String, Object>> weeklyData = new ArrayList<>();
         String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY"};
-        Map<String, List<Map<String, Object>>> byDay = weeklyRows.stream()
-            .collect(Collectors.groupingBy(r -> {
-                Object createdAt = r.get("created_at");
-                if (createdAt instanceof OffsetDateTime odt) return odt.atZoneSameInstant(zoneId).getDayOfWeek().toString();
-                if (createdAt instanceof java.sql.Timestamp ts) return ts.toInstant().atZone(zoneId).getDayOfWeek().toString();
-                if (createdAt instanceof java.time.LocalDateTime ldt) return ldt.getDayOfWeek().toString();
-                return "UNKNOWN";
-            }));
-
         for (String day : days) {
-            List<Map<String, Object>> dayAttempts = byDay.getOrDefault(day, Collections.emptyList());
+            long[] totals = byDay.getOrDefault(day, new long[2]);
             Map<String, Object> dayMap = new HashMap<>();
             dayMap.put("day", day);
-            dayMap.put("questions", dayAttempts.size());
-            dayMap.put("accuracy", dayAttempts.isEmpty() ? 0 : 
-                (double) dayAttempts.stream().filter(r -> Boolean.TRUE.equals(r.get("is_correct"))).count() / dayAttempts.size() * 100);
+            dayMap.put("questions", totals[0]);
+            dayMap.put("accuracy", totals[0] == 0 ? 0 : (double) totals[1] / totals[0] * 100);
             weeklyData.add(dayMap);
         }
 
-        // Get Ranking
-        Long rank = jdbcTemplate.queryForObject(
-            "SELECT (COUNT(*) + 1) FROM student.gamification_stats WHERE total_xp > (SELECT COALESCE(total_xp, 0) FROM student.gamification_stats WHERE user_id = ?)",
-            Long.class, userId
-        );
+        // Get Ranking (sorted set first, SQL when the leaderboard is not available)
+        Long rank = leaderboardService.rankOf(LeaderboardService.Board.XP, null, userId)
+            .map(LeaderboardService.Entry::rank)
+            .orElseGet(() -> jdbcTemplate.queryForObject(
+                "SELECT (COUNT(*) + 1) FROM student.gamification_stats WHERE total_xp > (SELECT COALESCE(total_xp, 0) FROM student.gamification_stats WHERE user_id = ?)",
+                Long.class, userId));
 
         // AI Suggestions (Weakest subjects)
         List<String> suggestions = stats.stream()
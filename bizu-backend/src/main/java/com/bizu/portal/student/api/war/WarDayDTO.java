@@ -157,7 +157,7 @@ public class WarDayDTO {
         private UUID questionId;
         private String statement;
         private java.util.Map<String, Object> options;
-        private String imageBase64;
+        private String imageUrl;
         private String difficulty;
         private int questionsAnswered;
         private int correctAnswers;
@@ -240,7 +240,8 @@ public class WarDayDTO {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class RankingUpdateEvent {
-        private String type; // RANKING_UPDATE
+        private String type; // RANKING_UPDATE (complete), RANKING_DELTA (changed rows only)
+        private long version;
         private List<GuildRankingEntry> ranking;
     }
 }
@@ -1,5 +1,6 @@
 package com.bizu.portal.student.application;
 
+import com.bizu.portal.content.application.QuestionPoolService;
 import com.bizu.portal.content.domain.Course;
 import com.bizu.portal.content.domain.Module;
 import com.bizu.portal.content.domain.Question;
@@ -19,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.OffsetDateTime;
 import java.time.temporal.IsoFields;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -30,6 +32,8 @@ public class ActivityService {
     private final ActivityAttemptRepository attemptRepository;
     private final SimuladoRepository simuladoRepository;
     private final QuestionRepository questionRepository;
+    private final QuestionPoolService questionPoolService;
+    private final RecentQuestionsService recentQuestionsService;
     private final ApplicationEventPublisher eventPublisher;
     private final GamificationService gamificationService;
 
@@ -84,19 +88,26 @@ public class ActivityService {
 
     /**
      * Start a ModuleQuiz attempt.
+     * Questions are drawn from the in-memory pool, preferring ones the user has not answered recently.
      */
     @Transactional
     public ActivityAttempt startModuleQuiz(User user, Course course, Module module, int questionCount) {
-        List<Question> questions = questionRepository.findRandomByModulesAndCategory(
-            List.of(module.getId()), "QUIZ", questionCount
+        Set<UUID> recent = recentQuestionsService.recent(user.getId());
+        List<UUID> ids = questionPoolService.sampleUnseenFromModules(
+            List.of(module.getId()), "QUIZ", questionCount, recent
         );
 
-        if (questions.isEmpty()) {
-            questions = questionRepository.findRandomByModulesAndCategory(
-                List.of(module.getId()), "SIMULADO", questionCount
+        if (ids.isEmpty()) {
+            ids = questionPoolService.sampleUnseenFromModules(
+                List.of(module.getId()), "SIMULADO", questionCount, recent
             );
         }
 
+        List<Question> questions = questionRepository.findAllById(ids);
+        if (questions.size() < ids.size()) {
+            questionPoolService.invalidate();
+        }
+
         if (questions.isEmpty()) {
             throw new ResourceNotFoundException("Nenhuma questão disponível para este módulo.");
         }
@@ -154,6 +165,9 @@ public class ActivityService {
         attempt.setStatus("IN_PROGRESS");
         attemptRepository.save(attempt);
 
+        eventPublisher.publishEvent(StudentActivityEvent.answer(attempt.getUser().getId(), StudentActivityEvent.Source.ACTIVITY,
+                snapshot.getOriginalQuestionId(), snapshot.getSnapshotSubject(), Boolean.TRUE.equals(snapshot.getStudentCorrect()), snapshot.getSnapshotDifficulty(), snapshot.getTimeSpentSeconds()));
+
         return snapshot;
     }
 
@@ -167,7 +181,7 @@ public class ActivityService {
 
         if ("COMPLETED".equals(attempt.getStatus())) {
             // Se já estiver completa, apenas retorna o estado atual (poderia recalcular se necessário)
-            return gamificationService.addXp(attempt.getUser().getId(), 0);
+            return gamificationService.addXp(attempt.getUser().getId(), 0, "ACTIVITY");
         }
 
         attempt.complete();
@@ -180,9 +194,10 @@ public class ActivityService {
 
         // Publish event for async processing (analytics, ranking update, gamification)
         eventPublisher.publishEvent(new StudentAttemptCompletedEvent(saved));
+        eventPublisher.publishEvent(StudentActivityEvent.activityCompleted(saved.getUser().getId()));
         
         // Return Reward
-        return gamificationService.addXp(attempt.getUser().getId(), xp);
+        return gamificationService.addXp(attempt.getUser().getId(), xp, "ACTIVITY");
     }
 
     /**
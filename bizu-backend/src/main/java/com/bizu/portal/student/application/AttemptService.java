@@ -6,6 +6,7 @@ import com.bizu.portal.identity.domain.User;
 import com.bizu.portal.student.domain.Attempt;
 import com.bizu.portal.student.infrastructure.AttemptRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +18,7 @@ public class AttemptService {
 
     private final AttemptRepository attemptRepository;
     private final GamificationService gamificationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Attempt processAttempt(User user, Question question, String selectedOption) {
@@ -30,11 +32,14 @@ public class AttemptService {
             .build();
 
         if (isCorrect) {
-            gamificationService.addXp(user.getId(), 10); // 10 XP per correct question
+            gamificationService.addXp(user.getId(), 10, "QUESTION"); // 10 XP per correct question
         } else {
-            gamificationService.addXp(user.getId(), -10); // 10 XP penalty for wrong question
+            gamificationService.addXp(user.getId(), -10, "QUESTION"); // 10 XP penalty for wrong question
         }
 
-        return attemptRepository.save(attempt);
+        Attempt saved = attemptRepository.save(attempt);
+        eventPublisher.publishEvent(StudentActivityEvent.answer(user.getId(), StudentActivityEvent.Source.PRACTICE,
+                question.getId(), question.getSubject(), isCorrect, question.getDifficulty(), saved.getTimeSpentSeconds()));
+        return saved;
     }
 }
@@ -23,6 +23,7 @@ public class AxonStoreService {
     private final GamificationRepository gamificationRepository;
     private final UserRepository userRepository;
     private final com.bizu.portal.student.infrastructure.StoreItemRepository storeItemRepository;
+    private final ProfileCardCache profileCardCache;
 
     @Transactional
     public void buyItem(UUID userId, String itemCode) {
@@ -103,9 +104,11 @@ public class AxonStoreService {
         } else if (itemCode.startsWith("AURA_")) {
             String aura = itemCode.replace("AURA_", "");
             stats.setActiveAura(aura.equals(stats.getActiveAura()) ? null : aura);
+            profileCardCache.evict(userId);
         } else if (itemCode.startsWith("BORDER_")) {
             String border = itemCode.replace("BORDER_", "");
             stats.setActiveBorder(border.equals(stats.getActiveBorder()) ? null : border);
+            profileCardCache.evict(userId);
         } else {
             switch (itemCode) {
                 case "DOUBLE_XP_2H":
@@ -0,0 +1,47 @@
+package com.bizu.portal.student.application;
+
+import com.bizu.portal.student.domain.Badge;
+import com.bizu.portal.student.infrastructure.BadgeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory copy of the badge definitions. The table is tiny and almost never changes,
+ * so it is reloaded periodically instead of being queried on every badge check.
+ */
+@Component
+@RequiredArgsConstructor
+public class BadgeCatalog {
+
+    private final BadgeRepository badgeRepository;
+
+    private volatile List<Badge> badges;
+
+    public List<Badge> all() {
+        List<Badge> current = badges;
+        if (current == null || current.isEmpty()) {
+            current = List.copyOf(badgeRepository.findAll());
+            badges = current;
+        }
+        return current;
+    }
+
+    public Optional<Badge> byCode(String code) {
+        return all().stream().filter(b -> code.equals(b.getCode())).findFirst();
+    }
+
+    public int targetOf(String code) {
+        return byCode(code)
+                .map(b -> b.getTargetProgress() != null && b.getTargetProgress() > 0 ? b.getTargetProgress() : 1)
+                .orElse(Integer.MAX_VALUE);
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void refresh() {
+        badges = null;
+    }
+}
@@ -0,0 +1,204 @@
+package com.bizu.portal.student.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-user badge progress projection (student.badge_progress).
+ *
+ * Counters move with one atomic UPDATE per study event instead of being recounted from
+ * attempts, snapshots and duel questions on every badge page view. A user without a row
+ * is seeded once from the historical tables, so existing progress is preserved.
+ *
+ * Streak and total XP are not duplicated here: they are read from gamification_stats in the
+ * same keyed query, and the matching badges are awarded where those values change.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BadgeProgressService {
+
+    private static final int HARD_WINDOW = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Progress snapshot. Values are only meaningful for the badge codes handled by {@link #valueFor}.
+     */
+    public record BadgeProgress(int questionsAnswered, int duelWins, int flashcardsStudied, int secondsToday,
+                                int hardWindow, boolean earlyBird, boolean hasSimulado, int streak, int totalXp) {
+
+        static final BadgeProgress EMPTY = new BadgeProgress(0, 0, 0, 0, 0, false, false, 0, 0);
+
+        public int valueFor(String code) {
+            return switch (code) {
+                case "EARLY_BIRD" -> earlyBird ? 1 : 0;
+                case "FIRST_SIMULADO" -> hasSimulado ? 1 : 0;
+                case "STREAK_7", "TOTAL_DEDICATION" -> streak;
+                case "QUESTIONS_1000", "MASTER_100" -> questionsAnswered;
+                case "GLADIATOR_10" -> duelWins;
+                case "STUDIOUS_50" -> flashcardsStudied;
+                case "MARATHON_4H" -> secondsToday / 60;
+                case "SNIPER_10" -> Integer.bitCount(hardWindow);
+                case "FIRST_1000_XP" -> totalXp;
+                default -> 0;
+            };
+        }
+    }
+
+    /**
+     * Progress before and after a change. When the row had to be seeded, {@code before} is empty,
+     * so every threshold already reached counts as crossed and gets awarded once.
+     */
+    public record Transition(BadgeProgress before, BadgeProgress after) {
+
+        public boolean crossed(String code, int target) {
+            return before.valueFor(code) < target && after.valueFor(code) >= target;
+        }
+    }
+
+    /**
+     * Current progress for the badges page: a single keyed read (seeding the row on first access).
+     */
+    public Transition load(UUID userId) {
+        boolean seeded = seed(userId);
+        BadgeProgress current = read(userId);
+        return new Transition(seeded ? BadgeProgress.EMPTY : current, current);
+    }
+
+    private BadgeProgress read(UUID userId) {
+        return jdbcTemplate.queryForObject("""
+            SELECT p.questions_answered, p.duel_wins, p.flashcards_studied,
+                   CASE WHEN p.seconds_day = CURRENT_DATE THEN p.seconds_today ELSE 0 END AS seconds_today,
+                   p.hard_window, p.early_bird, p.has_simulado,
+                   COALESCE(g.current_streak, 0) AS current_streak, COALESCE(g.total_xp, 0) AS total_xp
+            FROM student.badge_progress p
+            LEFT JOIN student.gamification_stats g ON g.user_id = p.user_id
+            WHERE p.user_id = ?
+            """, (rs, i) -> map(rs, ""), userId);
+    }
+
+    /**
+     * Applies one event. Runs after the producing transaction committed, so when the row has to be
+     * seeded here the seed already contains the event and no increment is applied.
+     */
+    public Transition apply(StudentActivityEvent event) {
+        UUID userId = event.getUserId();
+        boolean answer = event.getKind() == StudentActivityEvent.Kind.ANSWER;
+        boolean practice = answer && event.getSource() == StudentActivityEvent.Source.PRACTICE;
+        // Mesma semântica do cálculo anterior: Sniper e Madrugador consideram apenas a prática livre
+        boolean hard = practice && "HARD".equalsIgnoreCase(event.getDifficulty());
+        boolean earlyBird = practice && event.getOccurredAt().atZoneSameInstant(ZoneOffset.UTC).getHour() < 6;
+
+        List<Transition> rows = jdbcTemplate.query("""
+            UPDATE student.badge_progress p SET
+                questions_answered = o.questions_answered + ?,
+                duel_wins = o.duel_wins + ?,
+                flashcards_studied = o.flashcards_studied + ?,
+                seconds_today = o.seconds_today + ?,
+                seconds_day = CURRENT_DATE,
+                hard_window = CASE WHEN ? THEN ((o.hard_window << 1) | ?) & ? ELSE o.hard_window END,
+                hard_window_size = CASE WHEN ? THEN LEAST(o.hard_window_size + 1, ?) ELSE o.hard_window_size END,
+                early_bird = o.early_bird OR ?,
+                has_simulado = o.has_simulado OR ?,
+                updated_at = NOW()
+            FROM (
+                SELECT user_id, questions_answered, duel_wins, flashcards_studied,
+                       CASE WHEN seconds_day = CURRENT_DATE THEN seconds_today ELSE 0 END AS seconds_today,
+                       hard_window, hard_window_size, early_bird, has_simulado
+                FROM student.badge_progress WHERE user_id = ? FOR UPDATE
+            ) o
+            LEFT JOIN student.gamification_stats g ON g.user_id = o.user_id
+            WHERE p.user_id = o.user_id
+            RETURNING o.questions_answered AS old_questions_answered, o.duel_wins AS old_duel_wins,
+                      o.flashcards_studied AS old_flashcards_studied, o.seconds_today AS old_seconds_today,
+                      o.hard_window AS old_hard_window, o.early_bird AS old_early_bird, o.has_simulado AS old_has_simulado,
+                      p.questions_answered, p.duel_wins, p.flashcards_studied, p.seconds_today,
+                      p.hard_window, p.early_bird, p.has_simulado,
+                      COALESCE(g.current_streak, 0) AS current_streak, COALESCE(g.total_xp, 0) AS total_xp
+            """,
+            (rs, i) -> new Transition(map(rs, "old_"), map(rs, "")),
+            answer ? 1 : 0,
+            event.getKind() == StudentActivityEvent.Kind.DUEL_WON ? 1 : 0,
+            event.getKind() == StudentActivityEvent.Kind.FLASHCARD_REVIEWED && event.isFirstOccurrence() ? 1 : 0,
+            answer ? Math.max(0, event.getTimeSpentSeconds()) : 0,
+            hard, event.isCorrect() ? 1 : 0, (1 << HARD_WINDOW) - 1,
+            hard, HARD_WINDOW,
+            earlyBird,
+            event.getKind() == StudentActivityEvent.Kind.SIMULADO_COMPLETED,
+            userId);
+
+        if (!rows.isEmpty()) return rows.get(0);
+
+        seed(userId);
+        return new Transition(BadgeProgress.EMPTY, read(userId));
+    }
+
+    /**
+     * Creates the row from the historical tables (the same counts the badges page used to run).
+     * Returns true only for the caller that actually inserted it.
+     */
+    private boolean seed(UUID userId) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM student.badge_progress WHERE user_id = ?)", Boolean.class, userId);
+        if (Boolean.TRUE.equals(exists)) return false;
+
+        int inserted = jdbcTemplate.update("""
+            INSERT INTO student.badge_progress (user_id, questions_answered, duel_wins, flashcards_studied,
+                                                seconds_today, seconds_day, hard_window, hard_window_size, early_bird, has_simulado)
+            SELECT CAST(? AS uuid),
+                (SELECT COUNT(*) FROM student.attempts WHERE user_id = ?) +
+                (SELECT COUNT(*) FROM student.activity_attempt_item_snapshots s JOIN student.activity_attempts a ON s.attempt_id = a.id WHERE a.user_id = ? AND s.student_selected_option IS NOT NULL) +
+                (SELECT COUNT(*) FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE d.challenger_id = ? AND dq.challenger_answer_index IS NOT NULL) +
+                (SELECT COUNT(*) FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE d.opponent_id = ? AND dq.opponent_answer_index IS NOT NULL),
+                (SELECT COUNT(*) FROM student.duels WHERE winner_id = ? AND status = 'COMPLETED'),
+                (SELECT COUNT(*) FROM student.flashcard_progress WHERE user_id = ?),
+                (SELECT COALESCE(SUM(time_spent_seconds), 0) FROM student.attempts WHERE user_id = ? AND created_at >= CURRENT_DATE) +
+                (SELECT COALESCE(SUM(s.time_spent_seconds), 0) FROM student.activity_attempt_item_snapshots s JOIN student.activity_attempts a ON s.attempt_id = a.id WHERE a.user_id = ? AND s.student_selected_option IS NOT NULL AND COALESCE(s.answered_at, a.created_at) >= CURRENT_DATE) +
+                (SELECT COUNT(*) * 30 FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE (d.challenger_id = ? AND dq.challenger_answer_index IS NOT NULL OR d.opponent_id = ? AND dq.opponent_answer_index IS NOT NULL) AND dq.created_at >= CURRENT_DATE),
+                CURRENT_DATE,
+                COALESCE(h.mask, 0),
+                COALESCE(h.size, 0),
+                EXISTS (SELECT 1 FROM student.attempts WHERE user_id = ? AND EXTRACT(HOUR FROM created_at AT TIME ZONE 'UTC') < 6),
+                EXISTS (SELECT 1 FROM student.simulado_results WHERE user_id = ?)
+            FROM (
+                SELECT SUM(CASE WHEN w.is_correct THEN 1 << (w.rn - 1) ELSE 0 END) AS mask, COUNT(*) AS size
+                FROM (
+                    SELECT a.is_correct, ROW_NUMBER() OVER (ORDER BY a.created_at DESC) AS rn
+                    FROM student.attempts a JOIN content.questions q ON a.question_id = q.id
+                    WHERE a.user_id = ? AND q.difficulty = 'HARD'
+                    ORDER BY a.created_at DESC LIMIT ?
+                ) w
+            ) h
+            ON CONFLICT (user_id) DO NOTHING
+            """,
+            userId, userId, userId, userId, userId, userId, userId, userId, userId, userId, userId, userId, userId,
+            userId, HARD_WINDOW);
+
+        if (inserted > 0) {
+            log.info("Progresso de badges inicializado para o usuário {}", userId);
+        }
+        return inserted > 0;
+    }
+
+    private static BadgeProgress map(ResultSet rs, String prefix) throws SQLException {
+        return new BadgeProgress(
+                rs.getInt(prefix + "questions_answered"),
+                rs.getInt(prefix + "duel_wins"),
+                rs.getInt(prefix + "flashcards_studied"),
+                rs.getInt(prefix + "seconds_today"),
+                rs.getInt(prefix + "hard_window"),
+                rs.getBoolean(prefix + "early_bird"),
+                rs.getBoolean(prefix + "has_simulado"),
+                rs.getInt("current_streak"),
+                rs.getInt("total_xp"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.bizu.portal.student.application;
 
+import com.bizu.portal.identity.application.PresenceTracker;
 import com.bizu.portal.student.domain.Duel;
 import com.bizu.portal.student.domain.DuelQuestion;
 import com.bizu.portal.student.infrastructure.DuelQuestionRepository;
@@ -10,6 +11,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.List;
 
@@ -21,6 +23,7 @@ public class DuelScheduler {
     private final DuelRepository duelRepository;
     private final DuelQuestionRepository duelQuestionRepository;
     private final DuelService duelService;
+    private final PresenceTracker presenceTracker;
 
     /**
      * Limpa duelos inativos onde um jogador "sumiu".
@@ -60,8 +63,8 @@ public class DuelScheduler {
                 } else {
                     // Ambos não responderam ou estado de transição
                     // Vamos penalizar quem tiver o 'lastSeenAt' mais antigo
-                    OffsetDateTime cSeen = duel.getChallenger().getLastSeenAt();
-                    OffsetDateTime oSeen = duel.getOpponent().getLastSeenAt();
+                    Instant cSeen = presenceTracker.lastSeen(duel.getChallenger().getId(), duel.getChallenger().getLastSeenAt()).orElse(null);
+                    Instant oSeen = presenceTracker.lastSeen(duel.getOpponent().getId(), duel.getOpponent().getLastSeenAt()).orElse(null);
                     
                     if (cSeen == null || (oSeen != null && cSeen.isBefore(oSeen))) {
                         duelService.declineOrAbandonDuelBySystem(duel.getId(), duel.getChallenger().getId());
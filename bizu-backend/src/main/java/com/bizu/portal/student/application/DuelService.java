@@ -4,6 +4,7 @@ import com.bizu.portal.content.domain.Question;
 import com.bizu.portal.content.infrastructure.QuestionRepository;
 import com.bizu.portal.identity.domain.User;
 import com.bizu.portal.identity.infrastructure.UserRepository;
+import com.bizu.portal.notification.application.NotificationService;
 import com.bizu.portal.student.domain.Duel;
 import com.bizu.portal.student.domain.DuelQuestion;
 import com.bizu.portal.student.infrastructure.DuelQuestionRepository;
@@ -11,13 +12,10 @@ import com.bizu.portal.student.infrastructure.DuelRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.Random;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,13 +26,14 @@ public class DuelService {
     private final DuelRepository duelRepository;
     private final DuelQuestionRepository duelQuestionRepository;
     private final QuestionRepository questionRepository;
+    private final com.bizu.portal.content.application.QuestionPoolService questionPoolService;
     private final NotificationService notificationService;
     private final GamificationService gamificationService;
     private final UserRepository userRepository;
     private final com.bizu.portal.student.infrastructure.GamificationRepository gamificationRepository;
     private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
-
-    private final ConcurrentHashMap<UUID, ConcurrentLinkedQueue<UUID>> matchQueues = new ConcurrentHashMap<>();
+    private final LeaderboardService leaderboardService;
+    private final org.springframework.context.ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Duel createDuel(UUID challengerId, UUID opponentId, String subject) {
@@ -69,83 +68,6 @@ public class DuelService {
         return duel;
     }
 
-    @Transactional
-    public void joinQueue(UUID userId, UUID courseId) {
-        User user = userRepository.findById(userId).orElseThrow();
-        if (user.isDuelFocusMode()) {
-            throw new IllegalStateException("Você está em modo focado e não pode entrar na fila de duelos.");
-        }
-
-        com.bizu.portal.student.domain.GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
-        if (stats != null && stats.getAbandonBlockedUntil() != null && stats.getAbandonBlockedUntil().isAfter(OffsetDateTime.now())) {
-            throw new IllegalStateException("Você está temporariamente impossibilitado de entrar em duelos devido ao excesso de abandones.");
-        }
-
-        List<Duel> activeDuels = duelRepository.findActiveDuelsByUserId(userId);
-        if (!activeDuels.isEmpty()) {
-            throw new IllegalStateException("Você já está em um duelo ativo.");
-        }
-        
-        matchQueues.computeIfAbsent(courseId, k -> new ConcurrentLinkedQueue<>())
-                   .add(userId);
-                   
-        tryMatch(courseId);
-    }
-
-    public void leaveQueue(UUID userId, UUID courseId) {
-        ConcurrentLinkedQueue<UUID> queue = matchQueues.get(courseId);
-        if (queue != null) {
-            queue.remove(userId);
-        }
-    }
-
-    private synchronized void tryMatch(UUID courseId) {
-        ConcurrentLinkedQueue<UUID> queue = matchQueues.get(courseId);
-        if (queue == null || queue.size() < 2) return;
-        
-        while (queue.size() >= 2) {
-            UUID p1 = queue.poll();
-            UUID p2 = queue.poll();
-            
-            if (p1 != null && p2 != null) {
-                if (p1.equals(p2)) { 
-                    queue.add(p1);
-                    continue;
-                }
-                
-                User u1 = userRepository.findById(p1).orElse(null);
-                User u2 = userRepository.findById(p2).orElse(null);
-                
-                if (u1 == null || u1.isDuelFocusMode()) {
-                    if (u2 != null) queue.add(p2);
-                    continue;
-                }
-                if (u2 == null || u2.isDuelFocusMode()) {
-                    queue.add(p1);
-                    continue;
-                }
-                
-                try {
-                    log.info("Match found for users {} and {}", p1, p2);
-                    
-                    Duel duel = createDuel(p1, p2, "Aleatório");
-                    
-                    notificationService.send(p1, "Duelo Encontrado!", "Um oponente foi encontrado para o duelo na Arena.");
-                    
-                    messagingTemplate.convertAndSend("/topic/desafios/" + p1, duel);
-                    messagingTemplate.convertAndSend("/topic/desafios/" + p2, duel);
-                } catch (Exception e) {
-                    log.error("Failed to create match between {} and {}: {}", p1, p2, e.getMessage());
-                    queue.add(p1); // re-add at least p1 back to waiting list
-                }
-            } else {
-                if (p1 != null) queue.add(p1);
-                if (p2 != null) queue.add(p2);
-                break;
-            }
-        }
-    }
-
     @Transactional
     public Duel acceptDuel(UUID duelId) {
         log.info("Accepting duel: {}", duelId);
@@ -158,45 +80,44 @@ public class DuelService {
         duel.setStatus("IN_PROGRESS");
         duel.setCurrentRound(1);
         
-        String subject = "Aleatorio".equalsIgnoreCase(duel.getSubject()) ? null : duel.getSubject();
+        String subject = poolSubject(duel.getSubject());
         log.info("Duel subject: {}", subject);
         
-        // Select initial 10 questions: 3 Easy, 4 Medium, 3 Hard
-        // Try SIMULADO first, fallback to QUIZ
-        List<Question> easy = getPool(subject, "EASY");
-        List<Question> medium = getPool(subject, "MEDIUM");
-        List<Question> hard = getPool(subject, "HARD");
-        
-        log.info("Initial questions pools sizes: easy={}, medium={}, hard={}", easy.size(), medium.size(), hard.size());
+        // Select initial 10 questions: 3 Easy, 4 Medium, 3 Hard (ids sampled from the in-memory pool)
+        Set<UUID> chosen = new LinkedHashSet<>();
+        List<String> roundDifficulties = new ArrayList<>();
+        for (String[] round : new String[][]{{"EASY", "3"}, {"MEDIUM", "4"}, {"HARD", "3"}}) {
+            for (UUID id : pickQuestionIds(subject, round[0], Integer.parseInt(round[1]), chosen)) {
+                chosen.add(id);
+                roundDifficulties.add(round[0]);
+            }
+        }
 
-        // Ultimate fallback — Any question if everything above failed
-        if (easy.isEmpty()) {
-            easy = questionRepository.findAll();
-            log.info("Ultimate fallback (all questions) size: {}", easy.size());
+        // Only the chosen questions are loaded, in a single query
+        Map<UUID, Question> questions = questionRepository.findAllById(chosen).stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        if (questions.size() < chosen.size()) {
+            questionPoolService.invalidate();
         }
-        if (medium.isEmpty()) medium = easy;
-        if (hard.isEmpty()) hard = medium;
-        java.util.List<DuelQuestion> duelQuestions = new java.util.ArrayList<>();
-        Random rand = new Random();
-        for (int i = 1; i <= 10; i++) {
-            List<Question> pool = i <= 3 ? easy : i <= 7 ? medium : hard;
-            if (pool == null || pool.isEmpty()) pool = easy; 
-            if (pool == null || pool.isEmpty()) pool = questionRepository.findAll();
-            
-            if (pool.isEmpty()) {
-                 log.warn("Pool is still empty for round {}", i);
-                 continue; 
-            }
 
-            Question q = pool.get(rand.nextInt(pool.size()));
-            DuelQuestion dq = DuelQuestion.builder()
+        List<DuelQuestion> duelQuestions = new ArrayList<>();
+        int roundNumber = 1;
+        int i = 0;
+        for (UUID id : chosen) {
+            String difficulty = roundDifficulties.get(i++);
+            Question q = questions.get(id);
+            if (q == null) {
+                log.warn("Question {} no longer exists, skipping", id);
+                continue;
+            }
+            duelQuestions.add(DuelQuestion.builder()
                     .duel(duel)
                     .question(q)
-                    .roundNumber(i)
-                    .difficulty(i <= 3 ? "EASY" : i <= 7 ? "MEDIUM" : "HARD")
-                    .build();
-            duelQuestions.add(duelQuestionRepository.save(dq));
+                    .roundNumber(roundNumber++)
+                    .difficulty(difficulty)
+                    .build());
         }
+        duelQuestions = duelQuestionRepository.saveAll(duelQuestions);
         
         log.info("Duel {} started with {} questions", duelId, duelQuestions.size());
         
@@ -240,6 +161,10 @@ public class DuelService {
         }
 
         duelQuestionRepository.saveAndFlush(currentRoundQuestion);
+        // Cada resposta de duelo conta como 30 segundos de estudo
+        eventPublisher.publishEvent(StudentActivityEvent.answer(userId, StudentActivityEvent.Source.DUEL,
+                currentRoundQuestion.getQuestion().getId(), currentRoundQuestion.getQuestion().getSubject(),
+                isCorrect, currentRoundQuestion.getDifficulty(), 30));
 
         // Recalculate scores from all round questions to ensure accuracy and handle race conditions
         List<DuelQuestion> allDuelQuestions = duelQuestionRepository.findByDuelId(duelId);
@@ -367,13 +292,20 @@ public class DuelService {
     }
 
     private void generateSuddenDeathQuestion(Duel duel, int roundNumber) {
-        // Pick a HARD question for sudden death
-        List<Question> questions = getPool(duel.getSubject(), "HARD");
-        if (questions.isEmpty()) {
-            questions = questionRepository.findAll();
+        // Pick a HARD question for sudden death, avoiding the ones already played
+        Set<UUID> played = new HashSet<>();
+        if (duel.getQuestions() != null) {
+            duel.getQuestions().forEach(dq -> played.add(dq.getQuestion().getId()));
         }
-        
-        Question q = questions.get(new Random().nextInt(questions.size()));
+        Question q = pickQuestionIds(poolSubject(duel.getSubject()), "HARD", 1, played).stream()
+                .findFirst()
+                .flatMap(questionRepository::findById)
+                .orElse(null);
+        if (q == null) {
+            log.warn("No question available for sudden death round {} of duel {}", roundNumber, duel.getId());
+            return;
+        }
+
         DuelQuestion dq = DuelQuestion.builder()
                 .duel(duel)
                 .question(q)
@@ -393,40 +325,49 @@ public class DuelService {
         duel.setCompletedAt(OffsetDateTime.now());
         
         if (winner != null) {
-            gamificationService.addXp(winner.getId(), 100);
+            gamificationService.addXp(winner.getId(), 100, "DUEL");
+            leaderboardService.recordDuelWin(winner.getId());
+            eventPublisher.publishEvent(StudentActivityEvent.duelWon(winner.getId()));
             
             // Penalidade para o perdedor
             UUID loserId = duel.getChallenger().getId().equals(winner.getId()) 
                 ? duel.getOpponent().getId() 
                 : duel.getChallenger().getId();
-            gamificationService.addXp(loserId, -100);
+            gamificationService.addXp(loserId, -100, "DUEL");
         } else {
             // Empate
-            gamificationService.addXp(duel.getChallenger().getId(), 50);
-            gamificationService.addXp(duel.getOpponent().getId(), 50);
+            gamificationService.addXp(duel.getChallenger().getId(), 50, "DUEL");
+            gamificationService.addXp(duel.getOpponent().getId(), 50, "DUEL");
         }
     }
 
-    private List<Question> getPool(String subject, String difficulty) {
-        // Try SIMULADO first
-        List<Question> pool = questionRepository.findByFilters(null, null, subject, null, difficulty, "SIMULADO", org.springframework.data.domain.PageRequest.of(0, 100)).getContent();
-        
-        // Fallback to QUIZ if empty
-        if (pool.isEmpty()) {
-            pool = questionRepository.findByFilters(null, null, subject, null, difficulty, "QUIZ", org.springframework.data.domain.PageRequest.of(0, 100)).getContent();
-        }
-        
-        // Fallback to any difficulty in SIMULADO
-        if (pool.isEmpty()) {
-            pool = questionRepository.findByFilters(null, null, subject, null, null, "SIMULADO", org.springframework.data.domain.PageRequest.of(0, 100)).getContent();
+    /**
+     * Samples question ids with the same fallback order as before: SIMULADO, QUIZ, any difficulty
+     * in SIMULADO, any difficulty in QUIZ, and finally the whole bank, topping up from the next
+     * level when a pool has fewer questions than needed.
+     */
+    private List<UUID> pickQuestionIds(String subject, String difficulty, int count, Set<UUID> exclude) {
+        String[][] fallbacks = {
+                {subject, difficulty, "SIMULADO"},
+                {subject, difficulty, "QUIZ"},
+                {subject, null, "SIMULADO"},
+                {subject, null, "QUIZ"},
+                {null, null, null}
+        };
+        List<UUID> picked = new ArrayList<>();
+        Set<UUID> excluded = new HashSet<>(exclude);
+        for (String[] filter : fallbacks) {
+            if (picked.size() >= count) break;
+            List<UUID> sample = questionPoolService.sample(filter[0], filter[1], filter[2], count - picked.size(), excluded);
+            picked.addAll(sample);
+            excluded.addAll(sample);
         }
-        
-        // Fallback to any difficulty in QUIZ
-        if (pool.isEmpty()) {
-            pool = questionRepository.findByFilters(null, null, subject, null, null, "QUIZ", org.springframework.data.domain.PageRequest.of(0, 100)).getContent();
-        }
-        
-        return pool;
+        return picked;
+    }
+
+    private static String poolSubject(String subject) {
+        if (subject == null || "Aleatorio".equalsIgnoreCase(subject) || "Aleatório".equalsIgnoreCase(subject)) return null;
+        return subject;
     }
 
     private void initializeDuel(Duel duel) {
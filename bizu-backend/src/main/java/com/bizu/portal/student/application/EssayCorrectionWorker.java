@@ -0,0 +1,359 @@
+package com.bizu.portal.student.application;
+
+import com.bizu.portal.ai.AiClient;
+import com.bizu.portal.ai.AiException;
+import com.bizu.portal.shared.sse.SseHub;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Essay correction as a persistent job queue: the essay row is the job. Workers claim PENDING
+ * essays with {@code FOR UPDATE SKIP LOCKED} (so several nodes can share the queue), run OCR
+ * when the essay is an image, then ask for feedback and metrics concurrently. Every stage is
+ * pushed to the student over the progress SSE stream.
+ *
+ * A job that fails with a retryable error goes back to PENDING with exponential backoff, up to
+ * {@code max-attempts}. The attempt counter doubles as an ownership token: results are only
+ * written while the row is still PROCESSING under the attempt that claimed it, so a job recovered
+ * by {@link #recoverStuck()} after a crash or timeout cannot be overwritten by the old worker.
+ */
+@Component
+@Slf4j
+public class EssayCorrectionWorker {
+
+    private static final String OCR_PROMPT = "Aja como um motor de OCR de alta precisão. Transcreva o texto da imagem de redação abaixo. " +
+            "Retorne APENAS o texto transcrito, sem comentários, sem introduções e sem saudações. " +
+            "Mantenha as quebras de parágrafo originais.";
+
+    private static final String NO_TEXT_FEEDBACK = "Não foi possível extrair o texto para correção.";
+    private static final String FAILED_FEEDBACK = "Não foi possível corrigir a redação no momento. Envie novamente mais tarde.";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AiClient aiClient;
+    private final SseHub sseHub;
+    private final TaskExecutor essayExecutor;
+    private final TaskExecutor aiExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${axon.essay-correction.workers:4}")
+    private int workers;
+
+    @Value("${axon.essay-correction.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${axon.essay-correction.timeout-seconds:300}")
+    private int timeoutSeconds;
+
+    @Value("${axon.essay-correction.retry-backoff-seconds:60}")
+    private int retryBackoffSeconds;
+
+    private record Job(UUID essayId, int attempt, UUID studentId, String content, String attachmentUrl, String topic) {}
+
+    private record Metrics(Integer c1, Integer c2, Integer c3, Integer c4, Integer c5, BigDecimal grade, String improvementHint) {}
+
+    public EssayCorrectionWorker(JdbcTemplate jdbcTemplate, AiClient aiClient, SseHub sseHub,
+                                 @Qualifier("essayExecutor") TaskExecutor essayExecutor,
+                                 @Qualifier("aiExecutor") TaskExecutor aiExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.aiClient = aiClient;
+        this.sseHub = sseHub;
+        this.essayExecutor = essayExecutor;
+        this.aiExecutor = aiExecutor;
+    }
+
+    /**
+     * Dispatches right after the current transaction commits, so a new essay does not wait for the next poll.
+     */
+    public void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch();
+                }
+            });
+        } else {
+            dispatch();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${axon.essay-correction.poll-interval-ms:5000}")
+    public synchronized void dispatch() {
+        int free = workers - inFlight.get();
+        if (free <= 0) return;
+
+        List<Job> jobs;
+        try {
+            jobs = jdbcTemplate.query("""
+                UPDATE essay.essays e
+                SET status = 'PROCESSING', locked_at = NOW(), attempts = e.attempts + 1
+                WHERE e.id IN (
+                    SELECT id FROM essay.essays
+                    WHERE status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= NOW())
+                    ORDER BY created_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING e.id, e.attempts, e.student_id, e.content, e.attachment_url, e.topic
+                """, (rs, i) -> new Job(
+                    rs.getObject("id", UUID.class),
+                    rs.getInt("attempts"),
+                    rs.getObject("student_id", UUID.class),
+                    rs.getString("content"),
+                    rs.getString("attachment_url"),
+                    rs.getString("topic")), free);
+        } catch (Exception e) {
+            log.warn("Fila de correção de redações indisponível: {}", e.getMessage());
+            return;
+        }
+
+        for (Job job : jobs) {
+            inFlight.incrementAndGet();
+            try {
+                essayExecutor.execute(() -> {
+                    try {
+                        process(job);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (Exception e) {
+                // Não deveria acontecer (só reivindica o que cabe); a recuperação devolve o job à fila
+                inFlight.decrementAndGet();
+                log.warn("Essay correction {} could not be scheduled: {}", job.essayId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns to the queue jobs left PROCESSING by a node that died or restarted mid-correction.
+     * A live worker gives up on a job after {@code timeout-seconds}, so anything locked for twice
+     * that long has no owner.
+     */
+    @Scheduled(fixedDelayString = "${axon.essay-correction.recovery-interval-ms:60000}")
+    public void recoverStuck() {
+        try {
+            int recovered = jdbcTemplate.update("""
+                UPDATE essay.essays
+                SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'PENDING' END,
+                    feedback = CASE WHEN attempts >= ? THEN ? ELSE feedback END,
+                    last_error = 'Correção interrompida', locked_at = NULL, updated_at = NOW()
+                WHERE status = 'PROCESSING' AND locked_at < NOW() - make_interval(secs => ?)
+                """, maxAttempts, maxAttempts, FAILED_FEEDBACK, timeoutSeconds * 2);
+            if (recovered > 0) {
+                log.info("Correções de redação interrompidas devolvidas à fila: {}", recovered);
+            }
+        } catch (Exception e) {
+            log.warn("Recuperação da fila de correção indisponível: {}", e.getMessage());
+        }
+    }
+
+    private void process(Job job) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        try {
+            // ETAPA 1: Extração de Texto (OCR)
+            String paperContent = job.content();
+            if (isBlank(paperContent) && job.attachmentUrl() != null) {
+                CompletableFuture<String> ocr = call(() -> aiClient.completeWithImage(OCR_PROMPT, job.attachmentUrl()));
+                calls.add(ocr);
+                paperContent = ocr.get(remaining(deadline), TimeUnit.NANOSECONDS);
+                if (!isBlank(paperContent)) {
+                    if (!owned(job, "UPDATE essay.essays SET content = ? WHERE id = ? AND status = 'PROCESSING' AND attempts = ?",
+                            paperContent, job.essayId(), job.attempt())) {
+                        return;
+                    }
+                    push(job, "PROCESSING", Map.of("content", paperContent));
+                }
+            }
+
+            if (isBlank(paperContent)) {
+                fail(job, NO_TEXT_FEEDBACK, "Texto vazio");
+                return;
+            }
+
+            // ETAPAS 2 e 3: análise pedagógica e métricas são independentes, então rodam juntas
+            String text = paperContent;
+            CompletableFuture<String> feedback = call(() -> aiClient.complete(analysisPrompt(job.topic()), text));
+            CompletableFuture<String> metrics = call(() -> aiClient.complete(metricsPrompt(job.topic()), text));
+            calls.add(feedback);
+            calls.add(metrics);
+            feedback.thenAccept(markdown -> push(job, "PROCESSING", Map.of("feedback", markdown)));
+
+            CompletableFuture.allOf(feedback, metrics).get(remaining(deadline), TimeUnit.NANOSECONDS);
+            complete(job, feedback.join(), parseAiMetrics(metrics.join()));
+
+        } catch (TimeoutException e) {
+            calls.forEach(call -> call.cancel(true));
+            retryOrFail(job, "Tempo limite de " + timeoutSeconds + "s excedido", true);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            boolean retryable = !(cause instanceof AiException aiException) || aiException.isRetryable();
+            retryOrFail(job, cause.getMessage(), retryable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            calls.forEach(call -> call.cancel(true));
+            retryOrFail(job, "Correção interrompida", true);
+        } catch (Exception e) {
+            log.error("Essay correction {} failed", job.essayId(), e);
+            retryOrFail(job, e.getMessage(), true);
+        }
+    }
+
+    private CompletableFuture<String> call(AiCall call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AiException("Interrupted", true, e);
+            }
+        }, aiExecutor);
+    }
+
+    @FunctionalInterface
+    private interface AiCall {
+        String run() throws InterruptedException;
+    }
+
+    private void complete(Job job, String feedback, Metrics metrics) {
+        boolean written = owned(job, """
+                UPDATE essay.essays
+                SET feedback = ?, c1_score = ?, c2_score = ?, c3_score = ?, c4_score = ?, c5_score = ?,
+                    grade = ?, improvement_hint = ?, status = 'CORRECTED', locked_at = NULL, last_error = NULL,
+                    updated_at = NOW()
+                WHERE id = ? AND status = 'PROCESSING' AND attempts = ?
+                """, feedback, metrics.c1(), metrics.c2(), metrics.c3(), metrics.c4(), metrics.c5(),
+                metrics.grade(), metrics.improvementHint(), job.essayId(), job.attempt());
+        if (!written) return;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("feedback", feedback);
+        result.put("grade", metrics.grade());
+        result.put("c1Score", metrics.c1());
+        result.put("c2Score", metrics.c2());
+        result.put("c3Score", metrics.c3());
+        result.put("c4Score", metrics.c4());
+        result.put("c5Score", metrics.c5());
+        result.put("improvementHint", metrics.improvementHint());
+        result.values().removeIf(value -> value == null);
+        push(job, "CORRECTED", result);
+    }
+
+    private void retryOrFail(Job job, String error, boolean retryable) {
+        if (!retryable || job.attempt() >= maxAttempts) {
+            fail(job, FAILED_FEEDBACK, error);
+            return;
+        }
+        long backoff = (long) retryBackoffSeconds << (job.attempt() - 1);
+        log.info("Essay correction {} failed (attempt {}/{}), retrying in {}s: {}", job.essayId(), job.attempt(), maxAttempts, backoff, error);
+        if (owned(job, """
+                UPDATE essay.essays
+                SET status = 'PENDING', locked_at = NULL, last_error = ?, next_attempt_at = NOW() + make_interval(secs => ?)
+                WHERE id = ? AND status = 'PROCESSING' AND attempts = ?
+                """, error, backoff, job.essayId(), job.attempt())) {
+            push(job, "PENDING", Map.of());
+        }
+    }
+
+    private void fail(Job job, String feedback, String error) {
+        log.warn("Essay correction {} failed: {}", job.essayId(), error);
+        if (owned(job, """
+                UPDATE essay.essays
+                SET status = 'FAILED', feedback = ?, last_error = ?, locked_at = NULL, updated_at = NOW()
+                WHERE id = ? AND status = 'PROCESSING' AND attempts = ?
+                """, feedback, error, job.essayId(), job.attempt())) {
+            push(job, "FAILED", Map.of("feedback", feedback));
+        }
+    }
+
+    /**
+     * Runs an update guarded by the job's attempt; false when the job is no longer ours
+     * (essay deleted, or recovered and claimed again).
+     */
+    private boolean owned(Job job, String sql, Object... args) {
+        try {
+            return jdbcTemplate.update(sql, args) > 0;
+        } catch (Exception e) {
+            log.error("Could not record essay correction {}: {}", job.essayId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void push(Job job, String status, Map<String, Object> fields) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("essayId", job.essayId());
+        event.put("status", status);
+        event.putAll(fields);
+        sseHub.pushUpdate(job.studentId(), "essay", event);
+    }
+
+    private Metrics parseAiMetrics(String jsonResponse) {
+        try {
+            // Limpa qualquer lixo que a IA possa ter mandado além do JSON
+            String cleanJson = jsonResponse.substring(jsonResponse.indexOf("{"), jsonResponse.lastIndexOf("}") + 1);
+            JsonNode node = objectMapper.readTree(cleanJson);
+
+            return new Metrics(
+                    node.path("c1").asInt(),
+                    node.path("c2").asInt(),
+                    node.path("c3").asInt(),
+                    node.path("c4").asInt(),
+                    node.path("c5").asInt(),
+                    new BigDecimal(node.path("total").asInt()),
+                    node.path("improvement").asText());
+        } catch (Exception e) {
+            log.warn("Erro ao parsear métricas: {}", e.getMessage());
+            // Fallback para nota zero se o JSON falhar
+            return new Metrics(null, null, null, null, null, BigDecimal.ZERO, null);
+        }
+    }
+
+    private static String analysisPrompt(String topic) {
+        return "Você é um professor corretor de redações especialista no ENEM. " +
+                "Sua tarefa é analisar o texto sobre o tema: \"" + topic + "\". " +
+                "REGRAS CRÍTICAS: " +
+                "1. Comece DIRETAMENTE com a análise. " +
+                "2. NÃO diga 'Certamente', 'Aqui está' ou qualquer saudação. " +
+                "3. Use Markdown para estrutura (Negrito, Listas). " +
+                "4. NÃO inclua notas numéricas aqui. " +
+                "5. NÃO inclua blocos de código JSON.";
+    }
+
+    private static String metricsPrompt(String topic) {
+        return "Você é um avaliador técnico do ENEM. " +
+                "Gere as notas (0 a 200) para as 5 competências baseadas no texto e no tema: \"" + topic + "\". " +
+                "SAÍDA OBRIGATÓRIA: Retorne APENAS o objeto JSON puro. " +
+                "PROIBIDO: Não use blocos de código como ```json. Não escreva explicações. " +
+                "FORMATO: {\"c1\": 160, \"c2\": 160, \"c3\": 160, \"c4\": 160, \"c5\": 160, \"total\": 800, \"improvement\": \"Dica curta de ouro\"}";
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -12,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,48 +30,30 @@ public class GamificationService {
     private final com.bizu.portal.student.infrastructure.InventoryRepository inventoryRepository;
     private final LevelCalculator levelCalculator;
     private final org.springframework.jdbc.core.JdbcTemplate jdbcTemplate;
+    private final LeaderboardService leaderboardService;
+    private final ProfileCardCache profileCardCache;
+    private final BadgeCatalog badgeCatalog;
+    private final BadgeProgressService badgeProgressService;
 
+    /**
+     * Badges page: definitions come from the in-memory catalog and progress from the
+     * badge_progress projection (one keyed read), maintained by StudentActivityEvent.
+     */
     @Transactional
     public java.util.List<BadgeDTO> getBadgesWithProgress(UUID userId) {
         ensureBadgesExist();
-        java.util.List<Badge> allBadges = badgeRepository.findAll();
+        java.util.List<Badge> allBadges = badgeCatalog.all();
         java.util.List<UserBadge> earnedBadges = userBadgeRepository.findAllByUserId(userId);
 
         Map<UUID, UserBadge> earnedMap = earnedBadges.stream()
                 .collect(Collectors.toMap(ub -> ub.getBadge().getId(), ub -> ub));
 
-        // Get stats for progress estimation
-        int totalQuestions = jdbcTemplate.queryForObject("""
-            SELECT 
-                (SELECT COUNT(*) FROM student.attempts WHERE user_id = ?) +
-                (SELECT COUNT(*) FROM student.activity_attempt_item_snapshots s JOIN student.activity_attempts a ON s.attempt_id = a.id WHERE a.user_id = ? AND s.student_selected_option IS NOT NULL) +
-                (SELECT COUNT(*) FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE d.challenger_id = ? AND dq.challenger_answer_index IS NOT NULL) +
-                (SELECT COUNT(*) FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE d.opponent_id = ? AND dq.opponent_answer_index IS NOT NULL)
-            """, Integer.class, userId, userId, userId, userId);
-        int totalWins = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM student.duels WHERE winner_id = ? AND status = 'COMPLETED'", Integer.class, userId);
-        int totalFlashcards = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM student.flashcard_progress WHERE user_id = ?", Integer.class, userId);
-        
-        // Time spent today (Maratonista) - Unified calculation
-        int timeTodayMinutes = jdbcTemplate.queryForObject("""
-            SELECT (
-                (SELECT COALESCE(SUM(time_spent_seconds), 0) FROM student.attempts WHERE user_id = ? AND created_at >= CURRENT_DATE) +
-                (SELECT COALESCE(SUM(s.time_spent_seconds), 0) FROM student.activity_attempt_item_snapshots s JOIN student.activity_attempts a ON s.attempt_id = a.id WHERE a.user_id = ? AND s.student_selected_option IS NOT NULL AND (COALESCE(s.answered_at, a.created_at) >= CURRENT_DATE)) +
-                (SELECT COUNT(*) * 30 FROM student.duel_questions dq JOIN student.duels d ON dq.duel_id = d.id WHERE (d.challenger_id = ? OR d.opponent_id = ?) AND (d.challenger_id = ? AND dq.challenger_answer_index IS NOT NULL OR d.opponent_id = ? AND dq.opponent_answer_index IS NOT NULL) AND dq.created_at >= CURRENT_DATE)
-            ) / 60
-            """, Integer.class, userId, userId, userId, userId, userId, userId);
-
-        // Sniper progress (last 10 hard questions)
-        int correctHardStreak = jdbcTemplate.queryForObject(
-            "SELECT COUNT(*) FROM (SELECT is_correct FROM student.attempts a JOIN content.questions q ON a.question_id = q.id WHERE a.user_id = ? AND q.difficulty = 'HARD' ORDER BY a.created_at DESC LIMIT 10) sub WHERE is_correct = true",
-            Integer.class, userId);
-
-        GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
-        int streak = stats != null ? stats.getCurrentStreak() : 0;
+        BadgeProgressService.Transition progress = badgeProgressService.load(userId);
 
         return allBadges.stream().map(badge -> {
             UserBadge userBadge = earnedMap.get(badge.getId());
             boolean earned = userBadge != null;
-            int target = badge.getTargetProgress() != null && badge.getTargetProgress() > 0 ? badge.getTargetProgress() : 1;
+            int target = badgeCatalog.targetOf(badge.getCode());
             
             BadgeDTO dto = BadgeDTO.builder()
                     .id(badge.getId())
@@ -89,13 +72,11 @@ public class GamificationService {
                 dto.setProgress(100);
                 currentVal = target;
             } else {
-                // Calculate progress based on logic
-                currentVal = calculateCurrentProgressValue(userId, badge.getCode(), streak, totalQuestions, totalWins, totalFlashcards, timeTodayMinutes, correctHardStreak);
+                currentVal = Math.min(progress.after().valueFor(badge.getCode()), target);
 
-                // CAP at target
-                if (currentVal >= target) {
-                    currentVal = target;
-                    // Auto-award if not earned (lazy evaluation)
+                // Só acontece quando o progresso acabou de ser inicializado a partir do histórico;
+                // nos demais casos a badge é concedida no momento do evento
+                if (progress.crossed(badge.getCode(), target)) {
                     awardBadge(userId, badge.getCode());
                     dto.setEarned(true);
                 }
@@ -117,37 +98,8 @@ public class GamificationService {
         }).collect(Collectors.toList());
     }
 
-    private int calculateCurrentProgressValue(UUID userId, String code, int streak, int totalQuestions, int totalWins, int totalFlashcards, int timeTodayMinutes, int correctHardStreak) {
-        if ("EARLY_BIRD".equals(code)) {
-            // Check if solved any question between 00:00 and 06:00
-            return jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM student.attempts WHERE user_id = ? AND EXTRACT(HOUR FROM created_at AT TIME ZONE 'UTC') < 6", 
-                Integer.class, userId) > 0 ? 1 : 0;
-        } else if ("FIRST_SIMULADO".equals(code)) {
-             return jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM student.simulado_results WHERE user_id = ?", 
-                Integer.class, userId) > 0 ? 1 : 0;
-        } else if ("STREAK_7".equals(code) || "TOTAL_DEDICATION".equals(code)) {
-            return streak;
-        } else if ("QUESTIONS_1000".equals(code) || "MASTER_100".equals(code)) {
-            return totalQuestions;
-        } else if ("GLADIATOR_10".equals(code)) {
-            return totalWins;
-        } else if ("STUDIOUS_50".equals(code)) {
-            return totalFlashcards;
-        } else if ("MARATHON_4H".equals(code)) {
-            return timeTodayMinutes;
-        } else if ("SNIPER_10".equals(code)) {
-            return correctHardStreak;
-        } else if ("FIRST_1000_XP".equals(code)) {
-            GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
-            return stats != null ? stats.getTotalXp() : 0;
-        }
-        return 0;
-    }
-
     private void ensureBadgesExist() {
-        if (badgeRepository.count() > 0) return;
+        if (!badgeCatalog.all().isEmpty()) return;
 
         log.info("Seeding default badges...");
         
@@ -166,92 +118,92 @@ public class GamificationService {
         defaults.add(Badge.builder().code("FIRST_1000_XP").name("Rumo ao Topo").description("Alcançou a marca de 1000 XP totais.").iconUrl("zap").category("especial").xp(100).color("from-indigo-400 to-violet-500").targetProgress(1000).requirement("1000/1000 XP").build());
 
         badgeRepository.saveAll(defaults);
+        badgeCatalog.refresh();
         log.info("Badges seeded.");
     }
 
     @Transactional
     public RewardDTO addXp(UUID userId, int amount) {
-        GamificationStats stats = gamificationRepository.findById(userId)
-            .orElseGet(() -> GamificationStats.builder()
-                .userId(userId)
-                .totalXp(0)
-                .axonCoins(0)
-                .currentStreak(0)
-                .maxStreak(0)
-                .build());
-
-        int previousXp = stats.getTotalXp() != null ? stats.getTotalXp() : 0;
-        int previousLevel = levelCalculator.calculateLevel(previousXp);
-        int netAmount = amount;
+        return addXp(userId, amount, null);
+    }
+
+    /**
+     * Same as {@link #addXp(UUID, int, String)}, applied at most once per user and {@code awardKey}:
+     * the key is recorded in student.xp_awards in the same transaction, so a re-run job (e.g. the
+     * weekly ranking) neither pays twice nor fails.
+     *
+     * @return null when the award was already granted
+     */
+    @Transactional
+    public RewardDTO addXpOnce(UUID userId, int amount, String source, String awardKey) {
+        int claimed = jdbcTemplate.update("""
+            INSERT INTO student.xp_awards (user_id, award_key, amount) VALUES (?, ?, ?)
+            ON CONFLICT (user_id, award_key) DO NOTHING
+            """, userId, awardKey, amount);
+        if (claimed == 0) {
+            log.info("Prêmio {} já concedido ao usuário {}", awardKey, userId);
+            return null;
+        }
+        return addXp(userId, amount, source);
+    }
+
+    /**
+     * Applies an XP change through the ledger: the request is appended to student.xp_ledger and the
+     * totals move with one atomic UPDATE (total_xp = total_xp + delta), so concurrent callers never
+     * overwrite each other. The row lock taken by that UPDATE also serializes the streak check, which
+     * only does extra work on the first positive gain of the day.
+     */
+    @Transactional
+    public RewardDTO addXp(UUID userId, int amount, String source) {
+        jdbcTemplate.update("""
+            INSERT INTO student.gamification_stats (user_id, total_xp, axon_coins, current_streak, max_streak)
+            VALUES (?, 0, 0, 0, 0) ON CONFLICT (user_id) DO NOTHING
+            """, userId);
+
+        XpDelta delta = applyXpDelta(userId, amount, true);
+        int previousXp = delta.previousXp();
+        int newTotalXp = delta.totalXp();
+        Integer previousStreak = delta.currentStreak();
+        Integer currentStreak = previousStreak;
 
-        // 1. Process positive gains
-        if (netAmount > 0) {
-            // Apply XP Boost
-            if (stats.getXpBoostUntil() != null && stats.getXpBoostUntil().isAfter(OffsetDateTime.now())) {
-                netAmount *= 2;
+        if (amount > 0) {
+            if (delta.boosted()) {
                 log.info("XP dobrado para o usuário {} (Buff ativo)", userId);
             }
-            
-            // 2. Update streak and apply penalty if broken
-            OffsetDateTime now = OffsetDateTime.now();
-            OffsetDateTime lastActivity = stats.getLastActivityAt();
-            
-            if (lastActivity != null) {
-                java.time.LocalDate lastDate = lastActivity.toLocalDate();
-                java.time.LocalDate nowDate = now.toLocalDate();
-                
-                if (nowDate.isAfter(lastDate) && !nowDate.minusDays(1).equals(lastDate)) {
-                    // Check for streak freeze
-                    long daysMissed = java.time.temporal.ChronoUnit.DAYS.between(lastDate, nowDate) - 1;
-                    Optional<com.bizu.portal.student.domain.Inventory> freeze = inventoryRepository.findByUserIdAndItemCode(userId, "STREAK_FREEZE");
-                    
-                    if (freeze.isPresent() && freeze.get().getQuantity() > 0) {
-                        int toConsume = (int) Math.min(daysMissed, freeze.get().getQuantity());
-                        freeze.get().setQuantity(freeze.get().getQuantity() - toConsume);
-                        inventoryRepository.save(freeze.get());
-                        if (toConsume >= daysMissed) {
-                            stats.setCurrentStreak(stats.getCurrentStreak() + 1);
-                        } else {
-                            stats.setCurrentStreak(1);
-                        }
-                    } else {
-                        // Penalty for breaking streak: -100 XP
-                        log.info("Usuário {} quebrou streak. Aplicando penalidade de -100 XP", userId);
-                        netAmount -= 100;
-                        stats.setCurrentStreak(1);
-                    }
-                } else if (nowDate.isAfter(lastDate)) {
-                    stats.setCurrentStreak(stats.getCurrentStreak() + 1);
+            LocalDate today = OffsetDateTime.now().toLocalDate();
+            OffsetDateTime lastActivity = delta.previousActivityAt();
+            if (lastActivity == null || lastActivity.toLocalDate().isBefore(today)) {
+                StreakUpdate streak = evaluateStreak(userId, lastActivity, previousStreak != null ? previousStreak : 0, today);
+                currentStreak = streak.currentStreak();
+                if (streak.penalty() > 0) {
+                    // Penalidade recalculada sobre o total já atualizado; a linha segue bloqueada por esta transação
+                    int penalized = Math.max(0, newTotalXp - streak.penalty());
+                    int coinCorrection = Math.max(0, penalized - previousXp) - Math.max(0, newTotalXp - previousXp);
+                    jdbcTemplate.update("UPDATE student.gamification_stats SET total_xp = ?, axon_coins = GREATEST(0, COALESCE(axon_coins, 0) + ?) WHERE user_id = ?",
+                            penalized, coinCorrection, userId);
+                    newTotalXp = penalized;
                 }
-            } else {
-                stats.setCurrentStreak(1);
             }
-            
-            if (stats.getMaxStreak() == null || stats.getCurrentStreak() > stats.getMaxStreak()) {
-                stats.setMaxStreak(stats.getCurrentStreak());
-            }
-            stats.setLastActivityAt(now);
         }
 
-        // 3. Apply final amount and floor at 0
-        int newTotalXp = Math.max(0, previousXp + netAmount);
         int finalChange = newTotalXp - previousXp;
-        stats.setTotalXp(newTotalXp);
-        
-        // 4. Award AxonCoins (only for positive net changes)
-        if (finalChange > 0) {
-            stats.setAxonCoins((stats.getAxonCoins() != null ? stats.getAxonCoins() : 0) + finalChange);
-        }
-        
-        gamificationRepository.save(stats);
-        
+        jdbcTemplate.update("INSERT INTO student.xp_ledger (user_id, requested_amount, applied_amount, total_after, source) VALUES (?, ?, ?, ?, ?)",
+                userId, amount, finalChange, newTotalXp, source);
+        leaderboardService.recordTotalXp(userId, newTotalXp);
+
+        int previousLevel = levelCalculator.calculateLevel(previousXp);
         int currentLevel = levelCalculator.calculateLevel(newTotalXp);
         boolean leveledUp = currentLevel > previousLevel;
+
+        // Nível e ofensiva aparecem no card de perfil dos rankings
+        if (currentLevel != previousLevel || !java.util.Objects.equals(previousStreak, currentStreak)) {
+            profileCardCache.evict(userId);
+        }
         
         log.info("Usuário {}: {} XP. Total: {}. Nível: {}", userId, finalChange >= 0 ? "+" + finalChange : finalChange, newTotalXp, currentLevel);
         
         if (newTotalXp > previousXp) {
-            checkXpBadges(userId, newTotalXp);
+            checkXpBadges(userId, previousXp, newTotalXp);
         }
         
         return RewardDTO.builder()
@@ -264,31 +216,98 @@ public class GamificationService {
             .build();
     }
 
-    private void checkXpBadges(UUID userId, int totalXp) {
-        // Broad check for badges that might be earned
-        badgeRepository.findAll().forEach(badge -> {
-            
-            // For FIRST_1000_XP specifically
-            if ("FIRST_1000_XP".equals(badge.getCode()) && totalXp >= 1000) {
-                awardBadge(userId, badge.getCode());
+    private record XpDelta(int previousXp, int totalXp, Integer currentStreak, OffsetDateTime previousActivityAt, boolean boosted) {}
+
+    private record StreakUpdate(int currentStreak, int penalty) {}
+
+    /**
+     * Single-statement apply: the boost is evaluated in SQL, XP is floored at 0 and AxonCoins
+     * follow the positive net change, exactly as the previous read-modify-write did.
+     * Grants that are not study activity (badges) skip the boost and keep last_activity_at.
+     */
+    private XpDelta applyXpDelta(UUID userId, int amount, boolean countsAsActivity) {
+        return jdbcTemplate.queryForObject("""
+            UPDATE student.gamification_stats g SET
+                total_xp = GREATEST(0, o.total_xp + d.delta),
+                axon_coins = COALESCE(o.axon_coins, 0) + GREATEST(0, GREATEST(0, o.total_xp + d.delta) - o.total_xp),
+                last_activity_at = CASE WHEN ? AND ? > 0 THEN NOW() ELSE g.last_activity_at END
+            FROM (
+                SELECT user_id, COALESCE(total_xp, 0) AS total_xp, axon_coins, current_streak, last_activity_at,
+                       (? AND ? > 0 AND xp_boost_until IS NOT NULL AND xp_boost_until > NOW()) AS boosted
+                FROM student.gamification_stats WHERE user_id = ? FOR UPDATE
+            ) o,
+            LATERAL (SELECT CASE WHEN o.boosted THEN ? * 2 ELSE ? END AS delta) d
+            WHERE g.user_id = o.user_id
+            RETURNING o.total_xp AS previous_xp, g.total_xp AS total_xp, o.current_streak AS current_streak,
+                      o.last_activity_at AS previous_activity_at, o.boosted AS boosted
+            """,
+            (rs, i) -> new XpDelta(
+                    rs.getInt("previous_xp"),
+                    rs.getInt("total_xp"),
+                    (Integer) rs.getObject("current_streak"),
+                    rs.getObject("previous_activity_at", OffsetDateTime.class),
+                    rs.getBoolean("boosted")),
+            countsAsActivity, amount, countsAsActivity, amount, userId, amount, amount);
+    }
+
+    private StreakUpdate evaluateStreak(UUID userId, OffsetDateTime lastActivity, int currentStreak, LocalDate today) {
+        int penalty = 0;
+        int streak;
+
+        if (lastActivity == null) {
+            streak = 1;
+        } else {
+            LocalDate lastDate = lastActivity.toLocalDate();
+            if (!today.minusDays(1).equals(lastDate)) {
+                // Check for streak freeze
+                long daysMissed = java.time.temporal.ChronoUnit.DAYS.between(lastDate, today) - 1;
+                Optional<com.bizu.portal.student.domain.Inventory> freeze = inventoryRepository.findByUserIdAndItemCode(userId, "STREAK_FREEZE");
+
+                if (freeze.isPresent() && freeze.get().getQuantity() > 0) {
+                    int toConsume = (int) Math.min(daysMissed, freeze.get().getQuantity());
+                    freeze.get().setQuantity(freeze.get().getQuantity() - toConsume);
+                    inventoryRepository.save(freeze.get());
+                    streak = toConsume >= daysMissed ? currentStreak + 1 : 1;
+                } else {
+                    // Penalty for breaking streak: -100 XP
+                    log.info("Usuário {} quebrou streak. Aplicando penalidade de -100 XP", userId);
+                    penalty = 100;
+                    streak = 1;
+                }
+            } else {
+                streak = currentStreak + 1;
+            }
+        }
+
+        jdbcTemplate.update("UPDATE student.gamification_stats SET current_streak = ?, max_streak = GREATEST(COALESCE(max_streak, 0), ?) WHERE user_id = ?",
+                streak, streak, userId);
+        for (String code : java.util.List.of("STREAK_7", "TOTAL_DEDICATION")) {
+            int target = badgeCatalog.targetOf(code);
+            if (currentStreak < target && streak >= target) {
+                awardBadge(userId, code);
             }
-        });
+        }
+        return new StreakUpdate(streak, penalty);
+    }
+
+    private void checkXpBadges(UUID userId, int previousXp, int totalXp) {
+        // Só consulta badges quando um limiar é cruzado
+        int target = badgeCatalog.targetOf("FIRST_1000_XP");
+        if (previousXp < target && totalXp >= target) {
+            awardBadge(userId, "FIRST_1000_XP");
+        }
     }
 
     @Transactional
     public void adjustAxonCoins(UUID userId, int delta) {
         if (delta == 0) return;
-        GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
-        if (stats != null) {
-            int current = stats.getAxonCoins() != null ? stats.getAxonCoins() : 0;
-            stats.setAxonCoins(Math.max(0, current + delta));
-            gamificationRepository.save(stats);
-        }
+        jdbcTemplate.update("UPDATE student.gamification_stats SET axon_coins = GREATEST(0, COALESCE(axon_coins, 0) + ?) WHERE user_id = ?",
+                delta, userId);
     }
 
     @Transactional
     public void awardBadge(UUID userId, String badgeCode) {
-        Optional<Badge> badgeOpt = badgeRepository.findByCode(badgeCode);
+        Optional<Badge> badgeOpt = badgeCatalog.byCode(badgeCode);
         if (badgeOpt.isPresent()) {
             Badge badge = badgeOpt.get();
             boolean alreadyHas = userBadgeRepository.existsByUserIdAndBadgeId(userId, badge.getId());
@@ -306,14 +325,13 @@ public class GamificationService {
                 log.info("Badge {} concedida ao usuário {}", badgeCode, userId);
 
                 // Grant XP for the badge
-                if (badge.getXp() != null && badge.getXp() > 0) {
-                    // Aqui usamos uma pequena mutação direta para evitar recursão
-                    GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
-                    if (stats != null) {
-                        stats.setTotalXp(stats.getTotalXp() + badge.getXp());
-                        stats.setAxonCoins(stats.getAxonCoins() + badge.getXp());
-                        gamificationRepository.save(stats);
-                    }
+                if (badge.getXp() != null && badge.getXp() > 0 && gamificationRepository.existsById(userId)) {
+                    // Aplicação direta pelo ledger, sem passar por addXp, para evitar recursão e ofensiva
+                    XpDelta delta = applyXpDelta(userId, badge.getXp(), false);
+                    jdbcTemplate.update("INSERT INTO student.xp_ledger (user_id, requested_amount, applied_amount, total_after, source) VALUES (?, ?, ?, ?, ?)",
+                            userId, badge.getXp(), delta.totalXp() - delta.previousXp(), delta.totalXp(), "BADGE:" + badgeCode);
+                    leaderboardService.recordTotalXp(userId, delta.totalXp());
+                    checkXpBadges(userId, delta.previousXp(), delta.totalXp());
                 }
             }
         }
@@ -0,0 +1,396 @@
+package com.bizu.portal.student.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Materialized leaderboards kept in Redis sorted sets.
+ *
+ * Key format:
+ *   leaderboard:{board}                      global board
+ *   leaderboard:{board}:course:{courseId}    course board
+ *   leaderboard:weekly_xp:day:{date}[...]    daily buckets, unioned into the rolling 7-day board
+ *   leaderboard:user-courses:{userId}        courses a user is ranked in (active entitlements)
+ *
+ * Writes: XP, duel and simulado events update the boards incrementally.
+ * Reads: top-N with ZREVRANGE, single-user rank with ZCOUNT (same tie semantics as SQL RANK()).
+ * Reconciliation: boards are periodically rebuilt from Postgres and swapped in with RENAME. Members
+ * written incrementally while a rebuild runs are recorded in {board}:touched and merged into the
+ * rebuilt board (highest score wins) in the same script that swaps it, so no update is lost.
+ * Until the first rebuild completes (or if Redis is unavailable) callers fall back to SQL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardService {
+
+    public enum Board {
+        XP("xp"), WEEKLY_XP("weekly_xp"), DUEL_WINS("duel_wins"), SIMULADO("simulado");
+
+        private final String key;
+
+        Board(String key) {
+            this.key = key;
+        }
+    }
+
+    public record Entry(UUID userId, long score, long rank) {}
+
+    private static final String PREFIX = "leaderboard:";
+    private static final String READY_KEY = PREFIX + "ready";
+    private static final String LOCK_KEY = PREFIX + "rebuild-lock";
+    private static final Duration WEEKLY_UNION_TTL = Duration.ofSeconds(30);
+    private static final Duration DAY_BUCKET_TTL = Duration.ofDays(8);
+    private static final Duration LOCK_TTL = Duration.ofMinutes(5);
+
+    /**
+     * Swaps the rebuilt board in, carrying over members updated during the rebuild:
+     * KEYS[1] live board, KEYS[2] rebuilt board, KEYS[3] members touched meanwhile.
+     */
+    private static final DefaultRedisScript<Long> MERGE_SWAP = new DefaultRedisScript<>("""
+            for _, member in ipairs(redis.call('SMEMBERS', KEYS[3])) do
+                local live = redis.call('ZSCORE', KEYS[1], member)
+                if live then
+                    local rebuilt = redis.call('ZSCORE', KEYS[2], member)
+                    if not rebuilt or tonumber(live) > tonumber(rebuilt) then
+                        redis.call('ZADD', KEYS[2], live, member)
+                    end
+                end
+            end
+            redis.call('DEL', KEYS[3])
+            redis.call('RENAME', KEYS[2], KEYS[1])
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${axon.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Incremental updates
+    // ─────────────────────────────────────────────────────────────────────────
+
+    public void recordTotalXp(UUID userId, int totalXp) {
+        afterCommit(() -> {
+            String member = userId.toString();
+            boolean rebuilding = rebuilding();
+            set(key(Board.XP, null), member, totalXp, rebuilding);
+            for (String courseId : userCourses(userId)) {
+                set(PREFIX + Board.XP.key + ":course:" + courseId, member, totalXp, rebuilding);
+            }
+        });
+    }
+
+    public void recordWeeklyXp(UUID userId, int xpEarned) {
+        if (xpEarned <= 0) return;
+        afterCommit(() -> {
+            String member = userId.toString();
+            String dayKey = dayKey(LocalDate.now());
+            boolean rebuilding = rebuilding();
+            incrementWithTtl(dayKey, member, xpEarned, rebuilding);
+            for (String courseId : userCourses(userId)) {
+                incrementWithTtl(dayKey + ":course:" + courseId, member, xpEarned, rebuilding);
+            }
+        });
+    }
+
+    public void recordDuelWin(UUID winnerId) {
+        afterCommit(() -> {
+            String member = winnerId.toString();
+            boolean rebuilding = rebuilding();
+            increment(key(Board.DUEL_WINS, null), member, 1, rebuilding);
+            for (String courseId : userCourses(winnerId)) {
+                increment(PREFIX + Board.DUEL_WINS.key + ":course:" + courseId, member, 1, rebuilding);
+            }
+        });
+    }
+
+    public void recordSimuladoScore(UUID userId, UUID courseId, int score) {
+        afterCommit(() -> {
+            boolean rebuilding = rebuilding();
+            keepBest(key(Board.SIMULADO, null), userId.toString(), score, rebuilding);
+            if (courseId != null) {
+                keepBest(key(Board.SIMULADO, courseId), userId.toString(), score, rebuilding);
+            }
+        });
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Reads
+    // ─────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Top entries of a board, or empty when the board is not materialized (caller falls back to SQL).
+     */
+    public Optional<List<Entry>> top(Board board, UUID courseId, int limit) {
+        if (!isReady()) return Optional.empty();
+        try {
+            String key = board == Board.WEEKLY_XP ? weeklyKey(courseId) : key(board, courseId);
+            Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, limit - 1);
+            if (tuples == null) return Optional.of(List.of());
+
+            List<Entry> entries = new ArrayList<>(tuples.size());
+            long position = 0;
+            long rank = 0;
+            long previousScore = Long.MIN_VALUE;
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                long score = tuple.getScore() != null ? tuple.getScore().longValue() : 0;
+                position++;
+                if (score != previousScore) {
+                    rank = position;
+                    previousScore = score;
+                }
+                entries.add(new Entry(UUID.fromString(tuple.getValue()), score, rank));
+            }
+            return Optional.of(entries);
+        } catch (Exception e) {
+            log.warn("Leaderboard {} indisponível, usando SQL: {}", board, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Rank of a single user in O(log N). Ties share the same rank, as with SQL RANK().
+     */
+    public Optional<Entry> rankOf(Board board, UUID courseId, UUID userId) {
+        if (!isReady()) return Optional.empty();
+        try {
+            String key = board == Board.WEEKLY_XP ? weeklyKey(courseId) : key(board, courseId);
+            Double score = redisTemplate.opsForZSet().score(key, userId.toString());
+            if (score == null) return Optional.empty();
+
+            Long ahead = redisTemplate.opsForZSet().count(key, score.longValue() + 1, Double.POSITIVE_INFINITY);
+            return Optional.of(new Entry(userId, score.longValue(), (ahead != null ? ahead : 0) + 1));
+        } catch (Exception e) {
+            log.warn("Leaderboard {} indisponível, usando SQL: {}", board, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Reconciliation (Postgres is the source of truth)
+    // ─────────────────────────────────────────────────────────────────────────
+
+    @Scheduled(initialDelayString = "${axon.leaderboard.initial-delay-ms:30000}",
+               fixedDelayString = "${axon.leaderboard.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!enabled) return;
+
+        String token = UUID.randomUUID().toString();
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL);
+        } catch (Exception e) {
+            log.warn("Redis indisponível, reconciliação do leaderboard adiada: {}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(acquired)) return;
+
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Set<String>> coursesByUser = new HashMap<>();
+            jdbcTemplate.query("SELECT user_id, course_id FROM commerce.course_entitlements WHERE active = true", rs -> {
+                coursesByUser.computeIfAbsent(rs.getString("user_id"), k -> new HashSet<>()).add(rs.getString("course_id"));
+            });
+
+            Map<String, Map<String, Double>> boards = new HashMap<>();
+
+            jdbcTemplate.query("SELECT u.id, COALESCE(g.total_xp, 0) AS xp FROM identity.users u " +
+                    "LEFT JOIN student.gamification_stats g ON u.id = g.user_id", rs -> {
+                spread(boards, coursesByUser, PREFIX + Board.XP.key, rs.getString("id"), rs.getLong("xp"));
+            });
+
+            jdbcTemplate.query("SELECT winner_id, COUNT(*) AS wins FROM student.duels " +
+                    "WHERE status = 'COMPLETED' AND winner_id IS NOT NULL GROUP BY winner_id", rs -> {
+                spread(boards, coursesByUser, PREFIX + Board.DUEL_WINS.key, rs.getString("winner_id"), rs.getLong("wins"));
+            });
+
+            jdbcTemplate.query("SELECT sr.user_id, s.course_id, MAX(sr.score) AS best FROM student.simulado_results sr " +
+                    "JOIN content.simulados s ON sr.simulado_id = s.id GROUP BY sr.user_id, s.course_id", rs -> {
+                String userId = rs.getString("user_id");
+                double best = rs.getLong("best");
+                boards.computeIfAbsent(PREFIX + Board.SIMULADO.key, k -> new HashMap<>()).merge(userId, best, Math::max);
+                String courseId = rs.getString("course_id");
+                if (courseId != null) {
+                    boards.computeIfAbsent(PREFIX + Board.SIMULADO.key + ":course:" + courseId, k -> new HashMap<>()).put(userId, best);
+                }
+            });
+
+            jdbcTemplate.query("SELECT user_id, CAST(finished_at AS date) AS day, SUM(xp_earned) AS xp FROM student.activity_attempts " +
+                    "WHERE status = 'COMPLETED' AND finished_at >= CURRENT_DATE - INTERVAL '7 days' " +
+                    "GROUP BY user_id, CAST(finished_at AS date)", rs -> {
+                spread(boards, coursesByUser, dayKey(rs.getDate("day").toLocalDate()), rs.getString("user_id"), rs.getLong("xp"));
+            });
+
+            // Índice usuário → cursos usado pelos updates incrementais
+            coursesByUser.forEach((userId, courses) ->
+                    swap(PREFIX + "user-courses:" + userId, courses));
+            boards.forEach(this::swapBoard);
+
+            redisTemplate.opsForValue().set(READY_KEY, String.valueOf(System.currentTimeMillis()));
+            log.info("Leaderboards reconciliados: {} boards em {} ms", boards.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Falha na reconciliação dos leaderboards: {}", e.getMessage(), e);
+        } finally {
+            // Só libera o lock se ainda for nosso (pode ter expirado e sido adquirido por outra instância)
+            try {
+                redisTemplate.execute(RELEASE, List.of(LOCK_KEY), token);
+            } catch (Exception e) {
+                log.warn("Falha ao liberar lock do leaderboard: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Helpers
+    // ─────────────────────────────────────────────────────────────────────────
+
+    private boolean rebuilding() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_KEY));
+    }
+
+    /**
+     * Records a member written while a rebuild runs, so the swap carries its score over.
+     */
+    private void touch(String key, String member) {
+        String touched = key + ":touched";
+        redisTemplate.opsForSet().add(touched, member);
+        redisTemplate.expire(touched, LOCK_TTL);
+    }
+
+    private void set(String key, String member, double score, boolean rebuilding) {
+        redisTemplate.opsForZSet().add(key, member, score);
+        if (rebuilding) touch(key, member);
+    }
+
+    private void increment(String key, String member, double delta, boolean rebuilding) {
+        redisTemplate.opsForZSet().incrementScore(key, member, delta);
+        if (rebuilding) touch(key, member);
+    }
+
+    private boolean isReady() {
+        if (!enabled) return false;
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(READY_KEY));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private String key(Board board, UUID courseId) {
+        return PREFIX + board.key + (courseId != null ? ":course:" + courseId : "");
+    }
+
+    private String dayKey(LocalDate day) {
+        return PREFIX + Board.WEEKLY_XP.key + ":day:" + day;
+    }
+
+    /**
+     * Rolling 7-day board: union of the daily buckets, cached for a few seconds.
+     */
+    private String weeklyKey(UUID courseId) {
+        String suffix = courseId != null ? ":course:" + courseId : "";
+        String target = key(Board.WEEKLY_XP, courseId);
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(target))) return target;
+
+        LocalDate today = LocalDate.now();
+        List<String> days = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            days.add(dayKey(today.minusDays(i)) + suffix);
+        }
+        redisTemplate.opsForZSet().unionAndStore(dayKey(today) + suffix, days, target);
+        redisTemplate.expire(target, WEEKLY_UNION_TTL);
+        return target;
+    }
+
+    private Set<String> userCourses(UUID userId) {
+        Set<String> courses = redisTemplate.opsForSet().members(PREFIX + "user-courses:" + userId);
+        return courses != null ? courses : Set.of();
+    }
+
+    private void incrementWithTtl(String key, String member, double delta, boolean rebuilding) {
+        increment(key, member, delta, rebuilding);
+        redisTemplate.expire(key, DAY_BUCKET_TTL);
+    }
+
+    private void keepBest(String key, String member, double score, boolean rebuilding) {
+        Double current = redisTemplate.opsForZSet().score(key, member);
+        if (current == null || score > current) {
+            set(key, member, score, rebuilding);
+        }
+    }
+
+    private void spread(Map<String, Map<String, Double>> boards, Map<String, Set<String>> coursesByUser,
+                        String baseKey, String userId, double score) {
+        boards.computeIfAbsent(baseKey, k -> new HashMap<>()).put(userId, score);
+        for (String courseId : coursesByUser.getOrDefault(userId, Set.of())) {
+            boards.computeIfAbsent(baseKey + ":course:" + courseId, k -> new HashMap<>()).put(userId, score);
+        }
+    }
+
+    private void swapBoard(String key, Map<String, Double> scores) {
+        if (scores.isEmpty()) return;
+        String tmp = key + ":rebuild";
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(scores.size());
+        scores.forEach((member, score) -> tuples.add(ZSetOperations.TypedTuple.of(member, score)));
+        redisTemplate.delete(tmp);
+        redisTemplate.opsForZSet().add(tmp, tuples);
+        // Mescla os membros atualizados durante a reconstrução e troca atomicamente
+        redisTemplate.execute(MERGE_SWAP, List.of(key, tmp, key + ":touched"));
+        if (key.contains(":day:")) {
+            redisTemplate.expire(key, DAY_BUCKET_TTL);
+        }
+    }
+
+    private void swap(String key, Set<String> members) {
+        String tmp = key + ":rebuild";
+        redisTemplate.delete(tmp);
+        redisTemplate.opsForSet().add(tmp, members.toArray(String[]::new));
+        redisTemplate.rename(tmp, key);
+    }
+
+    /**
+     * Applies the Redis update only after the surrounding transaction commits, so a rollback
+     * never leaves the board ahead of Postgres. Failures are logged; reconciliation repairs them.
+     */
+    private void afterCommit(Runnable update) {
+        if (!enabled) return;
+        Runnable safe = () -> {
+            try {
+                update.run();
+            } catch (Exception e) {
+                log.warn("Falha ao atualizar leaderboard: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safe.run();
+                }
+            });
+        } else {
+            safe.run();
+        }
+    }
+}
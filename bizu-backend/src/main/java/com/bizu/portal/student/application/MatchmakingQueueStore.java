@@ -0,0 +1,37 @@
+package com.bizu.portal.student.application;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Storage for the duel matchmaking queues, one queue per course.
+ *
+ * Implementations: Redis (shared by every backend instance) and in-memory (single node / local runs),
+ * selected with axon.matchmaking.store. Every mutation that matters for correctness is atomic
+ * in the store, so a pair can only ever be taken out of the queue once.
+ */
+public interface MatchmakingQueueStore {
+
+    record QueuedPlayer(UUID userId, int rating, Instant enqueuedAt) {}
+
+    /** Adds the player keeping the original position when already queued. */
+    void enqueue(UUID courseId, QueuedPlayer player);
+
+    boolean remove(UUID courseId, UUID userId);
+
+    /** Queue contents, oldest first. */
+    List<QueuedPlayer> snapshot(UUID courseId);
+
+    /** Removes both players only if both are still queued. */
+    boolean removePair(UUID courseId, UUID first, UUID second);
+
+    Set<UUID> activeCourses();
+
+    /** Single-writer lease for the matcher of a course. */
+    boolean tryAcquireMatcher(UUID courseId, Duration lease);
+
+    void releaseMatcher(UUID courseId);
+}
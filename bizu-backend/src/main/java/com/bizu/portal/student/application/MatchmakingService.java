@@ -0,0 +1,179 @@
+package com.bizu.portal.student.application;
+
+import com.bizu.portal.identity.domain.User;
+import com.bizu.portal.identity.infrastructure.UserRepository;
+import com.bizu.portal.notification.application.NotificationService;
+import com.bizu.portal.student.domain.Duel;
+import com.bizu.portal.student.domain.GamificationStats;
+import com.bizu.portal.student.infrastructure.DuelRepository;
+import com.bizu.portal.student.infrastructure.GamificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Arena matchmaking: per-course queues kept in a {@link MatchmakingQueueStore}, so any backend
+ * instance can enqueue and exactly one instance at a time pairs a given course (matcher lease).
+ *
+ * Players are bracketed by level. The acceptable level gap starts at {@code base-level-window}
+ * and widens by one level every {@code widen-every-seconds} the older player has waited;
+ * players still unmatched after {@code queue-timeout-seconds} are dropped and notified.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchmakingService {
+
+    private static final Duration MATCHER_LEASE = Duration.ofSeconds(10);
+
+    private final MatchmakingQueueStore queueStore;
+    private final DuelService duelService;
+    private final DuelRepository duelRepository;
+    private final UserRepository userRepository;
+    private final GamificationRepository gamificationRepository;
+    private final LevelCalculator levelCalculator;
+    private final NotificationService notificationService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${axon.matchmaking.base-level-window:2}")
+    private int baseLevelWindow;
+
+    @Value("${axon.matchmaking.widen-every-seconds:10}")
+    private int widenEverySeconds;
+
+    @Value("${axon.matchmaking.queue-timeout-seconds:120}")
+    private int queueTimeoutSeconds;
+
+    public void joinQueue(UUID userId, UUID courseId) {
+        User user = userRepository.findById(userId).orElseThrow();
+        if (user.isDuelFocusMode()) {
+            throw new IllegalStateException("Você está em modo focado e não pode entrar na fila de duelos.");
+        }
+
+        GamificationStats stats = gamificationRepository.findById(userId).orElse(null);
+        if (stats != null && stats.getAbandonBlockedUntil() != null && stats.getAbandonBlockedUntil().isAfter(OffsetDateTime.now())) {
+            throw new IllegalStateException("Você está temporariamente impossibilitado de entrar em duelos devido ao excesso de abandones.");
+        }
+
+        List<Duel> activeDuels = duelRepository.findActiveDuelsByUserId(userId);
+        if (!activeDuels.isEmpty()) {
+            throw new IllegalStateException("Você já está em um duelo ativo.");
+        }
+
+        int level = levelCalculator.calculateLevel(stats != null && stats.getTotalXp() != null ? stats.getTotalXp() : 0);
+        queueStore.enqueue(courseId, new MatchmakingQueueStore.QueuedPlayer(userId, level, Instant.now()));
+
+        // Tenta parear imediatamente; se outro nó detém o matcher deste curso, ele pareia no próximo ciclo
+        matchCourse(courseId);
+    }
+
+    public void leaveQueue(UUID userId, UUID courseId) {
+        queueStore.remove(courseId, userId);
+    }
+
+    @Scheduled(fixedDelayString = "${axon.matchmaking.tick-ms:2000}")
+    public void matchAll() {
+        Set<UUID> courses;
+        try {
+            courses = queueStore.activeCourses();
+        } catch (Exception e) {
+            log.warn("Fila de matchmaking indisponível: {}", e.getMessage());
+            return;
+        }
+        courses.forEach(this::matchCourse);
+    }
+
+    private void matchCourse(UUID courseId) {
+        if (!queueStore.tryAcquireMatcher(courseId, MATCHER_LEASE)) return;
+        try {
+            Instant now = Instant.now();
+            List<MatchmakingQueueStore.QueuedPlayer> waiting = new ArrayList<>();
+            for (MatchmakingQueueStore.QueuedPlayer player : queueStore.snapshot(courseId)) {
+                if (Duration.between(player.enqueuedAt(), now).getSeconds() >= queueTimeoutSeconds) {
+                    expire(courseId, player);
+                } else {
+                    waiting.add(player);
+                }
+            }
+
+            // Do mais antigo para o mais novo: quem espera há mais tempo escolhe primeiro
+            while (waiting.size() >= 2) {
+                MatchmakingQueueStore.QueuedPlayer oldest = waiting.remove(0);
+                int window = windowFor(oldest, now);
+
+                MatchmakingQueueStore.QueuedPlayer best = null;
+                for (MatchmakingQueueStore.QueuedPlayer candidate : waiting) {
+                    int gap = Math.abs(candidate.rating() - oldest.rating());
+                    if (gap <= Math.max(window, windowFor(candidate, now))
+                            && (best == null || gap < Math.abs(best.rating() - oldest.rating()))) {
+                        best = candidate;
+                    }
+                }
+                if (best == null) continue;
+
+                waiting.remove(best);
+                pair(courseId, oldest, best);
+            }
+        } catch (Exception e) {
+            log.error("Falha no matchmaking do curso {}: {}", courseId, e.getMessage(), e);
+        } finally {
+            queueStore.releaseMatcher(courseId);
+        }
+    }
+
+    private int windowFor(MatchmakingQueueStore.QueuedPlayer player, Instant now) {
+        long waited = Duration.between(player.enqueuedAt(), now).getSeconds();
+        return baseLevelWindow + (int) (waited / Math.max(1, widenEverySeconds));
+    }
+
+    private void pair(UUID courseId, MatchmakingQueueStore.QueuedPlayer first, MatchmakingQueueStore.QueuedPlayer second) {
+        Map<UUID, User> users = userRepository.findAllById(List.of(first.userId(), second.userId())).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        User u1 = users.get(first.userId());
+        User u2 = users.get(second.userId());
+
+        // Quem entrou em modo focado (ou deixou de existir) sai da fila; o outro continua esperando
+        if (u1 == null || u1.isDuelFocusMode()) {
+            queueStore.remove(courseId, first.userId());
+            return;
+        }
+        if (u2 == null || u2.isDuelFocusMode()) {
+            queueStore.remove(courseId, second.userId());
+            return;
+        }
+
+        if (!queueStore.removePair(courseId, first.userId(), second.userId())) return;
+
+        try {
+            log.info("Match found for users {} and {} (levels {} / {})", first.userId(), second.userId(), first.rating(), second.rating());
+            Duel duel = duelService.createDuel(first.userId(), second.userId(), "Aleatório");
+
+            notificationService.send(first.userId(), "Duelo Encontrado!", "Um oponente foi encontrado para o duelo na Arena.");
+
+            messagingTemplate.convertAndSend("/topic/desafios/" + first.userId(), duel);
+            messagingTemplate.convertAndSend("/topic/desafios/" + second.userId(), duel);
+        } catch (Exception e) {
+            log.error("Failed to create match between {} and {}: {}", first.userId(), second.userId(), e.getMessage());
+            // Devolve os dois à fila mantendo a posição original
+            queueStore.enqueue(courseId, first);
+            queueStore.enqueue(courseId, second);
+        }
+    }
+
+    private void expire(UUID courseId, MatchmakingQueueStore.QueuedPlayer player) {
+        if (!queueStore.remove(courseId, player.userId())) return;
+        log.info("Matchmaking timeout for user {} in course {}", player.userId(), courseId);
+        messagingTemplate.convertAndSend("/topic/matchmaking/" + player.userId(),
+                Map.of("status", "TIMEOUT", "courseId", courseId.toString()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.bizu.portal.student.application;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Daily performance rollup (student.performance_daily): answers aggregated per
+ * user × day × subject × source, maintained from StudentActivityEvent with one upsert per answer.
+ *
+ * Days are bucketed in America/Sao_Paulo, the zone the performance summary reports in.
+ * Unique questions are tracked in student.performance_seen_questions; the bucket where a
+ * question is answered for the first time gets first_seen + 1, so the total is a SUM.
+ *
+ * Read cost depends on the number of active day/subject buckets, not on the number of answers.
+ */
+@Service
+@RequiredArgsConstructor
+public class PerformanceRollupService {
+
+    public static final ZoneId ZONE = ZoneId.of("America/Sao_Paulo");
+    private static final String DEFAULT_SUBJECT = "Geral";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record SubjectTotals(String subject, long attempted, long correct, long seconds, long uniqueQuestions,
+                                long attemptedToday, long secondsSince) {}
+
+    public record DayTotals(LocalDate day, long attempted, long correct) {}
+
+    public void apply(StudentActivityEvent event) {
+        if (event.getKind() != StudentActivityEvent.Kind.ANSWER) return;
+
+        String subject = event.getSubject() != null ? event.getSubject() : DEFAULT_SUBJECT;
+        LocalDate day = event.getOccurredAt().atZoneSameInstant(ZONE).toLocalDate();
+
+        jdbcTemplate.update("""
+            WITH seen AS (
+                INSERT INTO student.performance_seen_questions (user_id, question_id)
+                SELECT CAST(? AS uuid), CAST(? AS uuid) WHERE CAST(? AS uuid) IS NOT NULL
+                ON CONFLICT DO NOTHING
+                RETURNING 1
+            )
+            INSERT INTO student.performance_daily (user_id, day, subject, source, attempted, correct, seconds, first_seen)
+            VALUES (?, ?, ?, ?, 1, ?, ?, (SELECT COUNT(*) FROM seen))
+            ON CONFLICT (user_id, day, subject, source) DO UPDATE SET
+                attempted = performance_daily.attempted + 1,
+                correct = performance_daily.correct + EXCLUDED.correct,
+                seconds = performance_daily.seconds + EXCLUDED.seconds,
+                first_seen = performance_daily.first_seen + EXCLUDED.first_seen
+            """,
+            event.getUserId(), event.getQuestionId(), event.getQuestionId(),
+            event.getUserId(), day, subject, event.getSource().name(),
+            event.isCorrect() ? 1 : 0, Math.max(0, event.getTimeSpentSeconds()));
+    }
+
+    /**
+     * Totals per subject, with the answers of {@code today} and the seconds since {@code since}
+     * computed in the same pass.
+     */
+    public List<SubjectTotals> totalsBySubject(UUID userId, LocalDate today, LocalDate since) {
+        return jdbcTemplate.query("""
+            SELECT subject,
+                   SUM(attempted) AS attempted,
+                   SUM(correct) AS correct,
+                   SUM(seconds) AS seconds,
+                   SUM(first_seen) AS unique_questions,
+                   COALESCE(SUM(attempted) FILTER (WHERE day = ?), 0) AS attempted_today,
+                   COALESCE(SUM(seconds) FILTER (WHERE day >= ?), 0) AS seconds_since
+            FROM student.performance_daily
+            WHERE user_id = ?
+            GROUP BY subject
+            """,
+            (rs, i) -> new SubjectTotals(
+                    rs.getString("subject"),
+                    rs.getLong("attempted"),
+                    rs.getLong("correct"),
+                    rs.getLong("seconds"),
+                    rs.getLong("unique_questions"),
+                    rs.getLong("attempted_today"),
+                    rs.getLong("seconds_since")),
+            today, since, userId);
+    }
+
+    public List<DayTotals> totalsByDay(UUID userId, LocalDate since) {
+        return jdbcTemplate.query("""
+            SELECT day, SUM(attempted) AS attempted, SUM(correct) AS correct
+            FROM student.performance_daily
+            WHERE user_id = ? AND day >= ?
+            GROUP BY day
+            """,
+            (rs, i) -> new DayTotals(rs.getObject("day", LocalDate.class), rs.getLong("attempted"), rs.getLong("correct")),
+            userId, since);
+    }
+}
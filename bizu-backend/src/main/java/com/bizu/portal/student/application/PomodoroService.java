@@ -71,7 +71,7 @@ public class PomodoroService {
         
         // Reward 1 XP per minute of focus
         if (session.getFocusMinutes() > 0) {
-            gamificationService.addXp(user.getId(), session.getFocusMinutes());
+            gamificationService.addXp(user.getId(), session.getFocusMinutes(), "POMODORO");
         }
         
         return mapToDTO(savedSession);
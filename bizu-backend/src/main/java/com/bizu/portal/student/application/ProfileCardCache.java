@@ -0,0 +1,180 @@
+package com.bizu.portal.student.application;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the public "profile card" shown in leaderboards and lists:
+ * name, nickname, avatar, level, streak, aura/border (with store item metadata) and guild name/badge.
+ *
+ * Key format: profile-card:{userId} → JSON
+ * Reads: one MGET for a whole page; misses are loaded with a single keyed query and written back.
+ * Invalidation: avatar/name change, store item equip, level or streak change, guild join/leave/update.
+ * Store item metadata edited by admins is picked up when the TTL expires.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProfileCardCache {
+
+    private static final String KEY_PREFIX = "profile-card:";
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final TypeReference<Map<String, Object>> CARD_TYPE = new TypeReference<>() {};
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Cards for the given users, keyed by user id. Users that do not exist are absent from the result.
+     */
+    public Map<UUID, Map<String, Object>> getCards(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) return Map.of();
+
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<UUID, Map<String, Object>> cards = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+
+        try {
+            List<String> cached = redisTemplate.opsForValue().multiGet(ids.stream().map(id -> KEY_PREFIX + id).toList());
+            for (int i = 0; i < ids.size(); i++) {
+                String json = cached != null ? cached.get(i) : null;
+                if (json == null) {
+                    misses.add(ids.get(i));
+                } else {
+                    cards.put(ids.get(i), objectMapper.readValue(json, CARD_TYPE));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Cache de perfis indisponível: {}", e.getMessage());
+            cards.clear();
+            misses = ids;
+        }
+
+        if (!misses.isEmpty()) {
+            Map<UUID, Map<String, Object>> loaded = loadFromDatabase(misses);
+            cards.putAll(loaded);
+            writeBack(loaded);
+        }
+        return cards;
+    }
+
+    public void evict(UUID userId) {
+        evictAll(List.of(userId));
+    }
+
+    public void evictAll(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) return;
+        List<String> keys = userIds.stream().map(id -> KEY_PREFIX + id).toList();
+        Runnable delete = () -> {
+            try {
+                redisTemplate.delete(keys);
+            } catch (Exception e) {
+                log.warn("Falha ao invalidar cache de perfis: {}", e.getMessage());
+            }
+        };
+        // Invalida após o commit para que uma leitura concorrente não repopule com o estado antigo
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete.run();
+                }
+            });
+        } else {
+            delete.run();
+        }
+    }
+
+    /**
+     * Brings a row of the SQL rankings to the card shape: store item metadata parsed from jsonb
+     * and the level as an integer, so callers see the same types whether or not the cache was used.
+     */
+    public Map<String, Object> normalize(Map<String, Object> row) {
+        Object level = row.get("level");
+        if (level instanceof Number number) row.put("level", number.intValue());
+        row.put("auraMetadata", metadata(row.get("auraMetadata")));
+        row.put("borderMetadata", metadata(row.get("borderMetadata")));
+        return row;
+    }
+
+    private Map<UUID, Map<String, Object>> loadFromDatabase(List<UUID> userIds) {
+        String placeholders = userIds.stream().map(id -> "?").collect(Collectors.joining(", "));
+        String sql = """
+            SELECT
+                u.id as id,
+                u.name as name,
+                u.nickname as nickname,
+                u.avatar_url as avatar,
+                FLOOR(POWER(COALESCE(g.total_xp, 0) / 1000.0, 2.0/3.0)) + 1 as level,
+                COALESCE(g.current_streak, 0) as streak,
+                g.active_aura as "activeAura",
+                g.active_border as "activeBorder",
+                CAST(sa.metadata AS text) as "auraMetadata",
+                CAST(sb.metadata AS text) as "borderMetadata",
+                ginfo.guild_name as "guildName",
+                ginfo.guild_badge as "guildBadge"
+            FROM identity.users u
+            LEFT JOIN student.gamification_stats g ON u.id = g.user_id
+            LEFT JOIN student.store_items sa ON sa.code = 'AURA_' || g.active_aura
+            LEFT JOIN student.store_items sb ON sb.code = 'BORDER_' || g.active_border
+            LEFT JOIN (
+                SELECT gm.user_id, g.name as guild_name, g.badge as guild_badge
+                FROM student.guild_members gm
+                JOIN student.guilds g ON gm.guild_id = g.id
+            ) ginfo ON u.id = ginfo.user_id
+            WHERE u.id IN (""" + placeholders + ")";
+
+        Map<UUID, Map<String, Object>> cards = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql, userIds.toArray())) {
+            Map<String, Object> card = new LinkedHashMap<>(row);
+            card.put("id", row.get("id").toString());
+            card.put("level", ((Number) row.get("level")).intValue());
+            card.put("auraMetadata", metadata(row.get("auraMetadata")));
+            card.put("borderMetadata", metadata(row.get("borderMetadata")));
+            cards.put(UUID.fromString(row.get("id").toString()), card);
+        }
+        return cards;
+    }
+
+    private void writeBack(Map<UUID, Map<String, Object>> cards) {
+        if (cards.isEmpty()) return;
+        try {
+            Map<String, String> serialized = new HashMap<>();
+            for (Map.Entry<UUID, Map<String, Object>> entry : cards.entrySet()) {
+                serialized.put(KEY_PREFIX + entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+            }
+            long ttlSeconds = TTL.toSeconds();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                serialized.forEach((key, json) -> conn.setEx(key, ttlSeconds, json));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Falha ao gravar cache de perfis: {}", e.getMessage());
+        }
+    }
+
+    private Object metadata(Object value) {
+        if (value == null || value instanceof Map) return value;
+        try {
+            // jsonb chega como PGobject (ou texto, via CAST): ambos expõem o JSON em toString()
+            return objectMapper.readValue(value.toString(), CARD_TYPE);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
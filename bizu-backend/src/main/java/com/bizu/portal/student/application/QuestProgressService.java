@@ -0,0 +1,217 @@
+package com.bizu.portal.student.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.WeekFields;
+import java.util.*;
+
+/**
+ * Quest progress projection (student.quest_progress), one row per user and period.
+ *
+ * Period ids are the same ones used by quest claims: "2025-03-14" for the day and
+ * "2025-W11" for the week, where the year is the week-based year (the days of a week that spans
+ * New Year share one id). Every study event moves the daily and the weekly row with one
+ * UPDATE, so listing and claiming quests is a counter read regardless of quest count.
+ * A period row that does not exist yet is seeded from the history tables, which keeps
+ * progress made before the projection existed (or before the row was created).
+ *
+ * The correct-answer streak is a daily counter, as before the projection: STREAK quests of
+ * either period read it from the daily row, and only that row's streak is updated.
+ *
+ * Only the current day and week are ever read: rows not updated for {@code retention.days} are
+ * deleted by {@link #purge()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestProgressService {
+
+    private static final int PURGE_BATCH = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${axon.quests.retention.days:14}")
+    private int retentionDays;
+
+    public record QuestProgress(int questions, int wins, int simulados, int correctStreak) {
+
+        static final QuestProgress EMPTY = new QuestProgress(0, 0, 0, 0);
+
+        public int valueFor(String goalType) {
+            return switch (goalType) {
+                case "QUESTIONS" -> questions;
+                case "WIN" -> wins;
+                case "SIMULADO" -> simulados;
+                case "STREAK" -> correctStreak;
+                default -> 0;
+            };
+        }
+    }
+
+    public static String dailyPeriodId(LocalDate date) {
+        return date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    public static String weeklyPeriodId(LocalDate date) {
+        WeekFields weekFields = WeekFields.of(Locale.getDefault());
+        // Ano da semana, não do calendário: 29/12 pode já estar na semana 1 do ano seguinte
+        return date.get(weekFields.weekBasedYear()) + "-W" + date.get(weekFields.weekOfWeekBasedYear());
+    }
+
+    public static String periodIdFor(String questType, LocalDate date) {
+        return "DAILY".equals(questType) ? dailyPeriodId(date) : weeklyPeriodId(date);
+    }
+
+    /**
+     * Progress of the current day and week, keyed by period id (single keyed query).
+     */
+    public Map<String, QuestProgress> current(UUID userId) {
+        LocalDate today = LocalDate.now();
+        String daily = dailyPeriodId(today);
+        String weekly = weeklyPeriodId(today);
+
+        Map<String, QuestProgress> progress = read(userId, daily, weekly);
+        if (!progress.containsKey(daily) || !progress.containsKey(weekly)) {
+            seed(userId, today);
+            progress = read(userId, daily, weekly);
+        }
+        progress.putIfAbsent(daily, QuestProgress.EMPTY);
+        progress.putIfAbsent(weekly, QuestProgress.EMPTY);
+        // Sequência de acertos é sempre a do dia, também nas missões semanais
+        QuestProgress week = progress.get(weekly);
+        progress.put(weekly, new QuestProgress(week.questions(), week.wins(), week.simulados(),
+                progress.get(daily).correctStreak()));
+        return progress;
+    }
+
+    /**
+     * Applies one event to the daily and weekly rows. Runs after the producing transaction
+     * committed: when a row has to be seeded, the seed already contains the event.
+     */
+    public void apply(StudentActivityEvent event) {
+        int questions = switch (event.getKind()) {
+            // Mesma contagem do cálculo anterior: respostas da prática livre e atividades concluídas
+            case ANSWER -> event.getSource() == StudentActivityEvent.Source.PRACTICE ? 1 : 0;
+            case ACTIVITY_COMPLETED -> 1;
+            default -> 0;
+        };
+        int wins = event.getKind() == StudentActivityEvent.Kind.DUEL_WON ? 1 : 0;
+        int simulados = event.getKind() == StudentActivityEvent.Kind.SIMULADO_COMPLETED ? 1 : 0;
+        boolean practiceAnswer = event.getKind() == StudentActivityEvent.Kind.ANSWER
+                && event.getSource() == StudentActivityEvent.Source.PRACTICE;
+        if (questions == 0 && wins == 0 && simulados == 0) return;
+
+        LocalDate today = LocalDate.now();
+        UUID userId = event.getUserId();
+        int updated = jdbcTemplate.update("""
+            UPDATE student.quest_progress SET
+                questions = questions + ?,
+                wins = wins + ?,
+                simulados = simulados + ?,
+                correct_streak = CASE WHEN NOT ? OR period_id <> ? THEN correct_streak WHEN ? THEN correct_streak + 1 ELSE 0 END,
+                updated_at = NOW()
+            WHERE user_id = ? AND period_id IN (?, ?)
+            """,
+            questions, wins, simulados, practiceAnswer, dailyPeriodId(today), event.isCorrect(),
+            userId, dailyPeriodId(today), weeklyPeriodId(today));
+
+        if (updated < 2) {
+            seed(userId, today);
+        }
+    }
+
+    /**
+     * Deletes period rows past their retention in batches of {@value #PURGE_BATCH} (SKIP LOCKED,
+     * so nodes running it together do not block each other or the projection updates).
+     */
+    @Scheduled(cron = "${axon.quests.retention.cron:0 45 3 * * *}")
+    public void purge() {
+        OffsetDateTime before = OffsetDateTime.now().minusDays(retentionDays);
+        try {
+            long total = 0;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update("""
+                    DELETE FROM student.quest_progress WHERE (user_id, period_id) IN (
+                        SELECT user_id, period_id FROM student.quest_progress
+                        WHERE updated_at < ?
+                        LIMIT ? FOR UPDATE SKIP LOCKED)
+                    """, before, PURGE_BATCH);
+                total += deleted;
+            } while (deleted == PURGE_BATCH);
+            log.info("Retenção do progresso de missões: {} linhas removidas", total);
+        } catch (Exception e) {
+            log.error("Falha na limpeza do progresso de missões: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, QuestProgress> read(UUID userId, String daily, String weekly) {
+        Map<String, QuestProgress> progress = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT period_id, questions, wins, simulados, correct_streak
+            FROM student.quest_progress WHERE user_id = ? AND period_id IN (?, ?)
+            """,
+            rs -> {
+                progress.put(rs.getString("period_id"), new QuestProgress(
+                        rs.getInt("questions"), rs.getInt("wins"), rs.getInt("simulados"), rs.getInt("correct_streak")));
+            },
+            userId, daily, weekly);
+        return progress;
+    }
+
+    /**
+     * Creates the missing rows of the current day and week from the history tables
+     * (the queries the quest list used to run per quest).
+     */
+    private void seed(UUID userId, LocalDate today) {
+        LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(
+                WeekFields.of(Locale.getDefault()).getFirstDayOfWeek()));
+        insertFromHistory(userId, dailyPeriodId(today), today, today);
+        insertFromHistory(userId, weeklyPeriodId(today), weekStart, today);
+    }
+
+    private void insertFromHistory(UUID userId, String periodId, LocalDate from, LocalDate today) {
+        int inserted = jdbcTemplate.update("""
+            INSERT INTO student.quest_progress (user_id, period_id, questions, wins, simulados, correct_streak)
+            SELECT CAST(? AS uuid), ?,
+                (SELECT COUNT(*) FROM student.attempts WHERE user_id = ? AND created_at >= CAST(? AS date)) +
+                (SELECT COUNT(*) FROM student.activity_attempts a WHERE a.user_id = ? AND a.status = 'COMPLETED' AND a.finished_at >= CAST(? AS date)),
+                (SELECT COUNT(*) FROM student.duels WHERE winner_id = ? AND status = 'COMPLETED' AND updated_at >= CAST(? AS date)),
+                GREATEST(
+                    (SELECT COUNT(*) FROM student.simulado_sessions WHERE user_id = ? AND status = 'COMPLETED' AND submitted_at >= CAST(? AS date)),
+                    (SELECT COUNT(*) FROM student.simulado_results WHERE user_id = ? AND completed_at >= CAST(? AS date))),
+                (
+                    WITH attempts_period AS (
+                        SELECT is_correct, ROW_NUMBER() OVER (ORDER BY created_at DESC) AS rn
+                        FROM student.attempts
+                        WHERE user_id = ? AND created_at >= CAST(? AS date)
+                    ),
+                    first_wrong AS (
+                        SELECT COALESCE(MIN(rn), 999999) AS pos FROM attempts_period WHERE is_correct = false
+                    )
+                    SELECT COUNT(*) FROM attempts_period, first_wrong
+                    WHERE attempts_period.rn < first_wrong.pos AND attempts_period.is_correct = true
+                )
+            ON CONFLICT (user_id, period_id) DO NOTHING
+            """,
+            userId, periodId,
+            userId, from, userId, from,
+            userId, from,
+            userId, from, userId, from,
+            // Sequência de acertos é sempre a do dia, como no cálculo anterior
+            userId, today);
+
+        if (inserted > 0) {
+            log.debug("Progresso de missões {} inicializado para o usuário {}", periodId, userId);
+        }
+    }
+}
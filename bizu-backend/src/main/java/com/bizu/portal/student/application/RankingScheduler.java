@@ -2,6 +2,7 @@ package com.bizu.portal.student.application;
 
 import com.bizu.portal.identity.domain.User;
 import com.bizu.portal.identity.infrastructure.UserRepository;
+import com.bizu.portal.notification.application.NotificationService;
 import com.bizu.portal.student.domain.SimuladoResult;
 import com.bizu.portal.student.infrastructure.DuelRepository;
 import com.bizu.portal.student.infrastructure.SimuladoResultRepository;
@@ -12,7 +13,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.data.domain.PageRequest;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -43,6 +47,7 @@ public class RankingScheduler {
         weeklyResults.sort(Comparator.comparingInt(SimuladoResult::getScore).reversed());
 
         // Process top 10
+        List<NotificationService.Notification> notifications = new ArrayList<>();
         int limit = Math.min(weeklyResults.size(), 10);
         for (int i = 0; i < limit; i++) {
             SimuladoResult result = weeklyResults.get(i);
@@ -53,17 +58,20 @@ public class RankingScheduler {
             result.setPositionInRanking(position);
             resultRepository.save(result);
 
-            // Give rewards
+            // Give rewards (uma vez por semana: mesma chave da notificação)
             int xpReward = calculateXpReward(position);
-            gamificationService.addXp(user.getId(), xpReward);
+            String awardKey = "ranking-simulado:" + currentWeek();
+            gamificationService.addXpOnce(user.getId(), xpReward, "RANKING_SIMULADO", awardKey);
 
             // Notify user
-            notificationService.send(user.getId(), "🏆 Ranking Semanal", 
-                "Parabéns! Você ficou em #" + position + " no simulado da semana e ganhou " + xpReward + " XP!");
+            notifications.add(new NotificationService.Notification(user.getId(), "RANKING", "🏆 Ranking Semanal",
+                "Parabéns! Você ficou em #" + position + " no simulado da semana e ganhou " + xpReward + " XP!",
+                awardKey, null));
             
             log.info("Usuário {} premiado na posição #{}", user.getEmail(), position);
         }
 
+        notificationService.sendAll(notifications);
         log.info("Ranking semanal processado com sucesso.");
     }
 
@@ -76,6 +84,7 @@ public class RankingScheduler {
         log.info("Iniciando processamento do ranking semanal de duelos por curso...");
         
         List<com.bizu.portal.content.domain.Course> courses = courseRepository.findAll();
+        List<NotificationService.Notification> notifications = new ArrayList<>();
         
         for (com.bizu.portal.content.domain.Course course : courses) {
             log.info("Processando ranking para o curso: {}", course.getTitle());
@@ -94,13 +103,23 @@ public class RankingScheduler {
                 };
 
                 if (xpReward > 0) {
-                    gamificationService.addXp(userId, xpReward);
-                    notificationService.send(userId, "🏆 Ranking Arena - " + course.getTitle(), 
-                        "Parabéns! Você ficou em #" + position + " na Arena (" + course.getTitle() + ") esta semana e ganhou " + xpReward + " XP!");
+                    String awardKey = "ranking-arena:" + course.getId() + ":" + currentWeek();
+                    gamificationService.addXpOnce(userId, xpReward, "RANKING_ARENA", awardKey);
+                    notifications.add(new NotificationService.Notification(userId, "RANKING", "🏆 Ranking Arena - " + course.getTitle(),
+                        "Parabéns! Você ficou em #" + position + " na Arena (" + course.getTitle() + ") esta semana e ganhou " + xpReward + " XP!",
+                        awardKey, null));
                     log.info("Usuário {} premiado na Arena do curso {} na posição #{}", userId, course.getTitle(), position);
                 }
             }
         }
+        notificationService.sendAll(notifications);
+    }
+
+    /**
+     * ISO week (e.g. "2026-W42"): a job re-run in the same week does not notify the winners twice.
+     */
+    private String currentWeek() {
+        return LocalDate.now().format(DateTimeFormatter.ISO_WEEK_DATE).substring(0, 8);
     }
 
     private int calculateXpReward(int position) {
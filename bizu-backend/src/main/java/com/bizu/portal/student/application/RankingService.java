@@ -5,8 +5,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -14,8 +17,69 @@ import java.util.UUID;
 public class RankingService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final LeaderboardService leaderboardService;
+    private final ProfileCardCache profileCardCache;
 
     public List<Map<String, Object>> getGlobalRanking(UUID courseId, int limit) {
+        return leaderboardService.top(LeaderboardService.Board.XP, courseId, limit)
+                .map(entries -> hydrate(entries, "xp"))
+                .orElseGet(() -> getGlobalRankingFromSql(courseId, limit));
+    }
+
+    public List<Map<String, Object>> getDuelRanking(UUID courseId, int limit) {
+        return leaderboardService.top(LeaderboardService.Board.DUEL_WINS, courseId, limit)
+                .map(entries -> hydrate(entries, "wins"))
+                .orElseGet(() -> getDuelRankingFromSql(courseId, limit));
+    }
+
+    public List<Map<String, Object>> getSimuladoRanking(UUID courseId, int limit) {
+        return leaderboardService.top(LeaderboardService.Board.SIMULADO, courseId, limit)
+                .map(entries -> hydrate(entries, "best_score"))
+                .orElseGet(() -> getSimuladoRankingFromSql(courseId, limit));
+    }
+
+    public List<Map<String, Object>> getWeeklyXpRanking(UUID courseId, int limit) {
+        return leaderboardService.top(LeaderboardService.Board.WEEKLY_XP, courseId, limit)
+                .map(entries -> hydrate(entries, "weekly_xp"))
+                .orElseGet(() -> getWeeklyXpRankingFromSql(courseId, limit));
+    }
+
+    public Map<String, Object> getUserRanking(UUID userId, UUID courseId) {
+        Optional<LeaderboardService.Entry> entry = leaderboardService.rankOf(LeaderboardService.Board.XP, courseId, userId);
+        if (entry.isPresent()) {
+            List<Map<String, Object>> rows = hydrate(List.of(entry.get()), "xp");
+            if (!rows.isEmpty()) {
+                Map<String, Object> row = rows.get(0);
+                row.remove("id");
+                return row;
+            }
+        }
+        return getUserRankingFromSql(userId, courseId);
+    }
+
+    /**
+     * Attaches the cached profile cards to a page of leaderboard entries, keeping the
+     * column names of the SQL rankings so the API shape does not depend on the source.
+     */
+    private List<Map<String, Object>> hydrate(List<LeaderboardService.Entry> entries, String scoreField) {
+        if (entries.isEmpty()) return List.of();
+
+        Map<UUID, Map<String, Object>> cards = profileCardCache.getCards(
+                entries.stream().map(LeaderboardService.Entry::userId).toList());
+
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (LeaderboardService.Entry entry : entries) {
+            Map<String, Object> card = cards.get(entry.userId());
+            if (card == null) continue;
+            Map<String, Object> row = new LinkedHashMap<>(card);
+            row.put(scoreField, entry.score());
+            row.put("rank", entry.rank());
+            result.add(row);
+        }
+        return result;
+    }
+
+    List<Map<String, Object>> getGlobalRankingFromSql(UUID courseId, int limit) {
         String condition = courseId != null ? "JOIN commerce.course_entitlements ce ON u.id = ce.user_id WHERE ce.course_id = ? AND ce.active = true " : "";
         Object[] args = courseId != null ? new Object[]{limit, courseId} : new Object[]{limit};
         
@@ -55,13 +119,13 @@ public class RankingService {
             """;
         
         if (courseId != null) {
-            return jdbcTemplate.queryForList(sql, courseId, limit);
+            return normalize(jdbcTemplate.queryForList(sql, courseId, limit));
         } else {
-            return jdbcTemplate.queryForList(sql, limit);
+            return normalize(jdbcTemplate.queryForList(sql, limit));
         }
     }
 
-    public List<Map<String, Object>> getDuelRanking(UUID courseId, int limit) {
+    List<Map<String, Object>> getDuelRankingFromSql(UUID courseId, int limit) {
         String condition = courseId != null ? "JOIN commerce.course_entitlements ce ON u.id = ce.user_id WHERE ce.course_id = ? AND ce.active = true " : "";
         
         String sql = """
@@ -97,13 +161,13 @@ public class RankingService {
             """;
         
         if (courseId != null) {
-            return jdbcTemplate.queryForList(sql, courseId, limit);
+            return normalize(jdbcTemplate.queryForList(sql, courseId, limit));
         } else {
-            return jdbcTemplate.queryForList(sql, limit);
+            return normalize(jdbcTemplate.queryForList(sql, limit));
         }
     }
 
-    public List<Map<String, Object>> getSimuladoRanking(UUID courseId, int limit) {
+    List<Map<String, Object>> getSimuladoRankingFromSql(UUID courseId, int limit) {
         String condition = courseId != null ? "JOIN content.simulados s ON sr.simulado_id = s.id WHERE s.course_id = ? " : "";
         
         String sql = """
@@ -138,13 +202,13 @@ public class RankingService {
             """;
             
         if (courseId != null) {
-            return jdbcTemplate.queryForList(sql, courseId, limit);
+            return normalize(jdbcTemplate.queryForList(sql, courseId, limit));
         } else {
-            return jdbcTemplate.queryForList(sql, limit);
+            return normalize(jdbcTemplate.queryForList(sql, limit));
         }
     }
 
-    public List<Map<String, Object>> getWeeklyXpRanking(UUID courseId, int limit) {
+    List<Map<String, Object>> getWeeklyXpRankingFromSql(UUID courseId, int limit) {
         String condition = courseId != null ? "JOIN commerce.course_entitlements ce ON u.id = ce.user_id WHERE ce.course_id = ? AND ce.active = true " : "";
         
         String sql = """
@@ -180,13 +244,13 @@ public class RankingService {
             """;
             
         if (courseId != null) {
-            return jdbcTemplate.queryForList(sql, courseId, limit);
+            return normalize(jdbcTemplate.queryForList(sql, courseId, limit));
         } else {
-            return jdbcTemplate.queryForList(sql, limit);
+            return normalize(jdbcTemplate.queryForList(sql, limit));
         }
     }
 
-    public Map<String, Object> getUserRanking(UUID userId, UUID courseId) {
+    Map<String, Object> getUserRankingFromSql(UUID userId, UUID courseId) {
         String condition = courseId != null ? "JOIN commerce.course_entitlements ce ON u.id = ce.user_id WHERE ce.course_id = ? AND ce.active = true " : "";
         
         String sql = """
@@ -237,6 +301,11 @@ public class RankingService {
         } else {
             result = jdbcTemplate.queryForList(sql, userId);
         }
-        return result.isEmpty() ? Map.of("rank", 0, "xp", 0, "streak", 0, "name", "Usuário") : result.get(0);
+        return result.isEmpty() ? Map.of("rank", 0, "xp", 0, "streak", 0, "name", "Usuário") : profileCardCache.normalize(result.get(0));
+    }
+
+    private List<Map<String, Object>> normalize(List<Map<String, Object>> rows) {
+        rows.forEach(profileCardCache::normalize);
+        return rows;
     }
 }
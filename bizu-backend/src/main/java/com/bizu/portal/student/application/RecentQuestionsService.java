@@ -0,0 +1,66 @@
+package com.bizu.portal.student.application;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Per-user set of recently answered questions, used to keep random quizzes from repeating them.
+ *
+ * Key format: recent-questions:{userId} → ZSET(questionId, answeredAt epoch millis)
+ * Capped at {@code max-entries} (oldest dropped) and expired after {@code ttl-days} without answers.
+ * Best effort: when Redis is unavailable the set is empty and sampling is purely random.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecentQuestionsService {
+
+    private static final String KEY_PREFIX = "recent-questions:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${axon.recent-questions.max-entries:300}")
+    private int maxEntries;
+
+    @Value("${axon.recent-questions.ttl-days:14}")
+    private int ttlDays;
+
+    public void record(UUID userId, UUID questionId) {
+        String key = KEY_PREFIX + userId;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.zAdd(key, System.currentTimeMillis(), questionId.toString());
+                redis.zRemRange(key, 0, -(maxEntries + 1L));
+                redis.expire(key, Duration.ofDays(ttlDays).getSeconds());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Falha ao registrar questão recente do usuário {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public Set<UUID> recent(UUID userId) {
+        if (userId == null) return Set.of();
+        try {
+            Set<String> members = redisTemplate.opsForZSet().range(KEY_PREFIX + userId, 0, -1);
+            if (members == null || members.isEmpty()) return Set.of();
+            Set<UUID> ids = new HashSet<>(members.size() * 2);
+            members.forEach(member -> ids.add(UUID.fromString(member)));
+            return ids;
+        } catch (Exception e) {
+            log.warn("Questões recentes indisponíveis para o usuário {}: {}", userId, e.getMessage());
+            return Set.of();
+        }
+    }
+}
@@ -34,8 +34,10 @@ public class SimuladoExamService {
     private final SimuladoSessionRepository sessionRepository;
     private final SimuladoPracticeSessionRepository practiceSessionRepository;
     private final SimuladoResultRepository resultRepository;
+    private final LeaderboardService leaderboardService;
     private final UserRepository userRepository;
     private final GamificationService gamificationService;
+    private final org.springframework.context.ApplicationEventPublisher eventPublisher;
 
     /** Default session window if simulado has no durationMinutes configured */
     private static final int DEFAULT_DURATION_MINUTES = 240;
@@ -51,7 +53,7 @@ public class SimuladoExamService {
             String banca,
             Integer year,
             String subject,
-            String imageBase64
+            String imageUrl
     ) {}
 
     public record SessionStartDTO(
@@ -252,11 +254,14 @@ public class SimuladoExamService {
                 .completedAt(now)
                 .build();
         resultRepository.save(result);
+        leaderboardService.recordSimuladoScore(userId,
+                simulado.getCourse() != null ? simulado.getCourse().getId() : null, (int) correctCount);
+        eventPublisher.publishEvent(StudentActivityEvent.simuladoCompleted(userId));
 
         // Award XP via GamificationService (15 XP per correct question in official simulado)
         int xpReward = (int) (correctCount * 15);
         if (xpReward > 0) {
-            gamificationService.addXp(userId, xpReward);
+            gamificationService.addXp(userId, xpReward, "SIMULADO");
         }
 
         double percent = total > 0 ? (correctCount * 100.0 / total) : 0;
@@ -538,7 +543,7 @@ public class SimuladoExamService {
         // Award XP for Practice (5 XP per correct question in practice mode)
         int xpReward = (int) (correctCount * 5);
         if (xpReward > 0) {
-            gamificationService.addXp(userId, xpReward);
+            gamificationService.addXp(userId, xpReward, "SIMULADO");
         }
 
         // ✦ No SimuladoResult saved — practice sessions never affect the ranking ✦
@@ -606,7 +611,7 @@ public class SimuladoExamService {
                 q.getBanca(),
                 q.getYear(),
                 q.getSubject(),
-                q.getImageBase64()
+                q.resolveImageUrl()
         );
     }
 }
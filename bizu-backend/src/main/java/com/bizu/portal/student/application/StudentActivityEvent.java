@@ -0,0 +1,67 @@
+package com.bizu.portal.student.application;
+
+import lombok.Getter;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Domain event published for every unit of student progress (answer, duel win, flashcard review,
+ * activity or simulado completion). Consumed after commit by the progress projections
+ * (badges, quests), so read endpoints never have to recount history.
+ */
+@Getter
+public class StudentActivityEvent {
+
+    public enum Kind { ANSWER, DUEL_WON, FLASHCARD_REVIEWED, ACTIVITY_COMPLETED, SIMULADO_COMPLETED }
+
+    /** Where an answer came from: free practice (student.attempts), activity snapshots or duels. */
+    public enum Source { PRACTICE, ACTIVITY, DUEL }
+
+    private final UUID userId;
+    private final Kind kind;
+    private final Source source;
+    private final UUID questionId;
+    private final String subject;
+    private final boolean correct;
+    private final String difficulty;
+    private final int timeSpentSeconds;
+    private final boolean firstOccurrence;
+    private final OffsetDateTime occurredAt;
+
+    private StudentActivityEvent(UUID userId, Kind kind, Source source, UUID questionId, String subject, boolean correct,
+                                 String difficulty, int timeSpentSeconds, boolean firstOccurrence) {
+        this.userId = userId;
+        this.kind = kind;
+        this.source = source;
+        this.questionId = questionId;
+        this.subject = subject;
+        this.correct = correct;
+        this.difficulty = difficulty;
+        this.timeSpentSeconds = timeSpentSeconds;
+        this.firstOccurrence = firstOccurrence;
+        this.occurredAt = OffsetDateTime.now();
+    }
+
+    public static StudentActivityEvent answer(UUID userId, Source source, UUID questionId, String subject,
+                                              boolean correct, String difficulty, Integer timeSpentSeconds) {
+        return new StudentActivityEvent(userId, Kind.ANSWER, source, questionId, subject, correct, difficulty,
+                timeSpentSeconds != null ? timeSpentSeconds : 0, false);
+    }
+
+    public static StudentActivityEvent duelWon(UUID userId) {
+        return new StudentActivityEvent(userId, Kind.DUEL_WON, Source.DUEL, null, null, true, null, 0, false);
+    }
+
+    public static StudentActivityEvent flashcardReviewed(UUID userId, boolean firstReview) {
+        return new StudentActivityEvent(userId, Kind.FLASHCARD_REVIEWED, null, null, null, false, null, 0, firstReview);
+    }
+
+    public static StudentActivityEvent activityCompleted(UUID userId) {
+        return new StudentActivityEvent(userId, Kind.ACTIVITY_COMPLETED, Source.ACTIVITY, null, null, false, null, 0, false);
+    }
+
+    public static StudentActivityEvent simuladoCompleted(UUID userId) {
+        return new StudentActivityEvent(userId, Kind.SIMULADO_COMPLETED, null, null, null, false, null, 0, false);
+    }
+}
@@ -37,6 +37,7 @@ public class StudentFlashcardService {
     private final com.bizu.portal.content.infrastructure.FlashcardDeckRatingRepository ratingRepository;
     private final com.bizu.portal.student.infrastructure.GamificationRepository gamificationRepository;
     private final com.bizu.portal.student.application.GamificationService gamificationService;
+    private final org.springframework.context.ApplicationEventPublisher eventPublisher;
 
     public List<StudentFlashcardDeckDTO> getDecksForUser(UUID userId) {
         OffsetDateTime now = OffsetDateTime.now();
@@ -225,6 +226,8 @@ public class StudentFlashcardService {
                     .build();
             });
 
+        boolean firstReview = progress.getId() == null;
+
         int quality = switch (rating) {
             case "hard" -> 1;
             case "medium" -> 3;
@@ -233,9 +236,9 @@ public class StudentFlashcardService {
         };
 
         if (quality >= 3) {
-            gamificationService.addXp(userId, 10);
+            gamificationService.addXp(userId, 10, "FLASHCARD");
         } else {
-            gamificationService.addXp(userId, -10);
+            gamificationService.addXp(userId, -10, "FLASHCARD");
         }
 
         // Simplified SM-2 logic
@@ -261,6 +264,7 @@ public class StudentFlashcardService {
         progress.setNextReviewAt(OffsetDateTime.now().plusDays(progress.getIntervalDays()));
         
         progressRepository.save(progress);
+        eventPublisher.publishEvent(StudentActivityEvent.flashcardReviewed(userId, firstReview));
     }
 
     @Transactional
@@ -1,5 +1,6 @@
 package com.bizu.portal.student.application;
 
+import com.bizu.portal.content.application.QuestionPoolService;
 import com.bizu.portal.content.domain.Question;
 import com.bizu.portal.content.domain.Simulado;
 import com.bizu.portal.content.infrastructure.QuestionRepository;
@@ -11,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -19,6 +21,8 @@ public class StudentSimuladoService {
 
     private final SimuladoRepository simuladoRepository;
     private final QuestionRepository questionRepository;
+    private final QuestionPoolService questionPoolService;
+    private final RecentQuestionsService recentQuestionsService;
 
     @Transactional(readOnly = true)
     public Simulado getSimuladoCompleto(UUID id) {
@@ -31,21 +35,31 @@ public class StudentSimuladoService {
         return simulado;
     }
 
+    /**
+     * Random quiz from the given modules (or the whole bank), preferring questions
+     * the user has not answered recently.
+     */
     @Transactional(readOnly = true)
-    public Simulado generateQuickQuiz(int count, List<UUID> moduleIds) {
-        List<Question> questions;
+    public Simulado generateQuickQuiz(UUID userId, int count, List<UUID> moduleIds) {
+        Set<UUID> recent = recentQuestionsService.recent(userId);
+        List<UUID> ids;
         if (moduleIds != null && !moduleIds.isEmpty()) {
-            questions = questionRepository.findRandomByModulesAndCategory(moduleIds, "QUIZ", count);
-            if (questions.isEmpty()) {
-                questions = questionRepository.findRandomByModulesAndCategory(moduleIds, "SIMULADO", count);
+            ids = questionPoolService.sampleUnseenFromModules(moduleIds, "QUIZ", count, recent);
+            if (ids.isEmpty()) {
+                ids = questionPoolService.sampleUnseenFromModules(moduleIds, "SIMULADO", count, recent);
             }
         } else {
-            questions = questionRepository.findRandomByCategory("QUIZ", count);
-            if (questions.isEmpty()) {
-                questions = questionRepository.findRandomByCategory("SIMULADO", count);
+            ids = questionPoolService.sampleUnseen(null, null, "QUIZ", count, recent);
+            if (ids.isEmpty()) {
+                ids = questionPoolService.sampleUnseen(null, null, "SIMULADO", count, recent);
             }
         }
 
+        List<Question> questions = questionRepository.findAllById(ids);
+        if (questions.size() < ids.size()) {
+            questionPoolService.invalidate();
+        }
+
         Simulado quiz = new Simulado();
         quiz.setId(UUID.randomUUID());
         quiz.setTitle("Quick Quiz: Treino Rápido");
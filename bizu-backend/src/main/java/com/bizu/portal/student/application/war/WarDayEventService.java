@@ -24,6 +24,8 @@ public class WarDayEventService {
     private final GuildWarSessionRepository sessionRepository;
     private final WarZoneProgressRepository progressRepository;
     private final WarDayRankingRepository rankingRepository;
+    private final WarDayZoneEngine zoneEngine;
+    private final WarDayQuestionDeckService deckService;
 
     // ─── Admin: CRUD ──────────────────────────────────────────────────────────
 
@@ -93,7 +95,9 @@ public class WarDayEventService {
             throw new RuntimeException("Somente eventos com status UPCOMING podem ser iniciados");
         }
         event.setStatus("ACTIVE");
-        return mapToEventResponse(eventRepository.save(event), null, null, null, false);
+        event = eventRepository.save(event);
+        deckService.prepare(event);
+        return mapToEventResponse(event, null, null, null, false);
     }
 
     @Transactional
@@ -105,6 +109,8 @@ public class WarDayEventService {
         }
         event.setStatus("FINISHED");
         eventRepository.save(event);
+        zoneEngine.closeEvent(id);
+        deckService.evict(id);
         return mapToEventResponse(event, null, null, null, false);
     }
 
@@ -140,6 +146,7 @@ public class WarDayEventService {
             for (WarDayDTO.ZoneTemplateCreateRequest zoneReq : req.getZones()) {
                 zoneTemplateRepository.save(buildZoneFromRequest(template, zoneReq));
             }
+            zoneEngine.evictLayout(id);
         }
 
         mapTemplateRepository.save(template);
@@ -1,7 +1,5 @@
 package com.bizu.portal.student.application.war;
 
-import com.bizu.portal.content.domain.Question;
-import com.bizu.portal.content.infrastructure.QuestionRepository;
 import com.bizu.portal.student.api.war.WarDayDTO;
 import com.bizu.portal.student.domain.war.*;
 import com.bizu.portal.student.guild.domain.Guild;
@@ -13,8 +11,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -26,14 +25,13 @@ public class WarDayGameService {
     private final WarDayEventRepository eventRepository;
     private final GuildWarSessionRepository sessionRepository;
     private final WarZoneProgressRepository progressRepository;
-    private final WarZoneAttemptRepository attemptRepository;
     private final WarZoneTemplateRepository zoneTemplateRepository;
-    private final QuestionRepository questionRepository;
     private final GuildMemberRepository guildMemberRepository;
     private final GuildRepository guildRepository;
     private final SimpMessagingTemplate messagingTemplate;
-
-    private static final double CONQUEST_THRESHOLD = 0.7;
+    private final WarDayRankingBroadcaster rankingBroadcaster;
+    private final WarDayZoneEngine zoneEngine;
+    private final WarDayQuestionDeckService deckService;
 
     // ─── Join Event ───────────────────────────────────────────────────────────
 
@@ -48,7 +46,7 @@ public class WarDayGameService {
 
         Optional<GuildWarSession> existing = sessionRepository.findByWarDayEventIdAndGuildId(eventId, guildId);
         if (existing.isPresent()) {
-            return buildMapState(existing.get(), event);
+            return buildMapState(event, existing.get().getGuild(), zoneEngine.view(eventId, guildId));
         }
 
         Guild guild = guildRepository.findById(guildId)
@@ -66,8 +64,16 @@ public class WarDayGameService {
         // Initialize zone progress for this guild
         initializeZoneProgress(session, event);
 
-        broadcastRankingUpdate(eventId);
-        return buildMapState(session, event);
+        afterCommit(() -> rankingBroadcaster.guildJoined(eventId, guild.getId(), guild.getName(), guild.getBadge()));
+
+        // Sessão ainda não commitada: o motor carrega no primeiro uso; aqui o estado inicial vem do layout
+        List<WarDayZoneEngine.ZoneView> zones = event.getMapTemplate() == null ? List.of()
+                : zoneEngine.layout(event.getMapTemplate().getId()).stream()
+                        .map(zone -> new WarDayZoneEngine.ZoneView(zone, null,
+                                zone.prerequisiteZoneIds().isEmpty() ? "AVAILABLE" : "LOCKED", 0, 0, 0, null))
+                        .toList();
+        return buildMapState(event, guild,
+                new WarDayZoneEngine.SessionView(session.getId(), session.getStatus(), 0, 0, zones));
     }
 
     private void initializeZoneProgress(GuildWarSession session, WarDayEvent event) {
@@ -99,12 +105,11 @@ public class WarDayGameService {
         GuildWarSession session = sessionRepository.findByWarDayEventIdAndGuildId(eventId, guildId)
                 .orElseThrow(() -> new RuntimeException("Sua guild ainda não entrou neste evento. Clique em 'Entrar na Guerra'"));
 
-        return buildMapState(session, event);
+        return buildMapState(event, session.getGuild(), zoneEngine.view(eventId, guildId));
     }
 
     // ─── Get Question ─────────────────────────────────────────────────────────
 
-    @Transactional
     public WarDayDTO.QuestionResponse getQuestion(UUID eventId, UUID zoneId, UUID guildId) {
         WarDayEvent event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new RuntimeException("Evento não encontrado"));
@@ -112,64 +117,35 @@ public class WarDayGameService {
             throw new RuntimeException("O War Day não está ativo");
         }
 
-        GuildWarSession session = sessionRepository.findByWarDayEventIdAndGuildId(eventId, guildId)
-                .orElseThrow(() -> new RuntimeException("Sua guild não está participando deste evento"));
-
-        WarZoneProgress progress = progressRepository
-                .findByGuildWarSessionIdAndZoneTemplateId(session.getId(), zoneId)
-                .orElseThrow(() -> new RuntimeException("Zona não encontrada na sessão da guild"));
-
-        if ("CONQUERED".equals(progress.getStatus())) {
-            throw new RuntimeException("Esta zona já foi conquistada pela sua guild!");
-        }
-        if ("LOCKED".equals(progress.getStatus())) {
-            throw new RuntimeException("Esta zona ainda está bloqueada. Complete as zonas anteriores primeiro.");
+        WarDayQuestionDeckService.Deck deck = deckService.deck(event, zoneId);
+        if (deck.size() == 0) {
+            throw new RuntimeException("Nenhuma questão disponível");
         }
 
-        // Update status to IN_PROGRESS if AVAILABLE
-        if ("AVAILABLE".equals(progress.getStatus())) {
-            progress.setStatus("IN_PROGRESS");
-            progressRepository.save(progress);
+        // Valida a zona, marca IN_PROGRESS no primeiro acesso e avança o cursor do deck da guild
+        WarDayZoneEngine.Draw draw = zoneEngine.drawQuestion(eventId, guildId, zoneId, deck);
+        WarDayZoneEngine.ZoneView progress = draw.zone();
+        WarDayQuestionDeckService.Card question = deckService.card(draw.questionId());
+        if (question == null) {
+            // Questão removida depois de o deck ser montado: a próxima chamada já pega a seguinte
+            throw new RuntimeException("Questão não encontrada, tente novamente");
         }
 
-        WarZoneTemplate zone = progress.getZoneTemplate();
-        String difficulty = difficultyFromLevel(zone.getDifficultyLevel());
-
-        // Get a random question that this player hasn't answered yet in this zone
-        List<Question> quizCandidates = questionRepository.findRandomByCategory("QUIZ", 20);
-        final List<Question> candidates = quizCandidates.isEmpty()
-                ? questionRepository.findRandomByCategory("SIMULADO", 20)
-                : quizCandidates;
-
-        // Filter out questions already answered by this guild in this zone
-        List<UUID> answeredInZone = attemptRepository.findAllByZoneProgressId(progress.getId())
-                .stream().map(WarZoneAttempt::getQuestionId).collect(Collectors.toList());
-
-        Question question = candidates.stream()
-                .filter(q -> !answeredInZone.contains(q.getId()))
-                .filter(q -> difficulty.equals(q.getDifficulty()) || q.getDifficulty() == null)
-                .findFirst()
-                .orElseGet(() -> candidates.stream()
-                        .filter(q -> !answeredInZone.contains(q.getId()))
-                        .findFirst()
-                        .orElseGet(() -> candidates.get(0)));
-
         return WarDayDTO.QuestionResponse.builder()
-                .questionId(question.getId())
-                .statement(question.getStatement())
-                .options(question.getOptions())
-                .imageBase64(question.getImageBase64())
-                .difficulty(question.getDifficulty())
-                .questionsAnswered(progress.getQuestionsAnswered())
-                .correctAnswers(progress.getCorrectAnswers())
-                .questionCount(zone.getQuestionCount())
-                .zoneStatus(progress.getStatus())
+                .questionId(question.id())
+                .statement(question.statement())
+                .options(question.options())
+                .imageUrl(question.imageUrl())
+                .difficulty(question.difficulty())
+                .questionsAnswered(progress.questionsAnswered())
+                .correctAnswers(progress.correctAnswers())
+                .questionCount(progress.zone().questionCount())
+                .zoneStatus(progress.status())
                 .build();
     }
 
     // ─── Submit Answer ────────────────────────────────────────────────────────
 
-    @Transactional
     public WarDayDTO.AnswerResult submitAnswer(UUID eventId, UUID zoneId, UUID guildId, UUID userId,
             WarDayDTO.AnswerRequest req) {
         WarDayEvent event = eventRepository.findById(eventId)
@@ -178,145 +154,54 @@ public class WarDayGameService {
             throw new RuntimeException("O War Day não está ativo");
         }
 
-        GuildWarSession session = sessionRepository.findByWarDayEventIdAndGuildId(eventId, guildId)
-                .orElseThrow(() -> new RuntimeException("Guild não está participando"));
-
-        // Pessimistic lock to prevent race conditions
-        WarZoneProgress progress = progressRepository
-                .findBySessionAndZoneForUpdate(session.getId(), zoneId)
-                .orElseThrow(() -> new RuntimeException("Zona não encontrada"));
-
-        if ("CONQUERED".equals(progress.getStatus())) {
-            throw new RuntimeException("Esta zona já foi conquistada!");
-        }
-        if ("LOCKED".equals(progress.getStatus())) {
-            throw new RuntimeException("Esta zona está bloqueada");
-        }
-
-        WarZoneTemplate zone = progress.getZoneTemplate();
-
         // Fetch the question to validate the answer
-        Question question = questionRepository.findById(req.getQuestionId())
-                .orElseThrow(() -> new RuntimeException("Questão não encontrada"));
-
-        boolean correct = question.getCorrectOption() != null
-                && question.getCorrectOption().equalsIgnoreCase(req.getSelectedAnswer());
-
-        int pointsEarned = correct ? zone.getPointsPerCorrect() : 0;
-
-        // Record attempt
-        WarZoneAttempt attempt = WarZoneAttempt.builder()
-                .zoneProgress(progress)
-                .userId(userId)
-                .questionId(req.getQuestionId())
-                .selectedAnswer(req.getSelectedAnswer())
-                .correct(correct)
-                .pointsEarned(pointsEarned)
-                .build();
-        attemptRepository.save(attempt);
-
-        // Update progress counters
-        progress.setQuestionsAnswered(progress.getQuestionsAnswered() + 1);
-        if (correct) {
-            progress.setCorrectAnswers(progress.getCorrectAnswers() + 1);
-            progress.setTotalPoints(progress.getTotalPoints() + pointsEarned);
+        WarDayQuestionDeckService.Card question = deckService.card(req.getQuestionId());
+        if (question == null) {
+            throw new RuntimeException("Questão não encontrada");
         }
+        int deckPosition = deckService.deck(event, zoneId).positionOf(req.getQuestionId());
 
-        // Check conquest condition: enough correct answers
-        int required = (int) Math.ceil(zone.getQuestionCount() * CONQUEST_THRESHOLD);
-        boolean zoneConquered = progress.getCorrectAnswers() >= required;
-
-        List<UUID> newlyUnlockedZones = new ArrayList<>();
+        boolean correct = question.correctOption() != null
+                && question.correctOption().equalsIgnoreCase(req.getSelectedAnswer());
 
-        if (zoneConquered && !"CONQUERED".equals(progress.getStatus())) {
-            progress.setStatus("CONQUERED");
-            progress.setConqueredAt(OffsetDateTime.now());
+        // Contadores, conquista e desbloqueio rodam no ator da guild (sem lock de linha);
+        // a gravação no banco é feita em lote pelo motor
+        WarDayZoneEngine.AnswerOutcome outcome = zoneEngine.answer(eventId, guildId, zoneId, userId,
+                req.getQuestionId(), deckPosition, req.getSelectedAnswer(), correct);
+        WarDayZoneEngine.ZoneView progress = outcome.zone();
+        WarDayZoneEngine.ZoneDef zone = progress.zone();
 
-            // Update guild session score
-            session.setTotalScore(session.getTotalScore() + progress.getTotalPoints());
-            session.setZonesConquered(session.getZonesConquered() + 1);
-            sessionRepository.save(session);
-
-            // Unlock adjacent zones
-            newlyUnlockedZones = unlockAdjacentZones(session, zone);
-
-            // Broadcast map update to guild
-            broadcastMapUpdate(guildId, zone, newlyUnlockedZones, session, "ZONE_CONQUERED", null);
-            broadcastRankingUpdate(eventId);
-
-            log.info("Zone '{}' conquered by guild '{}'", zone.getName(), guildId);
-        } else {
-            // Update session score incrementally for live ranking
-            session.setTotalScore(session.getTotalScore() + pointsEarned);
-            sessionRepository.save(session);
+        if (outcome.conquered()) {
+            broadcastMapUpdate(guildId, zone, outcome, "ZONE_CONQUERED", null);
+            log.info("Zone '{}' conquered by guild '{}'", zone.name(), guildId);
         }
 
-        progressRepository.save(progress);
+        // Ranking ao vivo: só marca a mudança; o broadcaster agrega e envia no próximo intervalo
+        rankingBroadcaster.scoreChanged(eventId, guildId, outcome.totalScore(), outcome.zonesConquered());
 
         return WarDayDTO.AnswerResult.builder()
                 .correct(correct)
-                .correctAnswer(question.getCorrectOption())
-                .resolution(question.getResolution())
-                .pointsEarned(pointsEarned)
-                .correctAnswers(progress.getCorrectAnswers())
-                .questionsAnswered(progress.getQuestionsAnswered())
-                .questionCount(zone.getQuestionCount())
-                .zoneStatus(progress.getStatus())
-                .guildTotalScore(session.getTotalScore())
-                .zoneConquered(zoneConquered)
-                .newlyUnlockedZones(newlyUnlockedZones)
+                .correctAnswer(question.correctOption())
+                .resolution(question.resolution())
+                .pointsEarned(outcome.pointsEarned())
+                .correctAnswers(progress.correctAnswers())
+                .questionsAnswered(progress.questionsAnswered())
+                .questionCount(zone.questionCount())
+                .zoneStatus(progress.status())
+                .guildTotalScore(outcome.totalScore())
+                .zoneConquered(outcome.conquered())
+                .newlyUnlockedZones(outcome.newlyUnlockedZones())
                 .build();
     }
 
-    // ─── Zone Unlocking ───────────────────────────────────────────────────────
-
-    private List<UUID> unlockAdjacentZones(GuildWarSession session, WarZoneTemplate conqueredZone) {
-        List<WarZoneTemplate> allZones = zoneTemplateRepository
-                .findAllByMapTemplateIdOrderByDisplayOrderAsc(conqueredZone.getMapTemplate().getId());
-
-        List<UUID> unlocked = new ArrayList<>();
-        List<WarZoneProgress> allProgress = progressRepository.findAllByGuildWarSessionId(session.getId());
-        Set<UUID> conqueredZoneIds = allProgress.stream()
-                .filter(p -> "CONQUERED".equals(p.getStatus()))
-                .map(p -> p.getZoneTemplate().getId())
-                .collect(Collectors.toSet());
-
-        for (WarZoneTemplate candidate : allZones) {
-            if (!candidate.getPrerequisiteZoneIds().isEmpty()
-                    && conqueredZoneIds.containsAll(candidate.getPrerequisiteZoneIds())) {
-                allProgress.stream()
-                        .filter(p -> p.getZoneTemplate().getId().equals(candidate.getId()))
-                        .filter(p -> "LOCKED".equals(p.getStatus()))
-                        .forEach(p -> {
-                            p.setStatus("AVAILABLE");
-                            progressRepository.save(p);
-                            unlocked.add(candidate.getId());
-                        });
-            }
-        }
-        return unlocked;
-    }
-
     // ─── Live Ranking ─────────────────────────────────────────────────────────
 
     public WarDayDTO.RankingResponse getLiveRanking(UUID eventId, UUID myGuildId) {
         WarDayEvent event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new RuntimeException("Evento não encontrado"));
 
-        List<GuildWarSession> sessions = sessionRepository.findRankingByEventId(eventId);
-        List<WarDayDTO.GuildRankingEntry> ranking = new ArrayList<>();
-        for (int i = 0; i < sessions.size(); i++) {
-            GuildWarSession s = sessions.get(i);
-            ranking.add(WarDayDTO.GuildRankingEntry.builder()
-                    .position(i + 1)
-                    .guildId(s.getGuild().getId())
-                    .guildName(s.getGuild().getName())
-                    .guildBadge(s.getGuild().getBadge())
-                    .totalScore(s.getTotalScore())
-                    .zonesConquered(s.getZonesConquered())
-                    .isMyGuild(s.getGuild().getId().equals(myGuildId))
-                    .build());
-        }
+        List<WarDayDTO.GuildRankingEntry> ranking = rankingBroadcaster.ranking(eventId);
+        ranking.forEach(entry -> entry.setMyGuild(entry.getGuildId().equals(myGuildId)));
 
         return WarDayDTO.RankingResponse.builder()
                 .eventId(eventId)
@@ -328,94 +213,71 @@ public class WarDayGameService {
 
     // ─── WebSocket Broadcasting ───────────────────────────────────────────────
 
-    private void broadcastMapUpdate(UUID guildId, WarZoneTemplate zone, List<UUID> newlyUnlocked,
-            GuildWarSession session, String type, String conqueredBy) {
+    private void broadcastMapUpdate(UUID guildId, WarDayZoneEngine.ZoneDef zone, WarDayZoneEngine.AnswerOutcome outcome,
+            String type, String conqueredBy) {
         WarDayDTO.MapUpdateEvent event = WarDayDTO.MapUpdateEvent.builder()
                 .type(type)
-                .zoneId(zone.getId())
-                .zoneName(zone.getName())
+                .zoneId(zone.id())
+                .zoneName(zone.name())
                 .newStatus("CONQUERED")
-                .newlyUnlockedZones(newlyUnlocked)
-                .guildTotalScore(session.getTotalScore())
-                .zonesConquered(session.getZonesConquered())
+                .newlyUnlockedZones(outcome.newlyUnlockedZones())
+                .guildTotalScore(outcome.totalScore())
+                .zonesConquered(outcome.zonesConquered())
                 .conqueredByNickname(conqueredBy)
                 .build();
         messagingTemplate.convertAndSend("/topic/war-day/" + guildId + "/map", event);
     }
 
-    private void broadcastRankingUpdate(UUID eventId) {
-        try {
-            List<GuildWarSession> sessions = sessionRepository.findRankingByEventId(eventId);
-            List<WarDayDTO.GuildRankingEntry> ranking = new ArrayList<>();
-            for (int i = 0; i < sessions.size(); i++) {
-                GuildWarSession s = sessions.get(i);
-                ranking.add(WarDayDTO.GuildRankingEntry.builder()
-                        .position(i + 1)
-                        .guildId(s.getGuild().getId())
-                        .guildName(s.getGuild().getName())
-                        .guildBadge(s.getGuild().getBadge())
-                        .totalScore(s.getTotalScore())
-                        .zonesConquered(s.getZonesConquered())
-                        .build());
-            }
-            WarDayDTO.RankingUpdateEvent update = WarDayDTO.RankingUpdateEvent.builder()
-                    .type("RANKING_UPDATE")
-                    .ranking(ranking)
-                    .build();
-            messagingTemplate.convertAndSend("/topic/war-day/" + eventId + "/ranking", update);
-        } catch (Exception e) {
-            log.warn("Failed to broadcast ranking update: {}", e.getMessage());
-        }
-    }
-
     // ─── Helpers ──────────────────────────────────────────────────────────────
 
-    private String difficultyFromLevel(int level) {
-        return switch (level) {
-            case 1 -> "EASY";
-            case 2 -> "MEDIUM";
-            case 3 -> "HARD";
-            default -> "HARD";
-        };
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
-    private WarDayDTO.GuildMapState buildMapState(GuildWarSession session, WarDayEvent event) {
-        List<WarZoneProgress> progressList = progressRepository.findAllByGuildWarSessionId(session.getId());
-
-        List<WarDayDTO.ZoneState> zoneStates = progressList.stream().map(p -> {
-            WarZoneTemplate zone = p.getZoneTemplate();
-            int required = (int) Math.ceil(zone.getQuestionCount() * CONQUEST_THRESHOLD);
+    private WarDayDTO.GuildMapState buildMapState(WarDayEvent event, Guild guild, WarDayZoneEngine.SessionView session) {
+        List<WarDayDTO.ZoneState> zoneStates = session.zones().stream().map(p -> {
+            WarDayZoneEngine.ZoneDef zone = p.zone();
+            int required = zone.requiredCorrect();
             double progressPct = required > 0
-                    ? Math.min(100.0, (p.getCorrectAnswers() * 100.0) / required)
+                    ? Math.min(100.0, (p.correctAnswers() * 100.0) / required)
                     : 0;
 
             return WarDayDTO.ZoneState.builder()
-                    .zoneId(zone.getId())
-                    .name(zone.getName())
-                    .zoneType(zone.getZoneType())
-                    .difficultyLevel(zone.getDifficultyLevel())
-                    .positionX(zone.getPositionX())
-                    .positionY(zone.getPositionY())
-                    .questionCount(zone.getQuestionCount())
-                    .pointsPerCorrect(zone.getPointsPerCorrect())
-                    .terrainType(zone.getTerrainType())
-                    .prerequisiteZoneIds(zone.getPrerequisiteZoneIds())
-                    .status(p.getStatus())
-                    .questionsAnswered(p.getQuestionsAnswered())
-                    .correctAnswers(p.getCorrectAnswers())
-                    .totalPoints(p.getTotalPoints())
-                    .conqueredAt(p.getConqueredAt() != null ? p.getConqueredAt().toString() : null)
+                    .zoneId(zone.id())
+                    .name(zone.name())
+                    .zoneType(zone.zoneType())
+                    .difficultyLevel(zone.difficultyLevel())
+                    .positionX(zone.positionX())
+                    .positionY(zone.positionY())
+                    .questionCount(zone.questionCount())
+                    .pointsPerCorrect(zone.pointsPerCorrect())
+                    .terrainType(zone.terrainType())
+                    .prerequisiteZoneIds(zone.prerequisiteZoneIds())
+                    .status(p.status())
+                    .questionsAnswered(p.questionsAnswered())
+                    .correctAnswers(p.correctAnswers())
+                    .totalPoints(p.totalPoints())
+                    .conqueredAt(p.conqueredAt() != null ? p.conqueredAt().toString() : null)
                     .progressPercent(progressPct)
                     .build();
         }).collect(Collectors.toList());
 
         return WarDayDTO.GuildMapState.builder()
                 .eventId(event.getId())
-                .guildId(session.getGuild().getId())
-                .guildName(session.getGuild().getName())
-                .totalScore(session.getTotalScore())
-                .zonesConquered(session.getZonesConquered())
-                .sessionStatus(session.getStatus())
+                .guildId(guild.getId())
+                .guildName(guild.getName())
+                .totalScore(session.totalScore())
+                .zonesConquered(session.zonesConquered())
+                .sessionStatus(session.status())
                 .zones(zoneStates)
                 .build();
     }
@@ -0,0 +1,218 @@
+package com.bizu.portal.student.application.war;
+
+import com.bizu.portal.content.application.QuestionPoolService;
+import com.bizu.portal.content.application.QuestionsChangedEvent;
+import com.bizu.portal.content.domain.Question;
+import com.bizu.portal.content.infrastructure.QuestionRepository;
+import com.bizu.portal.student.domain.war.WarDayEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shuffled question decks per (event, zone), built once when the event starts.
+ *
+ * A deck is the zone's candidate questions in a fixed random order: quiz questions of the zone's
+ * difficulty first, then any quiz, then simulado of the difficulty, then any simulado, each tier
+ * shuffled, up to {@code max-size}. Guild sessions walk it with a cursor and a bitset of answered
+ * positions (kept by {@link WarDayZoneEngine}), so handing out a question needs no sampling and
+ * never repeats until the deck is exhausted.
+ *
+ * Decks are persisted as the concatenated 16-byte ids; the first instance to build one wins and
+ * the others (and restarts) read it back, so every session of the event sees the same order.
+ * Served questions are cached by id, so a fetch is a map hit or a primary-key lookup; the cache is
+ * dropped whenever questions change, so an edited answer key is used from then on. An empty deck
+ * (no questions yet) is not persisted, so the zone builds it again on its next use.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WarDayQuestionDeckService {
+
+    private static final String[] CATEGORIES = {"QUIZ", "SIMULADO"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QuestionPoolService questionPoolService;
+    private final QuestionRepository questionRepository;
+    private final WarDayZoneEngine zoneEngine;
+
+    @Value("${axon.war-day.decks.max-size:300}")
+    private int maxSize;
+
+    @Value("${axon.war-day.decks.card-cache-size:5000}")
+    private int cardCacheSize;
+
+    private record DeckKey(UUID eventId, UUID zoneId) {}
+
+    private final Map<DeckKey, Deck> decks = new ConcurrentHashMap<>();
+    private final Map<UUID, Card> cards = new ConcurrentHashMap<>();
+
+    public record Deck(UUID[] questionIds, Map<UUID, Integer> positions) {
+        static Deck of(UUID[] questionIds) {
+            Map<UUID, Integer> positions = new HashMap<>(questionIds.length * 2);
+            for (int i = 0; i < questionIds.length; i++) positions.putIfAbsent(questionIds[i], i);
+            return new Deck(questionIds, positions);
+        }
+
+        public int size() {
+            return questionIds.length;
+        }
+
+        /**
+         * Position of the question in the deck, or -1 when it is not part of it.
+         */
+        public int positionOf(UUID questionId) {
+            return positions.getOrDefault(questionId, -1);
+        }
+    }
+
+    /**
+     * The parts of a question the War Day screens use, detached from the persistence context.
+     */
+    public record Card(UUID id, String statement, Map<String, Object> options, String imageUrl,
+                       String difficulty, String correctOption, String resolution) {}
+
+    /**
+     * Builds (or loads) the decks of every zone of the event's map.
+     */
+    public void prepare(WarDayEvent event) {
+        if (event.getMapTemplate() == null) return;
+        for (WarDayZoneEngine.ZoneDef zone : zoneEngine.layout(event.getMapTemplate().getId())) {
+            deck(event.getId(), zone);
+        }
+    }
+
+    public Deck deck(WarDayEvent event, UUID zoneId) {
+        Deck cached = decks.get(new DeckKey(event.getId(), zoneId));
+        if (cached != null) return cached;
+
+        WarDayZoneEngine.ZoneDef zone = event.getMapTemplate() == null ? null
+                : zoneEngine.layout(event.getMapTemplate().getId()).stream()
+                        .filter(z -> z.id().equals(zoneId))
+                        .findFirst()
+                        .orElse(null);
+        if (zone == null) {
+            throw new RuntimeException("Zona não encontrada");
+        }
+        return deck(event.getId(), zone);
+    }
+
+    public Card card(UUID questionId) {
+        Card cached = cards.get(questionId);
+        if (cached != null) return cached;
+
+        Question question = questionRepository.findById(questionId).orElse(null);
+        if (question == null) return null;
+        Card card = new Card(question.getId(), question.getStatement(), question.getOptions(),
+                question.resolveImageUrl(), question.getDifficulty(), question.getCorrectOption(), question.getResolution());
+        if (cards.size() >= cardCacheSize) cards.clear();
+        cards.put(questionId, card);
+        return card;
+    }
+
+    @EventListener
+    public void onQuestionsChanged(QuestionsChangedEvent event) {
+        cards.clear();
+    }
+
+    public void evict(UUID eventId) {
+        decks.keySet().removeIf(key -> key.eventId().equals(eventId));
+        if (decks.isEmpty()) cards.clear();
+    }
+
+    private Deck deck(UUID eventId, WarDayZoneEngine.ZoneDef zone) {
+        Deck deck = decks.computeIfAbsent(new DeckKey(eventId, zone.id()), key -> {
+            byte[] stored = read(key);
+            if (stored == null || stored.length == 0) {
+                UUID[] built = build(zone);
+                if (built.length == 0) {
+                    // Nada a persistir: o deck vazio não fica fixo para o resto do evento (nem um gravado antes)
+                    log.warn("War Day deck for event {} zone '{}' is empty, no questions available", eventId, zone.name());
+                    return null;
+                }
+                jdbcTemplate.update("""
+                    INSERT INTO student.war_question_decks (war_day_event_id, zone_template_id, question_ids)
+                    VALUES (?, ?, ?)
+                    ON CONFLICT (war_day_event_id, zone_template_id) DO UPDATE SET question_ids = EXCLUDED.question_ids
+                    WHERE octet_length(student.war_question_decks.question_ids) = 0
+                    """, eventId, zone.id(), encode(built));
+                // Outra instância pode ter gravado antes: vale o deck persistido
+                stored = read(key);
+                if (stored == null) return Deck.of(built);
+                log.info("War Day deck built for event {} zone '{}': {} questions", eventId, zone.name(), built.length);
+            }
+            return Deck.of(decode(stored));
+        });
+        return deck != null ? deck : Deck.of(new UUID[0]);
+    }
+
+    private byte[] read(DeckKey key) {
+        List<byte[]> rows = jdbcTemplate.query(
+                "SELECT question_ids FROM student.war_question_decks WHERE war_day_event_id = ? AND zone_template_id = ?",
+                (rs, i) -> rs.getBytes("question_ids"), key.eventId(), key.zoneId());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private UUID[] build(WarDayZoneEngine.ZoneDef zone) {
+        String difficulty = difficultyFromLevel(zone.difficultyLevel());
+        Set<UUID> deck = new LinkedHashSet<>();
+        for (String category : CATEGORIES) {
+            for (String tierDifficulty : new String[]{difficulty, null}) {
+                if (deck.size() >= maxSize) break;
+                List<UUID> tier = questionPoolService.ids(null, tierDifficulty, category);
+                Collections.shuffle(tier);
+                for (UUID id : tier) {
+                    if (deck.size() >= maxSize) break;
+                    deck.add(id);
+                }
+            }
+        }
+        if (deck.isEmpty()) {
+            // Sem quiz nem simulado: qualquer questão do banco
+            List<UUID> any = questionPoolService.ids(null, null, null);
+            Collections.shuffle(any);
+            deck.addAll(any.subList(0, Math.min(maxSize, any.size())));
+        }
+        return deck.toArray(new UUID[0]);
+    }
+
+    private static byte[] encode(UUID[] ids) {
+        ByteBuffer buffer = ByteBuffer.allocate(ids.length * 16);
+        for (UUID id : ids) {
+            buffer.putLong(id.getMostSignificantBits());
+            buffer.putLong(id.getLeastSignificantBits());
+        }
+        return buffer.array();
+    }
+
+    private static UUID[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<UUID> ids = new ArrayList<>(bytes.length / 16);
+        while (buffer.remaining() >= 16) {
+            ids.add(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        return ids.toArray(new UUID[0]);
+    }
+
+    private static String difficultyFromLevel(int level) {
+        return switch (level) {
+            case 1 -> "EASY";
+            case 2 -> "MEDIUM";
+            default -> "HARD";
+        };
+    }
+}
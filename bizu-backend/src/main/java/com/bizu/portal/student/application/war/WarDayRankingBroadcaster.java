@@ -0,0 +1,326 @@
+package com.bizu.portal.student.application.war;
+
+import com.bizu.portal.student.api.war.WarDayDTO;
+import com.bizu.portal.student.domain.war.GuildWarSession;
+import com.bizu.portal.student.infrastructure.war.GuildWarSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live War Day ranking, coalesced. Score changes update this node's score table and the event's
+ * shared table in Redis; at most one frame per event is sent every {@code broadcast-interval-ms},
+ * carrying only the rows whose position, score or zones changed ({@code RANKING_DELTA}).
+ *
+ * Every node merges the shared table into its own on each interval (so the live ranking endpoint
+ * agrees across nodes), but only the node holding the event's publisher lease in Redis sends
+ * frames, so clients never get interleaved deltas from boards that disagree. Frame versions come
+ * from one Redis counter per event and only grow, also across a change of publisher; clients drop
+ * frames whose version is not newer than the last one they applied. A node that takes over the
+ * lease starts with a complete frame. If Redis is unavailable every node publishes on its own,
+ * which is also when the Redis broker bridge cannot mirror frames between nodes.
+ *
+ * Every {@code full-frame-interval-ms} the table is reloaded from the database (one query per
+ * event, whatever the conquest rate) and a complete {@code RANKING_UPDATE} is sent, which
+ * resynchronises clients that missed a delta.
+ *
+ * Key format:
+ *   war-day:ranking:{eventId}:scores      guildId → "score:zones", highest pair wins
+ *   war-day:ranking:{eventId}:publisher   node id of the publisher, short lease renewed every interval
+ *   war-day:ranking:{eventId}:version     last frame version
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WarDayRankingBroadcaster {
+
+    private static final long IDLE_EVICTION_MS = 30 * 60 * 1000L;
+    private static final String PREFIX = "war-day:ranking:";
+    private static final Duration KEY_TTL = Duration.ofDays(1);
+
+    /**
+     * KEYS[1] scores hash; ARGV guildId, score, zones, ttl seconds. Totals only grow, so an older
+     * write arriving late never replaces a newer one.
+     */
+    private static final DefaultRedisScript<Long> KEEP_BEST = new DefaultRedisScript<>("""
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            local score, zones = tonumber(ARGV[2]), tonumber(ARGV[3])
+            local write = true
+            if current then
+                local sep = string.find(current, ':')
+                local oldScore = tonumber(string.sub(current, 1, sep - 1))
+                local oldZones = tonumber(string.sub(current, sep + 1))
+                write = score > oldScore or (score == oldScore and zones > oldZones)
+            end
+            if write then redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3]) end
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            if write then return 1 end
+            return 0
+            """, Long.class);
+
+    /** KEYS[1] publisher lease; ARGV node id, lease ms. Takes a free lease or renews our own. */
+    private static final DefaultRedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local holder = redis.call('GET', KEYS[1])
+            if not holder or holder == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS[1] version counter; ARGV floor, now (ms), ttl seconds. A fresh counter (first frame, or
+     * Redis lost the key) starts at the clock, and never goes below the caller's last version.
+     */
+    private static final DefaultRedisScript<Long> NEXT_VERSION = new DefaultRedisScript<>("""
+            local version = redis.call('INCR', KEYS[1])
+            if version == 1 then version = tonumber(ARGV[2]) end
+            if version < tonumber(ARGV[1]) then version = tonumber(ARGV[1]) end
+            redis.call('SET', KEYS[1], version, 'EX', ARGV[3])
+            return version
+            """, Long.class);
+
+    private final GuildWarSessionRepository sessionRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${axon.war-day.ranking.full-frame-interval-ms:10000}")
+    private long fullFrameIntervalMs;
+
+    @Value("${axon.war-day.ranking.broadcast-interval-ms:500}")
+    private long broadcastIntervalMs;
+
+    private final Map<UUID, Board> boards = new ConcurrentHashMap<>();
+
+    private record Row(UUID guildId, String guildName, String guildBadge, long totalScore, int zonesConquered) {}
+
+    private static final class Board {
+        private final Map<UUID, Row> rows = new HashMap<>();
+        private Map<UUID, WarDayDTO.GuildRankingEntry> lastSent = Map.of();
+        private long version;
+        private long lastFullAt;
+        private long lastChangeAt = System.currentTimeMillis();
+    }
+
+    public void guildJoined(UUID eventId, UUID guildId, String guildName, String guildBadge) {
+        Board board = board(eventId);
+        synchronized (board) {
+            board.rows.putIfAbsent(guildId, new Row(guildId, guildName, guildBadge, 0, 0));
+            touch(board);
+        }
+        share(eventId, guildId, 0, 0);
+    }
+
+    /**
+     * Records the guild's new totals (absolute values, not increments).
+     */
+    public void scoreChanged(UUID eventId, UUID guildId, long totalScore, int zonesConquered) {
+        Board board = board(eventId);
+        synchronized (board) {
+            merge(board, guildId, totalScore, zonesConquered);
+            touch(board);
+        }
+        share(eventId, guildId, totalScore, zonesConquered);
+    }
+
+    /**
+     * Current ranking from the score table, best first; loads it on first use.
+     */
+    public List<WarDayDTO.GuildRankingEntry> ranking(UUID eventId) {
+        Board board = board(eventId);
+        synchronized (board) {
+            return new ArrayList<>(rank(board).values());
+        }
+    }
+
+    public void evict(UUID eventId) {
+        boards.remove(eventId);
+    }
+
+    @Scheduled(fixedDelayString = "${axon.war-day.ranking.broadcast-interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        boards.forEach((eventId, board) -> {
+            try {
+                flush(eventId, board, now);
+            } catch (Exception e) {
+                log.warn("Failed to broadcast ranking update for event {}: {}", eventId, e.getMessage());
+            }
+        });
+        boards.entrySet().removeIf(entry -> now - entry.getValue().lastChangeAt > IDLE_EVICTION_MS);
+    }
+
+    private void flush(UUID eventId, Board board, long now) {
+        boolean full = now - board.lastFullAt >= fullFrameIntervalMs;
+        // Redis e banco fora do lock: as respostas continuam atualizando a tabela enquanto isso
+        Map<Object, Object> shared = sharedScores(eventId);
+        List<GuildWarSession> reloaded = full ? sessionRepository.findRankingByEventId(eventId) : null;
+        boolean publisher = holdsPublisherLease(eventId);
+
+        Map<UUID, WarDayDTO.GuildRankingEntry> current;
+        List<WarDayDTO.GuildRankingEntry> changed = new ArrayList<>();
+        boolean complete;
+        synchronized (board) {
+            if (reloaded != null) {
+                for (GuildWarSession session : reloaded) {
+                    UUID guildId = session.getGuild().getId();
+                    Row local = board.rows.get(guildId);
+                    // Mantém o valor local se for mais novo que o lido (resposta processada durante a consulta)
+                    long score = local != null ? Math.max(local.totalScore(), session.getTotalScore()) : session.getTotalScore();
+                    int zones = local != null ? Math.max(local.zonesConquered(), session.getZonesConquered()) : session.getZonesConquered();
+                    board.rows.put(guildId, new Row(guildId, session.getGuild().getName(), session.getGuild().getBadge(), score, zones));
+                }
+                board.lastFullAt = now;
+            }
+            if (shared != null) {
+                shared.forEach((guild, value) -> {
+                    String[] parts = value.toString().split(":");
+                    if (merge(board, UUID.fromString(guild.toString()), Long.parseLong(parts[0]), Integer.parseInt(parts[1]))) {
+                        touch(board);
+                    }
+                });
+            }
+            if (!publisher) {
+                // Quem assumir a publicação depois começa com um frame completo
+                board.lastSent = Map.of();
+                return;
+            }
+
+            current = rank(board);
+            for (WarDayDTO.GuildRankingEntry entry : current.values()) {
+                if (!entry.equals(board.lastSent.get(entry.getGuildId()))) changed.add(entry);
+            }
+            if (changed.isEmpty()) return;
+            complete = reloaded != null || board.lastSent.isEmpty();
+            board.lastSent = current;
+        }
+
+        long version = nextVersion(eventId, board);
+        WarDayDTO.RankingUpdateEvent frame = WarDayDTO.RankingUpdateEvent.builder()
+                .type(complete ? "RANKING_UPDATE" : "RANKING_DELTA")
+                .version(version)
+                .ranking(complete ? new ArrayList<>(current.values()) : changed)
+                .build();
+        messagingTemplate.convertAndSend("/topic/war-day/" + eventId + "/ranking", frame);
+    }
+
+    /**
+     * Applies totals to the board if they are newer (higher) than the row's.
+     *
+     * @return whether the row changed
+     */
+    private static boolean merge(Board board, UUID guildId, long totalScore, int zonesConquered) {
+        Row row = board.rows.get(guildId);
+        if (row == null) {
+            // Guild que entrou por outra instância: o próximo recarregamento traz nome e brasão
+            board.rows.put(guildId, new Row(guildId, null, null, totalScore, zonesConquered));
+            return true;
+        }
+        boolean newer = totalScore > row.totalScore()
+                || (totalScore == row.totalScore() && zonesConquered > row.zonesConquered());
+        if (newer) {
+            board.rows.put(guildId, new Row(guildId, row.guildName(), row.guildBadge(), totalScore, zonesConquered));
+        }
+        return newer;
+    }
+
+    private void share(UUID eventId, UUID guildId, long totalScore, int zonesConquered) {
+        try {
+            redisTemplate.execute(KEEP_BEST, List.of(PREFIX + eventId + ":scores"), guildId.toString(),
+                    String.valueOf(totalScore), String.valueOf(zonesConquered), String.valueOf(KEY_TTL.toSeconds()));
+        } catch (Exception e) {
+            log.debug("Ranking compartilhado indisponível para o evento {}: {}", eventId, e.getMessage());
+        }
+    }
+
+    private Map<Object, Object> sharedScores(UUID eventId) {
+        try {
+            return redisTemplate.opsForHash().entries(PREFIX + eventId + ":scores");
+        } catch (Exception e) {
+            log.debug("Ranking compartilhado indisponível para o evento {}: {}", eventId, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean holdsPublisherLease(UUID eventId) {
+        long leaseMs = Math.max(2_000, broadcastIntervalMs * 4);
+        try {
+            Long acquired = redisTemplate.execute(ACQUIRE, List.of(PREFIX + eventId + ":publisher"),
+                    nodeId, String.valueOf(leaseMs));
+            return acquired != null && acquired == 1L;
+        } catch (Exception e) {
+            // Sem Redis não há ponte entre os nós: cada um publica para os seus clientes
+            return true;
+        }
+    }
+
+    private long nextVersion(UUID eventId, Board board) {
+        synchronized (board) {
+            long floor = board.version + 1;
+            long version;
+            try {
+                Long next = redisTemplate.execute(NEXT_VERSION, List.of(PREFIX + eventId + ":version"),
+                        String.valueOf(floor), String.valueOf(System.currentTimeMillis()), String.valueOf(KEY_TTL.toSeconds()));
+                version = next != null ? Math.max(next, floor) : Math.max(floor, System.currentTimeMillis());
+            } catch (Exception e) {
+                version = Math.max(floor, System.currentTimeMillis());
+            }
+            board.version = version;
+            return version;
+        }
+    }
+
+    private Board board(UUID eventId) {
+        return boards.computeIfAbsent(eventId, id -> {
+            Board board = new Board();
+            for (GuildWarSession session : sessionRepository.findRankingByEventId(id)) {
+                UUID guildId = session.getGuild().getId();
+                board.rows.put(guildId, new Row(guildId, session.getGuild().getName(), session.getGuild().getBadge(),
+                        session.getTotalScore(), session.getZonesConquered()));
+            }
+            board.lastFullAt = System.currentTimeMillis();
+            return board;
+        });
+    }
+
+    private static void touch(Board board) {
+        board.lastChangeAt = System.currentTimeMillis();
+    }
+
+    private static Map<UUID, WarDayDTO.GuildRankingEntry> rank(Board board) {
+        List<Row> rows = new ArrayList<>(board.rows.values());
+        rows.sort(Comparator.comparingLong(Row::totalScore).reversed()
+                .thenComparing(Comparator.comparingInt(Row::zonesConquered).reversed())
+                .thenComparing(row -> row.guildId().toString()));
+
+        Map<UUID, WarDayDTO.GuildRankingEntry> ranking = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            ranking.put(row.guildId(), WarDayDTO.GuildRankingEntry.builder()
+                    .position(i + 1)
+                    .guildId(row.guildId())
+                    .guildName(row.guildName())
+                    .guildBadge(row.guildBadge())
+                    .totalScore(row.totalScore())
+                    .zonesConquered(row.zonesConquered())
+                    .build());
+        }
+        return ranking;
+    }
+}
@@ -20,6 +20,9 @@ public class WarDaySchedulerService {
 
     private final WarDayEventRepository eventRepository;
     private final WarDayXpService xpService;
+    private final WarDayRankingBroadcaster rankingBroadcaster;
+    private final WarDayZoneEngine zoneEngine;
+    private final WarDayQuestionDeckService deckService;
     private final SimpMessagingTemplate messagingTemplate;
 
     @Scheduled(fixedDelay = 60_000) // every minute
@@ -30,6 +33,7 @@ public class WarDaySchedulerService {
             event.setStatus("ACTIVE");
             eventRepository.save(event);
             log.info("War Day event '{}' started automatically", event.getTitle());
+            prepareDecks(event);
             broadcastEventStatus(event.getId().toString(), "STARTED", event.getTitle());
         }
     }
@@ -43,16 +47,29 @@ public class WarDaySchedulerService {
             eventRepository.save(event);
             log.info("War Day event '{}' ended automatically, distributing XP...", event.getTitle());
 
+            // Grava o que o motor ainda tem em memória antes de fechar o ranking
+            zoneEngine.closeEvent(event.getId());
             try {
                 xpService.distributeXpAndFinalizeRankings(event.getId());
             } catch (Exception e) {
                 log.error("Failed to distribute XP for event {}: {}", event.getId(), e.getMessage());
             }
 
+            rankingBroadcaster.evict(event.getId());
+            deckService.evict(event.getId());
             broadcastEventStatus(event.getId().toString(), "FINISHED", event.getTitle());
         }
     }
 
+    private void prepareDecks(WarDayEvent event) {
+        try {
+            deckService.prepare(event);
+        } catch (Exception e) {
+            // Sem deck pronto a zona monta o seu na primeira questão pedida
+            log.warn("Failed to prepare question decks for event {}: {}", event.getId(), e.getMessage());
+        }
+    }
+
     private void broadcastEventStatus(String eventId, String status, String title) {
         try {
             messagingTemplate.convertAndSend(
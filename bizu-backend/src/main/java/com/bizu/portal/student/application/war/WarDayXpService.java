@@ -1,106 +1,292 @@
 package com.bizu.portal.student.application.war;
 
 import com.bizu.portal.student.application.GamificationService;
-import com.bizu.portal.student.domain.war.*;
-import com.bizu.portal.student.guild.domain.GuildMember;
-import com.bizu.portal.student.guild.repository.GuildMemberRepository;
-import com.bizu.portal.student.infrastructure.war.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.UUID;
 
+/**
+ * War Day finalization as a resumable job, checkpointed per phase in
+ * {@code student.war_day_finalizations}:
+ *
+ * RANKINGS - final rankings of every guild (with per-guild correct answers) upserted by one
+ * statement, sessions marked FINISHED; GRANTS - XP due to each member of the winning guild
+ * computed by one aggregate into {@code war_day_xp_grants}; XP - grants applied in chunks, each
+ * grant marked in the same transaction as its XP; TOTALS - distributed XP copied to the rankings.
+ *
+ * Each phase commits together with its checkpoint, so a crash resumes at the phase it was in and
+ * a grant is never applied twice nor skipped. The job holds a lease while it runs; unfinished
+ * jobs whose lease expired are resumed by {@link #resumePending}. Phase durations are logged and
+ * kept in {@code phase_timings}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class WarDayXpService {
 
-    private final WarDayEventRepository eventRepository;
-    private final GuildWarSessionRepository sessionRepository;
-    private final WarZoneAttemptRepository attemptRepository;
-    private final WarDayRankingRepository rankingRepository;
-    private final GuildMemberRepository guildMemberRepository;
+    private static final String SOURCE = "WAR_DAY";
+
+    private final JdbcTemplate jdbcTemplate;
     private final GamificationService gamificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${axon.war-day.finalization.xp-batch-size:200}")
+    private int xpBatchSize;
+
+    @Value("${axon.war-day.finalization.lease-seconds:300}")
+    private int leaseSeconds;
+
+    public WarDayXpService(JdbcTemplate jdbcTemplate, GamificationService gamificationService,
+                           PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gamificationService = gamificationService;
+        // Cada fase em transação própria, mesmo quando chamado de dentro da transação que encerra o evento
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
-    @Transactional
+    private record Grant(UUID userId, int amount) {}
+
+    /**
+     * Starts (or resumes) the finalization of the event. Returns without doing anything when the
+     * event is already finalized or another worker holds the job.
+     */
     public void distributeXpAndFinalizeRankings(UUID eventId) {
-        WarDayEvent event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new RuntimeException("Evento não encontrado"));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "INSERT INTO student.war_day_finalizations (war_day_event_id) VALUES (?) ON CONFLICT (war_day_event_id) DO NOTHING",
+                eventId));
+        run(eventId);
+    }
 
-        List<GuildWarSession> sessions = sessionRepository.findRankingByEventId(eventId);
-        if (sessions.isEmpty()) {
-            log.info("No sessions found for War Day event {}", eventId);
-            return;
+    @Scheduled(fixedDelayString = "${axon.war-day.finalization.resume-interval-ms:60000}")
+    public void resumePending() {
+        List<UUID> pending = jdbcTemplate.queryForList("""
+            SELECT war_day_event_id FROM student.war_day_finalizations
+            WHERE finished_at IS NULL AND (locked_until IS NULL OR locked_until < NOW())
+            """, UUID.class);
+        for (UUID eventId : pending) {
+            log.info("Resuming War Day finalization of event {}", eventId);
+            try {
+                run(eventId);
+            } catch (Exception e) {
+                log.error("War Day finalization of event {} failed, will retry: {}", eventId, e.getMessage());
+            }
         }
+    }
 
-        // Build and save final rankings
-        for (int i = 0; i < sessions.size(); i++) {
-            GuildWarSession session = sessions.get(i);
-            int position = i + 1;
-
-            long correctTotal = attemptRepository.countCorrectByEventId(eventId);
-
-            WarDayRanking ranking = WarDayRanking.builder()
-                    .warDayEventId(eventId)
-                    .guildId(session.getGuild().getId())
-                    .guildName(session.getGuild().getName())
-                    .guildBadge(session.getGuild().getBadge())
-                    .finalScore(session.getTotalScore())
-                    .zonesConquered(session.getZonesConquered())
-                    .correctAnswersTotal((int) correctTotal)
-                    .finalPosition(position)
-                    .build();
-
-            rankingRepository.save(ranking);
-            session.setStatus("FINISHED");
-            sessionRepository.save(session);
-        }
+    private void run(UUID eventId) {
+        String phase = claim(eventId);
+        if (phase == null) return;
 
-        // Distribute XP only to the winning guild (position 1)
-        GuildWarSession winnerSession = sessions.get(0);
-        distributeXpToWinners(event, winnerSession);
+        while (!"DONE".equals(phase)) {
+            long start = System.currentTimeMillis();
+            String next = switch (phase) {
+                case "RANKINGS" -> finalizeRankings(eventId);
+                case "GRANTS" -> computeGrants(eventId);
+                case "XP" -> applyGrants(eventId);
+                case "TOTALS" -> recordTotals(eventId);
+                default -> throw new IllegalStateException("Fase de encerramento desconhecida: " + phase);
+            };
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("War Day {} finalization phase {} took {} ms", eventId, phase, elapsed);
+            recordTiming(eventId, phase, elapsed);
+            phase = next;
+        }
 
-        log.info("War Day {} finalized. Winner guild: {}", eventId, winnerSession.getGuild().getName());
+        String winner = jdbcTemplate.query("""
+            SELECT guild_name FROM student.war_day_rankings WHERE war_day_event_id = ? AND final_position = 1
+            """, rs -> rs.next() ? rs.getString(1) : null, eventId);
+        log.info("War Day {} finalized. Winner guild: {}", eventId, winner);
     }
 
-    private void distributeXpToWinners(WarDayEvent event, GuildWarSession winnerSession) {
-        UUID guildId = winnerSession.getGuild().getId();
-        List<GuildMember> members = guildMemberRepository.findAllByGuildId(guildId);
+    /**
+     * Takes the job lease; the current phase, or null when finished or held by another worker.
+     */
+    private String claim(UUID eventId) {
+        List<String> phase = transactionTemplate.execute(status -> jdbcTemplate.queryForList("""
+            UPDATE student.war_day_finalizations
+            SET locked_until = NOW() + make_interval(secs => ?), updated_at = NOW()
+            WHERE war_day_event_id = ? AND finished_at IS NULL
+              AND (locked_until IS NULL OR locked_until < NOW())
+            RETURNING phase
+            """, String.class, leaseSeconds, eventId));
+        return phase.isEmpty() ? null : phase.get(0);
+    }
 
-        int xpPerCorrect = event.getXpRewardPerCorrect();
-        int totalXpDistributed = 0;
+    // ─── Phases ───────────────────────────────────────────────────────────────
 
-        for (GuildMember member : members) {
-            UUID userId = member.getUser().getId();
+    private String finalizeRankings(UUID eventId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int guilds = jdbcTemplate.update("""
+                INSERT INTO student.war_day_rankings
+                    (war_day_event_id, guild_id, guild_name, guild_badge, final_score, zones_conquered,
+                     correct_answers_total, final_position)
+                SELECT s.war_day_event_id, g.id, g.name, g.badge, s.total_score, s.zones_conquered,
+                       COALESCE(c.correct, 0),
+                       ROW_NUMBER() OVER (ORDER BY s.total_score DESC, s.zones_conquered DESC, g.id)
+                FROM student.guild_war_sessions s
+                JOIN student.guilds g ON g.id = s.guild_id
+                LEFT JOIN (
+                    SELECT p.guild_war_session_id, COUNT(*) AS correct
+                    FROM student.war_zone_attempts a
+                    JOIN student.war_zone_progress p ON p.id = a.zone_progress_id
+                    JOIN student.guild_war_sessions cs ON cs.id = p.guild_war_session_id
+                    WHERE cs.war_day_event_id = ? AND a.correct
+                    GROUP BY p.guild_war_session_id
+                ) c ON c.guild_war_session_id = s.id
+                WHERE s.war_day_event_id = ?
+                ON CONFLICT (war_day_event_id, guild_id) DO UPDATE SET
+                    guild_name = EXCLUDED.guild_name,
+                    guild_badge = EXCLUDED.guild_badge,
+                    final_score = EXCLUDED.final_score,
+                    zones_conquered = EXCLUDED.zones_conquered,
+                    correct_answers_total = EXCLUDED.correct_answers_total,
+                    final_position = EXCLUDED.final_position
+                """, eventId, eventId);
+            jdbcTemplate.update("UPDATE student.guild_war_sessions SET status = 'FINISHED' WHERE war_day_event_id = ?", eventId);
+            if (guilds == 0) {
+                log.info("No sessions found for War Day event {}", eventId);
+            }
+            advance(eventId, guilds == 0 ? "DONE" : "GRANTS");
+        });
+        return phase(eventId);
+    }
 
-            // Count correct answers for this user in the event
-            Long userCorrectAnswers = attemptRepository.sumPointsBySessionAndUser(winnerSession.getId(), userId);
-            if (userCorrectAnswers == null || userCorrectAnswers == 0) continue;
+    /**
+     * XP only for the winning guild: per member, the points earned in the event rounded down to a
+     * multiple of the event's XP per correct answer, at least one reward for anyone who scored.
+     */
+    private String computeGrants(UUID eventId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer xpPerCorrect = jdbcTemplate.queryForObject(
+                    "SELECT xp_reward_per_correct FROM student.war_day_events WHERE id = ?", Integer.class, eventId);
+            if (xpPerCorrect != null && xpPerCorrect > 0) {
+                int grants = jdbcTemplate.update("""
+                    INSERT INTO student.war_day_xp_grants (war_day_event_id, user_id, guild_id, amount)
+                    SELECT r.war_day_event_id, m.user_id, m.guild_id,
+                           GREATEST(?, (pts.points / ?) * ?)::int
+                    FROM student.war_day_rankings r
+                    JOIN student.guild_war_sessions s ON s.war_day_event_id = r.war_day_event_id AND s.guild_id = r.guild_id
+                    JOIN student.guild_members m ON m.guild_id = r.guild_id
+                    JOIN (
+                        SELECT p.guild_war_session_id, a.user_id, SUM(a.points_earned) AS points
+                        FROM student.war_zone_attempts a
+                        JOIN student.war_zone_progress p ON p.id = a.zone_progress_id
+                        JOIN student.guild_war_sessions ps ON ps.id = p.guild_war_session_id
+                        WHERE ps.war_day_event_id = ?
+                        GROUP BY p.guild_war_session_id, a.user_id
+                    ) pts ON pts.guild_war_session_id = s.id AND pts.user_id = m.user_id
+                    WHERE r.war_day_event_id = ? AND r.final_position = 1 AND pts.points > 0
+                    ON CONFLICT (war_day_event_id, user_id) DO NOTHING
+                    """, xpPerCorrect, xpPerCorrect, xpPerCorrect, eventId, eventId);
+                log.info("War Day {}: {} XP grants computed", eventId, grants);
+            }
+            advance(eventId, "XP");
+        });
+        return phase(eventId);
+    }
 
-            // Each correct answer = xpPerCorrect XP bonus
-            int xpToAward = (int) (userCorrectAnswers / event.getXpRewardPerCorrect() * xpPerCorrect);
-            if (xpToAward <= 0) xpToAward = xpPerCorrect; // minimum reward for participation
+    private String applyGrants(UUID eventId) {
+        while (true) {
+            List<Grant> chunk = jdbcTemplate.query("""
+                SELECT user_id, amount FROM student.war_day_xp_grants
+                WHERE war_day_event_id = ? AND granted_at IS NULL AND error IS NULL
+                ORDER BY user_id
+                LIMIT ?
+                """, (rs, i) -> new Grant(rs.getObject("user_id", UUID.class), rs.getInt("amount")), eventId, xpBatchSize);
+            if (chunk.isEmpty()) break;
 
             try {
-                gamificationService.addXp(userId, xpToAward);
-                totalXpDistributed += xpToAward;
-                log.debug("Awarded {} XP to user {} for War Day victory", xpToAward, userId);
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (Grant grant : chunk) {
+                        gamificationService.addXp(grant.userId(), grant.amount(), SOURCE);
+                    }
+                    jdbcTemplate.batchUpdate(
+                            "UPDATE student.war_day_xp_grants SET granted_at = NOW() WHERE war_day_event_id = ? AND user_id = ?",
+                            chunk.stream().map(grant -> new Object[]{eventId, grant.userId()}).toList());
+                });
             } catch (Exception e) {
-                log.warn("Failed to award XP to user {}: {}", userId, e.getMessage());
+                // Lote desfeito: aplica um a um para isolar quem falhou
+                log.warn("War Day {}: XP chunk failed ({}), applying one by one", eventId, e.getMessage());
+                chunk.forEach(grant -> applyOne(eventId, grant));
             }
+            renewLease(eventId);
         }
 
-        // Update ranking with distributed XP
-        final int finalXpDistributed = totalXpDistributed;
-        rankingRepository.findByWarDayEventIdAndGuildId(event.getId(), guildId)
-                .ifPresent(r -> {
-                    r.setXpDistributed(finalXpDistributed);
-                    rankingRepository.save(r);
-                });
+        transactionTemplate.executeWithoutResult(status -> advance(eventId, "TOTALS"));
+        return "TOTALS";
+    }
+
+    private void applyOne(UUID eventId, Grant grant) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                gamificationService.addXp(grant.userId(), grant.amount(), SOURCE);
+                jdbcTemplate.update("UPDATE student.war_day_xp_grants SET granted_at = NOW() WHERE war_day_event_id = ? AND user_id = ?",
+                        eventId, grant.userId());
+            });
+        } catch (Exception e) {
+            log.warn("Failed to award XP to user {}: {}", grant.userId(), e.getMessage());
+            // Fica registrado e fora das próximas rodadas, como antes (falha individual não trava o encerramento)
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE student.war_day_xp_grants SET error = ? WHERE war_day_event_id = ? AND user_id = ?",
+                    String.valueOf(e.getMessage()), eventId, grant.userId()));
+        }
+    }
+
+    private String recordTotals(UUID eventId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("""
+                UPDATE student.war_day_rankings r SET xp_distributed = t.total
+                FROM (
+                    SELECT guild_id, SUM(amount)::int AS total
+                    FROM student.war_day_xp_grants
+                    WHERE war_day_event_id = ? AND granted_at IS NOT NULL
+                    GROUP BY guild_id
+                ) t
+                WHERE r.war_day_event_id = ? AND r.guild_id = t.guild_id
+                """, eventId, eventId);
+            advance(eventId, "DONE");
+        });
+        return "DONE";
+    }
+
+    // ─── Checkpoint ───────────────────────────────────────────────────────────
+
+    private void advance(UUID eventId, String phase) {
+        jdbcTemplate.update("""
+            UPDATE student.war_day_finalizations
+            SET phase = ?, updated_at = NOW(),
+                finished_at = CASE WHEN ? = 'DONE' THEN NOW() ELSE NULL END,
+                locked_until = CASE WHEN ? = 'DONE' THEN NULL ELSE locked_until END
+            WHERE war_day_event_id = ?
+            """, phase, phase, phase, eventId);
+    }
+
+    private String phase(UUID eventId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT phase FROM student.war_day_finalizations WHERE war_day_event_id = ?", String.class, eventId);
+    }
+
+    private void renewLease(UUID eventId) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("""
+            UPDATE student.war_day_finalizations
+            SET locked_until = NOW() + make_interval(secs => ?), updated_at = NOW()
+            WHERE war_day_event_id = ?
+            """, leaseSeconds, eventId));
+    }
 
-        log.info("Distributed total {} XP to winning guild {} members", totalXpDistributed, guildId);
+    private void recordTiming(UUID eventId, String phase, long elapsedMs) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("""
+            UPDATE student.war_day_finalizations
+            SET phase_timings = phase_timings || jsonb_build_object(?::text, ?::bigint)
+            WHERE war_day_event_id = ?
+            """, phase, elapsedMs, eventId));
     }
 }
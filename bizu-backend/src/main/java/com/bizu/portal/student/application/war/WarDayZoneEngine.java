@@ -0,0 +1,913 @@
+package com.bizu.portal.student.application.war;
+
+import com.bizu.portal.student.domain.war.WarZoneTemplate;
+import com.bizu.portal.student.infrastructure.war.WarZoneTemplateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory War Day zone state, one actor per guild session.
+ *
+ * Zone progress, points and the session totals of a guild live in a {@link GuildState} whose
+ * commands (open zone, answer, snapshot) run one at a time from its mailbox on
+ * {@code warDayExecutor}: members of the same guild queue behind each other in memory instead of
+ * on a row lock, and different guilds run in parallel. Zone adjacency is precomputed per map as
+ * bitsets (prerequisites of each zone, and the zones that depend on it), so a conquest only checks
+ * its dependents.
+ *
+ * Changes are written behind every {@code flush-interval-ms} in one transaction of JDBC batches.
+ * Counters and scores are written as increments over the stored values and statuses only move
+ * forward, so several instances holding the same guild add up instead of overwriting each other;
+ * a conquest is applied only by the flush that moves the zone to CONQUERED, so its bonus counts
+ * once even when two instances conquer the zone at the same time. Every {@code sync-interval-ms}
+ * the stored totals are read back into the state, with the increments not yet written on top.
+ * Attempts carry ids generated here, so a retried flush does not insert them twice. State is
+ * loaded from those rows on first use, which is also the crash recovery path: a crash loses at
+ * most the last flush interval of answers.
+ *
+ * Closing an event is cluster-wide: the closing instance publishes a marker in Redis and waits
+ * (up to {@code close-timeout-ms}) until every instance holding state of the event has written it
+ * and left its holders set. Commands for a closed event are rejected inside the actor, so nothing
+ * is recorded after its last flush.
+ */
+@Component
+@Slf4j
+public class WarDayZoneEngine {
+
+    private static final double CONQUEST_THRESHOLD = 0.7;
+    private static final int MAILBOX_BATCH = 64;
+    private static final String PREFIX = "war-day:engine:";
+    private static final Duration KEY_TTL = Duration.ofDays(1);
+    private static final String STATUS_RANK =
+            "CASE %s WHEN 'LOCKED' THEN 0 WHEN 'AVAILABLE' THEN 1 WHEN 'IN_PROGRESS' THEN 2 ELSE 3 END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WarZoneTemplateRepository zoneTemplateRepository;
+    private final TaskExecutor warDayExecutor;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${axon.war-day.engine.command-timeout-ms:5000}")
+    private long commandTimeoutMs;
+
+    @Value("${axon.war-day.engine.sync-interval-ms:5000}")
+    private long syncIntervalMs;
+
+    @Value("${axon.war-day.engine.close-timeout-ms:10000}")
+    private long closeTimeoutMs;
+
+    private final Map<UUID, MapLayout> layouts = new ConcurrentHashMap<>();
+    private final Map<SessionKey, GuildState> states = new ConcurrentHashMap<>();
+    private final Set<UUID> closedEvents = ConcurrentHashMap.newKeySet();
+    private volatile long lastSyncAt;
+
+    public WarDayZoneEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            WarZoneTemplateRepository zoneTemplateRepository,
+                            @Qualifier("warDayExecutor") TaskExecutor warDayExecutor,
+                            StringRedisTemplate redisTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Transação própria: closeEvent é chamado de dentro da transação que encerra o evento
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.zoneTemplateRepository = zoneTemplateRepository;
+        this.warDayExecutor = warDayExecutor;
+        this.redisTemplate = redisTemplate;
+    }
+
+    // ─── Views ────────────────────────────────────────────────────────────────
+
+    public record ZoneDef(int index, UUID id, String name, String zoneType, int difficultyLevel,
+                          double positionX, double positionY, int questionCount, int pointsPerCorrect,
+                          String terrainType, Set<UUID> prerequisiteZoneIds, int requiredCorrect) {}
+
+    public record ZoneView(ZoneDef zone, UUID progressId, String status, int questionsAnswered,
+                           int correctAnswers, long totalPoints, OffsetDateTime conqueredAt) {}
+
+    public record SessionView(UUID sessionId, String status, long totalScore, int zonesConquered, List<ZoneView> zones) {}
+
+    public record Draw(ZoneView zone, UUID questionId) {}
+
+    public record AnswerOutcome(int pointsEarned, ZoneView zone, boolean conquered, List<UUID> newlyUnlockedZones,
+                                long totalScore, int zonesConquered) {}
+
+    // ─── Commands ─────────────────────────────────────────────────────────────
+
+    /**
+     * Opens the zone and hands out the next question of its deck for this guild: the first
+     * unanswered position from the cursor on (wrapping once), or the cursor position itself when
+     * the guild has answered the whole deck. The cursor moves past it, so members playing the
+     * same zone at once get different questions.
+     */
+    public Draw drawQuestion(UUID eventId, UUID guildId, UUID zoneId, WarDayQuestionDeckService.Deck deck) {
+        GuildState state = state(eventId, guildId);
+        return ask(state, () -> {
+            requireOpen(state);
+            int i = state.open(zoneId);
+            BitSet answered = state.answeredPositions(i, deck);
+            int size = deck.size();
+            int cursor = state.deckCursor[i] % size;
+            int position = answered.nextClearBit(cursor);
+            if (position >= size) position = answered.nextClearBit(0);
+            if (position >= size) position = cursor;
+
+            state.deckCursor[i] = (position + 1) % size;
+            state.dirtyZones.set(i);
+            return new Draw(state.view(i), deck.questionIds()[position]);
+        });
+    }
+
+    /**
+     * Records an answer; {@code deckPosition} is the question's position in the zone deck (-1 when
+     * it is not part of it).
+     */
+    public AnswerOutcome answer(UUID eventId, UUID guildId, UUID zoneId, UUID userId,
+                                UUID questionId, int deckPosition, String selectedAnswer, boolean correct) {
+        GuildState state = state(eventId, guildId);
+        return ask(state, () -> {
+            requireOpen(state);
+            int i = state.zoneIndex(zoneId);
+            if ("CONQUERED".equals(state.status[i])) {
+                throw new RuntimeException("Esta zona já foi conquistada!");
+            }
+            if ("LOCKED".equals(state.status[i])) {
+                throw new RuntimeException("Esta zona está bloqueada");
+            }
+
+            ZoneDef zone = state.layout.zones.get(i);
+            int pointsEarned = correct ? zone.pointsPerCorrect() : 0;
+            state.pendingAttempts.add(new PendingAttempt(UUID.randomUUID(), state.progressIds[i], userId,
+                    questionId, selectedAnswer, correct, pointsEarned, OffsetDateTime.now()));
+
+            state.markAnswered(i, questionId, deckPosition);
+            state.questionsAnswered[i]++;
+            state.answeredDelta[i]++;
+            if (correct) {
+                state.correctAnswers[i]++;
+                state.correctDelta[i]++;
+                state.totalPoints[i] += pointsEarned;
+                state.pointsDelta[i] += pointsEarned;
+            }
+            state.dirtyZones.set(i);
+
+            boolean conquered = state.correctAnswers[i] >= zone.requiredCorrect();
+            List<UUID> unlocked = new ArrayList<>();
+            if (conquered) {
+                state.status[i] = "CONQUERED";
+                state.conqueredAt[i] = OffsetDateTime.now();
+                state.conquered.set(i);
+                // Mesma regra de pontuação de antes: a conquista soma os pontos da zona inteira.
+                // No banco o bônus é somado por quem grava a conquista (ver flush)
+                state.pendingConquests.set(i);
+                state.totalScore += state.totalPoints[i];
+                state.zonesConquered++;
+                unlocked = state.unlockDependents(i);
+            } else {
+                state.totalScore += pointsEarned;
+                state.scoreDelta += pointsEarned;
+            }
+            return new AnswerOutcome(pointsEarned, state.view(i), conquered, unlocked, state.totalScore, state.zonesConquered);
+        });
+    }
+
+    public SessionView view(UUID eventId, UUID guildId) {
+        if (!closedEvents.contains(eventId)) {
+            try {
+                GuildState state = state(eventId, guildId);
+                return ask(state, state::snapshot);
+            } catch (EventClosedException e) {
+                // Encerrado enquanto isso: segue para a leitura do banco
+            }
+        }
+        // Evento encerrado: o banco é a única cópia, lida sem manter estado
+        GuildState stored = load(eventId, guildId);
+        if (stored == null) {
+            throw new RuntimeException("Sua guild não está participando deste evento");
+        }
+        return stored.snapshot();
+    }
+
+    /**
+     * Zones of a map in display order, with their precomputed conquest threshold.
+     */
+    public List<ZoneDef> layout(UUID mapId) {
+        return layouts.computeIfAbsent(mapId, this::buildLayout).zones();
+    }
+
+    public void evictLayout(UUID mapId) {
+        layouts.remove(mapId);
+    }
+
+    /**
+     * Closes the event on every instance: from now on its commands are rejected, everything
+     * pending is written and its state dropped (the database becomes the only copy again, e.g.
+     * for XP distribution). Returns when the other instances holding state of the event have
+     * written it too, or after {@code close-timeout-ms}.
+     */
+    public void closeEvent(UUID eventId) {
+        closedEvents.add(eventId);
+        try {
+            redisTemplate.opsForValue().set(PREFIX + eventId + ":closed", "1", KEY_TTL);
+        } catch (Exception e) {
+            log.warn("War Day event {} closed only on this node, Redis unavailable: {}", eventId, e.getMessage());
+        }
+        flush(states.values().stream().filter(s -> s.eventId.equals(eventId)).toList());
+        awaitHolders(eventId);
+    }
+
+    private void requireOpen(GuildState state) {
+        if (closedEvents.contains(state.eventId)) {
+            throw new EventClosedException();
+        }
+    }
+
+    private void awaitHolders(UUID eventId) {
+        long deadline = System.currentTimeMillis() + closeTimeoutMs;
+        try {
+            while (true) {
+                Set<String> holders = redisTemplate.opsForSet().members(PREFIX + eventId + ":holders");
+                if (holders == null || holders.isEmpty() || Set.of(nodeId).equals(holders)) return;
+                if (System.currentTimeMillis() >= deadline) {
+                    log.warn("War Day event {} closed while {} node(s) still hold unwritten state", eventId, holders.size());
+                    return;
+                }
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Could not wait for other nodes to close War Day event {}: {}", eventId, e.getMessage());
+        }
+    }
+
+    // ─── Write-behind ─────────────────────────────────────────────────────────
+
+    @Scheduled(fixedDelayString = "${axon.war-day.engine.flush-interval-ms:1000}")
+    public void flushAll() {
+        learnClosedEvents();
+        flush(new ArrayList<>(states.values()));
+        if (System.currentTimeMillis() - lastSyncAt >= syncIntervalMs) {
+            sync();
+            lastSyncAt = System.currentTimeMillis();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushAll();
+        Set<UUID> events = new HashSet<>();
+        states.keySet().forEach(key -> events.add(key.eventId()));
+        states.clear();
+        events.forEach(this::release);
+    }
+
+    /**
+     * Events closed by another instance: their state here is written and dropped by this round.
+     */
+    private void learnClosedEvents() {
+        Set<UUID> open = new HashSet<>();
+        for (GuildState state : states.values()) {
+            if (!closedEvents.contains(state.eventId)) open.add(state.eventId);
+        }
+        for (UUID eventId : open) {
+            try {
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(PREFIX + eventId + ":closed"))) {
+                    closedEvents.add(eventId);
+                }
+            } catch (Exception e) {
+                log.debug("Could not check whether War Day event {} was closed: {}", eventId, e.getMessage());
+            }
+        }
+    }
+
+    private void flush(List<GuildState> targets) {
+        List<Flush> collected = new ArrayList<>();
+        for (GuildState state : targets) {
+            try {
+                collected.add(ask(state, state::takeDirty));
+            } catch (Exception e) {
+                log.warn("War Day state of session {} could not be collected: {}", state.sessionId, e.getMessage());
+            }
+        }
+        List<Flush> batches = collected.stream().filter(batch -> !batch.isEmpty()).toList();
+
+        if (!batches.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batches));
+            } catch (Exception e) {
+                // Devolve as mudanças ao estado: vão na próxima rodada
+                log.error("War Day write-behind failed ({} sessions), retrying next cycle: {}", batches.size(), e.getMessage());
+                for (Flush batch : batches) {
+                    try {
+                        ask(batch.state(), () -> {
+                            batch.state().restore(batch);
+                            return null;
+                        });
+                    } catch (Exception restoreError) {
+                        log.error("War Day changes of session {} lost: {}", batch.state().sessionId, restoreError.getMessage());
+                    }
+                }
+                return;
+            }
+        }
+
+        // Estado de evento encerrado já gravado: sai da memória e do conjunto de nós que o mantêm
+        Set<UUID> released = new HashSet<>();
+        for (Flush batch : collected) {
+            if (!batch.closed()) continue;
+            GuildState state = batch.state();
+            states.remove(new SessionKey(state.eventId, state.guildId), state);
+            released.add(state.eventId);
+        }
+        released.forEach(this::release);
+    }
+
+    /**
+     * Leaves the event's holders set once this instance keeps no state of it.
+     */
+    private void release(UUID eventId) {
+        if (states.keySet().stream().anyMatch(key -> key.eventId().equals(eventId))) return;
+        try {
+            redisTemplate.opsForSet().remove(PREFIX + eventId + ":holders", nodeId);
+        } catch (Exception e) {
+            log.warn("Could not release War Day event {}: {}", eventId, e.getMessage());
+        }
+    }
+
+    private void write(List<Flush> batches) {
+        List<Object[]> progressRows = new ArrayList<>();
+        List<Object[]> attemptRows = new ArrayList<>();
+        for (Flush batch : batches) {
+            progressRows.addAll(batch.progressRows());
+            for (PendingAttempt a : batch.attempts()) {
+                attemptRows.add(new Object[]{a.id(), a.progressId(), a.userId(), a.questionId(), a.selectedAnswer(),
+                        a.correct(), a.pointsEarned(), a.answeredAt()});
+            }
+        }
+
+        // Incrementos: outro nó pode ter gravado a mesma sessão entre as rodadas
+        jdbcTemplate.batchUpdate("""
+            UPDATE student.war_zone_progress
+            SET questions_answered = questions_answered + ?, correct_answers = correct_answers + ?,
+                total_points = total_points + ?,
+                status = CASE WHEN %s < %s THEN ? ELSE status END,
+                deck_cursor = ?
+            WHERE id = ?
+            """.formatted(STATUS_RANK.formatted("status"), STATUS_RANK.formatted("?")), progressRows);
+
+        List<Object[]> sessionRows = new ArrayList<>();
+        for (Flush batch : batches) {
+            long bonus = 0;
+            int conquests = 0;
+            for (Object[] conquest : batch.conquestRows()) {
+                // Só quem passa a zona para CONQUERED soma o bônus (pontos da zona já somados acima)
+                List<Long> points = jdbcTemplate.queryForList("""
+                    UPDATE student.war_zone_progress SET status = 'CONQUERED', conquered_at = ?
+                    WHERE id = ? AND status <> 'CONQUERED'
+                    RETURNING total_points
+                    """, Long.class, conquest);
+                if (!points.isEmpty()) {
+                    bonus += points.get(0);
+                    conquests++;
+                }
+            }
+            if (batch.scoreDelta() != 0 || conquests > 0) {
+                sessionRows.add(new Object[]{batch.scoreDelta() + bonus, conquests, batch.state().sessionId});
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+            UPDATE student.guild_war_sessions
+            SET total_score = total_score + ?, zones_conquered = zones_conquered + ?
+            WHERE id = ?
+            """, sessionRows);
+
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO student.war_zone_attempts
+                (id, zone_progress_id, user_id, question_id, selected_answer, correct, points_earned, answered_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """, attemptRows);
+    }
+
+    /**
+     * Reads the stored totals back into every state, so answers written by other instances show
+     * up here (one query per event and table).
+     */
+    private void sync() {
+        Map<UUID, List<GuildState>> byEvent = new HashMap<>();
+        for (GuildState state : states.values()) {
+            if (!closedEvents.contains(state.eventId)) {
+                byEvent.computeIfAbsent(state.eventId, id -> new ArrayList<>()).add(state);
+            }
+        }
+        for (Map.Entry<UUID, List<GuildState>> entry : byEvent.entrySet()) {
+            try {
+                Map<UUID, StoredZone> zones = new HashMap<>();
+                jdbcTemplate.query("""
+                    SELECT p.id, p.status, p.questions_answered, p.correct_answers, p.total_points, p.conquered_at
+                    FROM student.war_zone_progress p
+                    JOIN student.guild_war_sessions s ON s.id = p.guild_war_session_id
+                    WHERE s.war_day_event_id = ?
+                    """, rs -> {
+                        UUID id = rs.getObject("id", UUID.class);
+                        zones.put(id, new StoredZone(rs.getString("status"), rs.getInt("questions_answered"),
+                                rs.getInt("correct_answers"), rs.getLong("total_points"),
+                                rs.getObject("conquered_at", OffsetDateTime.class)));
+                    }, entry.getKey());
+                Map<UUID, long[]> sessions = new HashMap<>();
+                jdbcTemplate.query(
+                        "SELECT id, total_score, zones_conquered FROM student.guild_war_sessions WHERE war_day_event_id = ?",
+                        rs -> {
+                            sessions.put(rs.getObject("id", UUID.class),
+                                    new long[]{rs.getLong("total_score"), rs.getInt("zones_conquered")});
+                        }, entry.getKey());
+
+                for (GuildState state : entry.getValue()) {
+                    long[] session = sessions.get(state.sessionId);
+                    if (session == null) continue;
+                    ask(state, () -> {
+                        state.sync(zones, session[0], (int) session[1]);
+                        return null;
+                    });
+                }
+            } catch (Exception e) {
+                log.warn("War Day state of event {} could not be synced: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    // ─── Mailbox ──────────────────────────────────────────────────────────────
+
+    private <T> T ask(GuildState state, Supplier<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicLong startedAt = new AtomicLong();
+        Runnable task = () -> {
+            startedAt.set(System.nanoTime());
+            try {
+                result.complete(command.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+
+        boolean start;
+        synchronized (state.mailbox) {
+            state.mailbox.add(task);
+            start = !state.running;
+            state.running = true;
+        }
+        if (start) {
+            try {
+                warDayExecutor.execute(() -> drain(state));
+            } catch (Exception e) {
+                synchronized (state.mailbox) {
+                    state.running = false;
+                    state.mailbox.remove(task);
+                }
+                throw new RuntimeException("War Day sobrecarregado, tente novamente");
+            }
+        }
+
+        try {
+            try {
+                return result.get(commandTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Ainda na fila: sai dela e não roda, então repetir não conta a resposta duas vezes
+                synchronized (state.mailbox) {
+                    if (state.mailbox.remove(task)) {
+                        throw new RuntimeException("War Day sobrecarregado, tente novamente");
+                    }
+                }
+                // Já começou: espera só o que resta do prazo contado do início dele, sem prender a thread
+                long started = startedAt.get() != 0 ? startedAt.get() : System.nanoTime();
+                long remaining = started + TimeUnit.MILLISECONDS.toNanos(commandTimeoutMs) - System.nanoTime();
+                try {
+                    return result.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException stillRunning) {
+                    throw new RuntimeException("War Day demorou para responder, confira o mapa antes de tentar novamente");
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (state.mailbox) {
+                state.mailbox.remove(task);
+            }
+            throw new RuntimeException("Operação interrompida");
+        }
+    }
+
+    private void drain(GuildState state) {
+        for (int processed = 0; processed < MAILBOX_BATCH; processed++) {
+            Runnable next;
+            synchronized (state.mailbox) {
+                next = state.mailbox.poll();
+                if (next == null) {
+                    state.running = false;
+                    return;
+                }
+            }
+            next.run();
+        }
+        // Libera a thread para outras guilds e continua depois
+        try {
+            warDayExecutor.execute(() -> drain(state));
+        } catch (Exception e) {
+            // Pool cheio: o próximo comando da guild retoma a fila
+            synchronized (state.mailbox) {
+                state.running = false;
+            }
+        }
+    }
+
+    // ─── Loading ──────────────────────────────────────────────────────────────
+
+    private record SessionKey(UUID eventId, UUID guildId) {}
+
+    private GuildState state(UUID eventId, UUID guildId) {
+        if (closedEvents.contains(eventId)) {
+            throw new EventClosedException();
+        }
+        SessionKey key = new SessionKey(eventId, guildId);
+        GuildState state = states.get(key);
+        if (state == null) {
+            hold(eventId);
+            state = states.computeIfAbsent(key, k -> load(eventId, guildId));
+        }
+        if (state == null) {
+            release(eventId);
+            throw new RuntimeException("Sua guild não está participando deste evento");
+        }
+        return state;
+    }
+
+    /**
+     * Joins the event's holders set before loading and then checks the closed marker: either the
+     * closing instance sees this one among the holders and waits for it, or this one sees the
+     * marker and loads nothing.
+     */
+    private void hold(UUID eventId) {
+        try {
+            String holders = PREFIX + eventId + ":holders";
+            redisTemplate.opsForSet().add(holders, nodeId);
+            redisTemplate.expire(holders, KEY_TTL);
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(PREFIX + eventId + ":closed"))) {
+                closedEvents.add(eventId);
+                throw new EventClosedException();
+            }
+        } catch (EventClosedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("War Day event {} loaded without cluster registration, Redis unavailable: {}", eventId, e.getMessage());
+        }
+    }
+
+    private GuildState load(UUID eventId, UUID guildId) {
+        List<Map<String, Object>> sessions = jdbcTemplate.queryForList("""
+            SELECT s.id, s.status, s.total_score, s.zones_conquered, e.map_template_id
+            FROM student.guild_war_sessions s
+            JOIN student.war_day_events e ON e.id = s.war_day_event_id
+            WHERE s.war_day_event_id = ? AND s.guild_id = ?
+            """, eventId, guildId);
+        if (sessions.isEmpty()) return null;
+        Map<String, Object> session = sessions.get(0);
+
+        UUID mapId = (UUID) session.get("map_template_id");
+        MapLayout layout = mapId != null ? layouts.computeIfAbsent(mapId, this::buildLayout) : MapLayout.EMPTY;
+        GuildState state = new GuildState(eventId, guildId, (UUID) session.get("id"), (String) session.get("status"), layout);
+        state.totalScore = ((Number) session.get("total_score")).longValue();
+        state.zonesConquered = ((Number) session.get("zones_conquered")).intValue();
+
+        jdbcTemplate.query("""
+            SELECT id, zone_template_id, status, questions_answered, correct_answers, total_points, conquered_at, deck_cursor
+            FROM student.war_zone_progress WHERE guild_war_session_id = ?
+            """, rs -> {
+                Integer i = layout.index.get(rs.getObject("zone_template_id", UUID.class));
+                if (i == null) return;
+                state.progressIds[i] = rs.getObject("id", UUID.class);
+                state.status[i] = rs.getString("status");
+                state.questionsAnswered[i] = rs.getInt("questions_answered");
+                state.correctAnswers[i] = rs.getInt("correct_answers");
+                state.totalPoints[i] = rs.getLong("total_points");
+                state.conqueredAt[i] = rs.getObject("conquered_at", OffsetDateTime.class);
+                state.deckCursor[i] = rs.getInt("deck_cursor");
+                if ("CONQUERED".equals(state.status[i])) state.conquered.set(i);
+            }, state.sessionId);
+
+        // Questões já respondidas: viram bitset de posições quando o deck da zona for usado
+        jdbcTemplate.query("""
+            SELECT DISTINCT p.zone_template_id, a.question_id
+            FROM student.war_zone_attempts a
+            JOIN student.war_zone_progress p ON p.id = a.zone_progress_id
+            WHERE p.guild_war_session_id = ?
+            """, rs -> {
+                Integer i = layout.index.get(rs.getObject("zone_template_id", UUID.class));
+                if (i != null) state.markAnswered(i, rs.getObject("question_id", UUID.class), -1);
+            }, state.sessionId);
+        return state;
+    }
+
+    private MapLayout buildLayout(UUID mapId) {
+        List<WarZoneTemplate> templates = zoneTemplateRepository.findAllByMapTemplateIdOrderByDisplayOrderAsc(mapId);
+        List<ZoneDef> zones = new ArrayList<>(templates.size());
+        Map<UUID, Integer> index = new HashMap<>();
+        for (int i = 0; i < templates.size(); i++) {
+            WarZoneTemplate t = templates.get(i);
+            index.put(t.getId(), i);
+            zones.add(new ZoneDef(i, t.getId(), t.getName(), t.getZoneType(), t.getDifficultyLevel(),
+                    t.getPositionX(), t.getPositionY(), t.getQuestionCount(), t.getPointsPerCorrect(),
+                    t.getTerrainType(), Set.copyOf(t.getPrerequisiteZoneIds()),
+                    (int) Math.ceil(t.getQuestionCount() * CONQUEST_THRESHOLD)));
+        }
+
+        BitSet[] prerequisites = new BitSet[zones.size()];
+        List<List<Integer>> dependents = new ArrayList<>();
+        for (int i = 0; i < zones.size(); i++) {
+            prerequisites[i] = new BitSet(zones.size());
+            dependents.add(new ArrayList<>());
+        }
+        for (ZoneDef zone : zones) {
+            for (UUID prerequisite : zone.prerequisiteZoneIds()) {
+                Integer p = index.get(prerequisite);
+                if (p == null) continue;
+                prerequisites[zone.index()].set(p);
+                dependents.get(p).add(zone.index());
+            }
+        }
+        int[][] dependentIndexes = dependents.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        return new MapLayout(zones, index, prerequisites, dependentIndexes);
+    }
+
+    // ─── State ────────────────────────────────────────────────────────────────
+
+    private static class EventClosedException extends RuntimeException {
+        EventClosedException() {
+            super("Este War Day já foi encerrado");
+        }
+    }
+
+    private record MapLayout(List<ZoneDef> zones, Map<UUID, Integer> index, BitSet[] prerequisites, int[][] dependents) {
+        static final MapLayout EMPTY = new MapLayout(List.of(), Map.of(), new BitSet[0], new int[0][]);
+    }
+
+    private record PendingAttempt(UUID id, UUID progressId, UUID userId, UUID questionId, String selectedAnswer,
+                                  boolean correct, int pointsEarned, OffsetDateTime answeredAt) {}
+
+    private record StoredZone(String status, int questionsAnswered, int correctAnswers, long totalPoints,
+                              OffsetDateTime conqueredAt) {}
+
+    /**
+     * Increments taken from a state by one flush; given back as they are when the flush fails.
+     */
+    private record Flush(GuildState state, boolean closed, BitSet zones, int[] answered, int[] correct, long[] points,
+                         BitSet conquests, long scoreDelta, List<Object[]> progressRows, List<Object[]> conquestRows,
+                         List<PendingAttempt> attempts) {
+        boolean isEmpty() {
+            return zones.isEmpty() && conquests.isEmpty() && scoreDelta == 0 && attempts.isEmpty();
+        }
+    }
+
+    private static int rank(String status) {
+        return switch (status) {
+            case "LOCKED" -> 0;
+            case "AVAILABLE" -> 1;
+            case "IN_PROGRESS" -> 2;
+            default -> 3;
+        };
+    }
+
+    /**
+     * A guild session's state. Fields are only touched by commands running from the mailbox.
+     */
+    private final class GuildState {
+        private final UUID eventId;
+        private final UUID guildId;
+        private final UUID sessionId;
+        private final String sessionStatus;
+        private final MapLayout layout;
+
+        private final UUID[] progressIds;
+        private final String[] status;
+        private final int[] questionsAnswered;
+        private final int[] correctAnswers;
+        private final long[] totalPoints;
+        private final OffsetDateTime[] conqueredAt;
+        private final int[] deckCursor;
+        private final BitSet[] answeredPositions;
+        private final List<Set<UUID>> answeredIds;
+        private final BitSet conquered;
+        private long totalScore;
+        private int zonesConquered;
+
+        // Ainda não gravado: incrementos sobre o banco e conquistas a aplicar
+        private final BitSet dirtyZones;
+        private int[] answeredDelta;
+        private int[] correctDelta;
+        private long[] pointsDelta;
+        private BitSet pendingConquests;
+        private long scoreDelta;
+        private List<PendingAttempt> pendingAttempts = new ArrayList<>();
+
+        private final ArrayDeque<Runnable> mailbox = new ArrayDeque<>();
+        private boolean running;
+
+        GuildState(UUID eventId, UUID guildId, UUID sessionId, String sessionStatus, MapLayout layout) {
+            int size = layout.zones().size();
+            this.eventId = eventId;
+            this.guildId = guildId;
+            this.sessionId = sessionId;
+            this.sessionStatus = sessionStatus;
+            this.layout = layout;
+            this.progressIds = new UUID[size];
+            this.status = new String[size];
+            this.questionsAnswered = new int[size];
+            this.correctAnswers = new int[size];
+            this.totalPoints = new long[size];
+            this.conqueredAt = new OffsetDateTime[size];
+            this.deckCursor = new int[size];
+            this.answeredPositions = new BitSet[size];
+            this.answeredIds = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) answeredIds.add(new HashSet<>());
+            this.conquered = new BitSet(size);
+            this.dirtyZones = new BitSet(size);
+            this.answeredDelta = new int[size];
+            this.correctDelta = new int[size];
+            this.pointsDelta = new long[size];
+            this.pendingConquests = new BitSet(size);
+        }
+
+        int zoneIndex(UUID zoneId) {
+            Integer i = layout.index().get(zoneId);
+            if (i == null || progressIds[i] == null) {
+                throw new RuntimeException("Zona não encontrada na sessão da guild");
+            }
+            return i;
+        }
+
+        int open(UUID zoneId) {
+            int i = zoneIndex(zoneId);
+            if ("CONQUERED".equals(status[i])) {
+                throw new RuntimeException("Esta zona já foi conquistada pela sua guild!");
+            }
+            if ("LOCKED".equals(status[i])) {
+                throw new RuntimeException("Esta zona ainda está bloqueada. Complete as zonas anteriores primeiro.");
+            }
+            if ("AVAILABLE".equals(status[i])) {
+                status[i] = "IN_PROGRESS";
+                dirtyZones.set(i);
+            }
+            return i;
+        }
+
+        /**
+         * Answered positions of the zone's deck; the ids answered before the deck was first used
+         * (loaded from the database) are converted once.
+         */
+        BitSet answeredPositions(int i, WarDayQuestionDeckService.Deck deck) {
+            if (answeredPositions[i] == null) {
+                BitSet positions = new BitSet(deck.size());
+                for (UUID questionId : answeredIds.get(i)) {
+                    int position = deck.positionOf(questionId);
+                    if (position >= 0) positions.set(position);
+                }
+                answeredPositions[i] = positions;
+                answeredIds.set(i, Set.of());
+            }
+            return answeredPositions[i];
+        }
+
+        void markAnswered(int i, UUID questionId, int deckPosition) {
+            if (answeredPositions[i] != null) {
+                if (deckPosition >= 0) answeredPositions[i].set(deckPosition);
+            } else {
+                answeredIds.get(i).add(questionId);
+            }
+        }
+
+        ZoneView view(int i) {
+            return new ZoneView(layout.zones().get(i), progressIds[i], status[i], questionsAnswered[i],
+                    correctAnswers[i], totalPoints[i], conqueredAt[i]);
+        }
+
+        SessionView snapshot() {
+            List<ZoneView> zones = new ArrayList<>(layout.zones().size());
+            for (int i = 0; i < layout.zones().size(); i++) zones.add(view(i));
+            return new SessionView(sessionId, sessionStatus, totalScore, zonesConquered, zones);
+        }
+
+        /**
+         * Unlocks the zones depending on {@code conqueredZone} whose prerequisites are now all conquered.
+         */
+        List<UUID> unlockDependents(int conqueredZone) {
+            List<UUID> unlocked = new ArrayList<>();
+            for (int d : layout.dependents()[conqueredZone]) {
+                if (!"LOCKED".equals(status[d]) || progressIds[d] == null) continue;
+                BitSet missing = (BitSet) layout.prerequisites()[d].clone();
+                missing.andNot(conquered);
+                if (missing.isEmpty()) {
+                    status[d] = "AVAILABLE";
+                    dirtyZones.set(d);
+                    unlocked.add(layout.zones().get(d).id());
+                }
+            }
+            return unlocked;
+        }
+
+        Flush takeDirty() {
+            int size = layout.zones().size();
+            List<Object[]> rows = new ArrayList<>();
+            BitSet zones = (BitSet) dirtyZones.clone();
+            for (int i = zones.nextSetBit(0); i >= 0; i = zones.nextSetBit(i + 1)) {
+                // A conquista é gravada à parte, para somar o bônus uma vez só
+                String stored = "CONQUERED".equals(status[i]) ? "IN_PROGRESS" : status[i];
+                rows.add(new Object[]{answeredDelta[i], correctDelta[i], pointsDelta[i], stored, stored,
+                        deckCursor[i], progressIds[i]});
+            }
+            List<Object[]> conquests = new ArrayList<>();
+            for (int i = pendingConquests.nextSetBit(0); i >= 0; i = pendingConquests.nextSetBit(i + 1)) {
+                conquests.add(new Object[]{conqueredAt[i], progressIds[i]});
+            }
+            Flush batch = new Flush(this, closedEvents.contains(eventId), zones, answeredDelta, correctDelta, pointsDelta,
+                    pendingConquests, scoreDelta, rows, conquests, pendingAttempts);
+
+            dirtyZones.clear();
+            answeredDelta = new int[size];
+            correctDelta = new int[size];
+            pointsDelta = new long[size];
+            pendingConquests = new BitSet(size);
+            scoreDelta = 0;
+            pendingAttempts = new ArrayList<>();
+            return batch;
+        }
+
+        void restore(Flush batch) {
+            dirtyZones.or(batch.zones());
+            for (int i = 0; i < answeredDelta.length; i++) {
+                answeredDelta[i] += batch.answered()[i];
+                correctDelta[i] += batch.correct()[i];
+                pointsDelta[i] += batch.points()[i];
+            }
+            pendingConquests.or(batch.conquests());
+            scoreDelta += batch.scoreDelta();
+            List<PendingAttempt> merged = new ArrayList<>(batch.attempts());
+            merged.addAll(pendingAttempts);
+            pendingAttempts = merged;
+        }
+
+        /**
+         * Stored totals plus what this instance has not written yet; statuses only move forward.
+         */
+        void sync(Map<UUID, StoredZone> stored, long storedScore, int storedConquered) {
+            long pendingBonus = 0;
+            for (int i = 0; i < progressIds.length; i++) {
+                StoredZone zone = progressIds[i] != null ? stored.get(progressIds[i]) : null;
+                if (zone == null) continue;
+                questionsAnswered[i] = zone.questionsAnswered() + answeredDelta[i];
+                correctAnswers[i] = zone.correctAnswers() + correctDelta[i];
+                totalPoints[i] = zone.totalPoints() + pointsDelta[i];
+                if (rank(zone.status()) > rank(status[i])) {
+                    status[i] = zone.status();
+                    if ("CONQUERED".equals(zone.status())) {
+                        conquered.set(i);
+                        conqueredAt[i] = zone.conqueredAt();
+                    }
+                }
+                if (pendingConquests.get(i)) pendingBonus += totalPoints[i];
+            }
+            totalScore = storedScore + scoreDelta + pendingBonus;
+            zonesConquered = storedConquered + pendingConquests.cardinality();
+        }
+    }
+}
@@ -67,7 +67,7 @@ public class Essay {
     private String topic;
 
     @Builder.Default
-    private String status = "PENDING"; // PENDING, CORRECTED, FAILED
+    private String status = "PENDING"; // PENDING, PROCESSING, CORRECTED, FAILED
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private OffsetDateTime createdAt;
@@ -13,6 +13,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@org.hibernate.annotations.DynamicUpdate
 public class GamificationStats implements org.springframework.data.domain.Persistable<UUID> {
 
     @Id
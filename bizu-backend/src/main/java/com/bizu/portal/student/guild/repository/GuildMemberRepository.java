@@ -12,4 +12,7 @@ public interface GuildMemberRepository extends JpaRepository<GuildMember, UUID>
     List<GuildMember> findAllByGuildId(UUID guildId);
     Optional<GuildMember> findByGuildIdAndUserId(UUID guildId, UUID userId);
     List<GuildMember> findAllByUserId(UUID userId);
+
+    @org.springframework.data.jpa.repository.Query("SELECT m.user.id FROM GuildMember m WHERE m.guild.id = :guildId")
+    List<UUID> findUserIdsByGuildId(@org.springframework.data.repository.query.Param("guildId") UUID guildId);
 }
@@ -48,6 +48,8 @@ public class GuildService {
     private final GamificationRepository gamificationRepository;
     private final LevelCalculator levelCalculator;
     private final UserService userService;
+    private final com.bizu.portal.identity.application.PresenceTracker presenceTracker;
+    private final com.bizu.portal.student.application.ProfileCardCache profileCardCache;
     private final com.bizu.portal.admin.application.SystemSettingsService systemSettingsService;
     private final com.bizu.portal.commerce.application.EntitlementService entitlementService;
     private final FileStorageService fileStorageService;
@@ -91,6 +93,7 @@ public class GuildService {
                 .build();
 
         guildMemberRepository.save(founder);
+        profileCardCache.evict(creatorId);
 
         // Process invites if any
         if (request.getInvitedUserIds() != null && !request.getInvitedUserIds().isEmpty()) {
@@ -268,6 +271,7 @@ public class GuildService {
                     .role(GuildRole.MEMBER)
                     .build();
             guildMemberRepository.save(member);
+            profileCardCache.evict(member.getUser().getId());
             recordActivity(invite.getGuild(), invite.getInvitee(), "entrou na guilda pelo convite de " + invite.getInviter().getName(), 0);
         }
     }
@@ -352,6 +356,7 @@ public class GuildService {
                 .build();
 
         guildMemberRepository.save(member);
+        profileCardCache.evict(member.getUser().getId());
         recordActivity(guild, user, "entrou na guilda", 0);
     }
 
@@ -374,6 +379,7 @@ public class GuildService {
         }
 
         guildMemberRepository.delete(member);
+        profileCardCache.evict(member.getUser().getId());
         
         Guild guild = guildRepository.findById(guildId).orElse(null);
         User user = userService.findById(userId).orElse(null);
@@ -410,6 +416,7 @@ public class GuildService {
                 .role(GuildRole.MEMBER)
                 .build();
         guildMemberRepository.save(member);
+        profileCardCache.evict(member.getUser().getId());
         
         recordActivity(request.getGuild(), request.getUser(), "entrou na guilda (aprovado por administrador)", 0);
     }
@@ -497,6 +504,7 @@ public class GuildService {
         }
 
         guildMemberRepository.delete(target);
+        profileCardCache.evict(target.getUser().getId());
         recordActivity(target.getGuild(), admin.getUser(), "removeu " + target.getUser().getName() + " da guilda", 0);
     }
 
@@ -579,7 +587,9 @@ public class GuildService {
         fileStorageService.deleteSubdirectory("guilds/" + guildId);
 
         // Deletar relações dependentes manualmente já que não há cascade definido no Guild entity
-        guildMemberRepository.deleteAll(guildMemberRepository.findAllByGuildId(guildId));
+        List<GuildMember> removedMembers = guildMemberRepository.findAllByGuildId(guildId);
+        guildMemberRepository.deleteAll(removedMembers);
+        profileCardCache.evictAll(removedMembers.stream().map(m -> m.getUser().getId()).toList());
         guildMaterialRepository.deleteAll(guildMaterialRepository.findAllByGuildIdOrderByCreatedAtDesc(guildId));
         guildInviteRepository.deleteAll(guildInviteRepository.findAllByGuildIdAndStatus(guildId, GuildInvite.Status.PENDING));
         guildRequestRepository.deleteAll(guildRequestRepository.findAllByGuildIdAndStatus(guildId, GuildRequest.Status.PENDING));
@@ -665,9 +675,21 @@ public class GuildService {
         return mapToResponseDTO(guild, userId);
     }
 
+    public java.util.Set<UUID> onlineMembers(UUID guildId, UUID userId) {
+        validateMembership(guildId, userId);
+        return presenceTracker.onlineAmong(guildMemberRepository.findUserIdsByGuildId(guildId),
+                com.bizu.portal.identity.application.PresenceTracker.DEFAULT_ONLINE_WINDOW);
+    }
+
     public GuildMemberResponseDTO getGuildMembers(UUID guildId, UUID userId) {
         List<GuildMember> members = guildMemberRepository.findAllByGuildId(guildId);
-        
+
+        // Presença de todos os membros numa consulta; o last_seen_at já carregado cobre quem não está no tracker
+        java.time.Duration onlineWindow = com.bizu.portal.identity.application.PresenceTracker.DEFAULT_ONLINE_WINDOW;
+        java.util.Set<UUID> online = presenceTracker.onlineAmong(
+                members.stream().map(m -> m.getUser().getId()).toList(), onlineWindow);
+        java.time.OffsetDateTime onlineThreshold = java.time.OffsetDateTime.now().minus(onlineWindow);
+
         List<GuildMemberDTO> memberDTOs = members.stream()
                 .map(m -> {
                     GamificationStats stats = gamificationRepository.findById(m.getUser().getId()).orElse(null);
@@ -682,8 +704,8 @@ public class GuildService {
                             .streak(m.getStreak())
                             .joinDate(m.getJoinedAt().format(DateTimeFormatter.ofPattern("MMM yyyy")))
                             .avatar(m.getUser().getAvatarUrl())
-                            .online(m.getUser().getLastSeenAt() != null && 
-                                    m.getUser().getLastSeenAt().isAfter(java.time.OffsetDateTime.now().minusMinutes(5)))
+                            .online(online.contains(m.getUser().getId())
+                                    || (m.getUser().getLastSeenAt() != null && m.getUser().getLastSeenAt().isAfter(onlineThreshold)))
                             .build();
                 })
                 .sorted((a, b) -> Long.compare(b.getXp(), a.getXp()))
@@ -803,6 +825,7 @@ public class GuildService {
         }
 
         guild = guildRepository.save(guild);
+        profileCardCache.evictAll(guildMemberRepository.findUserIdsByGuildId(guildId));
         recordActivity(guild, member.getUser(), "atualizou as configurações da guild", 0);
 
         return mapToResponseDTO(guild, userId);
@@ -0,0 +1,84 @@
+package com.bizu.portal.student.infrastructure;
+
+import com.bizu.portal.student.application.MatchmakingQueueStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node matchmaking store. Queues are lost on restart and invisible to other instances;
+ * use only for local runs and tests (axon.matchmaking.store=memory).
+ */
+@Component
+@ConditionalOnProperty(name = "axon.matchmaking.store", havingValue = "memory")
+public class InMemoryMatchmakingQueueStore implements MatchmakingQueueStore {
+
+    private final Map<UUID, LinkedHashMap<UUID, QueuedPlayer>> queues = new ConcurrentHashMap<>();
+    private final Map<UUID, Instant> leases = new ConcurrentHashMap<>();
+
+    // Toda mutação de uma fila roda dentro do compute do mapa: fila vazia sai do mapa sem corrida com enqueue
+
+    @Override
+    public void enqueue(UUID courseId, QueuedPlayer player) {
+        queues.compute(courseId, (k, queue) -> {
+            LinkedHashMap<UUID, QueuedPlayer> target = queue != null ? queue : new LinkedHashMap<>();
+            target.putIfAbsent(player.userId(), player);
+            return target;
+        });
+    }
+
+    @Override
+    public boolean remove(UUID courseId, UUID userId) {
+        boolean[] removed = {false};
+        queues.computeIfPresent(courseId, (k, queue) -> {
+            removed[0] = queue.remove(userId) != null;
+            return queue.isEmpty() ? null : queue;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public List<QueuedPlayer> snapshot(UUID courseId) {
+        List<QueuedPlayer> players = new ArrayList<>();
+        queues.computeIfPresent(courseId, (k, queue) -> {
+            players.addAll(queue.values());
+            return queue;
+        });
+        return players;
+    }
+
+    @Override
+    public boolean removePair(UUID courseId, UUID first, UUID second) {
+        boolean[] removed = {false};
+        queues.computeIfPresent(courseId, (k, queue) -> {
+            if (queue.containsKey(first) && queue.containsKey(second)) {
+                queue.remove(first);
+                queue.remove(second);
+                removed[0] = true;
+            }
+            return queue.isEmpty() ? null : queue;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public Set<UUID> activeCourses() {
+        return new HashSet<>(queues.keySet());
+    }
+
+    @Override
+    public boolean tryAcquireMatcher(UUID courseId, Duration lease) {
+        Instant now = Instant.now();
+        Instant until = now.plus(lease);
+        return leases.compute(courseId, (k, current) -> current == null || current.isBefore(now) ? until : current) == until;
+    }
+
+    @Override
+    public void releaseMatcher(UUID courseId) {
+        leases.remove(courseId);
+    }
+}
@@ -2,10 +2,12 @@ package com.bizu.portal.student.infrastructure;
 
 import com.bizu.portal.student.domain.QuestClaim;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface QuestClaimRepository extends JpaRepository<QuestClaim, QuestClaim.QuestClaimId> {
     List<QuestClaim> findAllByUserIdAndPeriodId(UUID userId, String periodId);
+    List<QuestClaim> findAllByUserIdAndPeriodIdIn(UUID userId, Collection<String> periodIds);
     boolean existsByUserIdAndQuestCodeAndPeriodId(UUID userId, String questCode, String periodId);
 }
@@ -0,0 +1,130 @@
+package com.bizu.portal.student.infrastructure;
+
+import com.bizu.portal.student.application.MatchmakingQueueStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Redis matchmaking store shared by every backend instance.
+ *
+ * Keys:
+ *   matchmaking:queue:{courseId}   ZSET userId → enqueue time (epoch millis)
+ *   matchmaking:rating:{courseId}  HASH userId → rating used for bracketing
+ *   matchmaking:courses            SET of courses with queued players
+ *   matchmaking:lock:{courseId}    matcher lease (value = owner token)
+ */
+@Component
+@ConditionalOnProperty(name = "axon.matchmaking.store", havingValue = "redis", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RedisMatchmakingQueueStore implements MatchmakingQueueStore {
+
+    private static final String QUEUE_PREFIX = "matchmaking:queue:";
+    private static final String RATING_PREFIX = "matchmaking:rating:";
+    private static final String COURSES_KEY = "matchmaking:courses";
+    private static final String LOCK_PREFIX = "matchmaking:lock:";
+
+    private static final DefaultRedisScript<Long> ENQUEUE = new DefaultRedisScript<>("""
+            redis.call('ZADD', KEYS[1], 'NX', ARGV[2], ARGV[1])
+            redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])
+            redis.call('SADD', KEYS[3], ARGV[4])
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> REMOVE = new DefaultRedisScript<>("""
+            local removed = redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('ZCARD', KEYS[1]) == 0 then redis.call('SREM', KEYS[3], ARGV[2]) end
+            return removed
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> REMOVE_PAIR = new DefaultRedisScript<>("""
+            if not redis.call('ZSCORE', KEYS[1], ARGV[1]) or not redis.call('ZSCORE', KEYS[1], ARGV[2]) then
+                return 0
+            end
+            redis.call('ZREM', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('HDEL', KEYS[2], ARGV[1], ARGV[2])
+            if redis.call('ZCARD', KEYS[1]) == 0 then redis.call('SREM', KEYS[3], ARGV[3]) end
+            return 1
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /** Identifies this instance as lease owner. */
+    private final String ownerToken = UUID.randomUUID().toString();
+
+    @Override
+    public void enqueue(UUID courseId, QueuedPlayer player) {
+        redisTemplate.execute(ENQUEUE, keys(courseId),
+                player.userId().toString(), String.valueOf(player.enqueuedAt().toEpochMilli()),
+                String.valueOf(player.rating()), courseId.toString());
+    }
+
+    @Override
+    public boolean remove(UUID courseId, UUID userId) {
+        Long removed = redisTemplate.execute(REMOVE, keys(courseId), userId.toString(), courseId.toString());
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    public List<QueuedPlayer> snapshot(UUID courseId) {
+        Set<ZSetOperations.TypedTuple<String>> entries = redisTemplate.opsForZSet().rangeWithScores(QUEUE_PREFIX + courseId, 0, -1);
+        if (entries == null || entries.isEmpty()) return List.of();
+
+        List<Object> userIds = new ArrayList<>();
+        entries.forEach(e -> userIds.add(e.getValue()));
+        List<Object> ratings = redisTemplate.opsForHash().multiGet(RATING_PREFIX + courseId, userIds);
+
+        List<QueuedPlayer> players = new ArrayList<>(entries.size());
+        int i = 0;
+        for (ZSetOperations.TypedTuple<String> entry : entries) {
+            Object rating = ratings.get(i++);
+            players.add(new QueuedPlayer(
+                    UUID.fromString(entry.getValue()),
+                    rating != null ? Integer.parseInt(rating.toString()) : 1,
+                    Instant.ofEpochMilli(entry.getScore() != null ? entry.getScore().longValue() : 0)));
+        }
+        return players;
+    }
+
+    @Override
+    public boolean removePair(UUID courseId, UUID first, UUID second) {
+        Long removed = redisTemplate.execute(REMOVE_PAIR, keys(courseId), first.toString(), second.toString(), courseId.toString());
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    public Set<UUID> activeCourses() {
+        Set<String> members = redisTemplate.opsForSet().members(COURSES_KEY);
+        if (members == null) return Set.of();
+        Set<UUID> courses = new HashSet<>();
+        members.forEach(m -> courses.add(UUID.fromString(m)));
+        return courses;
+    }
+
+    @Override
+    public boolean tryAcquireMatcher(UUID courseId, Duration lease) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + courseId, ownerToken, lease));
+    }
+
+    @Override
+    public void releaseMatcher(UUID courseId) {
+        redisTemplate.execute(RELEASE, List.of(LOCK_PREFIX + courseId), ownerToken);
+    }
+
+    private List<String> keys(UUID courseId) {
+        return List.of(QUEUE_PREFIX + courseId, RATING_PREFIX + courseId, COURSES_KEY);
+    }
+}
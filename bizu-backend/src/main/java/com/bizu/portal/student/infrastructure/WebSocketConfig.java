@@ -1,20 +1,90 @@
 package com.bizu.portal.student.infrastructure;
 
+import com.bizu.portal.shared.websocket.StompClusterBridge;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket. Each node runs the in-memory simple broker; with axon.websocket.broker
+ * set to redis (or memory, for tests) {@link StompClusterBridge} mirrors {@code /topic} messages
+ * between nodes so clients see the same events whichever node they are connected to.
+ *
+ * Client channels run on bounded pools (axon.websocket.inbound/outbound.*), and a session whose
+ * client cannot keep up is closed once its send buffer or send time limit is exceeded, instead of
+ * holding an outbound thread.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompClusterBridge clusterBridge;
+
+    @Value("${axon.websocket.inbound.core-threads:8}")
+    private int inboundCoreThreads;
+
+    @Value("${axon.websocket.inbound.max-threads:16}")
+    private int inboundMaxThreads;
+
+    @Value("${axon.websocket.inbound.queue-capacity:2000}")
+    private int inboundQueueCapacity;
+
+    @Value("${axon.websocket.outbound.core-threads:16}")
+    private int outboundCoreThreads;
+
+    @Value("${axon.websocket.outbound.max-threads:32}")
+    private int outboundMaxThreads;
+
+    @Value("${axon.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${axon.websocket.send-buffer-size-kb:512}")
+    private int sendBufferSizeKb;
+
+    @Value("${axon.websocket.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${axon.websocket.message-size-limit-kb:64}")
+    private int messageSizeLimitKb;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        // Vários threads de saída: mantém a ordem das mensagens de cada sessão
+        config.setPreservePublishOrder(true);
+        config.configureBrokerChannel().interceptors(clusterBridge);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCoreThreads)
+                .maxPoolSize(inboundMaxThreads)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCoreThreads)
+                .maxPoolSize(outboundMaxThreads)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeKb * 1024)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimitKb * 1024);
     }
 
     @Override
@@ -0,0 +1,14 @@
+-- XP Ledger: append-only log of every XP change
+-- V85__add_xp_ledger.sql
+
+CREATE TABLE student.xp_ledger (
+    id BIGSERIAL PRIMARY KEY,
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    requested_amount INTEGER NOT NULL,
+    applied_amount INTEGER NOT NULL,
+    total_after INTEGER NOT NULL,
+    source VARCHAR(100),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_xp_ledger_user_created ON student.xp_ledger(user_id, created_at DESC);
@@ -0,0 +1,17 @@
+-- Badge progress projection: per-user counters maintained from study events
+-- V86__add_badge_progress.sql
+
+CREATE TABLE student.badge_progress (
+    user_id UUID PRIMARY KEY REFERENCES identity.users(id) ON DELETE CASCADE,
+    questions_answered INTEGER NOT NULL DEFAULT 0,
+    duel_wins INTEGER NOT NULL DEFAULT 0,
+    flashcards_studied INTEGER NOT NULL DEFAULT 0,
+    seconds_today INTEGER NOT NULL DEFAULT 0,
+    seconds_day DATE NOT NULL DEFAULT CURRENT_DATE,
+    -- Last 10 HARD practice answers, most recent in bit 0 (1 = correct)
+    hard_window INTEGER NOT NULL DEFAULT 0,
+    hard_window_size INTEGER NOT NULL DEFAULT 0,
+    early_bird BOOLEAN NOT NULL DEFAULT FALSE,
+    has_simulado BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
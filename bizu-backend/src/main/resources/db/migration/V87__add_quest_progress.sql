@@ -0,0 +1,13 @@
+-- Quest progress projection: per-user counters for the current daily/weekly quest periods
+-- V87__add_quest_progress.sql
+
+CREATE TABLE student.quest_progress (
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    period_id VARCHAR(50) NOT NULL, -- Same ids as quest_claims: 2025-03-14 (daily) / 2025-W11 (weekly)
+    questions INTEGER NOT NULL DEFAULT 0,
+    wins INTEGER NOT NULL DEFAULT 0,
+    simulados INTEGER NOT NULL DEFAULT 0,
+    correct_streak INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, period_id)
+);
@@ -0,0 +1,72 @@
+-- Performance rollup: answers aggregated per user x day (America/Sao_Paulo) x subject x source
+-- V88__add_performance_daily_rollup.sql
+
+CREATE TABLE student.performance_daily (
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    day DATE NOT NULL,
+    subject TEXT NOT NULL,
+    source VARCHAR(20) NOT NULL, -- PRACTICE, ACTIVITY, DUEL
+    attempted INTEGER NOT NULL DEFAULT 0,
+    correct INTEGER NOT NULL DEFAULT 0,
+    seconds BIGINT NOT NULL DEFAULT 0,
+    first_seen INTEGER NOT NULL DEFAULT 0, -- Questions answered for the first time by the user in this bucket
+    PRIMARY KEY (user_id, day, subject, source)
+);
+
+CREATE TABLE student.performance_seen_questions (
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    question_id UUID NOT NULL,
+    PRIMARY KEY (user_id, question_id)
+);
+
+-- Backfill from the answer history (same sources used by the performance summary)
+CREATE TEMP TABLE tmp_performance_answers AS
+SELECT a.user_id, q.id AS question_id, a.created_at, a.is_correct, COALESCE(a.time_spent_seconds, 0) AS time_spent,
+       COALESCE(q.subject, 'Geral') AS subject, 'PRACTICE' AS source
+FROM student.attempts a
+JOIN content.questions q ON a.question_id = q.id
+UNION ALL
+SELECT aa.user_id, s.original_question_id, COALESCE(s.answered_at, aa.created_at), s.student_correct, COALESCE(s.time_spent_seconds, 0),
+       COALESCE(s.snapshot_subject, 'Geral'), 'ACTIVITY'
+FROM student.activity_attempt_item_snapshots s
+JOIN student.activity_attempts aa ON s.attempt_id = aa.id
+WHERE s.student_selected_option IS NOT NULL
+UNION ALL
+SELECT d.challenger_id, dq.question_id, dq.created_at, dq.challenger_correct, 30, COALESCE(q.subject, 'Geral'), 'DUEL'
+FROM student.duel_questions dq
+JOIN student.duels d ON dq.duel_id = d.id
+JOIN content.questions q ON dq.question_id = q.id
+WHERE dq.challenger_answer_index IS NOT NULL
+UNION ALL
+SELECT d.opponent_id, dq.question_id, dq.created_at, dq.opponent_correct, 30, COALESCE(q.subject, 'Geral'), 'DUEL'
+FROM student.duel_questions dq
+JOIN student.duels d ON dq.duel_id = d.id
+JOIN content.questions q ON dq.question_id = q.id
+WHERE d.opponent_id IS NOT NULL AND dq.opponent_answer_index IS NOT NULL;
+
+INSERT INTO student.performance_daily (user_id, day, subject, source, attempted, correct, seconds)
+SELECT user_id, CAST(created_at AT TIME ZONE 'America/Sao_Paulo' AS date), subject, source,
+       COUNT(*), COUNT(*) FILTER (WHERE is_correct), SUM(time_spent)
+FROM tmp_performance_answers
+WHERE user_id IS NOT NULL AND created_at IS NOT NULL
+GROUP BY 1, 2, 3, 4;
+
+INSERT INTO student.performance_seen_questions (user_id, question_id)
+SELECT DISTINCT user_id, question_id
+FROM tmp_performance_answers
+WHERE user_id IS NOT NULL AND question_id IS NOT NULL;
+
+UPDATE student.performance_daily p SET first_seen = f.first_seen
+FROM (
+    SELECT user_id, CAST(created_at AT TIME ZONE 'America/Sao_Paulo' AS date) AS day, subject, source, COUNT(*) AS first_seen
+    FROM (
+        SELECT DISTINCT ON (user_id, question_id) user_id, question_id, created_at, subject, source
+        FROM tmp_performance_answers
+        WHERE user_id IS NOT NULL AND question_id IS NOT NULL AND created_at IS NOT NULL
+        ORDER BY user_id, question_id, created_at
+    ) firsts
+    GROUP BY 1, 2, 3, 4
+) f
+WHERE p.user_id = f.user_id AND p.day = f.day AND p.subject = f.subject AND p.source = f.source;
+
+DROP TABLE tmp_performance_answers;
@@ -0,0 +1,9 @@
+-- Question images: inline base64 moves to content-addressed storage (image_url)
+-- V89__add_question_image_url.sql
+-- Legacy rows are migrated in the background by QuestionImageService; the partial index
+-- keeps the lookup of remaining inline images cheap once most rows are migrated.
+
+ALTER TABLE content.questions ADD COLUMN IF NOT EXISTS image_url VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_questions_legacy_image
+    ON content.questions (id) WHERE image_base64 IS NOT NULL;
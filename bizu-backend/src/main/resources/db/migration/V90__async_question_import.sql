@@ -0,0 +1,10 @@
+-- Bulk question import runs as a background job; the uploaded file stays in file storage
+-- V90__async_question_import.sql
+
+ALTER TABLE content.question_import_logs
+    ADD COLUMN IF NOT EXISTS status VARCHAR(20) NOT NULL DEFAULT 'COMPLETED',
+    ADD COLUMN IF NOT EXISTS file_path VARCHAR(500),
+    ADD COLUMN IF NOT EXISTS processed_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS error_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS errors JSONB,
+    ADD COLUMN IF NOT EXISTS finished_at TIMESTAMPTZ;
@@ -0,0 +1,13 @@
+-- Essay correction runs as a persistent background job on the essay row itself
+-- V91__essay_correction_jobs.sql
+
+ALTER TABLE essay.essays
+    ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMPTZ,
+    ADD COLUMN IF NOT EXISTS locked_at TIMESTAMPTZ,
+    ADD COLUMN IF NOT EXISTS last_error TEXT;
+
+-- Fila: só as redações ainda não corrigidas
+CREATE INDEX IF NOT EXISTS idx_essays_correction_queue
+    ON essay.essays (created_at)
+    WHERE status IN ('PENDING', 'PROCESSING');
@@ -0,0 +1,45 @@
+-- Notifications: per-user inbox plus a transactional outbox drained by the dispatcher
+-- V92__notification_outbox.sql
+
+CREATE SCHEMA IF NOT EXISTS notification;
+
+CREATE TABLE IF NOT EXISTS notification.notifications (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    type VARCHAR(50) NOT NULL DEFAULT 'GENERAL',
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    dedup_key VARCHAR(200),
+    read_at TIMESTAMPTZ,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Inbox paginada por (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_notifications_inbox
+    ON notification.notifications (user_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_notifications_unread
+    ON notification.notifications (user_id)
+    WHERE read_at IS NULL;
+
+-- Mesmo evento não gera duas notificações para o mesmo usuário
+CREATE UNIQUE INDEX IF NOT EXISTS ux_notifications_dedup
+    ON notification.notifications (user_id, dedup_key)
+    WHERE dedup_key IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS notification.outbox (
+    id BIGSERIAL PRIMARY KEY,
+    notification_id UUID NOT NULL REFERENCES notification.notifications(id) ON DELETE CASCADE,
+    channel VARCHAR(20) NOT NULL, -- 'WEBSOCKET', 'SSE', 'EMAIL', 'WHATSAPP'
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- 'PENDING', 'SENT', 'FAILED'
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    locked_until TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    sent_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_due
+    ON notification.outbox (channel, next_attempt_at)
+    WHERE status = 'PENDING';
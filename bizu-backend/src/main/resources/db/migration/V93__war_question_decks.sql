@@ -0,0 +1,15 @@
+-- War Day: deck embaralhado de questões por (evento, zona) e cursor por sessão de guild
+-- V93__war_question_decks.sql
+
+-- question_ids: ids concatenados (16 bytes cada) na ordem do deck
+CREATE TABLE IF NOT EXISTS student.war_question_decks (
+    war_day_event_id UUID NOT NULL REFERENCES student.war_day_events(id) ON DELETE CASCADE,
+    zone_template_id UUID NOT NULL REFERENCES student.war_zone_templates(id) ON DELETE CASCADE,
+    question_ids BYTEA NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (war_day_event_id, zone_template_id)
+);
+
+-- Próxima posição do deck a entregar para a guild nesta zona
+ALTER TABLE student.war_zone_progress
+    ADD COLUMN IF NOT EXISTS deck_cursor INT NOT NULL DEFAULT 0;
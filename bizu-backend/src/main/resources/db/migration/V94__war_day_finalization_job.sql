@@ -0,0 +1,31 @@
+-- War Day: encerramento como job retomável (checkpoint por fase) e XP a conceder por membro
+-- V94__war_day_finalization_job.sql
+
+CREATE TABLE IF NOT EXISTS student.war_day_finalizations (
+    war_day_event_id UUID PRIMARY KEY REFERENCES student.war_day_events(id) ON DELETE CASCADE,
+    phase VARCHAR(20) NOT NULL DEFAULT 'RANKINGS', -- RANKINGS, GRANTS, XP, TOTALS, DONE
+    phase_timings JSONB NOT NULL DEFAULT '{}'::jsonb, -- fase -> duração em ms
+    locked_until TIMESTAMPTZ,
+    started_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    finished_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_war_day_finalizations_pending
+    ON student.war_day_finalizations (locked_until)
+    WHERE finished_at IS NULL;
+
+-- Uma linha por membro premiado; granted_at é gravado na mesma transação do addXp
+CREATE TABLE IF NOT EXISTS student.war_day_xp_grants (
+    war_day_event_id UUID NOT NULL REFERENCES student.war_day_events(id) ON DELETE CASCADE,
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    guild_id UUID NOT NULL REFERENCES student.guilds(id) ON DELETE CASCADE,
+    amount INTEGER NOT NULL,
+    granted_at TIMESTAMPTZ,
+    error TEXT,
+    PRIMARY KEY (war_day_event_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_war_day_xp_grants_pending
+    ON student.war_day_xp_grants (war_day_event_id, user_id)
+    WHERE granted_at IS NULL AND error IS NULL;
@@ -0,0 +1,9 @@
+-- Importação de questões: lease do worker, renovado a cada chunk, para retomar importações paradas
+-- V95__question_import_lease.sql
+
+ALTER TABLE content.question_import_logs
+    ADD COLUMN IF NOT EXISTS locked_until TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_question_import_logs_processing
+    ON content.question_import_logs (locked_until)
+    WHERE status = 'PROCESSING';
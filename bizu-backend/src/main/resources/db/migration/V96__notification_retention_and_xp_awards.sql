@@ -0,0 +1,23 @@
+-- Retenção do outbox/inbox de notificações e prêmios de XP concedidos uma única vez
+-- V96__notification_retention_and_xp_awards.sql
+
+-- Limpeza periódica de linhas já entregues
+CREATE INDEX IF NOT EXISTS idx_outbox_sent
+    ON notification.outbox (sent_at)
+    WHERE status = 'SENT';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_failed
+    ON notification.outbox (created_at)
+    WHERE status = 'FAILED';
+
+CREATE INDEX IF NOT EXISTS idx_notifications_created
+    ON notification.notifications (created_at);
+
+-- Um prêmio (ex.: "ranking-simulado:2026-W42") vale uma vez por usuário, mesmo se o job rodar de novo
+CREATE TABLE IF NOT EXISTS student.xp_awards (
+    user_id UUID NOT NULL REFERENCES identity.users(id) ON DELETE CASCADE,
+    award_key VARCHAR(200) NOT NULL,
+    amount INTEGER NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, award_key)
+);
@@ -0,0 +1,4 @@
+-- Retenção do progresso de missões: linhas de períodos antigos removidas por updated_at
+-- V97__quest_progress_retention.sql
+
+CREATE INDEX IF NOT EXISTS idx_quest_progress_updated_at ON student.quest_progress (updated_at);
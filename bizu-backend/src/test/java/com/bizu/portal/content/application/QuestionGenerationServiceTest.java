@@ -0,0 +1,193 @@
+package com.bizu.portal.content.application;
+
+import com.bizu.portal.ai.AiClient;
+import com.bizu.portal.ai.AiRateLimiter;
+import com.bizu.portal.ai.AiResponseCache;
+import com.bizu.portal.ai.AiService;
+import com.bizu.portal.content.domain.Question;
+import com.bizu.portal.shared.http.OutboundHttp;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the generator against a local stub of the AI API (JDK HttpServer), with the real
+ * AiService, AiClient and rate limiter.
+ */
+@ExtendWith(MockitoExtension.class)
+class QuestionGenerationServiceTest {
+
+    private static final String ANSWER = "{\"questions\":[{\"statement\":\"Qual?\",\"options\":{\"A\":\"1\",\"B\":\"2\"},\"correctOption\":\"A\"}]}";
+
+    @Mock
+    private AiResponseCache aiResponseCache;
+
+    @Mock
+    private QuestionSaveService questionSaveService;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean hold;
+
+    private HttpServer server;
+    private ThreadPoolTaskExecutor aiExecutor;
+    private QuestionGenerationService service;
+    private final UUID moduleId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            if (hold) {
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (rateLimited.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            String body = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":"
+                    + "\"" + ANSWER.replace("\"", "\\\"") + "\"}}]}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        AiService aiService = new AiService(new OutboundHttp(new MockEnvironment()));
+        ReflectionTestUtils.setField(aiService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(aiService, "apiUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        AiClient aiClient = new AiClient(aiService, new AiRateLimiter(6000, 100));
+        ReflectionTestUtils.setField(aiClient, "maxAttempts", 3);
+        ReflectionTestUtils.setField(aiClient, "backoffMs", 10L);
+
+        aiExecutor = new ThreadPoolTaskExecutor();
+        aiExecutor.setCorePoolSize(4);
+        aiExecutor.initialize();
+
+        service = new QuestionGenerationService(aiClient, aiResponseCache, questionSaveService, aiExecutor);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        aiExecutor.shutdown();
+    }
+
+    @Test
+    void generate_retriesRateLimitedCallAndCachesAnswer() {
+        rateLimited.set(1);
+        when(questionSaveService.parseAndSave(ANSWER, moduleId, "QUIZ", "Módulo")).thenReturn(List.of(new Question()));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        service.generate("Texto curto do material.", "Material", moduleId, "Módulo", 1, "QUIZ", emitter);
+
+        assertThat(requests).hasValue(2);
+        assertThat(emitter.events).last().asString().contains("event:complete").contains("\"totalGenerated\":1");
+        verify(aiResponseCache).put(anyString(), eq("Texto curto do material."), eq(ANSWER));
+    }
+
+    @Test
+    void generate_usesCachedAnswerWithoutCallingTheApi() {
+        when(aiResponseCache.get(anyString(), anyString())).thenReturn(Optional.of(ANSWER));
+        when(questionSaveService.parseAndSave(ANSWER, moduleId, "QUIZ", "Módulo")).thenReturn(List.of());
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        service.generate("Texto curto do material.", "Material", moduleId, "Módulo", 1, "QUIZ", emitter);
+
+        assertThat(requests).hasValue(0);
+        assertThat(emitter.events).last().asString().contains("event:complete");
+        verify(aiResponseCache, never()).put(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void generate_stopsSubmittingChunksWhenClientTimesOut() throws Exception {
+        hold = true;
+        RecordingEmitter emitter = new RecordingEmitter();
+        Thread coordinator = new Thread(() -> service.generate(longContent(), "Material", moduleId, "Módulo", 1, "QUIZ", emitter));
+        coordinator.start();
+
+        // Dois trechos (parallelism) presos no stub; o cliente desiste
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (requests.get() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertThat(emitter.timeoutCallback).isNotNull();
+        emitter.timeoutCallback.run();
+
+        coordinator.join(5_000);
+        assertThat(coordinator.isAlive()).isFalse();
+        assertThat(requests).hasValue(2);
+        assertThat(emitter.events).noneMatch(event -> event.contains("event:complete"));
+        verify(questionSaveService, never()).parseAndSave(any(), any(), any(), any());
+    }
+
+    private static String longContent() {
+        // ~20 mil caracteres: vários trechos de até 3500
+        return "Frase de conteúdo do material de estudo. ".repeat(500);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private volatile Runnable timeoutCallback;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> event.append(part.getData()));
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void onTimeout(Runnable callback) {
+            this.timeoutCallback = callback;
+        }
+
+        @Override
+        public synchronized void onError(Consumer<Throwable> callback) {
+        }
+    }
+}
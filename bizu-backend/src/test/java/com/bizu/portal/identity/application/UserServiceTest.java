@@ -68,4 +68,22 @@ class UserServiceTest {
         assertThat(saved.getId()).isEqualTo(userId);
         verify(userRepository).saveAndFlush(org.mockito.ArgumentMatchers.any(User.class));
     }
+
+    @Test
+    void ensureUsers_matchesAccountsIgnoringEmailCase() {
+        when(userRepository.findByLowerEmailIn(java.util.List.of("aluno@bizu.com", "novo@bizu.com")))
+                .thenReturn(java.util.List.of(User.builder().email("Aluno@Bizu.com").build()));
+        when(keycloakService.provisionUsers(java.util.List.of(new KeycloakService.ProvisionRequest("novo@bizu.com", null))))
+                .thenReturn(java.util.List.of(new KeycloakService.ProvisionResult("novo@bizu.com", "CREATED", null)));
+
+        java.util.List<KeycloakService.ProvisionResult> results =
+                userService.ensureUsers(java.util.List.of(" Aluno@Bizu.com", "NOVO@bizu.com", "novo@bizu.com"));
+
+        assertThat(results).extracting(KeycloakService.ProvisionResult::email, KeycloakService.ProvisionResult::status)
+                .containsExactly(org.assertj.core.groups.Tuple.tuple("aluno@bizu.com", "EXISTING"),
+                        org.assertj.core.groups.Tuple.tuple("novo@bizu.com", "CREATED"));
+        ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(userCaptor.capture());
+        assertThat(userCaptor.getValue().getEmail()).isEqualTo("novo@bizu.com");
+    }
 }
@@ -0,0 +1,126 @@
+package com.bizu.portal.notification.application;
+
+import com.bizu.portal.shared.http.OutboundCallRejectedException;
+import com.bizu.portal.shared.http.OutboundHttp;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sends to a local stub of the Evolution API (JDK HttpServer) that answers slowly, so more
+ * messages are in flight than the integration allows.
+ */
+class WhatsAppServiceTest {
+
+    private HttpServer server;
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int status = 201;
+    private volatile long delayMillis = 100;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/message/sendText/AxonBot", exchange -> {
+            received.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void deliver_queuesSendsBeyondConcurrencyLimit() throws Exception {
+        WhatsAppService service = service(new MockEnvironment().withProperty("axon.http.whatsapp.max-concurrent", "20"));
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            sends.add(service.deliver("11 98765-43" + String.format("%02d", i), "Mensagem " + i));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(received).hasValue(60);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(20);
+    }
+
+    @Test
+    void deliver_failsWhenQueueIsFull() {
+        WhatsAppService service = service(new MockEnvironment()
+                .withProperty("axon.http.whatsapp.max-concurrent", "1")
+                .withProperty("axon.http.whatsapp.max-queued", "1"));
+
+        CompletableFuture<Void> first = service.deliver("11987654321", "um");
+        CompletableFuture<Void> second = service.deliver("11987654321", "dois");
+        CompletableFuture<Void> third = service.deliver("11987654321", "três");
+
+        assertThatThrownBy(third::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(OutboundCallRejectedException.class);
+        CompletableFuture.allOf(first, second).join();
+        assertThat(received).hasValue(2);
+    }
+
+    @Test
+    void deliver_givesUpAfterQueueWait() {
+        delayMillis = 1_000;
+        WhatsAppService service = service(new MockEnvironment()
+                .withProperty("axon.http.whatsapp.max-concurrent", "1")
+                .withProperty("axon.http.whatsapp.queue-wait-ms", "200"));
+
+        CompletableFuture<Void> first = service.deliver("11987654321", "um");
+        CompletableFuture<Void> second = service.deliver("11987654321", "dois");
+
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(OutboundCallRejectedException.class);
+        first.join();
+        assertThat(received).hasValue(1);
+    }
+
+    @Test
+    void deliver_failsOnErrorAnswer() {
+        status = 400;
+        WhatsAppService service = service(new MockEnvironment());
+
+        assertThatThrownBy(() -> service.deliver("11987654321", "oi").get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private WhatsAppService service(MockEnvironment environment) {
+        WhatsAppService service = new WhatsAppService(new OutboundHttp(environment));
+        ReflectionTestUtils.setField(service, "apiUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+        ReflectionTestUtils.setField(service, "instanceName", "AxonBot");
+        return service;
+    }
+}
@@ -0,0 +1,159 @@
+package com.bizu.portal.shared.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class FileResponseWriterTest {
+
+    private final FileResponseWriter writer = new FileResponseWriter();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void write_sendsWholeFileWithValidators() throws Exception {
+        Path file = file("0123456789");
+
+        MockHttpServletResponse response = get(file, new MockHttpServletRequest("GET", "/f"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).matches("\"[0-9a-f]+-a\"");
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+    }
+
+    @Test
+    void write_answersNotModifiedForMatchingEtag() throws Exception {
+        Path file = file("0123456789");
+        String etag = get(file, new MockHttpServletRequest("GET", "/f")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/f");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/" + etag);
+        MockHttpServletResponse response = get(file, request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void write_changesEtagWhenFileChanges() throws Exception {
+        Path file = file("0123456789");
+        String before = get(file, new MockHttpServletRequest("GET", "/f")).getHeader(HttpHeaders.ETAG);
+
+        Files.writeString(file, "01234567890");
+
+        assertThat(get(file, new MockHttpServletRequest("GET", "/f")).getHeader(HttpHeaders.ETAG)).isNotEqualTo(before);
+    }
+
+    @Test
+    void write_usesContentHashFromNameWhenGiven() throws Exception {
+        Path file = file("0123456789");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(file, "text/plain", "abc123", true, new MockHttpServletRequest("GET", "/f"), response);
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"abc123\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("immutable");
+    }
+
+    @Test
+    void write_servesSingleAndMultipleRanges() throws Exception {
+        Path file = file("0123456789");
+
+        MockHttpServletRequest single = new MockHttpServletRequest("GET", "/f");
+        single.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        MockHttpServletResponse partial = get(file, single);
+        assertThat(partial.getStatus()).isEqualTo(206);
+        assertThat(partial.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-4/10");
+        assertThat(partial.getContentAsString()).isEqualTo("234");
+
+        MockHttpServletRequest multiple = new MockHttpServletRequest("GET", "/f");
+        multiple.addHeader(HttpHeaders.RANGE, "bytes=0-1,-2");
+        MockHttpServletResponse multipart = get(file, multiple);
+        assertThat(multipart.getStatus()).isEqualTo(206);
+        assertThat(multipart.getContentType()).startsWith("multipart/byteranges");
+        assertThat(multipart.getContentAsString())
+                .contains("Content-Range: bytes 0-1/10\r\n\r\n01")
+                .contains("Content-Range: bytes 8-9/10\r\n\r\n89");
+        assertThat(multipart.getContentAsByteArray()).hasSize((int) multipart.getContentLengthLong());
+    }
+
+    @Test
+    void write_rejectsUnsatisfiableRangeAndIgnoresStaleIfRange() throws Exception {
+        Path file = file("0123456789");
+
+        MockHttpServletRequest outside = new MockHttpServletRequest("GET", "/f");
+        outside.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+        MockHttpServletResponse unsatisfiable = get(file, outside);
+        assertThat(unsatisfiable.getStatus()).isEqualTo(416);
+        assertThat(unsatisfiable.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/f");
+        stale.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"outra-versao\"");
+        MockHttpServletResponse whole = get(file, stale);
+        assertThat(whole.getStatus()).isEqualTo(200);
+        assertThat(whole.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void write_tagsLargeFilesWithoutReadingThem() throws Exception {
+        // Arquivo esparso de 2 GB atrás de um provider que só responde metadados
+        Path real = dir.resolve("large.mp4");
+        try (RandomAccessFile raf = new RandomAccessFile(real.toFile(), "rw")) {
+            raf.setLength(2L * 1024 * 1024 * 1024);
+        }
+        FileSystemProvider provider = mock(FileSystemProvider.class);
+        FileSystem fileSystem = mock(FileSystem.class);
+        Path file = mock(Path.class);
+        when(file.getFileSystem()).thenReturn(fileSystem);
+        when(fileSystem.provider()).thenReturn(provider);
+        BasicFileAttributes attributes = Files.readAttributes(real, BasicFileAttributes.class);
+        when(provider.readAttributes(eq(file), eq(BasicFileAttributes.class))).thenReturn(attributes);
+
+        MockHttpServletResponse first = head(file);
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/f");
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse second = get(file, revalidation);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getContentLengthLong()).isEqualTo(2L * 1024 * 1024 * 1024);
+        assertThat(second.getStatus()).isEqualTo(304);
+        // Só os atributos foram lidos: nenhum canal ou stream aberto sobre o conteúdo
+        verify(provider, times(2)).readAttributes(eq(file), eq(BasicFileAttributes.class));
+        verifyNoMoreInteractions(provider);
+    }
+
+    private MockHttpServletResponse head(Path file) throws Exception {
+        return get(file, new MockHttpServletRequest("HEAD", "/f"));
+    }
+
+    private MockHttpServletResponse get(Path file, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(file, "text/plain", null, false, request, response);
+        return response;
+    }
+
+    private Path file(String content) throws Exception {
+        return Files.writeString(dir.resolve("file.txt"), content, StandardCharsets.US_ASCII);
+    }
+}
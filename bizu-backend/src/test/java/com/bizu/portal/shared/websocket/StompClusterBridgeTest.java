@@ -0,0 +1,125 @@
+package com.bizu.portal.shared.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts in the same JVM, each with its own broker channel, joined by the
+ * in-memory bridge: what one node sends to a {@code /topic} must reach the other node's broker.
+ */
+class StompClusterBridgeTest {
+
+    private Node first;
+    private Node second;
+
+    @BeforeEach
+    void setUp() {
+        first = new Node();
+        second = new Node();
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void topicMessage_reachesTheOtherNodeOnce() {
+        first.send("/topic/war-day/ranking", "{\"version\":1}");
+
+        assertThat(first.delivered).containsExactly("/topic/war-day/ranking {\"version\":1}");
+        assertThat(second.delivered).containsExactly("/topic/war-day/ranking {\"version\":1}");
+        assertThat(second.received.get(0).getHeaders()).containsKey(StompClusterBridge.BRIDGED_HEADER);
+        assertThat(SimpMessageHeaderAccessor.wrap(second.received.get(0)).getContentType())
+                .isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertThat(first.bridge().published()).isEqualTo(1);
+        assertThat(second.bridge().received()).isEqualTo(1);
+        // A mensagem espelhada não volta para a origem
+        assertThat(first.bridge().received()).isZero();
+        assertThat(second.bridge().published()).isZero();
+    }
+
+    @Test
+    void nonTopicMessage_staysLocal() {
+        first.send("/queue/private", "{}");
+
+        assertThat(first.delivered).hasSize(1);
+        assertThat(second.delivered).isEmpty();
+    }
+
+    @Test
+    void closedContext_stopsReceiving() {
+        second.close();
+
+        first.send("/topic/duels/1", "{}");
+
+        assertThat(first.delivered).hasSize(1);
+        assertThat(second.delivered).isEmpty();
+    }
+
+    @Configuration
+    @Import({InMemoryBrokerBridge.class, StompClusterBridge.class})
+    static class NodeConfig {
+
+        @Bean
+        ExecutorSubscribableChannel brokerChannel() {
+            return new ExecutorSubscribableChannel();
+        }
+    }
+
+    private static class Node {
+
+        private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        private final ExecutorSubscribableChannel channel;
+        private final List<Message<?>> received = new CopyOnWriteArrayList<>();
+        private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+        Node() {
+            context.setEnvironment(new MockEnvironment().withProperty("axon.websocket.broker", "memory"));
+            context.register(NodeConfig.class);
+            context.refresh();
+            channel = context.getBean("brokerChannel", ExecutorSubscribableChannel.class);
+            channel.addInterceptor(bridge());
+            // Faz o papel do broker local: registra o que chegaria aos assinantes deste nó
+            channel.subscribe(message -> {
+                received.add(message);
+                delivered.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()) + " "
+                        + new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+            });
+        }
+
+        StompClusterBridge bridge() {
+            return context.getBean(StompClusterBridge.class);
+        }
+
+        void send(String destination, String json) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            channel.send(MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+        }
+
+        void close() {
+            if (context.isActive()) context.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.bizu.portal.student.application;
+
+import com.bizu.portal.identity.domain.User;
+import com.bizu.portal.identity.infrastructure.UserRepository;
+import com.bizu.portal.notification.application.NotificationService;
+import com.bizu.portal.student.application.MatchmakingQueueStore.QueuedPlayer;
+import com.bizu.portal.student.domain.Duel;
+import com.bizu.portal.student.infrastructure.DuelRepository;
+import com.bizu.portal.student.infrastructure.GamificationRepository;
+import com.bizu.portal.student.infrastructure.InMemoryMatchmakingQueueStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MatchmakingServiceTest {
+
+    @Mock
+    private DuelService duelService;
+
+    @Mock
+    private DuelRepository duelRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private GamificationRepository gamificationRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final InMemoryMatchmakingQueueStore queueStore = new InMemoryMatchmakingQueueStore();
+    private final UUID courseId = UUID.randomUUID();
+    private MatchmakingService matchmakingService;
+
+    @BeforeEach
+    void setUp() {
+        matchmakingService = new MatchmakingService(queueStore, duelService, duelRepository, userRepository,
+                gamificationRepository, new LevelCalculator(), notificationService, messagingTemplate);
+        ReflectionTestUtils.setField(matchmakingService, "baseLevelWindow", 2);
+        ReflectionTestUtils.setField(matchmakingService, "widenEverySeconds", 10);
+        ReflectionTestUtils.setField(matchmakingService, "queueTimeoutSeconds", 120);
+    }
+
+    @Test
+    void matchAll_pairsOldestPlayerWithClosestLevelInsideWindow() {
+        QueuedPlayer oldest = enqueue(5, 3);
+        QueuedPlayer far = enqueue(12, 2);
+        QueuedPlayer close = enqueue(6, 1);
+        stubUsers(oldest, close);
+        when(duelService.createDuel(oldest.userId(), close.userId(), "Aleatório")).thenReturn(new Duel());
+
+        matchmakingService.matchAll();
+
+        verify(duelService).createDuel(oldest.userId(), close.userId(), "Aleatório");
+        assertThat(queueStore.snapshot(courseId)).containsExactly(far);
+    }
+
+    @Test
+    void matchAll_keepsDistantLevelsQueuedUntilWindowWidens() {
+        QueuedPlayer low = enqueue(1, 1);
+        QueuedPlayer high = enqueue(7, 0);
+
+        matchmakingService.matchAll();
+
+        verify(duelService, never()).createDuel(any(), any(), anyString());
+        assertThat(queueStore.snapshot(courseId)).containsExactly(low, high);
+    }
+
+    @Test
+    void matchAll_pairsDistantLevelsAfterLongWait() {
+        // 60 s de espera: janela 2 + 6 cobre a diferença de 6 níveis
+        QueuedPlayer low = enqueue(1, 60);
+        QueuedPlayer high = enqueue(7, 0);
+        stubUsers(low, high);
+        when(duelService.createDuel(low.userId(), high.userId(), "Aleatório")).thenReturn(new Duel());
+
+        matchmakingService.matchAll();
+
+        verify(duelService).createDuel(low.userId(), high.userId(), "Aleatório");
+        assertThat(queueStore.activeCourses()).isEmpty();
+    }
+
+    @Test
+    void matchAll_dropsPlayersPastQueueTimeout() {
+        QueuedPlayer stale = enqueue(3, 121);
+
+        matchmakingService.matchAll();
+
+        assertThat(queueStore.snapshot(courseId)).isEmpty();
+        verify(messagingTemplate).convertAndSend("/topic/matchmaking/" + stale.userId(),
+                Map.of("status", "TIMEOUT", "courseId", courseId.toString()));
+    }
+
+    @Test
+    void matchAll_requeuesBothPlayersWhenDuelCreationFails() {
+        QueuedPlayer first = enqueue(2, 5);
+        QueuedPlayer second = enqueue(2, 4);
+        stubUsers(first, second);
+        when(duelService.createDuel(first.userId(), second.userId(), "Aleatório")).thenThrow(new RuntimeException("falha"));
+
+        matchmakingService.matchAll();
+
+        assertThat(queueStore.snapshot(courseId)).containsExactly(first, second);
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void matchAll_skipsCourseWhileAnotherNodeHoldsTheMatcher() {
+        QueuedPlayer first = enqueue(2, 5);
+        QueuedPlayer second = enqueue(2, 4);
+        queueStore.tryAcquireMatcher(courseId, Duration.ofSeconds(10));
+
+        matchmakingService.matchAll();
+
+        verify(userRepository, never()).findAllById(anyIterable());
+        assertThat(queueStore.snapshot(courseId)).containsExactly(first, second);
+    }
+
+    @Test
+    void leaveQueue_removesPlayer() {
+        QueuedPlayer player = enqueue(2, 0);
+
+        matchmakingService.leaveQueue(player.userId(), courseId);
+
+        assertThat(queueStore.snapshot(courseId)).isEmpty();
+        verify(notificationService, never()).send(eq(player.userId()), anyString(), anyString());
+    }
+
+    private QueuedPlayer enqueue(int level, int waitedSeconds) {
+        QueuedPlayer player = new QueuedPlayer(UUID.randomUUID(), level, Instant.now().minusSeconds(waitedSeconds));
+        queueStore.enqueue(courseId, player);
+        return player;
+    }
+
+    private void stubUsers(QueuedPlayer first, QueuedPlayer second) {
+        when(userRepository.findAllById(List.of(first.userId(), second.userId()))).thenReturn(List.of(
+                User.builder().id(first.userId()).email(first.userId() + "@bizu.com").build(),
+                User.builder().id(second.userId()).email(second.userId() + "@bizu.com").build()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.bizu.portal.student.application;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the rollup against a real Postgres migrated by Flyway, and compares the summary reads of
+ * two histories with the same buckets and very different answer counts. Skipped when Docker is
+ * not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PerformanceRollupServiceTest {
+
+    private static final int DAYS = 365;
+    private static final int SUBJECTS = 8;
+    private static final int BUCKETS = DAYS * SUBJECTS * 3;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static JdbcTemplate jdbcTemplate;
+    static PerformanceRollupService service;
+
+    @BeforeAll
+    static void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        service = new PerformanceRollupService(jdbcTemplate);
+    }
+
+    @Test
+    void apply_countsAttemptsAndUniqueQuestionsPerBucket() {
+        UUID userId = newUser();
+        UUID question = UUID.randomUUID();
+
+        service.apply(StudentActivityEvent.answer(userId, StudentActivityEvent.Source.PRACTICE, question, "Direito", true, "EASY", 30));
+        service.apply(StudentActivityEvent.answer(userId, StudentActivityEvent.Source.PRACTICE, question, "Direito", false, "EASY", 20));
+        service.apply(StudentActivityEvent.answer(userId, StudentActivityEvent.Source.DUEL, UUID.randomUUID(), null, true, "EASY", 10));
+
+        LocalDate today = LocalDate.now(PerformanceRollupService.ZONE);
+        List<PerformanceRollupService.SubjectTotals> totals = service.totalsBySubject(userId, today, today.minusDays(7));
+
+        assertThat(totals).extracting(PerformanceRollupService.SubjectTotals::subject).containsExactlyInAnyOrder("Direito", "Geral");
+        PerformanceRollupService.SubjectTotals direito = totals.stream().filter(t -> t.subject().equals("Direito")).findFirst().orElseThrow();
+        assertThat(direito.attempted()).isEqualTo(2);
+        assertThat(direito.correct()).isEqualTo(1);
+        assertThat(direito.seconds()).isEqualTo(50);
+        assertThat(direito.uniqueQuestions()).isEqualTo(1);
+        assertThat(direito.attemptedToday()).isEqualTo(2);
+
+        assertThat(service.totalsByDay(userId, today.minusDays(7)))
+                .singleElement()
+                .satisfies(day -> assertThat(day.attempted()).isEqualTo(3));
+    }
+
+    @Test
+    void summaryReads_stayFlatAsAnswerHistoryGrows() {
+        // Mesmo ano de buckets (dias × disciplinas × origens); só o número de respostas muda, 1 contra 1000 por bucket
+        UUID fewAnswers = userWithHistory(1);
+        UUID manyAnswers = userWithHistory(1_000);
+        jdbcTemplate.execute("ANALYZE student.performance_daily");
+
+        LocalDate today = LocalDate.now(PerformanceRollupService.ZONE);
+        long manyAttempted = service.totalsBySubject(manyAnswers, today, today.minusDays(7)).stream()
+                .mapToLong(PerformanceRollupService.SubjectTotals::attempted).sum();
+        assertThat(manyAttempted).isEqualTo((long) BUCKETS * 1_000);
+        // O que a leitura percorre são os buckets, não as respostas
+        assertThat(bucketsOf(manyAnswers)).isEqualTo(bucketsOf(fewAnswers)).isEqualTo(BUCKETS);
+
+        long fewMicros = medianSummaryMicros(fewAnswers);
+        long manyMicros = medianSummaryMicros(manyAnswers);
+        // Mil vezes mais respostas, mesma ordem de tempo (folga para a variação da máquina)
+        assertThat(manyMicros).isLessThanOrEqualTo(fewMicros * 2 + 2_000);
+    }
+
+    private UUID userWithHistory(int answersPerBucket) {
+        UUID userId = newUser();
+        jdbcTemplate.update("""
+            INSERT INTO student.performance_daily (user_id, day, subject, source, attempted, correct, seconds, first_seen)
+            SELECT ?, CAST(? AS date) - d, 'Disciplina ' || s, src, ?, ? / 2, ? * 45, ? / 4
+            FROM generate_series(0, ? - 1) d, generate_series(1, ?) s, unnest(ARRAY['PRACTICE', 'ACTIVITY', 'DUEL']) src
+            """, userId, LocalDate.now(PerformanceRollupService.ZONE), answersPerBucket, answersPerBucket,
+                answersPerBucket, answersPerBucket, DAYS, SUBJECTS);
+        return userId;
+    }
+
+    private int bucketsOf(UUID userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM student.performance_daily WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private long medianSummaryMicros(UUID userId) {
+        LocalDate today = LocalDate.now(PerformanceRollupService.ZONE);
+        for (int i = 0; i < 10; i++) {
+            service.totalsBySubject(userId, today, today.minusDays(7));
+            service.totalsByDay(userId, today.minusDays(7));
+        }
+        long[] samples = new long[30];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            service.totalsBySubject(userId, today, today.minusDays(7));
+            service.totalsByDay(userId, today.minusDays(7));
+            samples[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private UUID newUser() {
+        UUID userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO identity.users (id, email, name, nickname) VALUES (?, ?, ?, ?)",
+                userId, userId + "@teste.com", "Aluno", userId.toString());
+        return userId;
+    }
+}
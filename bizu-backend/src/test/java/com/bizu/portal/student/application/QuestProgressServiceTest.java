@@ -0,0 +1,27 @@
+package com.bizu.portal.student.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuestProgressServiceTest {
+
+    @Test
+    void weeklyPeriodId_keepsTheWeekAcrossNewYear() {
+        // 31/12/2025 e 01/01/2026 caem na mesma semana (semana 1 de 2026)
+        String lastDay = QuestProgressService.weeklyPeriodId(LocalDate.of(2025, 12, 31));
+        String firstDay = QuestProgressService.weeklyPeriodId(LocalDate.of(2026, 1, 1));
+
+        assertThat(lastDay).isEqualTo(firstDay).isEqualTo("2026-W1");
+    }
+
+    @Test
+    void weeklyPeriodId_doesNotReuseTheJanuaryKeyInDecember() {
+        String january = QuestProgressService.weeklyPeriodId(LocalDate.of(2025, 1, 2));
+        String december = QuestProgressService.weeklyPeriodId(LocalDate.of(2025, 12, 31));
+
+        assertThat(december).isNotEqualTo(january);
+    }
+}
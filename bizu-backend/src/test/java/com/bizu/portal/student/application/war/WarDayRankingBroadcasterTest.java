@@ -0,0 +1,245 @@
+package com.bizu.portal.student.application.war;
+
+import com.bizu.portal.student.api.war.WarDayDTO;
+import com.bizu.portal.student.infrastructure.war.GuildWarSessionRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Several broadcasters (one per simulated node) sharing a real Redis, under a steady stream of
+ * score changes spread over all nodes. Frames are replayed the way the War Day page applies
+ * them. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WarDayRankingBroadcasterTest {
+
+    private static final int NODES = 3;
+    private static final int GUILDS = 30;
+    private static final int ROUNDS = 20;
+
+    @Container
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    static StringRedisTemplate redisTemplate;
+
+    private record Frame(int node, WarDayDTO.RankingUpdateEvent event) {}
+
+    private final List<Frame> frames = new CopyOnWriteArrayList<>();
+    private final List<GuildWarSessionRepository> repositories = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @Test
+    void flush_onlyThePublisherSendsFramesAndEveryNodeSeesAllScores() {
+        UUID eventId = UUID.randomUUID();
+        List<WarDayRankingBroadcaster> nodes = nodes();
+        List<UUID> guilds = guilds(NODES);
+        for (int i = 0; i < NODES; i++) {
+            nodes.get(i).scoreChanged(eventId, guilds.get(i), 100L * (i + 1), i);
+        }
+
+        for (int round = 0; round < 3; round++) nodes.forEach(WarDayRankingBroadcaster::flush);
+
+        assertThat(frames).extracting(Frame::node).containsOnly(frames.get(0).node());
+        assertThat(frames.get(0).event().getType()).isEqualTo("RANKING_UPDATE");
+        for (WarDayRankingBroadcaster node : nodes) {
+            assertThat(node.ranking(eventId)).extracting(WarDayDTO.GuildRankingEntry::getGuildId)
+                    .containsExactly(guilds.get(2), guilds.get(1), guilds.get(0));
+        }
+    }
+
+    @Test
+    void flush_keepsClientsConsistentUnderLoad() throws Exception {
+        UUID eventId = UUID.randomUUID();
+        List<WarDayRankingBroadcaster> nodes = nodes();
+        List<UUID> guilds = guilds(GUILDS);
+        AtomicLongArray scores = new AtomicLongArray(GUILDS);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(NODES * 3);
+        for (int n = 0; n < NODES; n++) {
+            WarDayRankingBroadcaster node = nodes.get(n);
+            // Duas threads de respostas por nó; o total vem "do banco" (contador por guild, só cresce)
+            for (int w = 0; w < 2; w++) {
+                pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        int g = random.nextInt(GUILDS);
+                        long score = scores.addAndGet(g, 10);
+                        node.scoreChanged(eventId, guilds.get(g), score, (int) (score / 100));
+                    }
+                });
+            }
+            pool.submit(() -> {
+                while (running.get()) {
+                    node.flush();
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        Thread.sleep(3_000);
+        running.set(false);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        for (int round = 0; round < 2; round++) nodes.forEach(WarDayRankingBroadcaster::flush);
+
+        Map<UUID, WarDayDTO.GuildRankingEntry> client = replay(frames);
+
+        assertThat(frames).extracting(Frame::node).containsOnly(frames.get(0).node());
+        assertThat(frames).extracting(frame -> frame.event().getVersion()).isSorted().doesNotHaveDuplicates();
+        for (int g = 0; g < GUILDS; g++) {
+            assertThat(client.get(guilds.get(g)).getTotalScore()).isEqualTo(scores.get(g));
+        }
+    }
+
+    @Test
+    void flush_newPublisherTakesOverWithCompleteFrameAndHigherVersion() {
+        UUID eventId = UUID.randomUUID();
+        List<WarDayRankingBroadcaster> nodes = nodes();
+        UUID guild = UUID.randomUUID();
+        nodes.forEach(node -> node.scoreChanged(eventId, guild, 10, 0));
+        nodes.forEach(WarDayRankingBroadcaster::flush);
+        Frame last = frames.get(frames.size() - 1);
+        int publisher = last.node();
+
+        // O publicador para (queda do nó) e a concessão dele expira; os outros seguem recebendo respostas
+        nodes.get((publisher + 1) % NODES).scoreChanged(eventId, guild, 20, 1);
+        redisTemplate.delete("war-day:ranking:" + eventId + ":publisher");
+        for (int i = 0; i < NODES; i++) {
+            if (i != publisher) nodes.get(i).flush();
+        }
+
+        Frame takeover = frames.get(frames.size() - 1);
+        assertThat(takeover.node()).isNotEqualTo(publisher);
+        assertThat(takeover.event().getType()).isEqualTo("RANKING_UPDATE");
+        assertThat(takeover.event().getVersion()).isGreaterThan(last.event().getVersion());
+        assertThat(takeover.event().getRanking()).singleElement()
+                .extracting(WarDayDTO.GuildRankingEntry::getTotalScore).isEqualTo(20L);
+    }
+
+    @Test
+    void flush_databaseReadsDoNotDependOnAnswerRate() {
+        // Mesmo número de rodadas de envio, com 1 e com 500 respostas por rodada em cada nó
+        long slow = rankingQueries(1);
+        long fast = rankingQueries(500);
+
+        assertThat(fast).isEqualTo(slow);
+        // Uma carga inicial por nó e uma releitura por frame completo (um por rodada neste teste)
+        assertThat(slow).isEqualTo((long) NODES * (ROUNDS + 1));
+        repositories.forEach(repository -> verify(repository, times(ROUNDS + 1)).findRankingByEventId(any()));
+    }
+
+    /**
+     * Ranking queries made by all nodes over {@value #ROUNDS} flush rounds with the given number of
+     * score changes per node between rounds.
+     */
+    private long rankingQueries(int answersPerRound) {
+        repositories.clear();
+        UUID eventId = UUID.randomUUID();
+        List<WarDayRankingBroadcaster> nodes = nodes();
+        nodes.forEach(node -> ReflectionTestUtils.setField(node, "fullFrameIntervalMs", 0L));
+        List<UUID> guilds = guilds(GUILDS);
+        long[] scores = new long[GUILDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (WarDayRankingBroadcaster node : nodes) {
+                for (int a = 0; a < answersPerRound; a++) {
+                    int g = ThreadLocalRandom.current().nextInt(GUILDS);
+                    scores[g] += 10;
+                    node.scoreChanged(eventId, guilds.get(g), scores[g], 0);
+                }
+            }
+            nodes.forEach(WarDayRankingBroadcaster::flush);
+        }
+        return repositories.stream()
+                .mapToLong(repository -> mockingDetails(repository).getInvocations().stream()
+                        .filter(invocation -> invocation.getMethod().getName().equals("findRankingByEventId"))
+                        .count())
+                .sum();
+    }
+
+    /**
+     * Same rules as WarDayContext: stale versions are dropped, complete frames replace, deltas merge.
+     */
+    private static Map<UUID, WarDayDTO.GuildRankingEntry> replay(List<Frame> frames) {
+        Map<UUID, WarDayDTO.GuildRankingEntry> ranking = new HashMap<>();
+        long lastVersion = 0;
+        for (Frame frame : frames) {
+            WarDayDTO.RankingUpdateEvent event = frame.event();
+            if (event.getVersion() <= lastVersion) continue;
+            lastVersion = event.getVersion();
+            if (!"RANKING_DELTA".equals(event.getType())) ranking.clear();
+            for (WarDayDTO.GuildRankingEntry entry : event.getRanking()) {
+                WarDayDTO.GuildRankingEntry previous = ranking.put(entry.getGuildId(), entry);
+                if (previous != null) {
+                    assertThat(entry.getTotalScore()).isGreaterThanOrEqualTo(previous.getTotalScore());
+                }
+            }
+        }
+        return ranking;
+    }
+
+    private List<WarDayRankingBroadcaster> nodes() {
+        List<WarDayRankingBroadcaster> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            int node = i;
+            SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+            doAnswer(invocation -> frames.add(new Frame(node, invocation.getArgument(1))))
+                    .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+            GuildWarSessionRepository repository = mock(GuildWarSessionRepository.class);
+            repositories.add(repository);
+            WarDayRankingBroadcaster broadcaster = new WarDayRankingBroadcaster(repository, messagingTemplate, redisTemplate);
+            ReflectionTestUtils.setField(broadcaster, "fullFrameIntervalMs", 60_000L);
+            ReflectionTestUtils.setField(broadcaster, "broadcastIntervalMs", 100L);
+            nodes.add(broadcaster);
+        }
+        return nodes;
+    }
+
+    private static List<UUID> guilds(int count) {
+        List<UUID> guilds = new ArrayList<>();
+        for (int i = 0; i < count; i++) guilds.add(UUID.randomUUID());
+        return guilds;
+    }
+}
@@ -0,0 +1,384 @@
+package com.bizu.portal.student.application.war;
+
+import com.bizu.portal.student.domain.war.WarZoneTemplate;
+import com.bizu.portal.student.infrastructure.war.WarZoneTemplateRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs engines (one per simulated node) against a real Postgres migrated by Flyway and a shared
+ * real Redis, calling the write-behind by hand instead of on its schedule. Skipped when Docker is
+ * not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WarDayZoneEngineTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    static DriverManagerDataSource dataSource;
+    static JdbcTemplate jdbcTemplate;
+    static StringRedisTemplate redisTemplate;
+
+    private final WarZoneTemplateRepository templates = mock(WarZoneTemplateRepository.class);
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    void answer_concurrentMembersOfOneGuildAreAllWritten() throws Exception {
+        List<WarZoneTemplate> zones = map(1_000);
+        UUID eventId = event(zones);
+        UUID guildId = guild();
+        UUID sessionId = session(eventId, guildId, zones);
+        WarDayZoneEngine engine = engine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        UUID zoneId = zones.get(0).getId();
+
+        int members = 16;
+        int answersEach = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(members);
+        List<Future<?>> done = new ArrayList<>();
+        for (int m = 0; m < members; m++) {
+            UUID userId = user();
+            done.add(pool.submit(() -> {
+                for (int a = 0; a < answersEach; a++) {
+                    engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", a % 2 == 0);
+                }
+            }));
+        }
+        for (Future<?> future : done) future.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        engine.flushAll();
+
+        // 13 acertos de 25 por membro, 10 pontos cada; nenhuma conquista (exige 700)
+        int answers = members * answersEach;
+        int correct = members * 13;
+        Map<String, Object> zone = progress(sessionId, zoneId);
+        assertThat(((Number) zone.get("questions_answered")).intValue()).isEqualTo(answers);
+        assertThat(((Number) zone.get("correct_answers")).intValue()).isEqualTo(correct);
+        assertThat(((Number) zone.get("total_points")).longValue()).isEqualTo(correct * 10L);
+        assertThat(totalScore(sessionId)).isEqualTo(correct * 10L);
+        assertThat(attempts(sessionId)).isEqualTo(answers);
+        assertThat(engine.view(eventId, guildId).totalScore()).isEqualTo(correct * 10L);
+    }
+
+    @Test
+    void flushAll_twoNodesConqueringTheSameZoneCountTheBonusOnce() {
+        List<WarZoneTemplate> zones = map(10, 10);
+        UUID eventId = event(zones);
+        UUID guildId = guild();
+        UUID sessionId = session(eventId, guildId, zones);
+        WarDayZoneEngine first = engine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        WarDayZoneEngine second = engine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        UUID zoneId = zones.get(0).getId();
+
+        // Os dois nós conquistam a zona (7 acertos de 10) antes de qualquer gravação
+        for (WarDayZoneEngine engine : List.of(first, second)) {
+            UUID userId = user();
+            WarDayZoneEngine.AnswerOutcome outcome = null;
+            for (int a = 0; a < 7; a++) {
+                outcome = engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", true);
+            }
+            assertThat(outcome.conquered()).isTrue();
+            assertThat(outcome.newlyUnlockedZones()).containsExactly(zones.get(1).getId());
+        }
+        first.flushAll();
+        second.flushAll();
+
+        // 6 respostas sem conquista por nó (60 pontos cada) e o bônus da zona (70, lido na primeira gravação) uma vez
+        assertThat(totalScore(sessionId)).isEqualTo(60 + 60 + 70);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT zones_conquered FROM student.guild_war_sessions WHERE id = ?", Integer.class, sessionId)).isEqualTo(1);
+        assertThat(progress(sessionId, zoneId)).containsEntry("status", "CONQUERED");
+        assertThat(progress(sessionId, zones.get(1).getId())).containsEntry("status", "AVAILABLE");
+        assertThat(attempts(sessionId)).isEqualTo(14);
+    }
+
+    @Test
+    void flushAll_failedWriteIsKeptAndWrittenNextRound() {
+        List<WarZoneTemplate> zones = map(1_000);
+        UUID eventId = event(zones);
+        UUID guildId = guild();
+        UUID sessionId = session(eventId, guildId, zones);
+        AtomicBoolean failing = new AtomicBoolean();
+        WarDayZoneEngine engine = engine(jdbcTemplate, new FailingTransactionManager(failing));
+        UUID zoneId = zones.get(0).getId();
+        UUID userId = user();
+
+        engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", true);
+        engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "B", false);
+        failing.set(true);
+        engine.flushAll();
+        assertThat(attempts(sessionId)).isZero();
+        assertThat(totalScore(sessionId)).isZero();
+
+        // Mudanças devolvidas ao estado somam com as novas
+        engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "C", true);
+        failing.set(false);
+        engine.flushAll();
+
+        Map<String, Object> zone = progress(sessionId, zoneId);
+        assertThat(((Number) zone.get("questions_answered")).intValue()).isEqualTo(3);
+        assertThat(((Number) zone.get("correct_answers")).intValue()).isEqualTo(2);
+        assertThat(totalScore(sessionId)).isEqualTo(20);
+        assertThat(attempts(sessionId)).isEqualTo(3);
+        assertThat(engine.view(eventId, guildId).totalScore()).isEqualTo(20);
+    }
+
+    @Test
+    void closeEvent_waitsUntilTheOtherNodeHasWrittenItsState() throws Exception {
+        List<WarZoneTemplate> zones = map(1_000);
+        UUID eventId = event(zones);
+        UUID guildId = guild();
+        UUID sessionId = session(eventId, guildId, zones);
+        WarDayZoneEngine closing = engine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        WarDayZoneEngine other = engine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        UUID zoneId = zones.get(0).getId();
+        UUID userId = user();
+        closing.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", true);
+        other.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", true);
+
+        CompletableFuture<Void> close = CompletableFuture.runAsync(() -> closing.closeEvent(eventId));
+        // O outro nó ainda tem uma resposta não gravada: o encerramento espera por ele
+        assertThatThrownBy(() -> close.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        assertThat(attempts(sessionId)).isEqualTo(1);
+
+        other.flushAll();
+        close.get(5, TimeUnit.SECONDS);
+
+        assertThat(attempts(sessionId)).isEqualTo(2);
+        assertThat(totalScore(sessionId)).isEqualTo(20);
+        assertThat(redisTemplate.opsForSet().members("war-day:engine:" + eventId + ":holders")).isNullOrEmpty();
+        assertThatThrownBy(() -> other.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", true))
+                .hasMessage("Este War Day já foi encerrado");
+    }
+
+    @Test
+    void answer_latencyDoesNotDependOnGuildSize() throws Exception {
+        List<WarZoneTemplate> zones = map(1_000_000);
+        UUID eventId = event(zones);
+        JdbcTemplate jdbc = spy(new JdbcTemplate(dataSource));
+        WarDayZoneEngine engine = engine(jdbc, new DataSourceTransactionManager(dataSource));
+        UUID zoneId = zones.get(0).getId();
+
+        UUID smallGuild = guild();
+        session(eventId, smallGuild, zones);
+        UUID largeGuild = guild();
+        session(eventId, largeGuild, zones);
+        engine.view(eventId, smallGuild);
+        engine.view(eventId, largeGuild);
+        clearInvocations(jdbc);
+
+        long small = medianAnswerMicros(engine, eventId, smallGuild, zoneId, 1);
+        long large = medianAnswerMicros(engine, eventId, largeGuild, zoneId, 32);
+
+        // Respostas não tocam o banco (nem a linha da sessão): nada cresce com o número de membros
+        verifyNoInteractions(jdbc);
+        assertThat(large).isLessThanOrEqualTo(small * 2 + 2_000);
+    }
+
+    /**
+     * Median latency of an answer while {@code members} members of the guild answer at the same time.
+     */
+    private long medianAnswerMicros(WarDayZoneEngine engine, UUID eventId, UUID guildId, UUID zoneId, int members)
+            throws Exception {
+        int answersEach = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(members);
+        List<Future<long[]>> samples = new ArrayList<>();
+        for (int m = 0; m < members; m++) {
+            UUID userId = user();
+            samples.add(pool.submit(() -> {
+                long[] micros = new long[answersEach];
+                for (int a = 0; a < answersEach; a++) {
+                    long start = System.nanoTime();
+                    engine.answer(eventId, guildId, zoneId, userId, UUID.randomUUID(), -1, "A", a % 2 == 0);
+                    micros[a] = (System.nanoTime() - start) / 1_000;
+                }
+                return micros;
+            }));
+        }
+        List<Long> all = new ArrayList<>();
+        for (Future<long[]> future : samples) {
+            // Descarta o aquecimento de cada membro
+            Arrays.stream(future.get(60, TimeUnit.SECONDS)).skip(answersEach / 4).forEach(all::add);
+        }
+        pool.shutdown();
+        all.sort(null);
+        return all.get(all.size() / 2);
+    }
+
+    private WarDayZoneEngine engine(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+        executors.add(executor);
+
+        WarDayZoneEngine engine = new WarDayZoneEngine(jdbc, transactionManager, templates, executor, redisTemplate);
+        ReflectionTestUtils.setField(engine, "commandTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(engine, "syncIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(engine, "closeTimeoutMs", 10_000L);
+        return engine;
+    }
+
+    /**
+     * A map whose zones form a chain (each requires the previous one), with the given question counts.
+     */
+    private List<WarZoneTemplate> map(int... questionCounts) {
+        UUID mapId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO student.war_map_templates (id, name) VALUES (?, ?)", mapId, "Mapa " + mapId);
+        List<WarZoneTemplate> zones = new ArrayList<>();
+        for (int i = 0; i < questionCounts.length; i++) {
+            UUID zoneId = UUID.randomUUID();
+            Set<UUID> prerequisites = new HashSet<>();
+            if (i > 0) prerequisites.add(zones.get(i - 1).getId());
+            jdbcTemplate.update("""
+                INSERT INTO student.war_zone_templates (id, map_template_id, name, question_count, points_per_correct, display_order)
+                VALUES (?, ?, ?, ?, 10, ?)
+                """, zoneId, mapId, "Zona " + i, questionCounts[i], i);
+            zones.add(WarZoneTemplate.builder().id(zoneId).name("Zona " + i).questionCount(questionCounts[i])
+                    .pointsPerCorrect(10).displayOrder(i).prerequisiteZoneIds(prerequisites).build());
+        }
+        when(templates.findAllByMapTemplateIdOrderByDisplayOrderAsc(mapId)).thenReturn(zones);
+        return zones;
+    }
+
+    private UUID event(List<WarZoneTemplate> zones) {
+        UUID mapId = jdbcTemplate.queryForObject(
+                "SELECT map_template_id FROM student.war_zone_templates WHERE id = ?", UUID.class, zones.get(0).getId());
+        UUID eventId = UUID.randomUUID();
+        jdbcTemplate.update("""
+            INSERT INTO student.war_day_events (id, title, status, start_at, end_at, map_template_id)
+            VALUES (?, 'War Day', 'ACTIVE', NOW(), NOW() + INTERVAL '1 hour', ?)
+            """, eventId, mapId);
+        return eventId;
+    }
+
+    private UUID guild() {
+        UUID guildId = UUID.randomUUID();
+        jdbcTemplate.update("""
+            INSERT INTO student.guilds (id, name, description, badge, created_at, updated_at)
+            VALUES (?, ?, 'Guild', 'shield', NOW(), NOW())
+            """, guildId, guildId.toString().substring(0, 30));
+        return guildId;
+    }
+
+    /**
+     * The guild's session with the first zone available and the others locked.
+     */
+    private UUID session(UUID eventId, UUID guildId, List<WarZoneTemplate> zones) {
+        UUID sessionId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO student.guild_war_sessions (id, war_day_event_id, guild_id) VALUES (?, ?, ?)",
+                sessionId, eventId, guildId);
+        for (int i = 0; i < zones.size(); i++) {
+            jdbcTemplate.update("""
+                INSERT INTO student.war_zone_progress (guild_war_session_id, zone_template_id, status)
+                VALUES (?, ?, ?)
+                """, sessionId, zones.get(i).getId(), i == 0 ? "AVAILABLE" : "LOCKED");
+        }
+        return sessionId;
+    }
+
+    private UUID user() {
+        UUID userId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO identity.users (id, email, name, nickname) VALUES (?, ?, ?, ?)",
+                userId, userId + "@test.com", "Membro", userId.toString());
+        return userId;
+    }
+
+    private Map<String, Object> progress(UUID sessionId, UUID zoneId) {
+        return jdbcTemplate.queryForMap(
+                "SELECT * FROM student.war_zone_progress WHERE guild_war_session_id = ? AND zone_template_id = ?",
+                sessionId, zoneId);
+    }
+
+    private long totalScore(UUID sessionId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT total_score FROM student.guild_war_sessions WHERE id = ?", Long.class, sessionId);
+    }
+
+    private int attempts(UUID sessionId) {
+        return jdbcTemplate.queryForObject("""
+            SELECT COUNT(*) FROM student.war_zone_attempts a
+            JOIN student.war_zone_progress p ON p.id = a.zone_progress_id
+            WHERE p.guild_war_session_id = ?
+            """, Integer.class, sessionId);
+    }
+
+    /**
+     * Real transactions, except that beginning one fails while {@code failing} is set.
+     */
+    private static class FailingTransactionManager extends DataSourceTransactionManager {
+        private final AtomicBoolean failing;
+
+        FailingTransactionManager(AtomicBoolean failing) {
+            super(dataSource);
+            this.failing = failing;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            if (failing.get()) throw new CannotCreateTransactionException("Banco indisponível");
+            super.doBegin(transaction, definition);
+        }
+    }
+}
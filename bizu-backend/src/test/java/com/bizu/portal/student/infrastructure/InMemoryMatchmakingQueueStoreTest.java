@@ -0,0 +1,72 @@
+package com.bizu.portal.student.infrastructure;
+
+import com.bizu.portal.student.application.MatchmakingQueueStore.QueuedPlayer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryMatchmakingQueueStoreTest {
+
+    private final InMemoryMatchmakingQueueStore store = new InMemoryMatchmakingQueueStore();
+    private final UUID courseId = UUID.randomUUID();
+
+    @Test
+    void enqueue_keepsOriginalPositionWhenAlreadyQueued() {
+        QueuedPlayer first = player(3, 30);
+        QueuedPlayer second = player(4, 10);
+        store.enqueue(courseId, first);
+        store.enqueue(courseId, second);
+
+        store.enqueue(courseId, new QueuedPlayer(first.userId(), 9, Instant.now()));
+
+        assertThat(store.snapshot(courseId)).containsExactly(first, second);
+    }
+
+    @Test
+    void removePair_onlyRemovesWhenBothAreStillQueued() {
+        QueuedPlayer a = player(1, 5);
+        QueuedPlayer b = player(1, 4);
+        QueuedPlayer c = player(1, 3);
+        store.enqueue(courseId, a);
+        store.enqueue(courseId, b);
+        store.enqueue(courseId, c);
+        store.remove(courseId, b.userId());
+
+        assertThat(store.removePair(courseId, a.userId(), b.userId())).isFalse();
+        assertThat(store.snapshot(courseId)).containsExactly(a, c);
+
+        assertThat(store.removePair(courseId, a.userId(), c.userId())).isTrue();
+        assertThat(store.removePair(courseId, a.userId(), c.userId())).isFalse();
+    }
+
+    @Test
+    void emptyQueue_leavesActiveCourses() {
+        QueuedPlayer a = player(1, 1);
+        store.enqueue(courseId, a);
+        assertThat(store.activeCourses()).containsExactly(courseId);
+
+        store.remove(courseId, a.userId());
+
+        assertThat(store.activeCourses()).isEmpty();
+        assertThat(store.snapshot(courseId)).isEmpty();
+    }
+
+    @Test
+    void matcherLease_isExclusiveUntilReleasedOrExpired() {
+        assertThat(store.tryAcquireMatcher(courseId, Duration.ofSeconds(10))).isTrue();
+        assertThat(store.tryAcquireMatcher(courseId, Duration.ofSeconds(10))).isFalse();
+
+        store.releaseMatcher(courseId);
+        assertThat(store.tryAcquireMatcher(courseId, Duration.ofMillis(-1))).isTrue();
+        // Lease vencido: outro matcher assume
+        assertThat(store.tryAcquireMatcher(courseId, Duration.ofSeconds(10))).isTrue();
+    }
+
+    private QueuedPlayer player(int rating, int waitedSeconds) {
+        return new QueuedPlayer(UUID.randomUUID(), rating, Instant.now().minusSeconds(waitedSeconds));
+    }
+}
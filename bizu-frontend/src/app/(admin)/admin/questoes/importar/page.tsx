@@ -33,11 +33,16 @@ type ImportLog = {
     fileName: string;
     importedBy: string;
     importedAt: string;
+    status: "PROCESSING" | "COMPLETED" | "FAILED";
+    processedCount: number;
+    errorCount: number;
+    errors: string[] | null;
 };
 
 type ImportResult = {
     count: number;
     errors: string[];
+    errorCount: number;
     logId: string;
 };
 
@@ -57,6 +62,7 @@ export default function ImportarQuestoes() {
     const [uploadFile, setUploadFile] = useState<File | null>(null);
     const [uploading, setUploading] = useState(false);
     const [importResult, setImportResult] = useState<ImportResult | null>(null);
+    const [importProgress, setImportProgress] = useState<number | null>(null);
 
     // Logs
     const [logs, setLogs] = useState<ImportLog[]>([]);
@@ -146,9 +152,20 @@ export default function ImportarQuestoes() {
                 body: formData,
                 headers: {} // let browser set multipart boundary
             });
-            const data = await res.json();
+            let data = await res.json();
             if (res.ok) {
-                setImportResult(data);
+                // A importação roda em segundo plano: acompanha o progresso pelo log
+                while (data.status === "PROCESSING") {
+                    setImportProgress(data.processedCount || 0);
+                    await new Promise(resolve => setTimeout(resolve, 1000));
+                    data = await (await apiFetch(`/admin/questions/import/logs/${data.id}`)).json();
+                }
+                setImportResult({
+                    count: data.questionCount,
+                    errors: data.errors || [],
+                    errorCount: data.errorCount || 0,
+                    logId: data.id,
+                });
                 setUploadFile(null);
                 if (fileInputRef.current) fileInputRef.current.value = "";
                 loadLogs();
@@ -159,6 +176,7 @@ export default function ImportarQuestoes() {
             alert("Erro ao processar o arquivo.", { type: "danger" });
         } finally {
             setUploading(false);
+            setImportProgress(null);
         }
     };
 
@@ -329,7 +347,7 @@ export default function ImportarQuestoes() {
                         className="h-12 rounded-2xl font-black px-8 gap-2 bg-gradient-to-r from-primary to-primary-dark shadow-lg shadow-primary/20"
                     >
                         {uploading ? <Loader2 className="w-4 h-4 animate-spin" /> : <Upload className="w-4 h-4" />}
-                        {uploading ? "Importando..." : "Importar Questões"}
+                        {uploading ? (importProgress !== null ? `Importando... ${importProgress} processadas` : "Importando...") : "Importar Questões"}
                     </Button>
 
                     {/* Result */}
@@ -347,7 +365,7 @@ export default function ImportarQuestoes() {
                                     }
                                     <p className="font-black text-sm">
                                         {importResult.count} questão{importResult.count !== 1 ? "s" : ""} importada{importResult.count !== 1 ? "s" : ""} com sucesso
-                                        {importResult.errors.length > 0 && ` — ${importResult.errors.length} erro(s)`}
+                                        {importResult.errorCount > 0 && ` — ${importResult.errorCount} erro(s)`}
                                     </p>
                                 </div>
                                 {importResult.errors.length > 0 && (
@@ -26,6 +26,7 @@ import { useRouter, useSearchParams } from "next/navigation";
 import { motion, AnimatePresence } from "framer-motion";
 
 import { apiFetch } from "@/lib/api";
+import { resolveMediaUrl } from "@/lib/media";
 import { useCustomDialog } from "@/components/CustomDialogProvider";
 
 function QuestionFormContainer() {
@@ -44,6 +45,7 @@ function QuestionFormContainer() {
     const [banca, setBanca] = useState("");
     const [year, setYear] = useState(new Date().getFullYear());
     const [imageBase64, setImageBase64] = useState<string | null>(null);
+    const [imageUrl, setImageUrl] = useState<string | null>(null);
     const [options, setOptions] = useState({ A: "", B: "", C: "", D: "" });
     const [correctOption, setCorrectOption] = useState("A");
 
@@ -73,7 +75,7 @@ function QuestionFormContainer() {
                 setTopic(data.topic || "");
                 setBanca(data.banca || "");
                 setYear(data.year || new Date().getFullYear());
-                setImageBase64(data.imageBase64 || null);
+                setImageUrl(data.imageUrl || null);
                 setOptions(data.options || { A: "", B: "", C: "", D: "" });
                 setCorrectOption(data.correctOption || "A");
 
@@ -173,6 +175,7 @@ function QuestionFormContainer() {
                     statement: content,
                     resolution,
                     imageBase64,
+                    imageUrl,
                     category,
                     difficulty,
                     subject,
@@ -307,11 +310,11 @@ function QuestionFormContainer() {
                                     <ImageIcon className="w-3 h-3" /> Imagem da Questão <span className="text-[9px] text-muted-foreground/60 normal-case">(opcional)</span>
                                 </label>
                             </div>
-                            {imageBase64 ? (
+                            {imageBase64 || imageUrl ? (
                                 <div className="relative rounded-3xl overflow-hidden border-2 border-muted bg-card">
-                                    <img src={imageBase64} alt="Imagem da questão" className="max-h-64 w-full object-contain p-4" />
+                                    <img src={imageBase64 || resolveMediaUrl(imageUrl)} alt="Imagem da questão" className="max-h-64 w-full object-contain p-4" />
                                     <button
-                                        onClick={() => setImageBase64(null)}
+                                        onClick={() => { setImageBase64(null); setImageUrl(null); }}
                                         className="absolute top-3 right-3 w-8 h-8 rounded-full bg-destructive/10 text-destructive flex items-center justify-center hover:bg-destructive/20 transition-colors"
                                     >
                                         <X className="w-4 h-4" />
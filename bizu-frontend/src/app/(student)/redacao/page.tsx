@@ -77,6 +77,18 @@ export default function RedacaoPage() {
         }
     }, [selectedCourseId]);
 
+    // Atualizações da correção chegam pelo SSE de progresso (ver CourseContext)
+    useEffect(() => {
+        const onEssayUpdate = (event: Event) => {
+            const { essayId, ...fields } = (event as CustomEvent).detail || {};
+            if (!essayId) return;
+            setEssays(prev => prev.map(e => e.id === essayId ? { ...e, ...fields } : e));
+            setSelectedEssay((prev: any) => prev && prev.id === essayId ? { ...prev, ...fields } : prev);
+        };
+        window.addEventListener("essay_update", onEssayUpdate);
+        return () => window.removeEventListener("essay_update", onEssayUpdate);
+    }, []);
+
     const fetchEssays = async () => {
         setIsLoading(true);
         try {
@@ -3,6 +3,7 @@
 import { useState, useEffect, useCallback, useRef } from "react";
 import { useParams, useRouter, useSearchParams } from "next/navigation";
 import { apiFetch } from "@/lib/api";
+import { resolveMediaUrl } from "@/lib/media";
 import { useDuels } from "@/contexts/DuelContext";
 import { motion, AnimatePresence } from "framer-motion";
 import {
@@ -21,7 +22,7 @@ interface QuestionExam {
     banca: string | null;
     year: number | null;
     subject: string | null;
-    imageBase64: string | null;
+    imageUrl: string | null;
 }
 
 interface SessionStart {
@@ -943,9 +944,9 @@ export default function SimuladoExamPage() {
                                 exit={{ opacity: 0, x: -24 }}
                                 transition={{ duration: 0.2, ease: "easeInOut" }}
                             >
-                                {q.imageBase64 && (
+                                {q.imageUrl && (
                                     <img
-                                        src={`data:image/png;base64,${q.imageBase64}`}
+                                        src={resolveMediaUrl(q.imageUrl)}
                                         alt="Imagem da questão"
                                         className="max-w-full rounded-xl mb-6 border border-border/30"
                                     />
@@ -30,6 +30,17 @@ export function NotificationProvider({ children }: { children: React.ReactNode }
         }, 5000);
     };
 
+    // Notificações enviadas pelo servidor (repassadas do SSE pelo CourseContext)
+    useEffect(() => {
+        const onNotification = (event: Event) => {
+            const { title, message, type } = (event as CustomEvent).detail ?? {};
+            if (!title) return;
+            notify(title, message ?? "", type === "RANKING" ? "achievement" : "info");
+        };
+        window.addEventListener("notification_received", onNotification);
+        return () => window.removeEventListener("notification_received", onNotification);
+    }, []);
+
     const remove = (id: string) => {
         setNotifications((prev) => prev.filter((n) => n.id !== id));
     };
@@ -5,6 +5,7 @@ import { motion, AnimatePresence } from "framer-motion";
 import { CheckCircle2, XCircle, ArrowLeft, Zap, Skull, Star, ChevronRight, Flame } from "lucide-react";
 import { WarDayService, QuestionResponse, AnswerResult, ZoneState } from "@/lib/warDayService";
 import ZoneConquestAnimation from "./ZoneConquestAnimation";
+import { resolveMediaUrl } from "@/lib/media";
 
 interface BossZoneScreenProps {
   eventId: string;
@@ -238,8 +239,8 @@ export default function BossZoneScreen({ eventId, zone, onBack, onBossDefeated }
                   border: "1px solid rgba(248,113,113,0.2)",
                   boxShadow: "inset 0 0 40px rgba(248,113,113,0.05)",
                 }}>
-                {question.imageBase64 && (
-                  <img src={`data:image/png;base64,${question.imageBase64}`} alt=""
+                {question.imageUrl && (
+                  <img src={resolveMediaUrl(question.imageUrl)} alt=""
                     className="w-full rounded-lg mb-4 max-h-48 object-contain" />
                 )}
                 <p className="text-white text-base leading-relaxed whitespace-pre-wrap">
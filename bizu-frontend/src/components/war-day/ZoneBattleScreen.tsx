@@ -5,6 +5,7 @@ import { motion, AnimatePresence } from "framer-motion";
 import { CheckCircle2, XCircle, Sword, Shield, ArrowLeft, Zap, Target, ChevronRight } from "lucide-react";
 import { WarDayService, QuestionResponse, AnswerResult, ZoneState } from "@/lib/warDayService";
 import ZoneConquestAnimation from "./ZoneConquestAnimation";
+import { resolveMediaUrl } from "@/lib/media";
 
 interface ZoneBattleScreenProps {
   eventId: string;
@@ -235,9 +236,9 @@ export default function ZoneBattleScreen({ eventId, zone, onBack, onZoneConquere
               {/* Question */}
               <div className="rounded-2xl p-4 sm:p-6 mb-5"
                 style={{ background: "rgba(255,255,255,0.04)", border: "1px solid rgba(255,255,255,0.08)" }}>
-                {question.imageBase64 && (
+                {question.imageUrl && (
                   <img
-                    src={`data:image/png;base64,${question.imageBase64}`}
+                    src={resolveMediaUrl(question.imageUrl)}
                     alt="Imagem da questão"
                     className="w-full rounded-lg mb-4 max-h-48 object-contain"
                   />
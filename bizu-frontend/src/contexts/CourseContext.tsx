@@ -149,7 +149,28 @@ export function CourseProvider({ children }: { children: React.ReactNode }): Rea
             loadEntitlements();
         });
 
+        // Correção de redação em segundo plano: repassa para a página de redação
+        es.addEventListener("essay", (event) => {
+            try {
+                window.dispatchEvent(new CustomEvent("essay_update", { detail: JSON.parse(event.data) }));
+            } catch {
+                // ignore parse errors
+            }
+        });
+
+        // Notificações do usuário: o NotificationProvider exibe o aviso
+        es.addEventListener("notification", (event) => {
+            try {
+                window.dispatchEvent(new CustomEvent("notification_received", { detail: JSON.parse(event.data) }));
+            } catch {
+                // ignore parse errors
+            }
+        });
+
+        // Queda de conexão: o navegador reconecta sozinho enviando Last-Event-ID e o servidor
+        // reenvia o que foi perdido. Só desiste quando a conexão é recusada (ex.: token expirado).
         es.onerror = () => {
+            if (es.readyState !== EventSource.CLOSED) return;
             es.close();
             eventSourceRef.current = null;
         };
@@ -42,6 +42,12 @@ export function WarDayProvider({
 
   const guildId = mapState?.guildId ?? "";
   const rewardShownRef = useRef(false);
+  // Última versão de ranking aplicada: frames atrasados ou repetidos são descartados
+  const rankingVersionRef = useRef(0);
+
+  useEffect(() => {
+    rankingVersionRef.current = 0;
+  }, [eventId]);
 
   // WebSocket handlers
   const handleMapUpdate = useCallback((update: MapUpdateEvent) => {
@@ -66,12 +72,22 @@ export function WarDayProvider({
   }, []);
 
   const handleRankingUpdate = useCallback((update: RankingUpdateEvent) => {
-    setRanking(
-      update.ranking.map((r) => ({
-        ...r,
-        isMyGuild: r.guildId === guildId,
-      }))
-    );
+    if (update.version <= rankingVersionRef.current) return;
+    rankingVersionRef.current = update.version;
+    const incoming = update.ranking.map((r) => ({
+      ...r,
+      isMyGuild: r.guildId === guildId,
+    }));
+    if (update.type !== "RANKING_DELTA") {
+      setRanking(incoming);
+      return;
+    }
+    // Delta: substitui só as guilds alteradas e reordena pela nova posição
+    setRanking((current) => {
+      const byGuild = new Map(current.map((r) => [r.guildId, r]));
+      incoming.forEach((r) => byGuild.set(r.guildId, r));
+      return Array.from(byGuild.values()).sort((a, b) => a.position - b.position);
+    });
   }, [guildId]);
 
   const handleEventStatusChange = useCallback((data: { status: string; title: string }) => {
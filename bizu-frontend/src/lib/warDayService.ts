@@ -64,7 +64,7 @@ export interface QuestionResponse {
   questionId: string;
   statement: string;
   options: Record<string, string>;
-  imageBase64?: string;
+  imageUrl?: string;
   difficulty?: string;
   questionsAnswered: number;
   correctAnswers: number;
@@ -116,7 +116,9 @@ export interface MapUpdateEvent {
 }
 
 export interface RankingUpdateEvent {
-  type: "RANKING_UPDATE";
+  /** RANKING_UPDATE traz o ranking completo; RANKING_DELTA só as guilds que mudaram */
+  type: "RANKING_UPDATE" | "RANKING_DELTA";
+  version: number;
   ranking: GuildRankingEntry[];
 }
 